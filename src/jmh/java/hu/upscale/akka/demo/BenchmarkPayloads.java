@@ -0,0 +1,45 @@
+package hu.upscale.akka.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic payloads resembling the JSON documents stored in <b>demo.FinancialTransaction</b>, so compression ratios and costs are close to the
+ * production ones instead of the extremes of random or constant bytes.
+ *
+ * @author László Zoltán
+ */
+public final class BenchmarkPayloads {
+
+    private static final String[] CURRENCIES = {"HUF", "EUR", "USD", "CHF"};
+    private static final String[] TRANSACTION_TYPES = {"CARD_PAYMENT", "TRANSFER", "DIRECT_DEBIT", "CASH_WITHDRAWAL", "INTEREST"};
+
+    private BenchmarkPayloads() {
+        // Static class
+    }
+
+    /**
+     * @param size exact length of the payload in bytes
+     * @param seed seed of the generated values
+     * @return UTF-8 JSON lines, the last one truncated to the requested size
+     */
+    public static byte[] financialTransactionData(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder payload = new StringBuilder(size + 256);
+        while (payload.length() < size) {
+            payload.append("{\"transactionId\":\"").append(new UUID(random.nextLong(), random.nextLong()))
+                .append("\",\"type\":\"").append(TRANSACTION_TYPES[random.nextInt(TRANSACTION_TYPES.length)])
+                .append("\",\"amount\":").append(random.nextInt(10_000_000)).append('.').append(random.nextInt(100))
+                .append(",\"currency\":\"").append(CURRENCIES[random.nextInt(CURRENCIES.length)])
+                .append("\",\"bookingDate\":\"2021-").append(1 + random.nextInt(12)).append('-').append(1 + random.nextInt(28))
+                .append("\",\"counterpartyAccount\":\"HU").append(Math.abs(random.nextLong()))
+                .append("\"}\n");
+        }
+
+        byte[] payloadBytes = new byte[size];
+        System.arraycopy(payload.toString().getBytes(StandardCharsets.UTF_8), 0, payloadBytes, 0, size);
+        return payloadBytes;
+    }
+
+}
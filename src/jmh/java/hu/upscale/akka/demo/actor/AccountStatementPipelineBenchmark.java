@@ -0,0 +1,157 @@
+package hu.upscale.akka.demo.actor;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import ch.qos.logback.classic.Logger;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import hu.upscale.akka.demo.BenchmarkPayloads;
+import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor.AccountStatementGeneratorRequest;
+import hu.upscale.akka.demo.archive.ArchiveStatementCache;
+import hu.upscale.akka.demo.archive.ArchiveWriteCombiner;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.repository.ArchiveRepository;
+import hu.upscale.akka.demo.repository.FinancialTransactionRepository;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import io.opentelemetry.api.OpenTelemetry;
+import io.prometheus.client.CollectorRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+/**
+ * End-to-end generation of one account statement through the actors: chain load, compression, signing and the write combiner. The repositories are
+ * in-memory stubs, so the numbers exclude the database and show the CPU and allocation cost of the archive hot path. The archive rows are discarded,
+ * the same chain is archived by every invocation. Logging is limited to warnings, so console output is not measured.
+ *
+ * @author László Zoltán
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class AccountStatementPipelineBenchmark {
+
+    private static final int TRANSACTIONS_PER_STATEMENT = 16;
+    private static final Duration GENERATION_TIMEOUT = Duration.ofMinutes(1);
+
+    @Param({"1024", "16384", "262144", "4194304"})
+    private int payloadSize;
+
+    private ActorSystem actorSystem;
+    private ActorRef accountStatementGeneratorActor;
+    private UUID lastTransactionId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        Config config = ConfigFactory.load()
+            .withValue("microservice.compression.dictionary.enabled", ConfigValueFactory.fromAnyRef(false))
+            .withValue("microservice.account-statement.checkpoint.enabled", ConfigValueFactory.fromAnyRef(false));
+        actorSystem = ActorSystem.create("account-statement-pipeline-benchmark", config);
+
+        Map<String, FinancialTransaction> financialTransactions = new HashMap<>();
+        String previousTransactionId = null;
+        for (int i = 0; i < TRANSACTIONS_PER_STATEMENT; i++) {
+            String transactionId = UUID.randomUUID().toString();
+            financialTransactions.put(transactionId, FinancialTransaction.builder()
+                .transactionId(transactionId)
+                .previousTransactionId(previousTransactionId)
+                .data(BenchmarkPayloads.financialTransactionData(payloadSize, i))
+                .build());
+            previousTransactionId = transactionId;
+        }
+        lastTransactionId = UUID.fromString(previousTransactionId);
+
+        CompressionDictionaryRegistry compressionDictionaryRegistry = new CompressionDictionaryRegistry(config, actorSystem, null, null);
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new CollectorRegistry());
+        PipelineTracing pipelineTracing = new PipelineTracing(OpenTelemetry.noop());
+        ArchiveWriteCombiner archiveWriteCombiner = new ArchiveWriteCombiner(config, actorSystem, new DiscardingArchiveRepository(),
+            new ArchiveStatementCache(config), pipelineMetrics, pipelineTracing);
+        accountStatementGeneratorActor = actorSystem.actorOf(AccountStatementGeneratorActor.props(config,
+            new InMemoryFinancialTransactionRepository(financialTransactions), null, archiveWriteCombiner, compressionDictionaryRegistry,
+            pipelineMetrics, pipelineTracing));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.terminate();
+    }
+
+    @Benchmark
+    public Object generateAccountStatement() {
+        return Patterns.ask(
+            accountStatementGeneratorActor,
+            AccountStatementGeneratorRequest.builder().lastTransactionId(lastTransactionId).build(),
+            GENERATION_TIMEOUT
+        ).toCompletableFuture().join();
+    }
+
+    private static final class InMemoryFinancialTransactionRepository implements FinancialTransactionRepository {
+
+        private final Map<String, FinancialTransaction> financialTransactions;
+
+        private InMemoryFinancialTransactionRepository(Map<String, FinancialTransaction> financialTransactions) {
+            this.financialTransactions = financialTransactions;
+        }
+
+        @Override
+        public CompletionStage<List<FinancialTransaction>> findFinancialTransactionChainPage(String transactionId, int pageSize) {
+            List<FinancialTransaction> financialTransactionChainPage = new ArrayList<>(pageSize);
+            String nextTransactionId = transactionId;
+            while (nextTransactionId != null && financialTransactionChainPage.size() < pageSize) {
+                FinancialTransaction financialTransaction = financialTransactions.get(nextTransactionId);
+                financialTransactionChainPage.add(financialTransaction);
+                nextTransactionId = financialTransaction.getPreviousTransactionId();
+            }
+            return CompletableFuture.completedFuture(financialTransactionChainPage);
+        }
+
+    }
+
+    private static final class DiscardingArchiveRepository implements ArchiveRepository {
+
+        @Override
+        public CompletionStage<Void> moveFinancialTransactionsToArchive(List<ArchiveFinancialTransaction> archiveFinancialTransactions) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletionStage<Void> moveFinancialTransactionBlockToArchive(ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock,
+            List<String> transactionIds) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+    }
+}
@@ -0,0 +1,59 @@
+package hu.upscale.akka.demo.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.upscale.akka.demo.BenchmarkPayloads;
+import hu.upscale.akka.demo.util.ObjectMapperProvider;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON round trip of a line of the streamed account statement with the shared {@link ObjectMapperProvider} mapper, the Base64 encoded data grows with
+ * the payload size. The fixed size POST payload is measured by {@link PostAccountStatementJsonBenchmark}.
+ *
+ * @author László Zoltán
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AccountStatementTransactionJsonBenchmark {
+
+    @Param({"1024", "16384", "262144", "4194304"})
+    private int payloadSize;
+
+    private ObjectMapper objectMapper;
+    private GetAccountStatementTransactionResponse getAccountStatementTransactionResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = ObjectMapperProvider.getObjectMapper();
+        getAccountStatementTransactionResponse = GetAccountStatementTransactionResponse.builder()
+            .transactionId(UUID.randomUUID().toString())
+            .transactionNumber(1)
+            .data(BenchmarkPayloads.financialTransactionData(payloadSize, payloadSize))
+            .build();
+    }
+
+    @Benchmark
+    public GetAccountStatementTransactionResponse accountStatementTransactionRoundTrip() throws IOException {
+        return objectMapper.readValue(objectMapper.writeValueAsBytes(getAccountStatementTransactionResponse),
+            GetAccountStatementTransactionResponse.class);
+    }
+
+}
@@ -0,0 +1,57 @@
+package hu.upscale.akka.demo.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.upscale.akka.demo.util.ObjectMapperProvider;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON cost of one statement generation call with the shared {@link ObjectMapperProvider} mapper: the POST request is read and the response is
+ * written.
+ *
+ * @author László Zoltán
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PostAccountStatementJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private byte[] postAccountStatementRequestJson;
+    private UUID accountStatementId;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = ObjectMapperProvider.getObjectMapper();
+        postAccountStatementRequestJson = objectMapper.writeValueAsBytes(
+            PostAccountStatementRequest.builder().lastTransactionId(UUID.randomUUID()).build()
+        );
+        accountStatementId = UUID.randomUUID();
+    }
+
+    @Benchmark
+    public byte[] postAccountStatementRoundTrip() throws IOException {
+        PostAccountStatementRequest postAccountStatementRequest = objectMapper.readValue(postAccountStatementRequestJson,
+            PostAccountStatementRequest.class);
+        return objectMapper.writeValueAsBytes(PostAccountStatementResponse.builder()
+            .accountStatementId(postAccountStatementRequest.getLastTransactionId() != null ? accountStatementId : null)
+            .build());
+    }
+
+}
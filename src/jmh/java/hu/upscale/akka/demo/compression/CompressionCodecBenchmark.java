@@ -0,0 +1,65 @@
+package hu.upscale.akka.demo.compression;
+
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.BenchmarkPayloads;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single threaded cost of the compression done by <b>ZipCompressorActor</b> and <b>ZipDecompressorActor</b>: the {@link CompressionCodec} is called
+ * directly, so actor messaging is not part of the numbers.
+ *
+ * @author László Zoltán
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CompressionCodecBenchmark {
+
+    @Param({"1024", "16384", "262144", "4194304"})
+    private int payloadSize;
+
+    private CompressionCodec compressionCodec;
+    private byte[] rawData;
+    private byte[] compressedData;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compressionCodec = new CompressionCodec(ConfigFactory.load());
+        rawData = BenchmarkPayloads.financialTransactionData(payloadSize, payloadSize);
+        compressedData = compressionCodec.compress(rawData);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compressionCodec.close();
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return compressionCodec.compress(rawData);
+    }
+
+    @Benchmark
+    public byte[] decompress() {
+        return compressionCodec.decompress(compressedData, null);
+    }
+
+}
@@ -0,0 +1,61 @@
+package hu.upscale.akka.demo.crypto;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single threaded signing and verification throughput of the signature schemes, i.e. the throughput one core of the signer pool delivers. The
+ * 64 byte payload is the size of a Merkle root, the others cover the usual financial transaction and archive block sizes.
+ *
+ * @author László Zoltán
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SignatureSchemeBenchmark {
+
+    @Param({"SHA512_WITH_RSA", "ED25519"})
+    private SignatureAlgorithm signatureAlgorithm;
+
+    @Param({"64", "1024", "16384", "262144", "4194304"})
+    private int payloadSize;
+
+    private SignatureScheme signatureScheme;
+    private byte[] payload;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() {
+        signatureScheme = SignatureSchemes.of(signatureAlgorithm);
+        payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+        signature = signatureScheme.sign(payload);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return signatureScheme.sign(payload);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return signatureScheme.verify(payload, signature);
+    }
+
+}
@@ -0,0 +1,147 @@
+package hu.upscale.akka.demo.dispatch;
+
+import akka.actor.ActorSystem;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import hu.upscale.akka.demo.guice.GuiceInjectionModule;
+import hu.upscale.akka.demo.repository.FinancialTransactionRepository;
+import hu.upscale.akka.demo.repository.JdbcFinancialTransactionRepository;
+import hu.upscale.akka.demo.repository.SqlDialect;
+import io.prometheus.client.CollectorRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to generate the given number of concurrent account statements when every statement issues a chain of blocking JDBC calls, on the fixed
+ * <b>akka.actor.jdbc-dispatcher</b> pool and on virtual threads bounded by the connection pool size. Both executors get the same bound: the
+ * <i>jdbcConcurrency</i> parameter overrides the dispatcher pool size and the connection pool size together, at and above the configured 32. PARK
+ * simulates the database round trip by parking the calling thread and measures the scheduling of the two executors only, H2 runs the real chain
+ * page query of {@link JdbcFinancialTransactionRepository} against an in-process H2 database. The VIRTUAL_THREAD mode requires Java 21 or newer.
+ *
+ * @author László Zoltán
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JdbcExecutorBenchmark {
+
+    private static final String JDBC_DISPATCHER = "akka.actor.jdbc-dispatcher";
+    private static final String JDBC_DISPATCHER_POOL_SIZE_CONFIG_KEY = JDBC_DISPATCHER + ".thread-pool-executor.fixed-pool-size";
+    private static final String CONNECTION_POOL_MIN_SIZE_CONFIG_KEY = "microservice.datasource.connection-pool-min-size";
+    private static final String CONNECTION_POOL_MAX_SIZE_CONFIG_KEY = "microservice.datasource.connection-poll-max-size";
+    private static final String DATASOURCE_URL_CONFIG_KEY = "microservice.datasource.url";
+
+    private static final int QUERIES_PER_STATEMENT = 16;
+    private static final long QUERY_LATENCY_NANOS = Duration.ofMillis(2).toNanos();
+    private static final int CHAIN_PAGE_SIZE = 16;
+    private static final int PAYLOAD_SIZE = 1024;
+
+    @Param({"DISPATCHER", "VIRTUAL_THREAD"})
+    private JdbcExecutorMode jdbcExecutorMode;
+
+    @Param({"PARK", "H2"})
+    private QueryMode queryMode;
+
+    @Param({"32", "256"})
+    private int jdbcConcurrency;
+
+    @Param({"1", "8", "64", "512"})
+    private int concurrentStatements;
+
+    private ActorSystem actorSystem;
+    private BoundedVirtualThreadExecutor boundedVirtualThreadExecutor;
+    private Executor jdbcExecutor;
+    private Supplier<CompletionStage<?>> query;
+
+    public enum QueryMode {
+        PARK,
+        H2
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Config config = ConfigFactory.load(queryMode == QueryMode.H2 ? "h2.conf" : "application.conf")
+            .withValue(JDBC_DISPATCHER_POOL_SIZE_CONFIG_KEY, ConfigValueFactory.fromAnyRef(jdbcConcurrency))
+            .withValue(CONNECTION_POOL_MIN_SIZE_CONFIG_KEY, ConfigValueFactory.fromAnyRef(jdbcConcurrency))
+            .withValue(CONNECTION_POOL_MAX_SIZE_CONFIG_KEY, ConfigValueFactory.fromAnyRef(jdbcConcurrency));
+
+        actorSystem = ActorSystem.create("jdbc-executor-benchmark", config);
+        if (jdbcExecutorMode == JdbcExecutorMode.VIRTUAL_THREAD) {
+            boundedVirtualThreadExecutor = new BoundedVirtualThreadExecutor(JDBC_DISPATCHER, config.getInt(CONNECTION_POOL_MAX_SIZE_CONFIG_KEY));
+            jdbcExecutor = boundedVirtualThreadExecutor;
+        } else {
+            jdbcExecutor = actorSystem.dispatchers().lookup(JDBC_DISPATCHER);
+        }
+
+        if (queryMode == QueryMode.H2) {
+            // The data source closes with the actor system
+            DataSource dataSource = new GuiceInjectionModule().provideDataSource(config, actorSystem, new CollectorRegistry());
+            String lastTransactionId = new FinancialTransactionChainGenerator(dataSource)
+                .generate(ChainGeneratorSettings.fromConfig(config).withFixedShape(1, CHAIN_PAGE_SIZE, PAYLOAD_SIZE))
+                .get(0)
+                .toString();
+            FinancialTransactionRepository financialTransactionRepository = new JdbcFinancialTransactionRepository(dataSource, jdbcExecutor,
+                SqlDialect.of(config.getString(DATASOURCE_URL_CONFIG_KEY)));
+            query = () -> financialTransactionRepository.findFinancialTransactionChainPage(lastTransactionId, CHAIN_PAGE_SIZE);
+        } else {
+            query = () -> CompletableFuture.runAsync(JdbcExecutorBenchmark::park, jdbcExecutor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (boundedVirtualThreadExecutor != null) {
+            boundedVirtualThreadExecutor.close();
+        }
+        actorSystem.terminate();
+    }
+
+    @Benchmark
+    public void generateStatements() {
+        CompletableFuture<?>[] statements = new CompletableFuture<?>[concurrentStatements];
+        for (int i = 0; i < concurrentStatements; i++) {
+            statements[i] = generateStatement();
+        }
+        CompletableFuture.allOf(statements).join();
+    }
+
+    private CompletableFuture<?> generateStatement() {
+        CompletionStage<?> statement = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < QUERIES_PER_STATEMENT; i++) {
+            statement = statement.thenCompose(ignore -> query.get());
+        }
+        return statement.toCompletableFuture();
+    }
+
+    private static void park() {
+        LockSupport.parkNanos(QUERY_LATENCY_NANOS);
+    }
+
+}
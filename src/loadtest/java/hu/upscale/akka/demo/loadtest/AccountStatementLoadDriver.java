@@ -0,0 +1,109 @@
+package hu.upscale.akka.demo.loadtest;
+
+import akka.actor.ActorSystem;
+import akka.http.javadsl.Http;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.settings.ConnectionPoolSettings;
+import akka.stream.javadsl.Source;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.upscale.akka.demo.client.PostAccountStatementRequest;
+import hu.upscale.akka.demo.util.ObjectMapperProvider;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Closed-loop load of the statement generation endpoint: a fixed number of requests is kept in flight through the Akka HTTP client and the latency
+ * of every request, up to the last byte of the response, is recorded in an HdrHistogram in microseconds. Latencies are not corrected for coordinated
+ * omission, a saturated service shows up as lower throughput rather than higher latency.
+ *
+ * @author László Zoltán
+ */
+public class AccountStatementLoadDriver {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final int SIGNIFICANT_VALUE_DIGITS = 3;
+
+    private final ActorSystem actorSystem;
+    private final Http http;
+    private final ConnectionPoolSettings connectionPoolSettings;
+    private final ObjectMapper objectMapper = ObjectMapperProvider.getObjectMapper();
+    private final String uri;
+    private final int concurrency;
+
+    public AccountStatementLoadDriver(ActorSystem actorSystem, String uri, int concurrency) {
+        this.actorSystem = actorSystem;
+        this.uri = uri;
+        this.concurrency = concurrency;
+        http = Http.get(actorSystem);
+        connectionPoolSettings = ConnectionPoolSettings.create(actorSystem)
+            .withMaxConnections(concurrency)
+            .withMaxOpenRequests(Integer.highestOneBit(concurrency * 2 - 1) * 2);
+    }
+
+    /**
+     * @param lastTransactionIds chains to generate statements from, one request per chain
+     * @return the recorded latencies when every request has completed
+     */
+    public CompletionStage<LoadDriverRun> run(List<UUID> lastTransactionIds) {
+        Histogram histogram = new Histogram(HIGHEST_TRACKABLE_LATENCY_MICROS, SIGNIFICANT_VALUE_DIGITS);
+        LongAdder failedRequests = new LongAdder();
+        long startNanos = System.nanoTime();
+
+        return Source.from(lastTransactionIds)
+            .mapAsyncUnordered(concurrency, this::generateAccountStatement)
+            .runForeach(requestSample -> {
+                histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(requestSample.getLatencyNanos()), HIGHEST_TRACKABLE_LATENCY_MICROS));
+                if (!requestSample.isSuccessful()) {
+                    failedRequests.increment();
+                }
+            }, actorSystem)
+            .thenApply(ignore -> new LoadDriverRun(histogram, failedRequests.sum(), System.nanoTime() - startNanos));
+    }
+
+    private CompletionStage<RequestSample> generateAccountStatement(UUID lastTransactionId) {
+        HttpRequest httpRequest = HttpRequest.POST(uri).withEntity(ContentTypes.APPLICATION_JSON, toJson(lastTransactionId));
+        long startNanos = System.nanoTime();
+
+        return http.singleRequest(httpRequest, http.defaultClientHttpsContext(), connectionPoolSettings, actorSystem.log())
+            .thenCompose(httpResponse -> httpResponse.discardEntityBytes(actorSystem).completionStage()
+                .thenApply(ignore -> new RequestSample(System.nanoTime() - startNanos, httpResponse.status().isSuccess()))
+            )
+            .exceptionally(failure -> new RequestSample(System.nanoTime() - startNanos, false));
+    }
+
+    private byte[] toJson(UUID lastTransactionId) {
+        try {
+            return objectMapper.writeValueAsBytes(PostAccountStatementRequest.builder().lastTransactionId(lastTransactionId).build());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to serialize account statement request", e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class LoadDriverRun {
+
+        private final Histogram latencyMicros;
+        private final long failedRequests;
+        private final long elapsedNanos;
+
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class RequestSample {
+
+        private final long latencyNanos;
+        private final boolean successful;
+
+    }
+}
@@ -0,0 +1,158 @@
+package hu.upscale.akka.demo.loadtest;
+
+import akka.actor.ActorSystem;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+import com.google.inject.util.Modules;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.AkkaHttpServer;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import hu.upscale.akka.demo.guice.GuiceInjectionModule;
+import hu.upscale.akka.demo.loadtest.AccountStatementLoadDriver.LoadDriverRun;
+import hu.upscale.akka.demo.util.ObjectMapperProvider;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Self-contained load test of the statement generation endpoint. The service is started in-process against the H2 stand-in database, the
+ * financial transaction chains are generated, and the endpoint is loaded with the configured concurrency. The result is written to
+ * <i>loadtest-&lt;commit&gt;-&lt;timestamp&gt;.json</i> and the full latency distribution to the matching <i>.hgrm</i> file.
+ * <p>
+ * Usage: <code>gradlew loadTest -Dloadtest.concurrency=32 -Dloadtest.chain-length=1000</code>
+ *
+ * @author László Zoltán
+ */
+public interface AccountStatementLoadTest {
+
+    Logger LOGGER = LoggerFactory.getLogger(AccountStatementLoadTest.class);
+
+    String LOAD_TEST_CONFIG_RESOURCE = "loadtest";
+
+    String HOST_CONFIG_KEY = "loadtest.host";
+    String CONCURRENCY_CONFIG_KEY = "loadtest.concurrency";
+    String STATEMENTS_CONFIG_KEY = "loadtest.statements";
+    String WARMUP_STATEMENTS_CONFIG_KEY = "loadtest.warmup-statements";
+    String CHAIN_LENGTH_CONFIG_KEY = "loadtest.chain-length";
+    String PAYLOAD_SIZE_CONFIG_KEY = "loadtest.payload-size";
+    String RESULTS_DIRECTORY_CONFIG_KEY = "loadtest.results-directory";
+    String COMMIT_CONFIG_KEY = "loadtest.commit";
+    String HTTP_PORT_CONFIG_KEY = "akka.http.server.default-http-port";
+    String CONTEXT_PATH_CONFIG_KEY = "microservice.context-path";
+
+    String STATEMENTS_PATH = "/accounts/statements";
+    String CLIENT_ACTOR_SYSTEM_NAME = "load-test-client";
+    DateTimeFormatter RESULT_FILE_TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    double MICROS_IN_MILLI = 1_000.0;
+
+    static void main(String[] args) {
+        Config config = ConfigFactory.load(LOAD_TEST_CONFIG_RESOURCE);
+        Injector injector = Guice.createInjector(Stage.PRODUCTION, Modules.override(new GuiceInjectionModule()).with(new AbstractModule() {
+            @Provides
+            @Singleton
+            public Config provideConfig() {
+                return config;
+            }
+        }));
+        AkkaHttpServer akkaHttpServer = injector.getInstance(AkkaHttpServer.class);
+        akkaHttpServer.bind().toCompletableFuture().join();
+
+        int concurrency = config.getInt(CONCURRENCY_CONFIG_KEY);
+        int statements = config.getInt(STATEMENTS_CONFIG_KEY);
+        int warmupStatements = config.getInt(WARMUP_STATEMENTS_CONFIG_KEY);
+        int chainLength = config.getInt(CHAIN_LENGTH_CONFIG_KEY);
+        int payloadSize = config.getBytes(PAYLOAD_SIZE_CONFIG_KEY).intValue();
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        LOGGER.warn("Generating financial transaction chains - chains: [{}], chainLength: [{}], payloadSize: [{}]", warmupStatements + statements,
+            chainLength, payloadSize);
+        List<UUID> lastTransactionIds = injector.getInstance(FinancialTransactionChainGenerator.class)
+            .generate(ChainGeneratorSettings.fromConfig(config).withFixedShape(warmupStatements + statements, chainLength, payloadSize));
+
+        ActorSystem clientActorSystem = ActorSystem.create(CLIENT_ACTOR_SYSTEM_NAME, config);
+        LoadDriverRun loadDriverRun;
+        try {
+            String uri = "http://" + config.getString(HOST_CONFIG_KEY) + ":" + config.getInt(HTTP_PORT_CONFIG_KEY) + "/"
+                + config.getString(CONTEXT_PATH_CONFIG_KEY) + STATEMENTS_PATH;
+            AccountStatementLoadDriver accountStatementLoadDriver = new AccountStatementLoadDriver(clientActorSystem, uri, concurrency);
+
+            LOGGER.warn("Warming up - statements: [{}], concurrency: [{}]", warmupStatements, concurrency);
+            accountStatementLoadDriver.run(lastTransactionIds.subList(0, warmupStatements)).toCompletableFuture().join();
+
+            LOGGER.warn("Measuring - statements: [{}], concurrency: [{}]", statements, concurrency);
+            loadDriverRun = accountStatementLoadDriver.run(lastTransactionIds.subList(warmupStatements, lastTransactionIds.size()))
+                .toCompletableFuture()
+                .join();
+        } finally {
+            clientActorSystem.terminate();
+            akkaHttpServer.shutdown();
+        }
+
+        Histogram latencyMicros = loadDriverRun.getLatencyMicros();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(loadDriverRun.getElapsedNanos());
+        double statementsPerSecond = statements * 1_000.0 / Math.max(elapsedMillis, 1);
+        LoadTestResult loadTestResult = LoadTestResult.builder()
+            .commit(config.getString(COMMIT_CONFIG_KEY))
+            .startedAt(startedAt.toString())
+            .concurrency(concurrency)
+            .statements(statements)
+            .chainLength(chainLength)
+            .payloadSize(payloadSize)
+            .failedStatements(loadDriverRun.getFailedRequests())
+            .elapsedMillis(elapsedMillis)
+            .statementsPerSecond(statementsPerSecond)
+            .financialTransactionsPerSecond(statementsPerSecond * chainLength)
+            .latencyMillis(LoadTestResult.Latency.builder()
+                .min(latencyMicros.getMinValue() / MICROS_IN_MILLI)
+                .mean(latencyMicros.getMean() / MICROS_IN_MILLI)
+                .p50(latencyMicros.getValueAtPercentile(50.0) / MICROS_IN_MILLI)
+                .p90(latencyMicros.getValueAtPercentile(90.0) / MICROS_IN_MILLI)
+                .p99(latencyMicros.getValueAtPercentile(99.0) / MICROS_IN_MILLI)
+                .p999(latencyMicros.getValueAtPercentile(99.9) / MICROS_IN_MILLI)
+                .max(latencyMicros.getMaxValue() / MICROS_IN_MILLI)
+                .build())
+            .build();
+
+        Path resultFile = writeResult(Paths.get(config.getString(RESULTS_DIRECTORY_CONFIG_KEY)),
+            "loadtest-" + loadTestResult.getCommit() + "-" + startedAt.format(RESULT_FILE_TIMESTAMP_FORMATTER), loadTestResult, latencyMicros);
+        LOGGER.warn("Load test finished - result: [{}], statementsPerSecond: [{}], p50: [{} ms], p99: [{} ms], p999: [{} ms], failed: [{}]",
+            resultFile, String.format("%.1f", statementsPerSecond), loadTestResult.getLatencyMillis().getP50(),
+            loadTestResult.getLatencyMillis().getP99(), loadTestResult.getLatencyMillis().getP999(), loadTestResult.getFailedStatements());
+
+        System.exit(loadTestResult.getFailedStatements() > 0 ? 1 : 0);
+    }
+
+    private static Path writeResult(Path resultsDirectory, String resultName, LoadTestResult loadTestResult, Histogram latencyMicros) {
+        Path resultFile = resultsDirectory.resolve(resultName + ".json");
+        try {
+            Files.createDirectories(resultsDirectory);
+            ObjectMapperProvider.getObjectMapper().writerWithDefaultPrettyPrinter().writeValue(resultFile.toFile(), loadTestResult);
+
+            try (PrintStream printStream = new PrintStream(Files.newOutputStream(resultsDirectory.resolve(resultName + ".hgrm")))) {
+                latencyMicros.outputPercentileDistribution(printStream, MICROS_IN_MILLI);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write load test result: " + resultFile, e);
+        }
+
+        return resultFile;
+    }
+
+}
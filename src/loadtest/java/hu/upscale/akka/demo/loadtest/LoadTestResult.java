@@ -0,0 +1,41 @@
+package hu.upscale.akka.demo.loadtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Machine-readable result of a load test run, written as JSON so runs of different commits can be compared.
+ *
+ * @author László Zoltán
+ */
+@Data
+@Builder
+public final class LoadTestResult {
+
+    private final String commit;
+    private final String startedAt;
+    private final int concurrency;
+    private final int statements;
+    private final int chainLength;
+    private final int payloadSize;
+    private final long failedStatements;
+    private final long elapsedMillis;
+    private final double statementsPerSecond;
+    private final double financialTransactionsPerSecond;
+    private final Latency latencyMillis;
+
+    @Data
+    @Builder
+    public static final class Latency {
+
+        private final double min;
+        private final double mean;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double p999;
+        private final double max;
+
+    }
+
+}
@@ -0,0 +1,57 @@
+package hu.upscale.akka.demo;
+
+import akka.actor.ActorSystem;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+import com.google.inject.util.Modules;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.audit.ArchiveAuditReport;
+import hu.upscale.akka.demo.audit.ArchiveAuditor;
+import hu.upscale.akka.demo.guice.GuiceInjectionModule;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Batch audit of the archive: verifies every archived financial transaction and archive block and exits with a non-zero status if any of them
+ * fails.
+ * <p>
+ * Usage: <code>AkkaArchiveAudit [report-file]</code>
+ *
+ * @author László Zoltán
+ */
+public interface AkkaArchiveAudit {
+
+    String DEFAULT_REPORT_FILE = "archive-audit.csv";
+
+    /**
+     * The audit only reads the archive, dictionaries are loaded on demand instead of being trained.
+     */
+    String AUDIT_CONFIG = "microservice.compression.dictionary.enabled = false";
+
+    static void main(String[] args) {
+        // Singletons are created lazily, so the actors and routes of the service are not started
+        Injector injector = Guice.createInjector(Stage.DEVELOPMENT, Modules.override(new GuiceInjectionModule()).with(new AbstractModule() {
+            @Provides
+            @Singleton
+            public Config provideConfig() {
+                return ConfigFactory.parseString(AUDIT_CONFIG).withFallback(ConfigFactory.load());
+            }
+        }));
+
+        Path reportFile = Paths.get(args.length > 0 ? args[0] : DEFAULT_REPORT_FILE);
+        ArchiveAuditReport archiveAuditReport;
+        try {
+            archiveAuditReport = injector.getInstance(ArchiveAuditor.class).audit(reportFile);
+        } finally {
+            injector.getInstance(ActorSystem.class).terminate();
+        }
+
+        System.exit(archiveAuditReport.isFailed() ? 1 : 0);
+    }
+
+}
@@ -0,0 +1,50 @@
+package hu.upscale.akka.demo;
+
+import akka.actor.ActorSystem;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Stage;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import hu.upscale.akka.demo.guice.GuiceInjectionModule;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Generates synthetic financial transaction chains shaped by <b>microservice.generator</b> and writes the id of the last financial transaction of
+ * every chain to a file, one id per line, like the <i>top_transactionIds.txt</i> of the Spring demo service.
+ * <p>
+ * Usage: <code>AkkaDataGenerator [transaction-id-file]</code>
+ *
+ * @author László Zoltán
+ */
+public interface AkkaDataGenerator {
+
+    String DEFAULT_TRANSACTION_ID_FILE = "top_transactionIds.txt";
+
+    static void main(String[] args) {
+        // Singletons are created lazily, so the actors and routes of the service are not started
+        Injector injector = Guice.createInjector(Stage.DEVELOPMENT, new GuiceInjectionModule());
+
+        Path transactionIdFile = Paths.get(args.length > 0 ? args[0] : DEFAULT_TRANSACTION_ID_FILE);
+        try {
+            List<UUID> lastTransactionIds = injector.getInstance(FinancialTransactionChainGenerator.class)
+                .generate(ChainGeneratorSettings.fromConfig(injector.getInstance(Config.class)));
+
+            Files.write(transactionIdFile, lastTransactionIds.stream().map(UUID::toString).collect(Collectors.toList()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write transaction id file: " + transactionIdFile, e);
+        } finally {
+            injector.getInstance(ActorSystem.class).terminate();
+        }
+    }
+
+}
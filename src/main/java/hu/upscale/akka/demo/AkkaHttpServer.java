@@ -7,7 +7,9 @@ import akka.http.javadsl.ServerBinding;
 import akka.http.javadsl.server.Route;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import com.typesafe.config.Config;
+import hu.upscale.akka.demo.route.AdminRoute;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicReference;
@@ -16,6 +18,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Serves the API on the default HTTP port and the admin endpoints on the management interface and port, which is loopback only by default.
+ *
  * @author László Zoltán
  */
 @Singleton
@@ -26,49 +30,70 @@ public class AkkaHttpServer {
     private static final String DEFAULT_INTERFACE_CONFIG_KEY = "akka.http.server.default-interface";
     private static final String DEFAULT_HTTP_PORT_CONFIG_KEY = "akka.http.server.default-http-port";
     private static final String DEFAULT_HTTPS_PORT_CONFIG_KEY = "akka.http.server.default-https-port";
+    private static final String MANAGEMENT_INTERFACE_CONFIG_KEY = "microservice.management.interface";
+    private static final String MANAGEMENT_PORT_CONFIG_KEY = "microservice.management.port";
 
     private final Config config;
     private final ActorSystem actorSystem;
     private final Http http;
     private final Route serverRoute;
+    private final Route managementRoute;
 
     private final AtomicReference<ServerBinding> serverBindingAtomicReference = new AtomicReference<>();
+    private final AtomicReference<ServerBinding> managementBindingAtomicReference = new AtomicReference<>();
 
     @Inject
-    public AkkaHttpServer(Config config, ActorSystem actorSystem, Http http, Route serverRoute) {
+    public AkkaHttpServer(Config config, ActorSystem actorSystem, Http http, Route serverRoute,
+        @Named(AdminRoute.MANAGEMENT_ROUTE) Route managementRoute) {
         this.config = config;
         this.actorSystem = actorSystem;
         this.http = http;
         this.serverRoute = serverRoute;
+        this.managementRoute = managementRoute;
     }
 
     public void start() {
-        http.newServerAt(config.getString(DEFAULT_INTERFACE_CONFIG_KEY), config.getInt(DEFAULT_HTTP_PORT_CONFIG_KEY))
-            .bind(serverRoute)
+        bind();
+
+        actorSystem.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    /**
+     * Binds the server without waiting for the actor system to terminate, e.g. when the service runs inside the load test.
+     *
+     * @return completes with the API binding when both the API and the management endpoints accept connections
+     */
+    public CompletionStage<ServerBinding> bind() {
+        return http.newServerAt(config.getString(MANAGEMENT_INTERFACE_CONFIG_KEY), config.getInt(MANAGEMENT_PORT_CONFIG_KEY))
+            .bind(managementRoute)
+            .thenCompose(managementBinding -> {
+                managementBindingAtomicReference.set(managementBinding);
+                return http.newServerAt(config.getString(DEFAULT_INTERFACE_CONFIG_KEY), config.getInt(DEFAULT_HTTP_PORT_CONFIG_KEY))
+                    .bind(serverRoute);
+            })
             .whenComplete((serverBinding, failure) -> {
                 serverBindingAtomicReference.set(serverBinding);
                 Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
 
                 if (failure != null) {
+                    LOGGER.error("Failed to bind Akka HTTP server", failure);
                     System.exit(15);
                 }
             });
-
-        actorSystem.getWhenTerminated().toCompletableFuture().join();
     }
 
     public void shutdown() {
         LOGGER.warn("Graceful shutdown initiated");
-        unbindServerBinding()
+        unbindServerBinding(serverBindingAtomicReference.get())
+            .handle((ignore, failure) -> unbindServerBinding(managementBindingAtomicReference.get()))
+            .thenCompose(Function.identity())
             .handle((ignore, failure) -> terminateActorSystem())
             .thenCompose(Function.identity())
             .toCompletableFuture()
             .join();
     }
 
-    private CompletionStage<Done> unbindServerBinding() {
-        ServerBinding serverBinding = serverBindingAtomicReference.get();
-
+    private static CompletionStage<Done> unbindServerBinding(ServerBinding serverBinding) {
         LOGGER.info("Unbinding Akka HTTP server binding");
         return (serverBinding == null ? CompletableFuture.completedStage(Done.done()) : serverBinding.unbind())
             .whenComplete((ignore, failure) -> {
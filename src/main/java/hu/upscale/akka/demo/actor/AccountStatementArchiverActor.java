@@ -3,26 +3,34 @@ package hu.upscale.akka.demo.actor;
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import akka.japi.Pair;
 import akka.pattern.Patterns;
+import com.typesafe.config.Config;
 import hu.upscale.akka.demo.actor.rsa.RsaActor;
 import hu.upscale.akka.demo.actor.rsa.RsaSignerActor.RsaSignerRequest;
 import hu.upscale.akka.demo.actor.rsa.RsaSignerActor.RsaSignerResponse;
 import hu.upscale.akka.demo.actor.zip.ZipActor;
 import hu.upscale.akka.demo.actor.zip.ZipCompressorActor.ZipCompressorRequest;
 import hu.upscale.akka.demo.actor.zip.ZipCompressorActor.ZipCompressorResponse;
+import hu.upscale.akka.demo.archive.ArchiveBlockIndex;
+import hu.upscale.akka.demo.archive.ArchiveWriteCombiner;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
+import hu.upscale.akka.demo.crypto.MerkleTree;
 import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
 import hu.upscale.akka.demo.entity.FinancialTransaction;
-import hu.upscale.akka.demo.exception.DbException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import hu.upscale.akka.demo.jfr.ArchiveEvent;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
 import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.Executor;
-import javax.sql.DataSource;
-import lombok.AllArgsConstructor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.Builder;
 import lombok.Data;
 import org.slf4j.Logger;
@@ -31,28 +39,31 @@ import org.slf4j.LoggerFactory;
 /**
  * @author László Zoltán
  */
-@AllArgsConstructor
 public class AccountStatementArchiverActor extends AbstractActor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AccountStatementArchiverActor.class);
 
-    private static final String DELETE_FINANCIAL_TRANSACTION_BY_TRANSACTION_ID
-        = "DELETE FROM demo.FinancialTransaction WHERE TransactionId = ?";
-    private static final String INSERT_ARCHIVE_FINANCIAL_TRANSACTION
-        = "INSERT INTO demo.ArchiveFinancialTransaction (AccountStatementId, TransactionId, TransactionNumber, CompressedData, Signature)"
-        + "VALUES (?, ?, ?, ?, ?); ";
-
     private static final Duration COMPRESS_TIMEOUT = Duration.ofMinutes(1);
     private static final Duration SIGN_TIMEOUT = Duration.ofSeconds(30);
 
-    private final ActorRef zipActor = getContext().actorOf(ZipActor.props());
-    private final ActorRef rsaActor = getContext().actorOf(RsaActor.props());
+    private final ActorRef zipActor;
+    private final ActorRef rsaActor;
+
+    private final ArchiveWriteCombiner archiveWriteCombiner;
+    private final PipelineTracing pipelineTracing;
 
-    private final DataSource dataSource;
-    private final Executor jdbcExecutor;
+    public static Props props(Config config, ArchiveWriteCombiner archiveWriteCombiner, CompressionDictionaryRegistry compressionDictionaryRegistry,
+        PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        return Props.create(AccountStatementArchiverActor.class,
+            () -> new AccountStatementArchiverActor(config, archiveWriteCombiner, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing));
+    }
 
-    public static Props props(DataSource dataSource, Executor jdbcExecutor) {
-        return Props.create(AccountStatementArchiverActor.class, () -> new AccountStatementArchiverActor(dataSource, jdbcExecutor));
+    public AccountStatementArchiverActor(Config config, ArchiveWriteCombiner archiveWriteCombiner,
+        CompressionDictionaryRegistry compressionDictionaryRegistry, PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        this.archiveWriteCombiner = archiveWriteCombiner;
+        this.pipelineTracing = pipelineTracing;
+        zipActor = getContext().actorOf(ZipActor.props(config, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing));
+        rsaActor = getContext().actorOf(RsaActor.props(config, pipelineMetrics, pipelineTracing));
     }
 
     @Override
@@ -61,76 +72,269 @@ public class AccountStatementArchiverActor extends AbstractActor {
             .match(AccountStatementArchiverRequest.class, accountStatementArchiverRequest ->
                 Patterns.pipe(archiveAccountStatement(accountStatementArchiverRequest), getContext().getDispatcher()).pipeTo(getSender(), getSelf())
             )
+            .match(AccountStatementMerkleArchiverRequest.class, accountStatementMerkleArchiverRequest ->
+                Patterns.pipe(archiveAccountStatementMerkleBatch(accountStatementMerkleArchiverRequest), getContext().getDispatcher())
+                    .pipeTo(getSender(), getSelf())
+            )
+            .match(AccountStatementBlockArchiverRequest.class, accountStatementBlockArchiverRequest ->
+                Patterns.pipe(archiveAccountStatementBlock(accountStatementBlockArchiverRequest), getContext().getDispatcher())
+                    .pipeTo(getSender(), getSelf())
+            )
             .build();
     }
 
     private CompletionStage<AccountStatementArchiverResponse> archiveAccountStatement(AccountStatementArchiverRequest accountStatementArchiverRequest) {
         FinancialTransaction financialTransaction = accountStatementArchiverRequest.getFinancialTransaction();
+        String accountStatementId = accountStatementArchiverRequest.getAccountStatementId().toString();
         byte[] data = financialTransaction.getData();
+        ArchiveEvent archiveEvent = new ArchiveEvent();
+        archiveEvent.begin();
+        Span span = startArchiveSpan(accountStatementArchiverRequest.getTraceContext(), accountStatementArchiverRequest.getSentNanos(),
+            accountStatementId, financialTransaction.getTransactionId(), 1, data.length);
+        Context traceContext = Context.root().with(span);
 
         LOGGER.info("Archiving financial transaction - transactionId: [{}]", financialTransaction.getTransactionId());
 
-        CompletionStage<byte[]> compressedDataCompletionStage = Patterns.ask(zipActor, ZipCompressorRequest.builder().rawData(data).build(), COMPRESS_TIMEOUT)
-            .thenApply(ZipCompressorResponse.class::cast)
-            .thenApply(ZipCompressorResponse::getCompressedData);
-
-        CompletionStage<byte[]> signatureCompletionStage = Patterns.ask(rsaActor, RsaSignerRequest.builder().data(data).build(), SIGN_TIMEOUT)
-            .thenApply(RsaSignerResponse.class::cast)
-            .thenApply(RsaSignerResponse::getSignature);
+        CompletionStage<ZipCompressorResponse> zipCompressorResponseCompletionStage = compress(data, accountStatementId,
+            financialTransaction.getTransactionId(), traceContext);
+        CompletionStage<RsaSignerResponse> rsaSignerResponseCompletionStage = zipCompressorResponseCompletionStage
+            .thenCompose(zipCompressorResponse ->
+                signDigest(zipCompressorResponse.getDigest(), accountStatementId, financialTransaction.getTransactionId(), traceContext)
+            );
 
-        return compressedDataCompletionStage
-            .thenCombine(signatureCompletionStage, (compressedData, signature) ->
+        return zipCompressorResponseCompletionStage
+            .thenCombine(rsaSignerResponseCompletionStage, (zipCompressorResponse, rsaSignerResponse) ->
                 ArchiveFinancialTransaction.builder()
-                    .accountStatementId(accountStatementArchiverRequest.getAccountStatementId().toString())
+                    .accountStatementId(accountStatementId)
                     .transactionId(financialTransaction.getTransactionId())
                     .transactionNumber(accountStatementArchiverRequest.getTransactionNumber())
-                    .compressedData(compressedData)
-                    .signature(signature)
+                    .previousTransactionId(financialTransaction.getPreviousTransactionId())
+                    .compressedData(zipCompressorResponse.getCompressedData())
+                    .compressionDictionaryId(zipCompressorResponse.getCompressionDictionaryId())
+                    .signature(rsaSignerResponse.getSignature())
+                    .signatureAlgorithm(rsaSignerResponse.getSignatureAlgorithm())
                     .build()
             )
-            .thenCompose(this::moveFinancialTransactionToArchive)
-            .thenApply(ignore ->
-                AccountStatementArchiverResponse.builder().accountStatementId(accountStatementArchiverRequest.getAccountStatementId()).build()
+            .thenCompose(archiveFinancialTransaction -> moveFinancialTransactionToArchive(archiveFinancialTransaction, traceContext))
+            .whenComplete((ignore, failure) -> {
+                archiveEvent.finish(accountStatementArchiverRequest.getAccountStatementId(), financialTransaction.getTransactionId(), 1, data.length,
+                    failure == null);
+                PipelineTracing.end(span, failure);
+            })
+            .thenApply(ignore -> AccountStatementArchiverResponse.builder()
+                .accountStatementId(accountStatementArchiverRequest.getAccountStatementId())
+                .financialTransactionCount(1)
+                .bytes(data.length)
+                .lastTransactionNumber(accountStatementArchiverRequest.getTransactionNumber())
+                .previousTransactionId(financialTransaction.getPreviousTransactionId())
+                .build()
             );
     }
 
-    private CompletionStage<Void> moveFinancialTransactionToArchive(ArchiveFinancialTransaction archiveFinancialTransaction) {
-        return CompletableFuture.runAsync(() -> {
-            try (
-                Connection connection = dataSource.getConnection();
-                PreparedStatement deletePreparedStatement = connection.prepareStatement(DELETE_FINANCIAL_TRANSACTION_BY_TRANSACTION_ID);
-                PreparedStatement insertPreparedStatement = connection.prepareStatement(INSERT_ARCHIVE_FINANCIAL_TRANSACTION)
-            ) {
-                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
-                connection.setAutoCommit(false);
-
-                deletePreparedStatement.setString(1, archiveFinancialTransaction.getTransactionId());
-                deletePreparedStatement.execute();
-
-                insertPreparedStatement.setString(1, archiveFinancialTransaction.getAccountStatementId());
-                insertPreparedStatement.setString(2, archiveFinancialTransaction.getTransactionId());
-                insertPreparedStatement.setInt(3, archiveFinancialTransaction.getTransactionNumber());
-                insertPreparedStatement.setBytes(4, archiveFinancialTransaction.getCompressedData());
-                insertPreparedStatement.setBytes(5, archiveFinancialTransaction.getSignature());
-                insertPreparedStatement.execute();
-
-                connection.commit();
-            } catch (SQLException e) {
-                throw new DbException("Failed to move financial transaction to archive", e);
-            }
-        }, jdbcExecutor).whenComplete((ignore, failure) -> {
-            if (failure != null) {
-                LOGGER.error("Failed to delete financial transaction and save it to archive financial transactions - transactionId: [{}]",
-                    archiveFinancialTransaction.getTransactionId(),
-                    failure
-                );
-            } else {
-                LOGGER.info(
-                    "Financial transaction deleted and saved to archive financial transactions - transactionId: [{}]",
-                    archiveFinancialTransaction.getTransactionId()
-                );
-            }
-        });
+    /**
+     * Signs the batch once: the leaves are derived from the digests computed during compression, the Merkle root is signed, and every financial
+     * transaction is archived with the root signature and its own inclusion proof.
+     */
+    private CompletionStage<AccountStatementArchiverResponse> archiveAccountStatementMerkleBatch(
+        AccountStatementMerkleArchiverRequest accountStatementMerkleArchiverRequest) {
+        List<FinancialTransaction> financialTransactions = accountStatementMerkleArchiverRequest.getFinancialTransactions();
+        String accountStatementId = accountStatementMerkleArchiverRequest.getAccountStatementId().toString();
+        long bytes = financialTransactions.stream().mapToLong(financialTransaction -> financialTransaction.getData().length).sum();
+        ArchiveEvent archiveEvent = new ArchiveEvent();
+        archiveEvent.begin();
+        Span span = startArchiveSpan(accountStatementMerkleArchiverRequest.getTraceContext(), accountStatementMerkleArchiverRequest.getSentNanos(),
+            accountStatementId, financialTransactions.get(0).getTransactionId(), financialTransactions.size(), bytes);
+        Context traceContext = Context.root().with(span);
+
+        LOGGER.info("Archiving financial transaction batch - accountStatementId: [{}], firstTransactionNumber: [{}], transactions: [{}]",
+            accountStatementMerkleArchiverRequest.getAccountStatementId(), accountStatementMerkleArchiverRequest.getFirstTransactionNumber(),
+            financialTransactions.size());
+
+        List<CompletableFuture<ZipCompressorResponse>> zipCompressorResponseCompletionStages = financialTransactions.stream()
+            .map(financialTransaction -> compress(financialTransaction.getData(), accountStatementId, financialTransaction.getTransactionId(),
+                traceContext).toCompletableFuture())
+            .collect(Collectors.toList());
+
+        CompletionStage<Pair<MerkleTree, RsaSignerResponse>> signedMerkleTreeCompletionStage = CompletableFuture
+            .allOf(zipCompressorResponseCompletionStages.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignore -> MerkleTree.of(zipCompressorResponseCompletionStages.stream()
+                .map(zipCompressorResponseCompletionStage -> MerkleTree.hashLeafDigest(zipCompressorResponseCompletionStage.join().getDigest()))
+                .collect(Collectors.toList())
+            ))
+            .thenCompose(merkleTree -> sign(merkleTree.getRoot(), accountStatementId, financialTransactions.get(0).getTransactionId(), traceContext)
+                .thenApply(rsaSignerResponse -> Pair.create(merkleTree, rsaSignerResponse))
+            );
+
+        CompletableFuture<?>[] financialTransactionMoves = new CompletableFuture<?>[financialTransactions.size()];
+        for (int i = 0; i < financialTransactions.size(); i++) {
+            int leafIndex = i;
+            FinancialTransaction financialTransaction = financialTransactions.get(leafIndex);
+            financialTransactionMoves[leafIndex] = zipCompressorResponseCompletionStages.get(leafIndex)
+                .thenCombine(signedMerkleTreeCompletionStage, (zipCompressorResponse, signedMerkleTree) ->
+                    ArchiveFinancialTransaction.builder()
+                        .accountStatementId(accountStatementId)
+                        .transactionId(financialTransaction.getTransactionId())
+                        .transactionNumber(accountStatementMerkleArchiverRequest.getFirstTransactionNumber() + leafIndex)
+                        .previousTransactionId(financialTransaction.getPreviousTransactionId())
+                        .compressedData(zipCompressorResponse.getCompressedData())
+                        .compressionDictionaryId(zipCompressorResponse.getCompressionDictionaryId())
+                        .signature(signedMerkleTree.second().getSignature())
+                        .signatureAlgorithm(signedMerkleTree.second().getSignatureAlgorithm())
+                        .inclusionProof(signedMerkleTree.first().getInclusionProof(leafIndex))
+                        .build()
+                )
+                .thenCompose(archiveFinancialTransaction -> moveFinancialTransactionToArchive(archiveFinancialTransaction, traceContext))
+                .toCompletableFuture();
+        }
+
+        return CompletableFuture.allOf(financialTransactionMoves)
+            .whenComplete((ignore, failure) -> {
+                archiveEvent.finish(accountStatementMerkleArchiverRequest.getAccountStatementId(), financialTransactions.get(0).getTransactionId(),
+                    financialTransactions.size(), bytes, failure == null);
+                PipelineTracing.end(span, failure);
+            })
+            .thenApply(ignore -> AccountStatementArchiverResponse.builder()
+                .accountStatementId(accountStatementMerkleArchiverRequest.getAccountStatementId())
+                .financialTransactionCount(financialTransactions.size())
+                .bytes(bytes)
+                .lastTransactionNumber(accountStatementMerkleArchiverRequest.getFirstTransactionNumber() + financialTransactions.size() - 1)
+                .previousTransactionId(financialTransactions.get(financialTransactions.size() - 1).getPreviousTransactionId())
+                .build()
+            );
+    }
+
+    private CompletionStage<AccountStatementArchiverResponse> archiveAccountStatementBlock(
+        AccountStatementBlockArchiverRequest accountStatementBlockArchiverRequest) {
+        List<FinancialTransaction> financialTransactions = accountStatementBlockArchiverRequest.getFinancialTransactions();
+        ArchiveBlockIndex archiveBlockIndex = ArchiveBlockIndex.of(financialTransactions);
+        byte[] data = archiveBlockIndex.pack(financialTransactions);
+        String accountStatementId = accountStatementBlockArchiverRequest.getAccountStatementId().toString();
+        String firstTransactionId = financialTransactions.get(0).getTransactionId();
+        String previousTransactionId = financialTransactions.get(financialTransactions.size() - 1).getPreviousTransactionId();
+        ArchiveEvent archiveEvent = new ArchiveEvent();
+        archiveEvent.begin();
+        Span span = startArchiveSpan(accountStatementBlockArchiverRequest.getTraceContext(), accountStatementBlockArchiverRequest.getSentNanos(),
+            accountStatementId, firstTransactionId, financialTransactions.size(), data.length);
+        Context traceContext = Context.root().with(span);
+
+        LOGGER.info("Archiving financial transaction block - accountStatementId: [{}], blockNumber: [{}], transactions: [{}]",
+            accountStatementBlockArchiverRequest.getAccountStatementId(), accountStatementBlockArchiverRequest.getBlockNumber(),
+            financialTransactions.size());
+
+        CompletionStage<ZipCompressorResponse> zipCompressorResponseCompletionStage = compress(data, accountStatementId, firstTransactionId,
+            traceContext);
+        CompletionStage<RsaSignerResponse> rsaSignerResponseCompletionStage = zipCompressorResponseCompletionStage
+            .thenCompose(zipCompressorResponse ->
+                signDigest(zipCompressorResponse.getDigest(), accountStatementId, firstTransactionId, traceContext)
+            );
+
+        List<String> transactionIds = financialTransactions.stream().map(FinancialTransaction::getTransactionId).collect(Collectors.toList());
+
+        return zipCompressorResponseCompletionStage
+            .thenCombine(rsaSignerResponseCompletionStage, (zipCompressorResponse, rsaSignerResponse) ->
+                ArchiveFinancialTransactionBlock.builder()
+                    .accountStatementId(accountStatementId)
+                    .blockNumber(accountStatementBlockArchiverRequest.getBlockNumber())
+                    .firstTransactionNumber(accountStatementBlockArchiverRequest.getFirstTransactionNumber())
+                    .transactionCount(financialTransactions.size())
+                    .previousTransactionId(previousTransactionId)
+                    .offsetIndex(archiveBlockIndex.encode())
+                    .compressedData(zipCompressorResponse.getCompressedData())
+                    .compressionDictionaryId(zipCompressorResponse.getCompressionDictionaryId())
+                    .signature(rsaSignerResponse.getSignature())
+                    .signatureAlgorithm(rsaSignerResponse.getSignatureAlgorithm())
+                    .build()
+            )
+            .thenCompose(archiveFinancialTransactionBlock -> traceMove(traceContext, () ->
+                archiveWriteCombiner.moveFinancialTransactionBlockToArchive(archiveFinancialTransactionBlock, transactionIds)
+            ))
+            .whenComplete((ignore, failure) -> {
+                archiveEvent.finish(accountStatementBlockArchiverRequest.getAccountStatementId(), firstTransactionId, financialTransactions.size(),
+                    data.length, failure == null);
+                PipelineTracing.end(span, failure);
+                if (failure != null) {
+                    LOGGER.error("Failed to move financial transaction block to archive - accountStatementId: [{}], blockNumber: [{}]",
+                        accountStatementBlockArchiverRequest.getAccountStatementId(), accountStatementBlockArchiverRequest.getBlockNumber(), failure);
+                }
+            })
+            .thenApply(ignore -> AccountStatementArchiverResponse.builder()
+                .accountStatementId(accountStatementBlockArchiverRequest.getAccountStatementId())
+                .financialTransactionCount(financialTransactions.size())
+                .bytes(data.length)
+                .lastTransactionNumber(accountStatementBlockArchiverRequest.getFirstTransactionNumber() + financialTransactions.size() - 1)
+                .previousTransactionId(previousTransactionId)
+                .blockNumber(accountStatementBlockArchiverRequest.getBlockNumber())
+                .build()
+            );
+    }
+
+    private Span startArchiveSpan(Context parent, long sentNanos, String accountStatementId, String transactionId, int financialTransactions,
+        long bytes) {
+        Span span = pipelineTracing.startQueuedSpan("AccountStatementArchiver.archive", parent, sentNanos);
+        span.setAttribute(PipelineTracing.ACCOUNT_STATEMENT_ID, accountStatementId);
+        span.setAttribute(PipelineTracing.TRANSACTION_ID, transactionId);
+        span.setAttribute(PipelineTracing.TRANSACTION_COUNT, financialTransactions);
+        span.setAttribute(PipelineTracing.BYTES, bytes);
+
+        return span;
+    }
+
+    private CompletionStage<ZipCompressorResponse> compress(byte[] data, String accountStatementId, String transactionId, Context traceContext) {
+        ZipCompressorRequest zipCompressorRequest = ZipCompressorRequest.builder()
+            .rawData(data)
+            .accountStatementId(accountStatementId)
+            .transactionId(transactionId)
+            .sentNanos(System.nanoTime())
+            .traceContext(traceContext)
+            .build();
+        return Patterns.ask(zipActor, zipCompressorRequest, COMPRESS_TIMEOUT).thenApply(ZipCompressorResponse.class::cast);
+    }
+
+    private CompletionStage<RsaSignerResponse> sign(byte[] data, String accountStatementId, String transactionId, Context traceContext) {
+        RsaSignerRequest rsaSignerRequest = RsaSignerRequest.builder()
+            .data(data)
+            .accountStatementId(accountStatementId)
+            .transactionId(transactionId)
+            .sentNanos(System.nanoTime())
+            .traceContext(traceContext)
+            .build();
+        return Patterns.ask(rsaActor, rsaSignerRequest, SIGN_TIMEOUT).thenApply(RsaSignerResponse.class::cast);
+    }
+
+    private CompletionStage<RsaSignerResponse> signDigest(byte[] digest, String accountStatementId, String transactionId, Context traceContext) {
+        RsaSignerRequest rsaSignerRequest = RsaSignerRequest.builder()
+            .digest(digest)
+            .accountStatementId(accountStatementId)
+            .transactionId(transactionId)
+            .sentNanos(System.nanoTime())
+            .traceContext(traceContext)
+            .build();
+        return Patterns.ask(rsaActor, rsaSignerRequest, SIGN_TIMEOUT).thenApply(RsaSignerResponse.class::cast);
+    }
+
+    /**
+     * Runs the move within its own span, the write combiner links the span of its commit window to the current span.
+     */
+    private CompletionStage<Void> traceMove(Context traceContext, Supplier<CompletionStage<Void>> move) {
+        Span span = pipelineTracing.startSpan("ArchiveWriteCombiner.move", traceContext);
+        return PipelineTracing.endOnCompletion(span, PipelineTracing.callInScope(span, move));
+    }
+
+    private CompletionStage<Void> moveFinancialTransactionToArchive(ArchiveFinancialTransaction archiveFinancialTransaction, Context traceContext) {
+        return traceMove(traceContext, () -> archiveWriteCombiner.moveFinancialTransactionToArchive(archiveFinancialTransaction))
+            .whenComplete((ignore, failure) -> {
+                if (failure != null) {
+                    LOGGER.error("Failed to delete financial transaction and save it to archive financial transactions - transactionId: [{}]",
+                        archiveFinancialTransaction.getTransactionId(),
+                        failure
+                    );
+                } else {
+                    LOGGER.info(
+                        "Financial transaction deleted and saved to archive financial transactions - transactionId: [{}]",
+                        archiveFinancialTransaction.getTransactionId()
+                    );
+                }
+            });
     }
 
     @Data
@@ -140,6 +344,33 @@ public class AccountStatementArchiverActor extends AbstractActor {
         private final UUID accountStatementId;
         private final FinancialTransaction financialTransaction;
         private final int transactionNumber;
+        private final long sentNanos;
+        private final Context traceContext;
+
+    }
+
+    @Data
+    @Builder
+    public static final class AccountStatementMerkleArchiverRequest {
+
+        private final UUID accountStatementId;
+        private final int firstTransactionNumber;
+        private final List<FinancialTransaction> financialTransactions;
+        private final long sentNanos;
+        private final Context traceContext;
+
+    }
+
+    @Data
+    @Builder
+    public static final class AccountStatementBlockArchiverRequest {
+
+        private final UUID accountStatementId;
+        private final int blockNumber;
+        private final int firstTransactionNumber;
+        private final List<FinancialTransaction> financialTransactions;
+        private final long sentNanos;
+        private final Context traceContext;
 
     }
 
@@ -148,6 +379,20 @@ public class AccountStatementArchiverActor extends AbstractActor {
     public static final class AccountStatementArchiverResponse {
 
         private final UUID accountStatementId;
+        private final int financialTransactionCount;
+        /**
+         * Uncompressed size of the archived financial transactions.
+         */
+        private final long bytes;
+        private final int lastTransactionNumber;
+        /**
+         * Previous financial transaction of the last archived one, the chain continues with it. Null at the end of the chain.
+         */
+        private final String previousTransactionId;
+        /**
+         * Null unless the financial transactions were archived as a block.
+         */
+        private final Integer blockNumber;
 
     }
 }
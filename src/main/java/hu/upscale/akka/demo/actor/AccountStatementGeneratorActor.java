@@ -1,32 +1,50 @@
 package hu.upscale.akka.demo.actor;
 
+import akka.Done;
 import akka.NotUsed;
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import akka.japi.Pair;
 import akka.pattern.Patterns;
+import akka.stream.Materializer;
 import akka.stream.OverflowStrategy;
+import akka.stream.QueueOfferResult;
 import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
 import akka.stream.javadsl.Sink;
 import akka.stream.javadsl.Source;
 import akka.stream.javadsl.SourceQueueWithComplete;
 import akka.util.Timeout;
+import com.typesafe.config.Config;
 import hu.upscale.akka.demo.actor.AccountStatementArchiverActor.AccountStatementArchiverRequest;
 import hu.upscale.akka.demo.actor.AccountStatementArchiverActor.AccountStatementArchiverResponse;
+import hu.upscale.akka.demo.actor.AccountStatementArchiverActor.AccountStatementBlockArchiverRequest;
+import hu.upscale.akka.demo.actor.AccountStatementArchiverActor.AccountStatementMerkleArchiverRequest;
+import hu.upscale.akka.demo.admission.AdmissionPermit;
+import hu.upscale.akka.demo.archive.ArchiveLayout;
+import hu.upscale.akka.demo.archive.ArchiveWriteCombiner;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
+import hu.upscale.akka.demo.crypto.SigningMode;
+import hu.upscale.akka.demo.entity.AccountStatementCheckpoint;
+import hu.upscale.akka.demo.entity.ArchivedChainSegment;
 import hu.upscale.akka.demo.entity.FinancialTransaction;
-import hu.upscale.akka.demo.exception.DbException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import hu.upscale.akka.demo.jfr.AccountStatementEvent;
+import hu.upscale.akka.demo.jfr.ChainPageLoadEvent;
+import hu.upscale.akka.demo.job.StatementProgressListener;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.repository.AccountStatementCheckpointRepository;
+import hu.upscale.akka.demo.repository.FinancialTransactionRepository;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
-import javax.sql.DataSource;
 import lombok.Builder;
 import lombok.Data;
 import org.slf4j.Logger;
@@ -43,109 +61,470 @@ public class AccountStatementGeneratorActor extends AbstractActor {
 
     private static final int PARALLELISM = 8;
 
-    private static final String SELECT_FINANCIAL_TRANSACTION_BY_TRANSACTION_ID
-        = "SELECT TransactionId, PreviousTransactionId, Data FROM demo.FinancialTransaction WHERE TransactionId = ?";
+    private static final String CHAIN_PAGE_SIZE_CONFIG_KEY = "microservice.account-statement.chain-page-size";
+    private static final String CHAIN_PREFETCH_DEPTH_CONFIG_KEY = "microservice.account-statement.chain-prefetch-depth";
+    private static final String ARCHIVE_LAYOUT_CONFIG_KEY = "microservice.archive.layout";
+    private static final String BLOCK_MAX_TRANSACTIONS_CONFIG_KEY = "microservice.archive.block.max-transactions";
+    private static final String BLOCK_MAX_BYTES_CONFIG_KEY = "microservice.archive.block.max-bytes";
+    private static final String BLOCK_MAX_DELAY_CONFIG_KEY = "microservice.archive.block.max-delay";
+    private static final String SIGNING_MODE_CONFIG_KEY = "microservice.signing.mode";
+    private static final String MERKLE_MAX_LEAVES_CONFIG_KEY = "microservice.signing.merkle.max-leaves";
+    private static final String MERKLE_MAX_DELAY_CONFIG_KEY = "microservice.signing.merkle.max-delay";
+    private static final String CHECKPOINT_ENABLED_CONFIG_KEY = "microservice.account-statement.checkpoint.enabled";
+    private static final String CHECKPOINT_INTERVAL_CONFIG_KEY = "microservice.account-statement.checkpoint.interval";
+    private static final String CHECKPOINT_MAX_DELAY_CONFIG_KEY = "microservice.account-statement.checkpoint.max-delay";
 
     private static final int LAST_TRANSACTION_NUMBER_ON_ACCOUNT_STATEMENT = 1;
+    private static final int FIRST_BLOCK_NUMBER_ON_ACCOUNT_STATEMENT = 1;
 
-    private final DataSource dataSource;
-    private final Executor jdbcExecutor;
+    private final FinancialTransactionRepository financialTransactionRepository;
+    private final AccountStatementCheckpointRepository accountStatementCheckpointRepository;
+    private final int chainPageSize;
+    private final int chainPrefetchDepth;
+    private final ArchiveLayout archiveLayout;
+    private final int blockMaxTransactions;
+    private final long blockMaxBytes;
+    private final Duration blockMaxDelay;
+    private final SigningMode signingMode;
+    private final int merkleMaxLeaves;
+    private final Duration merkleMaxDelay;
+    private final boolean checkpointEnabled;
+    private final int checkpointInterval;
+    private final Duration checkpointMaxDelay;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineTracing pipelineTracing;
     private final ActorRef accountStatementArchiverActor;
+    /**
+     * The streams are also started from completion callbacks, which run outside of the actor, where its context must not be used.
+     */
+    private final Materializer materializer;
 
-    public static Props props(DataSource dataSource, Executor jdbcExecutor) {
-        return Props.create(AccountStatementGeneratorActor.class, () -> new AccountStatementGeneratorActor(dataSource, jdbcExecutor));
+    /**
+     * @param accountStatementCheckpointRepository may be null if <b>microservice.account-statement.checkpoint.enabled</b> is false
+     */
+    public static Props props(Config config, FinancialTransactionRepository financialTransactionRepository,
+        AccountStatementCheckpointRepository accountStatementCheckpointRepository, ArchiveWriteCombiner archiveWriteCombiner,
+        CompressionDictionaryRegistry compressionDictionaryRegistry, PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        return Props.create(AccountStatementGeneratorActor.class, () -> new AccountStatementGeneratorActor(config, financialTransactionRepository,
+            accountStatementCheckpointRepository, archiveWriteCombiner, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing));
     }
 
-    public AccountStatementGeneratorActor(DataSource dataSource, Executor jdbcExecutor) {
-        this.dataSource = dataSource;
-        this.jdbcExecutor = jdbcExecutor;
-        accountStatementArchiverActor = getContext().actorOf(AccountStatementArchiverActor.props(dataSource, jdbcExecutor));
+    public AccountStatementGeneratorActor(Config config, FinancialTransactionRepository financialTransactionRepository,
+        AccountStatementCheckpointRepository accountStatementCheckpointRepository, ArchiveWriteCombiner archiveWriteCombiner,
+        CompressionDictionaryRegistry compressionDictionaryRegistry, PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        this.financialTransactionRepository = financialTransactionRepository;
+        this.accountStatementCheckpointRepository = accountStatementCheckpointRepository;
+        this.pipelineMetrics = pipelineMetrics;
+        this.pipelineTracing = pipelineTracing;
+        chainPageSize = config.getInt(CHAIN_PAGE_SIZE_CONFIG_KEY);
+        chainPrefetchDepth = config.getInt(CHAIN_PREFETCH_DEPTH_CONFIG_KEY);
+        archiveLayout = config.getEnum(ArchiveLayout.class, ARCHIVE_LAYOUT_CONFIG_KEY);
+        blockMaxTransactions = config.getInt(BLOCK_MAX_TRANSACTIONS_CONFIG_KEY);
+        blockMaxBytes = config.getBytes(BLOCK_MAX_BYTES_CONFIG_KEY);
+        blockMaxDelay = config.getDuration(BLOCK_MAX_DELAY_CONFIG_KEY);
+        signingMode = config.getEnum(SigningMode.class, SIGNING_MODE_CONFIG_KEY);
+        merkleMaxLeaves = config.getInt(MERKLE_MAX_LEAVES_CONFIG_KEY);
+        merkleMaxDelay = config.getDuration(MERKLE_MAX_DELAY_CONFIG_KEY);
+        checkpointEnabled = config.getBoolean(CHECKPOINT_ENABLED_CONFIG_KEY);
+        checkpointInterval = config.getInt(CHECKPOINT_INTERVAL_CONFIG_KEY);
+        checkpointMaxDelay = config.getDuration(CHECKPOINT_MAX_DELAY_CONFIG_KEY);
+        accountStatementArchiverActor = getContext().actorOf(
+            AccountStatementArchiverActor.props(config, archiveWriteCombiner, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing)
+        );
+        materializer = Materializer.matFromSystem(getContext().getSystem());
     }
 
     @Override
     public Receive createReceive() {
         return receiveBuilder()
-            .match(AccountStatementGeneratorRequest.class, accountStatementGeneratorRequest ->
-                Patterns.pipe(generateAccountStatement(accountStatementGeneratorRequest), getContext().getDispatcher())
-                    .to(getSender(), getSelf())
-            )
+            .match(AccountStatementGeneratorRequest.class, accountStatementGeneratorRequest -> {
+                CompletionStage<AccountStatementGeneratorResponse> accountStatement = generateAccountStatement(accountStatementGeneratorRequest);
+                // Asynchronous jobs are sent without sender, they follow the statement through their progress listener
+                if (!getSender().equals(getContext().getSystem().deadLetters())) {
+                    Patterns.pipe(accountStatement, getContext().getDispatcher()).to(getSender(), getSelf());
+                }
+            })
             .build();
     }
 
+    /**
+     * A new statement saves its first checkpoint before anything is archived, a resumed one continues from its checkpoint with the same id. The
+     * checkpoint is deleted when the statement is complete.
+     */
     private CompletionStage<AccountStatementGeneratorResponse> generateAccountStatement(AccountStatementGeneratorRequest accountStatementGeneratorRequest) {
-        UUID accountStatementId = UUID.randomUUID();
+        AccountStatementCheckpoint resumedCheckpoint = accountStatementGeneratorRequest.getCheckpoint();
+        UUID accountStatementId = resumedCheckpoint == null ? UUID.randomUUID() : UUID.fromString(resumedCheckpoint.getAccountStatementId());
+        AccountStatementEvent accountStatementEvent = new AccountStatementEvent();
+        accountStatementEvent.begin();
+        long startNanos = System.nanoTime();
+        pipelineMetrics.statementStarted();
+        Span span = pipelineTracing.startQueuedSpan("AccountStatementGenerator.generate", accountStatementGeneratorRequest.getTraceContext(),
+            accountStatementGeneratorRequest.getSentNanos());
+        span.setAttribute(PipelineTracing.ACCOUNT_STATEMENT_ID, accountStatementId.toString());
+        span.setAttribute(PipelineTracing.TRANSACTION_ID, accountStatementGeneratorRequest.getLastTransactionId().toString());
+        Context traceContext = Context.root().with(span);
+        StatementProgressListener progressListener = Optional.ofNullable(accountStatementGeneratorRequest.getProgressListener())
+            .orElse(StatementProgressListener.NONE);
+        progressListener.started(accountStatementId);
 
-        LOGGER.info("Generating account statement - accountStatementId: [{}]", accountStatementId);
+        // Financial transactions offered to the source queue and not yet taken by the archiving flow
+        AtomicInteger queuedFinancialTransactions = new AtomicInteger();
+        AtomicInteger financialTransactionCount = new AtomicInteger();
+        CompletionStage<AccountStatementCheckpoint> archivePosition;
+        if (resumedCheckpoint == null) {
+            LOGGER.info("Generating account statement - accountStatementId: [{}]", accountStatementId);
+            archivePosition = saveFirstCheckpoint(accountStatementId, accountStatementGeneratorRequest.getLastTransactionId());
+        } else {
+            LOGGER.info("Resuming account statement - accountStatementId: [{}], lastArchivedTransactionNumber: [{}]", accountStatementId,
+                resumedCheckpoint.getLastArchivedTransactionNumber());
+            archivePosition = resumeArchivePosition(accountStatementId, traceContext, resumedCheckpoint, financialTransactionCount, progressListener);
+        }
 
-        SourceQueueWithComplete<FinancialTransaction> sourceQueue = Source.<FinancialTransaction>queue(PARALLELISM, OverflowStrategy.backpressure())
-            .via(archiveFinancialTransaction(accountStatementId))
-            .to(Sink.ignore())
-            .run(getContext().getSystem());
+        return archivePosition
+            .thenCompose(position -> archiveFinancialTransactionChain(accountStatementId, traceContext, position, queuedFinancialTransactions,
+                financialTransactionCount, progressListener))
+            .thenCompose(ignore -> checkpointEnabled
+                ? accountStatementCheckpointRepository.deleteCheckpoint(accountStatementId.toString())
+                : CompletableFuture.<Void>completedFuture(null)
+            )
+            .whenComplete((ignore, failure) -> {
+                pipelineMetrics.addQueuedFinancialTransactions(-queuedFinancialTransactions.getAndSet(0));
+                pipelineMetrics.statementFinished(System.nanoTime() - startNanos, failure == null);
+                accountStatementEvent.finish(accountStatementId, accountStatementGeneratorRequest.getLastTransactionId(),
+                    financialTransactionCount.get(), failure == null);
+                span.setAttribute(PipelineTracing.TRANSACTION_COUNT, financialTransactionCount.get());
+                PipelineTracing.end(span, failure);
+                progressListener.finished(failure);
+                Optional.ofNullable(accountStatementGeneratorRequest.getAdmissionPermit()).ifPresent(AdmissionPermit::release);
+            })
+            .thenApply(ignore -> AccountStatementGeneratorResponse.builder().accountStatementId(accountStatementId).build());
+    }
 
-        CompletionStage<Void> financialTransactionLoad = loadFinancialTransactionChain(sourceQueue,
-            accountStatementGeneratorRequest.getLastTransactionId().toString());
+    private CompletionStage<AccountStatementCheckpoint> saveFirstCheckpoint(UUID accountStatementId, UUID lastTransactionId) {
+        AccountStatementCheckpoint accountStatementCheckpoint = AccountStatementCheckpoint.builder()
+            .accountStatementId(accountStatementId.toString())
+            .lastTransactionId(lastTransactionId.toString())
+            .lastArchivedTransactionNumber(LAST_TRANSACTION_NUMBER_ON_ACCOUNT_STATEMENT - 1)
+            .nextTransactionId(lastTransactionId.toString())
+            .nextBlockNumber(FIRST_BLOCK_NUMBER_ON_ACCOUNT_STATEMENT)
+            .build();
+        if (!checkpointEnabled) {
+            return CompletableFuture.completedFuture(accountStatementCheckpoint);
+        }
 
-        return financialTransactionLoad
-            .thenCompose(ignore -> sourceQueue.watchCompletion())
-            .thenApply(ignore -> AccountStatementGeneratorResponse.builder().accountStatementId(accountStatementId).build());
+        return accountStatementCheckpointRepository.insertCheckpoint(accountStatementCheckpoint).thenApply(ignore -> accountStatementCheckpoint);
     }
 
-    private CompletionStage<Void> loadFinancialTransactionChain(SourceQueueWithComplete<FinancialTransaction> sourceQueue, String lastTransactionId) {
-        return findFinancialTransaction(lastTransactionId).thenCompose(financialTransaction ->
-            sourceQueue.offer(financialTransaction)
-                .thenCompose(ignore ->
-                    Optional.ofNullable(financialTransaction.getPreviousTransactionId())
-                        .map(previousTransactionId -> loadFinancialTransactionChain(sourceQueue, previousTransactionId))
-                        .orElseGet(() -> CompletableFuture.completedFuture(null).thenRun(sourceQueue::complete))
+    /**
+     * Archive moves are committed out of order and before the checkpoint that covers them, so the archive may hold rows or blocks past the
+     * checkpoint with unarchived financial transactions between them. Each such gap is archived with the transaction numbers and the unused block
+     * numbers it was given originally, and the chain continues after the last archived row or block.
+     *
+     * @return position of the chain after the last archived row or block
+     */
+    private CompletionStage<AccountStatementCheckpoint> resumeArchivePosition(UUID accountStatementId, Context traceContext,
+        AccountStatementCheckpoint accountStatementCheckpoint, AtomicInteger financialTransactionCount, StatementProgressListener progressListener) {
+        return accountStatementCheckpointRepository.findArchivedChainSegments(accountStatementId.toString(),
+                accountStatementCheckpoint.getLastArchivedTransactionNumber())
+            .thenCompose(archivedChainSegments -> Source.from(archivedChainSegments)
+                .foldAsync(accountStatementCheckpoint, (position, archivedChainSegment) ->
+                    archiveGap(accountStatementId, traceContext, position, archivedChainSegment, financialTransactionCount, progressListener)
+                        .thenApply(ignore -> position.toBuilder()
+                            .lastArchivedTransactionNumber(
+                                archivedChainSegment.getFirstTransactionNumber() + archivedChainSegment.getTransactionCount() - 1
+                            )
+                            .nextTransactionId(archivedChainSegment.getPreviousTransactionId())
+                            .nextBlockNumber(Optional.ofNullable(archivedChainSegment.getBlockNumber())
+                                .map(blockNumber -> blockNumber + 1)
+                                .orElse(position.getNextBlockNumber()))
+                            .build()
+                        )
                 )
-        );
+                .runWith(Sink.head(), materializer)
+            );
     }
 
-    private CompletionStage<FinancialTransaction> findFinancialTransaction(String transactionId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (
-                Connection connection = dataSource.getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(SELECT_FINANCIAL_TRANSACTION_BY_TRANSACTION_ID)
-            ) {
-                connection.setAutoCommit(true);
-                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
-                preparedStatement.setString(1, transactionId);
-                try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                    if (resultSet.next()) {
-                        return resultSetToFinancialTransaction(resultSet);
+    /**
+     * Archives the financial transactions between the position and the next archived row or block. The block numbers between them were reserved
+     * for these financial transactions, a gap needing more blocks fails the statement.
+     */
+    private CompletionStage<Done> archiveGap(UUID accountStatementId, Context traceContext, AccountStatementCheckpoint position,
+        ArchivedChainSegment archivedChainSegment, AtomicInteger financialTransactionCount, StatementProgressListener progressListener) {
+        int gapLength = archivedChainSegment.getFirstTransactionNumber() - position.getLastArchivedTransactionNumber() - 1;
+        if (gapLength < 0) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Archived financial transactions overlap - accountStatementId: ["
+                + accountStatementId + "], transactionNumber: [" + archivedChainSegment.getFirstTransactionNumber() + "]"));
+        }
+        if (gapLength == 0) {
+            return CompletableFuture.completedFuture(Done.done());
+        }
+
+        LOGGER.info("Archiving financial transactions missing from the archive - accountStatementId: [{}], firstTransactionNumber: [{}], "
+            + "transactions: [{}]", accountStatementId, position.getLastArchivedTransactionNumber() + 1, gapLength);
+
+        int blockNumberLimit = Optional.ofNullable(archivedChainSegment.getBlockNumber()).orElse(Integer.MAX_VALUE);
+        return loadFinancialTransactions(accountStatementId, traceContext, position.getNextTransactionId(), gapLength, progressListener)
+            .thenCompose(financialTransactions -> Source.from(financialTransactions)
+                .map(financialTransaction -> {
+                    financialTransactionCount.incrementAndGet();
+                    return financialTransaction;
+                })
+                .via(archive(accountStatementId, traceContext, position, blockNumberLimit))
+                .runForeach(accountStatementArchiverResponse -> progressListener.archived(
+                    accountStatementArchiverResponse.getFinancialTransactionCount(), accountStatementArchiverResponse.getBytes()
+                ), materializer)
+            );
+    }
+
+    /**
+     * Archives the rest of the chain starting at the position, the progress is saved every <i>checkpointInterval</i> financial transactions.
+     */
+    private CompletionStage<Done> archiveFinancialTransactionChain(UUID accountStatementId, Context traceContext, AccountStatementCheckpoint position,
+        AtomicInteger queuedFinancialTransactions, AtomicInteger financialTransactionCount, StatementProgressListener progressListener) {
+        Pair<SourceQueueWithComplete<FinancialTransaction>, CompletionStage<Done>> sourceQueueAndArchiving = Source.<FinancialTransaction>queue(
+                PARALLELISM, OverflowStrategy.backpressure())
+            .map(financialTransaction -> {
+                queuedFinancialTransactions.decrementAndGet();
+                financialTransactionCount.incrementAndGet();
+                pipelineMetrics.addQueuedFinancialTransactions(-1);
+                return financialTransaction;
+            })
+            .via(archive(accountStatementId, traceContext, position, Integer.MAX_VALUE))
+            .map(accountStatementArchiverResponse -> {
+                progressListener.archived(accountStatementArchiverResponse.getFinancialTransactionCount(),
+                    accountStatementArchiverResponse.getBytes());
+                return accountStatementArchiverResponse;
+            })
+            .via(saveCheckpoints(position))
+            .toMat(Sink.ignore(), Keep.both())
+            .run(materializer);
+
+        CompletionStage<Void> financialTransactionLoad = loadFinancialTransactionChain(sourceQueueAndArchiving.first(), accountStatementId,
+            traceContext, position.getNextTransactionId(), queuedFinancialTransactions, progressListener);
+
+        // The queue completes as soon as the chain is loaded, the statement is complete when its last financial transaction is archived
+        return financialTransactionLoad.thenCompose(ignore -> sourceQueueAndArchiving.second());
+    }
+
+    /**
+     * The archiver responses are emitted in chain order once their moves are committed, so a checkpoint taken at a response covers every financial
+     * transaction before it. A failed checkpoint update is not fatal: the previous checkpoint stays valid, the statement just resumes from further
+     * back.
+     */
+    private Flow<AccountStatementArchiverResponse, AccountStatementArchiverResponse, NotUsed> saveCheckpoints(AccountStatementCheckpoint position) {
+        if (!checkpointEnabled) {
+            return Flow.create();
+        }
+
+        return Flow.<AccountStatementArchiverResponse>create()
+            .groupedWeightedWithin(checkpointInterval,
+                accountStatementArchiverResponse -> (long) accountStatementArchiverResponse.getFinancialTransactionCount(), checkpointMaxDelay)
+            .mapAsync(1, accountStatementArchiverResponses -> {
+                AccountStatementArchiverResponse lastAccountStatementArchiverResponse = accountStatementArchiverResponses.get(
+                    accountStatementArchiverResponses.size() - 1);
+                AccountStatementCheckpoint accountStatementCheckpoint = position.toBuilder()
+                    .lastArchivedTransactionNumber(lastAccountStatementArchiverResponse.getLastTransactionNumber())
+                    .nextTransactionId(lastAccountStatementArchiverResponse.getPreviousTransactionId())
+                    .nextBlockNumber(Optional.ofNullable(lastAccountStatementArchiverResponse.getBlockNumber())
+                        .map(blockNumber -> blockNumber + 1)
+                        .orElse(position.getNextBlockNumber()))
+                    .build();
+                return accountStatementCheckpointRepository.updateCheckpoint(accountStatementCheckpoint)
+                    .handle((ignore, failure) -> {
+                        if (failure != null) {
+                            LOGGER.warn("Failed to update account statement checkpoint - accountStatementCheckpoint: [{}]",
+                                accountStatementCheckpoint, failure);
+                        }
+                        return accountStatementArchiverResponses;
+                    });
+            })
+            .mapConcat(accountStatementArchiverResponses -> accountStatementArchiverResponses);
+    }
+
+    /**
+     * Loads the chain page by page and feeds it into the source queue in chain order. Up to <i>chainPrefetchDepth</i> pages are fetched ahead of the
+     * queue, so the next round trip overlaps with archiving the current page.
+     *
+     * @param firstTransactionId null if there is nothing left to load
+     */
+    private CompletionStage<Void> loadFinancialTransactionChain(SourceQueueWithComplete<FinancialTransaction> sourceQueue, UUID accountStatementId,
+        Context traceContext, String firstTransactionId, AtomicInteger queuedFinancialTransactions, StatementProgressListener progressListener) {
+        CompletionStage<Done> chainLoad = Source.unfoldAsync(Optional.ofNullable(firstTransactionId), nextTransactionId ->
+                nextTransactionId
+                    .map(transactionId -> findFinancialTransactionChainPage(accountStatementId, traceContext, transactionId, chainPageSize,
+                        progressListener)
+                        .thenApply(financialTransactionChainPage -> Optional.of(Pair.create(
+                            Optional.ofNullable(financialTransactionChainPage.get(financialTransactionChainPage.size() - 1).getPreviousTransactionId()),
+                            financialTransactionChainPage
+                        )))
+                    )
+                    .orElseGet(() -> CompletableFuture.completedFuture(Optional.empty()))
+            )
+            .buffer(chainPrefetchDepth, OverflowStrategy.backpressure())
+            .mapConcat(financialTransactionChainPage -> financialTransactionChainPage)
+            .mapAsync(1, financialTransaction -> {
+                queuedFinancialTransactions.incrementAndGet();
+                pipelineMetrics.addQueuedFinancialTransactions(1);
+                return sourceQueue.offer(financialTransaction).whenComplete((queueOfferResult, failure) -> {
+                    if (!QueueOfferResult.enqueued().equals(queueOfferResult)) {
+                        queuedFinancialTransactions.decrementAndGet();
+                        pipelineMetrics.addQueuedFinancialTransactions(-1);
                     }
+                });
+            })
+            .runWith(Sink.ignore(), materializer);
 
-                    throw new SQLException("No financial transaction found for id: " + transactionId);
+        return chainLoad
+            .whenComplete((ignore, failure) -> {
+                if (failure != null) {
+                    sourceQueue.fail(failure);
+                } else {
+                    sourceQueue.complete();
                 }
-            } catch (SQLException e) {
-                throw new DbException("Failed to select financial transaction by id", e);
-            }
-        }, jdbcExecutor);
+            })
+            .thenApply(ignore -> null);
     }
 
-    private Flow<FinancialTransaction, UUID, NotUsed> archiveFinancialTransaction(UUID accountStatementId) {
-        AtomicInteger transactionNumberCounter = new AtomicInteger(LAST_TRANSACTION_NUMBER_ON_ACCOUNT_STATEMENT);
+    /**
+     * Loads exactly <i>count</i> financial transactions of the chain into memory, the chain must not end or be archived before them.
+     */
+    private CompletionStage<List<FinancialTransaction>> loadFinancialTransactions(UUID accountStatementId, Context traceContext,
+        String firstTransactionId, int count, StatementProgressListener progressListener) {
+        return Source.unfoldAsync(Pair.create(Optional.ofNullable(firstTransactionId), count), nextTransactionIdAndRemaining -> {
+                int remaining = nextTransactionIdAndRemaining.second();
+                if (remaining == 0) {
+                    return CompletableFuture.completedFuture(Optional.<Pair<Pair<Optional<String>, Integer>, List<FinancialTransaction>>>empty());
+                }
+                if (nextTransactionIdAndRemaining.first().isEmpty()) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("Financial transaction chain ended before the archived "
+                        + "financial transactions - accountStatementId: [" + accountStatementId + "]"));
+                }
+
+                return findFinancialTransactionChainPage(accountStatementId, traceContext, nextTransactionIdAndRemaining.first().get(),
+                    Math.min(chainPageSize, remaining), progressListener)
+                    .thenApply(financialTransactionChainPage -> Optional.of(Pair.create(
+                        Pair.create(
+                            Optional.ofNullable(financialTransactionChainPage.get(financialTransactionChainPage.size() - 1).getPreviousTransactionId()),
+                            remaining - financialTransactionChainPage.size()
+                        ),
+                        financialTransactionChainPage
+                    )));
+            })
+            .mapConcat(financialTransactionChainPage -> financialTransactionChainPage)
+            .runWith(Sink.seq(), materializer);
+    }
+
+    /**
+     * The page is loaded within its own span, so the JDBC executor traces the query as its child. The progress listener learns the length of the
+     * chain when its first financial transaction is loaded, before the prefetched pages are archived.
+     */
+    private CompletionStage<List<FinancialTransaction>> findFinancialTransactionChainPage(UUID accountStatementId, Context traceContext,
+        String transactionId, int pageSize, StatementProgressListener progressListener) {
+        ChainPageLoadEvent chainPageLoadEvent = new ChainPageLoadEvent();
+        chainPageLoadEvent.begin();
+        Span span = pipelineTracing.startSpan("FinancialTransactionRepository.findFinancialTransactionChainPage", traceContext);
+        span.setAttribute(PipelineTracing.TRANSACTION_ID, transactionId);
+        long startNanos = System.nanoTime();
+        CompletionStage<List<FinancialTransaction>> financialTransactionChainPageLoad = PipelineTracing.callInScope(span,
+            () -> financialTransactionRepository.findFinancialTransactionChainPage(transactionId, pageSize));
+
+        return PipelineTracing.endOnCompletion(span, financialTransactionChainPageLoad)
+            .thenApply(financialTransactionChainPage -> {
+                pipelineMetrics.recordChainPageLoad(System.nanoTime() - startNanos, financialTransactionChainPage.size());
+                chainPageLoadEvent.finish(accountStatementId, transactionId, financialTransactionChainPage.size(),
+                    financialTransactionChainPage.stream().mapToLong(financialTransaction -> financialTransaction.getData().length).sum());
+                LOGGER.debug("Financial transaction chain page loaded - transactionId: [{}], size: [{}]", transactionId,
+                    financialTransactionChainPage.size());
+                progressListener.loaded(financialTransactionChainPage.size());
+                if (financialTransactionChainPage.get(financialTransactionChainPage.size() - 1).getPreviousTransactionId() == null) {
+                    progressListener.chainLoaded();
+                }
+                return financialTransactionChainPage;
+            });
+    }
+
+    /**
+     * Numbers the financial transactions and the blocks after the position.
+     *
+     * @param blockNumberLimit first block number that is not free for the archived financial transactions
+     */
+    private Flow<FinancialTransaction, AccountStatementArchiverResponse, NotUsed> archive(UUID accountStatementId, Context traceContext,
+        AccountStatementCheckpoint position, int blockNumberLimit) {
+        int firstTransactionNumber = position.getLastArchivedTransactionNumber() + 1;
+        if (archiveLayout == ArchiveLayout.BLOCK) {
+            return archiveFinancialTransactionBlock(accountStatementId, traceContext, firstTransactionNumber, position.getNextBlockNumber(),
+                blockNumberLimit);
+        }
+
+        if (signingMode == SigningMode.MERKLE) {
+            return archiveFinancialTransactionMerkleBatch(accountStatementId, traceContext, firstTransactionNumber);
+        }
+
+        return archiveFinancialTransaction(accountStatementId, traceContext, firstTransactionNumber);
+    }
+
+    private Flow<FinancialTransaction, AccountStatementArchiverResponse, NotUsed> archiveFinancialTransaction(UUID accountStatementId,
+        Context traceContext, int firstTransactionNumber) {
+        AtomicInteger transactionNumberCounter = new AtomicInteger(firstTransactionNumber);
         return Flow.<FinancialTransaction>create()
             .map(financialTransaction -> AccountStatementArchiverRequest.builder()
                 .accountStatementId(accountStatementId)
                 .financialTransaction(financialTransaction)
                 .transactionNumber(transactionNumberCounter.getAndIncrement())
+                .sentNanos(System.nanoTime())
+                .traceContext(traceContext)
                 .build()
             )
-            .ask(PARALLELISM, accountStatementArchiverActor, AccountStatementArchiverResponse.class, Timeout.create(Duration.ofMinutes(1)))
-            .map(AccountStatementArchiverResponse::getAccountStatementId);
+            .ask(PARALLELISM, accountStatementArchiverActor, AccountStatementArchiverResponse.class, Timeout.create(Duration.ofMinutes(1)));
     }
 
-    private FinancialTransaction resultSetToFinancialTransaction(ResultSet resultSet) throws SQLException {
-        FinancialTransaction financialTransaction = FinancialTransaction.builder()
-            .transactionId(resultSet.getString(FinancialTransaction.TRANSACTION_ID_COLUMN_NAME))
-            .previousTransactionId(resultSet.getString(FinancialTransaction.PREVIOUS_TRANSACTION_ID_COLUMN_NAME))
-            .data(resultSet.getBytes(FinancialTransaction.DATA_COLUMN_NAME))
-            .build();
+    /**
+     * Groups consecutive financial transactions into signing batches of at most <i>merkleMaxLeaves</i>, so only one signature is created per batch.
+     */
+    private Flow<FinancialTransaction, AccountStatementArchiverResponse, NotUsed> archiveFinancialTransactionMerkleBatch(UUID accountStatementId,
+        Context traceContext, int firstTransactionNumber) {
+        AtomicInteger transactionNumberCounter = new AtomicInteger(firstTransactionNumber);
+        return Flow.<FinancialTransaction>create()
+            .groupedWithin(merkleMaxLeaves, merkleMaxDelay)
+            .map(financialTransactions -> AccountStatementMerkleArchiverRequest.builder()
+                .accountStatementId(accountStatementId)
+                .firstTransactionNumber(transactionNumberCounter.getAndAdd(financialTransactions.size()))
+                .financialTransactions(financialTransactions)
+                .sentNanos(System.nanoTime())
+                .traceContext(traceContext)
+                .build()
+            )
+            .ask(PARALLELISM, accountStatementArchiverActor, AccountStatementArchiverResponse.class, Timeout.create(Duration.ofMinutes(1)));
+    }
 
-        LOGGER.info("Financial transaction found - transactionId: [{}]", financialTransaction.getTransactionId());
+    /**
+     * Packs consecutive financial transactions into blocks bounded by <i>blockMaxTransactions</i> and <i>blockMaxBytes</i>. A block is closed after
+     * <i>blockMaxDelay</i> even if it is not full, so a slow chain load does not hold back the archiving.
+     */
+    private Flow<FinancialTransaction, AccountStatementArchiverResponse, NotUsed> archiveFinancialTransactionBlock(UUID accountStatementId,
+        Context traceContext, int firstTransactionNumber, int firstBlockNumber, int blockNumberLimit) {
+        AtomicInteger blockNumberCounter = new AtomicInteger(firstBlockNumber);
+        AtomicInteger transactionNumberCounter = new AtomicInteger(firstTransactionNumber);
+        return Flow.<FinancialTransaction>create()
+            .groupedWeightedWithin(blockMaxBytes, blockMaxTransactions, financialTransaction -> (long) financialTransaction.getData().length,
+                blockMaxDelay)
+            .map(financialTransactions -> {
+                int blockNumber = blockNumberCounter.getAndIncrement();
+                if (blockNumber >= blockNumberLimit) {
+                    throw new IllegalStateException("No free block number left for the financial transactions - accountStatementId: ["
+                        + accountStatementId + "], blockNumber: [" + blockNumber + "]");
+                }
 
-        return financialTransaction;
+                return AccountStatementBlockArchiverRequest.builder()
+                    .accountStatementId(accountStatementId)
+                    .blockNumber(blockNumber)
+                    .firstTransactionNumber(transactionNumberCounter.getAndAdd(financialTransactions.size()))
+                    .financialTransactions(financialTransactions)
+                    .sentNanos(System.nanoTime())
+                    .traceContext(traceContext)
+                    .build();
+            })
+            .ask(PARALLELISM, accountStatementArchiverActor, AccountStatementArchiverResponse.class, Timeout.create(Duration.ofMinutes(1)));
     }
 
     @Data
@@ -153,6 +532,26 @@ public class AccountStatementGeneratorActor extends AbstractActor {
     public static final class AccountStatementGeneratorRequest {
 
         private final UUID lastTransactionId;
+        /**
+         * {@link System#nanoTime()} when the request was sent, the span of the statement starts at this time.
+         */
+        private final long sentNanos;
+        /**
+         * Trace context of the sender, the span of the statement is started as its child.
+         */
+        private final Context traceContext;
+        /**
+         * Receives the progress of the statement, may be null.
+         */
+        private final StatementProgressListener progressListener;
+        /**
+         * Released when the statement is finished, may be null.
+         */
+        private final AdmissionPermit admissionPermit;
+        /**
+         * Checkpoint of an interrupted statement, which is resumed with its id and numbering. Null for a new statement.
+         */
+        private final AccountStatementCheckpoint checkpoint;
 
     }
 
@@ -4,25 +4,40 @@ import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.routing.RoundRobinPool;
+import com.typesafe.config.Config;
 import hu.upscale.akka.demo.actor.rsa.RsaSignatureVerifierActor.RsaSignatureVerifierRequest;
 import hu.upscale.akka.demo.actor.rsa.RsaSignerActor.RsaSignerRequest;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
+import hu.upscale.akka.demo.crypto.SignatureSchemes;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
 
 /**
  * @author László Zoltán
  */
 public class RsaActor extends AbstractActor {
 
-    public static final String SIGNATURE_ALGORITHM = "SHA512withRSA";
-    public static final String RSA_KEY_FACTORY_ALGORITHM = "RSA";
+    public static final String CRYPTO_DISPATCHER = "akka.actor.crypto-dispatcher";
+
+    private static final String SIGNATURE_ALGORITHM_CONFIG_KEY = "microservice.signing.algorithm";
 
     private static final int ACTOR_POOL_SIZE = 16;
 
-    public static Props props() {
-        return Props.create(RsaActor.class, RsaActor::new);
+    public static Props props(Config config, PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        return Props.create(RsaActor.class, () -> new RsaActor(config, pipelineMetrics, pipelineTracing));
     }
 
-    private final ActorRef rsaSignerActor = getContext().actorOf(new RoundRobinPool(ACTOR_POOL_SIZE).props(RsaSignerActor.props()));
-    private final ActorRef rsaSignatureVerifierActor = getContext().actorOf(new RoundRobinPool(ACTOR_POOL_SIZE).props(RsaSignatureVerifierActor.props()));
+    private final ActorRef rsaSignerActor;
+    private final ActorRef rsaSignatureVerifierActor = getContext().actorOf(new RoundRobinPool(ACTOR_POOL_SIZE).props(
+        RsaSignatureVerifierActor.props().withDispatcher(CRYPTO_DISPATCHER)
+    ));
+
+    public RsaActor(Config config, PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        SignatureAlgorithm signatureAlgorithm = config.getEnum(SignatureAlgorithm.class, SIGNATURE_ALGORITHM_CONFIG_KEY);
+        rsaSignerActor = getContext().actorOf(new RoundRobinPool(ACTOR_POOL_SIZE).props(
+            RsaSignerActor.props(SignatureSchemes.of(signatureAlgorithm), pipelineMetrics, pipelineTracing).withDispatcher(CRYPTO_DISPATCHER)
+        ));
+    }
 
     @Override
     public Receive createReceive() {
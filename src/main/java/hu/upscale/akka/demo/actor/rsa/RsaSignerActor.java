@@ -1,20 +1,14 @@
 package hu.upscale.akka.demo.actor.rsa;
 
-import static hu.upscale.akka.demo.actor.rsa.RsaActor.RSA_KEY_FACTORY_ALGORITHM;
-import static hu.upscale.akka.demo.actor.rsa.RsaActor.SIGNATURE_ALGORITHM;
-
 import akka.actor.AbstractActor;
 import akka.actor.Props;
-import hu.upscale.akka.demo.exception.CryptographyException;
-import hu.upscale.akka.demo.util.ResourceUtil;
-import java.security.InvalidKeyException;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
-import java.security.PrivateKey;
-import java.security.Signature;
-import java.security.SignatureException;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.PKCS8EncodedKeySpec;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
+import hu.upscale.akka.demo.crypto.SignatureScheme;
+import hu.upscale.akka.demo.jfr.SigningEvent;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
 import lombok.Builder;
 import lombok.Data;
 import org.slf4j.Logger;
@@ -27,49 +21,67 @@ public class RsaSignerActor extends AbstractActor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RsaSignerActor.class);
 
-    private static final PrivateKey PRIVATE_KEY = getRsaPrivateKeyFromPkcs8EncodedKey(ResourceUtil.readResourceFile("rsa/privateKey.der"));
+    private final SignatureScheme signatureScheme;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineTracing pipelineTracing;
+
+    public static Props props(SignatureScheme signatureScheme, PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        return Props.create(RsaSignerActor.class, () -> new RsaSignerActor(signatureScheme, pipelineMetrics, pipelineTracing));
+    }
 
-    public static Props props() {
-        return Props.create(RsaSignerActor.class, RsaSignerActor::new);
+    public RsaSignerActor(SignatureScheme signatureScheme, PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        this.signatureScheme = signatureScheme;
+        this.pipelineMetrics = pipelineMetrics;
+        this.pipelineTracing = pipelineTracing;
     }
 
     @Override
     public Receive createReceive() {
         return receiveBuilder()
             .match(RsaSignerRequest.class, rsaSignerRequest ->
-                getSender().tell(
-                    RsaSignerResponse.builder().signature(signData(rsaSignerRequest.getData())).build(),
-                    getSelf()
-                )
+                getSender().tell(rsaSignerRequest.getDigest() != null ? signDigest(rsaSignerRequest) : signData(rsaSignerRequest), getSelf())
             )
             .build();
     }
 
-    private byte[] signData(byte[] data) {
-        try {
-            Signature rsaSignature = Signature.getInstance(SIGNATURE_ALGORITHM);
-            rsaSignature.initSign(PRIVATE_KEY);
-            rsaSignature.update(data);
-
-            byte[] signature = rsaSignature.sign();
-
-            LOGGER.info("RSA signature created");
-
-            return signature;
-        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
-            throw new CryptographyException("Failed to sign data", e);
-        }
+    private RsaSignerResponse signData(RsaSignerRequest rsaSignerRequest) {
+        Span span = pipelineTracing.startQueuedSpan("RsaSigner.sign", rsaSignerRequest.getTraceContext(), rsaSignerRequest.getSentNanos());
+        SigningEvent signingEvent = new SigningEvent();
+        signingEvent.begin();
+        long startNanos = System.nanoTime();
+        byte[] data = rsaSignerRequest.getData();
+        byte[] signature = signatureScheme.sign(data);
+        pipelineMetrics.recordSigning(System.nanoTime() - startNanos);
+        signingEvent.finish(rsaSignerRequest.getAccountStatementId(), rsaSignerRequest.getTransactionId(),
+            signatureScheme.getSignatureAlgorithm().name(), data.length, queueNanos(rsaSignerRequest, startNanos));
+        span.setAttribute(PipelineTracing.BYTES, data.length);
+        span.end();
+
+        LOGGER.info("{} signature created", signatureScheme.getSignatureAlgorithm());
+
+        return RsaSignerResponse.builder().signature(signature).signatureAlgorithm(signatureScheme.getSignatureAlgorithm()).build();
     }
 
-    private static PrivateKey getRsaPrivateKeyFromPkcs8EncodedKey(byte[] certificateBytes) {
-        try {
-            KeyFactory keyFactory = KeyFactory.getInstance(RSA_KEY_FACTORY_ALGORITHM);
-            PKCS8EncodedKeySpec keySpecPv = new PKCS8EncodedKeySpec(certificateBytes);
+    private RsaSignerResponse signDigest(RsaSignerRequest rsaSignerRequest) {
+        Span span = pipelineTracing.startQueuedSpan("RsaSigner.sign", rsaSignerRequest.getTraceContext(), rsaSignerRequest.getSentNanos());
+        SigningEvent signingEvent = new SigningEvent();
+        signingEvent.begin();
+        long startNanos = System.nanoTime();
+        byte[] digest = rsaSignerRequest.getDigest();
+        byte[] signature = signatureScheme.signDigest(digest);
+        pipelineMetrics.recordSigning(System.nanoTime() - startNanos);
+        signingEvent.finish(rsaSignerRequest.getAccountStatementId(), rsaSignerRequest.getTransactionId(),
+            signatureScheme.getDigestSignatureAlgorithm().name(), digest.length, queueNanos(rsaSignerRequest, startNanos));
+        span.setAttribute(PipelineTracing.BYTES, digest.length);
+        span.end();
+
+        LOGGER.info("{} signature created", signatureScheme.getDigestSignatureAlgorithm());
+
+        return RsaSignerResponse.builder().signature(signature).signatureAlgorithm(signatureScheme.getDigestSignatureAlgorithm()).build();
+    }
 
-            return keyFactory.generatePrivate(keySpecPv);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-            throw new CryptographyException("Failed to load RSA private key", e);
-        }
+    private static long queueNanos(RsaSignerRequest rsaSignerRequest, long startNanos) {
+        return rsaSignerRequest.getSentNanos() == 0 ? 0 : startNanos - rsaSignerRequest.getSentNanos();
     }
 
     @Data
@@ -77,6 +89,23 @@ public class RsaSignerActor extends AbstractActor {
     public static final class RsaSignerRequest {
 
         private final byte[] data;
+        /**
+         * SHA-512 digest of the data. When set, the digest is signed and the data is not needed.
+         */
+        private final byte[] digest;
+        /**
+         * Account statement and financial transaction the signature belongs to, only recorded in the JFR event.
+         */
+        private final String accountStatementId;
+        private final String transactionId;
+        /**
+         * {@link System#nanoTime()} when the request was sent, the difference is recorded in the JFR event and the span as the mailbox queue time.
+         */
+        private final long sentNanos;
+        /**
+         * Trace context of the sender, the span of the request is started as its child.
+         */
+        private final Context traceContext;
 
     }
 
@@ -85,6 +114,7 @@ public class RsaSignerActor extends AbstractActor {
     public static final class RsaSignerResponse {
 
         private final byte[] signature;
+        private final SignatureAlgorithm signatureAlgorithm;
 
     }
 
@@ -4,24 +4,41 @@ import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.routing.RoundRobinPool;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
 import hu.upscale.akka.demo.actor.zip.ZipCompressorActor.ZipCompressorRequest;
 import hu.upscale.akka.demo.actor.zip.ZipDecompressorActor.ZipDecompressorRequest;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
 
 /**
  * @author László Zoltán
  */
 public class ZipActor extends AbstractActor {
 
+    public static final String ACTOR_NAME = "zip-actor";
+    public static final String COMPRESSION_DISPATCHER = "akka.actor.compression-dispatcher";
     public static final int KB_IN_BYTES = 1_024;
 
     private static final int ACTOR_POOL_SIZE = 16;
 
-    public static Props props() {
-        return Props.create(ZipActor.class, ZipActor::new);
+    public static Props props(Config config, CompressionDictionaryRegistry compressionDictionaryRegistry, PipelineMetrics pipelineMetrics,
+        PipelineTracing pipelineTracing) {
+        return Props.create(ZipActor.class, () -> new ZipActor(config, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing));
     }
 
-    private final ActorRef zipCompressorActor = getContext().actorOf(new RoundRobinPool(ACTOR_POOL_SIZE).props(ZipCompressorActor.props()));
-    private final ActorRef zipDecompressorActor = getContext().actorOf(new RoundRobinPool(ACTOR_POOL_SIZE).props(ZipDecompressorActor.props()));
+    private final ActorRef zipCompressorActor;
+    private final ActorRef zipDecompressorActor;
+
+    public ZipActor(Config config, CompressionDictionaryRegistry compressionDictionaryRegistry, PipelineMetrics pipelineMetrics,
+        PipelineTracing pipelineTracing) {
+        zipCompressorActor = getContext().actorOf(new RoundRobinPool(ACTOR_POOL_SIZE).props(
+            ZipCompressorActor.props(config, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing).withDispatcher(COMPRESSION_DISPATCHER)
+        ));
+        zipDecompressorActor = getContext().actorOf(new RoundRobinPool(ACTOR_POOL_SIZE).props(
+            ZipDecompressorActor.props(config, compressionDictionaryRegistry).withDispatcher(COMPRESSION_DISPATCHER)
+        ));
+    }
 
     @Override
     public Receive createReceive() {
@@ -4,10 +4,19 @@ import static hu.upscale.akka.demo.actor.zip.ZipActor.KB_IN_BYTES;
 
 import akka.actor.AbstractActor;
 import akka.actor.Props;
-import hu.upscale.akka.demo.exception.CompressionException;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.Deflater;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.compression.CompressionCodec;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
+import hu.upscale.akka.demo.compression.CompressionMode;
+import hu.upscale.akka.demo.crypto.MessageDigests;
+import hu.upscale.akka.demo.entity.CompressionDictionary;
+import hu.upscale.akka.demo.jfr.CompressionEvent;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import java.security.MessageDigest;
+import java.util.Optional;
 import lombok.Builder;
 import lombok.Data;
 import org.slf4j.Logger;
@@ -20,44 +29,72 @@ public class ZipCompressorActor extends AbstractActor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ZipCompressorActor.class);
 
-    public static Props props() {
-        return Props.create(ZipCompressorActor.class, ZipCompressorActor::new);
+    private final CompressionCodec compressionCodec;
+    private final MessageDigest messageDigest = MessageDigests.newSha512MessageDigest();
+    private final CompressionDictionaryRegistry compressionDictionaryRegistry;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineTracing pipelineTracing;
+
+    public static Props props(Config config, CompressionDictionaryRegistry compressionDictionaryRegistry, PipelineMetrics pipelineMetrics,
+        PipelineTracing pipelineTracing) {
+        return Props.create(ZipCompressorActor.class,
+            () -> new ZipCompressorActor(config, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing));
+    }
+
+    public ZipCompressorActor(Config config, CompressionDictionaryRegistry compressionDictionaryRegistry, PipelineMetrics pipelineMetrics,
+        PipelineTracing pipelineTracing) {
+        this.compressionDictionaryRegistry = compressionDictionaryRegistry;
+        this.pipelineMetrics = pipelineMetrics;
+        this.pipelineTracing = pipelineTracing;
+        compressionCodec = new CompressionCodec(config);
+    }
+
+    @Override
+    public void postStop() {
+        compressionCodec.close();
     }
 
     @Override
     public Receive createReceive() {
         return receiveBuilder()
             .match(ZipCompressorRequest.class, zipCompressorRequest ->
-                getSender().tell(
-                    ZipCompressorResponse.builder().compressedData(compress(zipCompressorRequest.getRawData())).build(),
-                    getSelf()
-                )
+                getSender().tell(compress(zipCompressorRequest), getSelf())
             )
             .build();
     }
 
-    private byte[] compress(byte[] rawData) {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream(rawData.length)) {
-            Deflater deflater = new Deflater();
-            deflater.setLevel(Deflater.BEST_COMPRESSION);
-            deflater.setInput(rawData);
-            deflater.finish();
-
-            byte[] buffer = new byte[KB_IN_BYTES];
-            while (!deflater.finished()) {
-                int count = deflater.deflate(buffer);
-                outputStream.write(buffer, 0, count);
-            }
-
-            byte[] compressedData = outputStream.toByteArray();
-
-            LOGGER.info("Zip compression original data length: {} Kb", rawData.length / KB_IN_BYTES);
-            LOGGER.info("Zip compression compressed data length: {} Kb", compressedData.length / KB_IN_BYTES);
+    private ZipCompressorResponse compress(ZipCompressorRequest zipCompressorRequest) {
+        Span span = pipelineTracing.startQueuedSpan("ZipCompressor.compress", zipCompressorRequest.getTraceContext(),
+            zipCompressorRequest.getSentNanos());
+        CompressionEvent compressionEvent = new CompressionEvent();
+        compressionEvent.begin();
+        long startNanos = System.nanoTime();
+        byte[] rawData = zipCompressorRequest.getRawData();
+        Optional<CompressionDictionary> compressionDictionary = compressionDictionaryRegistry.getCurrentCompressionDictionary();
+        messageDigest.reset();
+        byte[] compressedData = compressionCodec.compress(rawData, compressionDictionary.map(CompressionDictionary::getDictionary).orElse(null),
+            messageDigest);
+        byte[] digest = messageDigest.digest();
+        pipelineMetrics.recordCompression(System.nanoTime() - startNanos, rawData.length, compressedData.length);
+        compressionEvent.finish(zipCompressorRequest.getAccountStatementId(), zipCompressorRequest.getTransactionId(), rawData.length,
+            compressedData.length, queueNanos(zipCompressorRequest, startNanos));
+        span.setAttribute(PipelineTracing.BYTES, rawData.length);
+        span.end();
+
+        LOGGER.info("Zip compression original data length: {} Kb", rawData.length / KB_IN_BYTES);
+        LOGGER.info("Zip compression compressed data length: {} Kb", compressedData.length / KB_IN_BYTES);
+
+        return ZipCompressorResponse.builder()
+            .compressedData(compressedData)
+            .digest(digest)
+            .compressionDictionaryId(CompressionMode.of(compressedData) == CompressionMode.DICTIONARY
+                ? compressionDictionary.map(CompressionDictionary::getDictionaryId).orElseThrow()
+                : null)
+            .build();
+    }
 
-            return compressedData;
-        } catch (IOException e) {
-            throw new CompressionException("Failed to compress data", e);
-        }
+    private static long queueNanos(ZipCompressorRequest zipCompressorRequest, long startNanos) {
+        return zipCompressorRequest.getSentNanos() == 0 ? 0 : startNanos - zipCompressorRequest.getSentNanos();
     }
 
     @Data
@@ -65,6 +102,19 @@ public class ZipCompressorActor extends AbstractActor {
     public static final class ZipCompressorRequest {
 
         private final byte[] rawData;
+        /**
+         * Account statement and financial transaction the data belongs to, only recorded in the JFR event.
+         */
+        private final String accountStatementId;
+        private final String transactionId;
+        /**
+         * {@link System#nanoTime()} when the request was sent, the difference is recorded in the JFR event and the span as the mailbox queue time.
+         */
+        private final long sentNanos;
+        /**
+         * Trace context of the sender, the span of the request is started as its child.
+         */
+        private final Context traceContext;
 
     }
 
@@ -73,6 +123,11 @@ public class ZipCompressorActor extends AbstractActor {
     public static final class ZipCompressorResponse {
 
         private final byte[] compressedData;
+        private final Integer compressionDictionaryId;
+        /**
+         * SHA-512 digest of the raw data, computed while it was compressed.
+         */
+        private final byte[] digest;
 
     }
 }
@@ -3,12 +3,15 @@ package hu.upscale.akka.demo.actor.zip;
 import static hu.upscale.akka.demo.actor.zip.ZipActor.KB_IN_BYTES;
 
 import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
 import akka.actor.Props;
-import hu.upscale.akka.demo.exception.CompressionException;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
+import akka.actor.Status;
+import akka.pattern.Patterns;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.compression.CompressionCodec;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
+import hu.upscale.akka.demo.entity.CompressionDictionary;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import org.slf4j.Logger;
@@ -21,42 +24,87 @@ public class ZipDecompressorActor extends AbstractActor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ZipDecompressorActor.class);
 
-    public static Props props() {
-        return Props.create(ZipDecompressorActor.class, ZipDecompressorActor::new);
+    private final CompressionCodec compressionCodec;
+    private final CompressionDictionaryRegistry compressionDictionaryRegistry;
+
+    public static Props props(Config config, CompressionDictionaryRegistry compressionDictionaryRegistry) {
+        return Props.create(ZipDecompressorActor.class, () -> new ZipDecompressorActor(config, compressionDictionaryRegistry));
+    }
+
+    public ZipDecompressorActor(Config config, CompressionDictionaryRegistry compressionDictionaryRegistry) {
+        this.compressionDictionaryRegistry = compressionDictionaryRegistry;
+        compressionCodec = new CompressionCodec(config);
+    }
+
+    @Override
+    public void postStop() {
+        compressionCodec.close();
     }
 
     @Override
     public Receive createReceive() {
         return receiveBuilder()
-            .match(ZipDecompressorRequest.class, zipDecompressorRequest ->
-                getSender().tell(
-                    ZipDecompressorResponse.builder().decompressedData(decompress(zipDecompressorRequest.getCompressedData())),
-                    getSelf()
-                )
-            )
+            .match(ZipDecompressorRequest.class, this::decompressWithCompressionDictionary)
+            .match(CompressionDictionaryLookup.class, compressionDictionaryLookup -> {
+                if (compressionDictionaryLookup.getFailure() != null) {
+                    compressionDictionaryLookup.getSender().tell(new Status.Failure(compressionDictionaryLookup.getFailure()), getSelf());
+                } else {
+                    compressionDictionaryLookup.getSender().tell(
+                        ZipDecompressorResponse.builder().decompressedData(decompress(
+                            compressionDictionaryLookup.getZipDecompressorRequest(),
+                            compressionDictionaryLookup.getCompressionDictionary().getDictionary()
+                        )).build(),
+                        getSelf()
+                    );
+                }
+            })
             .build();
     }
 
-    private byte[] decompress(byte[] compressedData) {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream(compressedData.length)) {
-            Inflater inflater = new Inflater();
-            inflater.setInput(compressedData);
+    /**
+     * Decompresses right away when no dictionary is needed or it is already cached, otherwise the dictionary is loaded asynchronously and the
+     * request is completed when the lookup result arrives back to this actor.
+     */
+    private void decompressWithCompressionDictionary(ZipDecompressorRequest zipDecompressorRequest) {
+        Integer compressionDictionaryId = zipDecompressorRequest.getCompressionDictionaryId();
+        if (compressionDictionaryId == null) {
+            getSender().tell(
+                ZipDecompressorResponse.builder().decompressedData(decompress(zipDecompressorRequest, null)).build(),
+                getSelf()
+            );
+            return;
+        }
+
+        byte[] cachedDictionary = compressionDictionaryRegistry.getCachedCompressionDictionary(compressionDictionaryId)
+            .map(CompressionDictionary::getDictionary)
+            .orElse(null);
+        if (cachedDictionary != null) {
+            getSender().tell(
+                ZipDecompressorResponse.builder().decompressedData(decompress(zipDecompressorRequest, cachedDictionary)).build(),
+                getSelf()
+            );
+            return;
+        }
 
-            byte[] buffer = new byte[KB_IN_BYTES];
-            while (!inflater.finished()) {
-                int count = inflater.inflate(buffer);
-                outputStream.write(buffer, 0, count);
-            }
+        ActorRef sender = getSender();
+        Patterns.pipe(
+            compressionDictionaryRegistry.findCompressionDictionary(compressionDictionaryId).handle((compressionDictionary, failure) ->
+                new CompressionDictionaryLookup(zipDecompressorRequest, compressionDictionary, failure, sender)
+            ),
+            getContext().getDispatcher()
+        ).to(getSelf());
+    }
 
-            byte[] decompressedData = outputStream.toByteArray();
+    private byte[] decompress(ZipDecompressorRequest zipDecompressorRequest, byte[] dictionary) {
+        byte[] compressedData = zipDecompressorRequest.getCompressedData();
+        byte[] decompressedData = zipDecompressorRequest.getMaxDecompressedLength() != null
+            ? compressionCodec.decompress(compressedData, dictionary, zipDecompressorRequest.getMaxDecompressedLength())
+            : compressionCodec.decompress(compressedData, dictionary);
 
-            LOGGER.info("Zip decompression compressed data length: {} Kb", compressedData.length / KB_IN_BYTES);
-            LOGGER.info("Zip decompression decompressed data length: {} Kb", decompressedData.length / KB_IN_BYTES);
+        LOGGER.info("Zip decompression compressed data length: {} Kb", compressedData.length / KB_IN_BYTES);
+        LOGGER.info("Zip decompression decompressed data length: {} Kb", decompressedData.length / KB_IN_BYTES);
 
-            return decompressedData;
-        } catch (IOException | DataFormatException e) {
-            throw new CompressionException("Failed to decompress data", e);
-        }
+        return decompressedData;
     }
 
     @Data
@@ -64,6 +112,12 @@ public class ZipDecompressorActor extends AbstractActor {
     public static final class ZipDecompressorRequest {
 
         private final byte[] compressedData;
+        private final Integer compressionDictionaryId;
+        /**
+         * When set, decompression stops after this many bytes, so the leading financial transactions of an archive block can be extracted without
+         * inflating the whole block.
+         */
+        private final Integer maxDecompressedLength;
 
     }
 
@@ -74,4 +128,15 @@ public class ZipDecompressorActor extends AbstractActor {
         private final byte[] decompressedData;
 
     }
+
+    @Data
+    @AllArgsConstructor
+    private static final class CompressionDictionaryLookup {
+
+        private final ZipDecompressorRequest zipDecompressorRequest;
+        private final CompressionDictionary compressionDictionary;
+        private final Throwable failure;
+        private final ActorRef sender;
+
+    }
 }
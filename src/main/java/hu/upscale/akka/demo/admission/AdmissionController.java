@@ -0,0 +1,126 @@
+package hu.upscale.akka.demo.admission;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.exception.AdmissionRejectedException;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Limits the number of account statements generated at once across the service. Up to <i>max-in-flight</i> statements run, up to <i>max-queued</i>
+ * wait for a permit in arrival order, and beyond that the statement is rejected, so the JDBC threads and connections are shared by a bounded number
+ * of statements instead of every request slowing down the others.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class AdmissionController {
+
+    private static final String MAX_IN_FLIGHT_CONFIG_KEY = "microservice.account-statement.admission.max-in-flight";
+    private static final String MAX_QUEUED_CONFIG_KEY = "microservice.account-statement.admission.max-queued";
+    private static final String MAX_QUEUE_TIME_CONFIG_KEY = "microservice.account-statement.admission.max-queue-time";
+    private static final String RETRY_AFTER_CONFIG_KEY = "microservice.account-statement.admission.retry-after";
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final Duration maxQueueTime;
+    private final Duration retryAfter;
+    private final PipelineMetrics pipelineMetrics;
+
+    private final Deque<CompletableFuture<AdmissionPermit>> waitingPermits = new ArrayDeque<>();
+    private int inFlight;
+
+    @Inject
+    public AdmissionController(Config config, PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+        maxInFlight = config.getInt(MAX_IN_FLIGHT_CONFIG_KEY);
+        maxQueued = config.getInt(MAX_QUEUED_CONFIG_KEY);
+        maxQueueTime = config.getDuration(MAX_QUEUE_TIME_CONFIG_KEY);
+        retryAfter = config.getDuration(RETRY_AFTER_CONFIG_KEY);
+        pipelineMetrics.setAdmissionQueueSize(this::getQueued);
+    }
+
+    /**
+     * @param holdsConnection whether the caller keeps an HTTP connection open while waiting, such a caller waits at most <i>max-queue-time</i> and
+     * then fails with {@link AdmissionRejectedException}
+     * @return completes with the permit once the statement may run, empty if the queue is full
+     */
+    public Optional<CompletionStage<AdmissionPermit>> tryAcquire(boolean holdsConnection) {
+        CompletableFuture<AdmissionPermit> permit = new CompletableFuture<>();
+        synchronized (this) {
+            if (inFlight < maxInFlight) {
+                inFlight++;
+                permit.complete(new AdmissionPermit(this));
+                return Optional.of(permit);
+            }
+            if (waitingPermits.size() >= maxQueued) {
+                pipelineMetrics.admissionRejected();
+                return Optional.empty();
+            }
+            waitingPermits.addLast(permit);
+        }
+
+        if (holdsConnection) {
+            permit.orTimeout(maxQueueTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        return Optional.of(permit.handle((admissionPermit, failure) -> {
+            if (failure instanceof TimeoutException) {
+                synchronized (this) {
+                    waitingPermits.remove(permit);
+                }
+                pipelineMetrics.admissionRejected();
+                throw new AdmissionRejectedException("Account statement was not admitted within " + maxQueueTime);
+            }
+
+            return admissionPermit;
+        }));
+    }
+
+    /**
+     * @return whether every permit is taken, so a new statement would have to wait
+     */
+    public synchronized boolean isSaturated() {
+        return inFlight >= maxInFlight;
+    }
+
+    /**
+     * @return the time a rejected client should wait before retrying
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    private synchronized int getQueued() {
+        return waitingPermits.size();
+    }
+
+    /**
+     * Hands the permit over to the longest waiting statement or returns it to the pool.
+     */
+    void release() {
+        while (true) {
+            CompletableFuture<AdmissionPermit> waitingPermit;
+            synchronized (this) {
+                waitingPermit = waitingPermits.pollFirst();
+                if (waitingPermit == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            // A waiting permit that has timed out in the meantime is skipped
+            if (waitingPermit.complete(new AdmissionPermit(this))) {
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package hu.upscale.akka.demo.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Right to run one account statement, it has to be released when the statement is finished. Releasing it more than once has no effect.
+ *
+ * @author László Zoltán
+ */
+public final class AdmissionPermit {
+
+    private final AdmissionController admissionController;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    AdmissionPermit(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            admissionController.release();
+        }
+    }
+
+}
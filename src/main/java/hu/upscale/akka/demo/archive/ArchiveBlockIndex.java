@@ -0,0 +1,129 @@
+package hu.upscale.akka.demo.archive;
+
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Offset index of an archive block: the position of every packed financial transaction within the uncompressed block payload, in transaction number
+ * order. It is stored next to the compressed block, so a single financial transaction can be extracted by inflating the block only up to its end.
+ *
+ * @author László Zoltán
+ */
+public final class ArchiveBlockIndex {
+
+    private final List<Entry> entries;
+
+    private ArchiveBlockIndex(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Index of the given financial transactions packed one after the other.
+     *
+     * @param financialTransactions financial transactions of the block in transaction number order
+     * @return offset index of the block
+     */
+    public static ArchiveBlockIndex of(List<FinancialTransaction> financialTransactions) {
+        List<Entry> entries = new ArrayList<>(financialTransactions.size());
+
+        int offset = 0;
+        for (FinancialTransaction financialTransaction : financialTransactions) {
+            entries.add(new Entry(financialTransaction.getTransactionId(), offset, financialTransaction.getData().length));
+            offset += financialTransaction.getData().length;
+        }
+
+        return new ArchiveBlockIndex(entries);
+    }
+
+    public static ArchiveBlockIndex decode(byte[] encodedIndex) {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(encodedIndex);
+        int entryCount = byteBuffer.getInt();
+
+        List<Entry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            byte[] transactionId = new byte[Short.toUnsignedInt(byteBuffer.getShort())];
+            byteBuffer.get(transactionId);
+            entries.add(new Entry(new String(transactionId, StandardCharsets.US_ASCII), byteBuffer.getInt(), byteBuffer.getInt()));
+        }
+
+        return new ArchiveBlockIndex(entries);
+    }
+
+    public byte[] encode() {
+        int encodedLength = Integer.BYTES;
+        for (Entry entry : entries) {
+            encodedLength += Short.BYTES + entry.getTransactionId().length() + 2 * Integer.BYTES;
+        }
+
+        ByteBuffer byteBuffer = ByteBuffer.allocate(encodedLength);
+        byteBuffer.putInt(entries.size());
+        for (Entry entry : entries) {
+            byte[] transactionId = entry.getTransactionId().getBytes(StandardCharsets.US_ASCII);
+            byteBuffer.putShort((short) transactionId.length);
+            byteBuffer.put(transactionId);
+            byteBuffer.putInt(entry.getOffset());
+            byteBuffer.putInt(entry.getLength());
+        }
+
+        return byteBuffer.array();
+    }
+
+    /**
+     * Packs the financial transactions one after the other, in the order of the index.
+     *
+     * @param financialTransactions financial transactions the index was built from
+     * @return uncompressed block payload
+     */
+    public byte[] pack(List<FinancialTransaction> financialTransactions) {
+        byte[] payload = new byte[getPayloadLength()];
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            System.arraycopy(financialTransactions.get(i).getData(), 0, payload, entry.getOffset(), entry.getLength());
+        }
+        return payload;
+    }
+
+    /**
+     * @param payload uncompressed block payload, or a prefix of it that covers the entry
+     * @param entry index entry of the financial transaction
+     * @return data of the financial transaction
+     */
+    public static byte[] extract(byte[] payload, Entry entry) {
+        return Arrays.copyOfRange(payload, entry.getOffset(), entry.getOffset() + entry.getLength());
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int getPayloadLength() {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        Entry lastEntry = entries.get(entries.size() - 1);
+        return lastEntry.getOffset() + lastEntry.getLength();
+    }
+
+    public Optional<Entry> findEntry(String transactionId) {
+        return entries.stream().filter(entry -> entry.getTransactionId().equals(transactionId)).findFirst();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static final class Entry {
+
+        private final String transactionId;
+        private final int offset;
+        private final int length;
+
+    }
+}
@@ -0,0 +1,21 @@
+package hu.upscale.akka.demo.archive;
+
+/**
+ * Layout of the archived financial transactions.
+ *
+ * @author László Zoltán
+ */
+public enum ArchiveLayout {
+
+    /**
+     * Every financial transaction is archived as its own <b>demo.ArchiveFinancialTransaction</b> row.
+     */
+    ROW,
+
+    /**
+     * Consecutive financial transactions of an account statement are packed into <b>demo.ArchiveFinancialTransactionBlock</b> rows, compressed and
+     * signed together.
+     */
+    BLOCK
+
+}
@@ -0,0 +1,339 @@
+package hu.upscale.akka.demo.archive;
+
+import static hu.upscale.akka.demo.archive.ArchiveStatementCache.FIRST_TRANSACTION_NUMBER;
+import static hu.upscale.akka.demo.archive.ArchiveStatementCache.LAST_TRANSACTION_NUMBER;
+import static hu.upscale.akka.demo.guice.GuiceInjectionModule.JDBC_EXECUTOR;
+
+import akka.NotUsed;
+import akka.actor.ActorRef;
+import akka.japi.Pair;
+import akka.pattern.Patterns;
+import akka.stream.javadsl.Source;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.actor.zip.ZipActor;
+import hu.upscale.akka.demo.actor.zip.ZipDecompressorActor.ZipDecompressorRequest;
+import hu.upscale.akka.demo.actor.zip.ZipDecompressorActor.ZipDecompressorResponse;
+import hu.upscale.akka.demo.client.GetAccountStatementTransactionResponse;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.exception.DbException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import javax.sql.DataSource;
+
+/**
+ * Streams the archived financial transactions of an account statement in transaction number order. The archive is read page by page with keyset
+ * pagination and every row is decompressed through the {@link ZipActor} on the fly, so only a bounded number of rows is held in memory regardless of
+ * the size of the statement. Statements archived with the block layout are expanded into their financial transactions. Statements that fit into the
+ * {@link ArchiveStatementCache} are cached while they are streamed, so repeated reads skip the database and the decompression.
+ * <p>
+ * The archive is read through JDBC with either persistence engine, the data source is only created by the first read.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class ArchiveReader {
+
+    private static final String PAGE_SIZE_CONFIG_KEY = "microservice.account-statement.read.page-size";
+    private static final String BLOCK_PAGE_SIZE_CONFIG_KEY = "microservice.account-statement.read.block-page-size";
+    private static final String PARALLELISM_CONFIG_KEY = "microservice.account-statement.read.parallelism";
+
+    private static final String SELECT_ARCHIVE_FINANCIAL_TRANSACTION_PAGE
+        = "SELECT TOP (?) TransactionId, TransactionNumber, CompressedData, CompressionDictionaryId FROM demo.ArchiveFinancialTransaction "
+        + "WHERE AccountStatementId = ? AND TransactionNumber > ? AND TransactionNumber <= ? ORDER BY TransactionNumber";
+    private static final String SELECT_ARCHIVE_FINANCIAL_TRANSACTION_BLOCK_PAGE
+        = "SELECT TOP (?) BlockNumber, FirstTransactionNumber, TransactionCount, OffsetIndex, CompressedData, CompressionDictionaryId "
+        + "FROM demo.ArchiveFinancialTransactionBlock WHERE AccountStatementId = ? AND BlockNumber > ? "
+        + "AND FirstTransactionNumber <= ? AND FirstTransactionNumber + TransactionCount > ? ORDER BY BlockNumber";
+
+    private static final int FIRST_KEY = 0;
+    private static final Duration DECOMPRESS_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * Appended to a cached read, it only reaches {@link AccountStatementLoad#add} when the archive has been read to the end.
+     */
+    private static final GetAccountStatementTransactionResponse END_OF_LOAD = GetAccountStatementTransactionResponse.builder().build();
+
+    private final Provider<DataSource> dataSourceProvider;
+    private final Executor jdbcExecutor;
+    private final ActorRef zipActor;
+    private final ArchiveStatementCache archiveStatementCache;
+    private final int pageSize;
+    private final int blockPageSize;
+    private final int parallelism;
+
+    @Inject
+    public ArchiveReader(Config config, Provider<DataSource> dataSourceProvider, @Named(JDBC_EXECUTOR) Executor jdbcExecutor,
+        @Named(ZipActor.ACTOR_NAME) ActorRef zipActor, ArchiveStatementCache archiveStatementCache) {
+        this.dataSourceProvider = dataSourceProvider;
+        this.jdbcExecutor = jdbcExecutor;
+        this.zipActor = zipActor;
+        this.archiveStatementCache = archiveStatementCache;
+
+        pageSize = config.getInt(PAGE_SIZE_CONFIG_KEY);
+        blockPageSize = config.getInt(BLOCK_PAGE_SIZE_CONFIG_KEY);
+        parallelism = config.getInt(PARALLELISM_CONFIG_KEY);
+    }
+
+    /**
+     * @param accountStatementId id of the account statement
+     * @return the archived financial transactions of the statement, empty if the statement does not exist
+     */
+    public Source<GetAccountStatementTransactionResponse, NotUsed> readAccountStatement(UUID accountStatementId) {
+        return readAccountStatement(accountStatementId, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER);
+    }
+
+    /**
+     * @param accountStatementId id of the account statement
+     * @param fromTransactionNumber first transaction number read, inclusive
+     * @param toTransactionNumber last transaction number read, inclusive
+     * @return the archived financial transactions of the range, empty if the statement does not exist
+     */
+    public Source<GetAccountStatementTransactionResponse, NotUsed> readAccountStatement(UUID accountStatementId, int fromTransactionNumber,
+        int toTransactionNumber) {
+        String accountStatementIdString = accountStatementId.toString();
+
+        return archiveStatementCache.get(accountStatementIdString, fromTransactionNumber, toTransactionNumber)
+            .map(Source::from)
+            .orElseGet(() -> archiveStatementCache.isEnabled()
+                ? readAndCacheArchive(accountStatementIdString, fromTransactionNumber, toTransactionNumber)
+                : readArchive(accountStatementIdString, fromTransactionNumber, toTransactionNumber)
+            );
+    }
+
+    private Source<GetAccountStatementTransactionResponse, NotUsed> readAndCacheArchive(String accountStatementId, int fromTransactionNumber,
+        int toTransactionNumber) {
+        return Source.fromMaterializer((materializer, attributes) -> {
+                AccountStatementLoad accountStatementLoad = new AccountStatementLoad(accountStatementId, fromTransactionNumber, toTransactionNumber,
+                    archiveStatementCache.startLoad());
+
+                return readArchive(accountStatementId, fromTransactionNumber, toTransactionNumber)
+                    .concat(Source.single(END_OF_LOAD))
+                    .filter(accountStatementLoad::add);
+            })
+            .mapMaterializedValue(ignore -> NotUsed.notUsed());
+    }
+
+    private Source<GetAccountStatementTransactionResponse, NotUsed> readArchive(String accountStatementId, int fromTransactionNumber,
+        int toTransactionNumber) {
+        return readArchiveFinancialTransactions(accountStatementId, fromTransactionNumber, toTransactionNumber)
+            .concat(readArchiveFinancialTransactionBlocks(accountStatementId, fromTransactionNumber, toTransactionNumber));
+    }
+
+    private Source<GetAccountStatementTransactionResponse, NotUsed> readArchiveFinancialTransactions(String accountStatementId, int fromTransactionNumber,
+        int toTransactionNumber) {
+        return Source.unfoldAsync(Optional.of(fromTransactionNumber - 1), lastTransactionNumber ->
+                lastTransactionNumber
+                    .map(transactionNumber -> findArchiveFinancialTransactionPage(accountStatementId, transactionNumber, toTransactionNumber)
+                        .thenApply(page -> nextPage(page, pageSize, page.isEmpty() ? FIRST_KEY : page.get(page.size() - 1).getTransactionNumber()))
+                    )
+                    .orElseGet(() -> CompletableFuture.completedFuture(Optional.empty()))
+            )
+            .mapConcat(page -> page)
+            .mapAsync(parallelism, archiveFinancialTransaction ->
+                decompress(archiveFinancialTransaction.getCompressedData(), archiveFinancialTransaction.getCompressionDictionaryId())
+                    .thenApply(data -> GetAccountStatementTransactionResponse.builder()
+                        .transactionId(archiveFinancialTransaction.getTransactionId())
+                        .transactionNumber(archiveFinancialTransaction.getTransactionNumber())
+                        .data(data)
+                        .build()
+                    )
+            );
+    }
+
+    private Source<GetAccountStatementTransactionResponse, NotUsed> readArchiveFinancialTransactionBlocks(String accountStatementId,
+        int fromTransactionNumber, int toTransactionNumber) {
+        return Source.unfoldAsync(Optional.of(FIRST_KEY), lastBlockNumber ->
+                lastBlockNumber
+                    .map(blockNumber -> findArchiveFinancialTransactionBlockPage(accountStatementId, blockNumber, fromTransactionNumber, toTransactionNumber)
+                        .thenApply(page -> nextPage(page, blockPageSize, page.isEmpty() ? FIRST_KEY : page.get(page.size() - 1).getBlockNumber()))
+                    )
+                    .orElseGet(() -> CompletableFuture.completedFuture(Optional.empty()))
+            )
+            .mapConcat(page -> page)
+            .mapAsync(parallelism, archiveFinancialTransactionBlock ->
+                decompress(archiveFinancialTransactionBlock.getCompressedData(), archiveFinancialTransactionBlock.getCompressionDictionaryId())
+                    .thenApply(payload -> expandArchiveFinancialTransactionBlock(archiveFinancialTransactionBlock, payload))
+            )
+            .mapConcat(financialTransactions -> financialTransactions)
+            .filter(financialTransaction -> financialTransaction.getTransactionNumber() >= fromTransactionNumber
+                && financialTransaction.getTransactionNumber() <= toTransactionNumber);
+    }
+
+    /**
+     * A page shorter than the page size is the last one, so no further query is issued for it.
+     */
+    private static <T> Optional<Pair<Optional<Integer>, List<T>>> nextPage(List<T> page, int pageSize, int lastKey) {
+        if (page.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(Pair.create(page.size() < pageSize ? Optional.empty() : Optional.of(lastKey), page));
+    }
+
+    private static List<GetAccountStatementTransactionResponse> expandArchiveFinancialTransactionBlock(
+        ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock, byte[] payload) {
+        List<ArchiveBlockIndex.Entry> entries = ArchiveBlockIndex.decode(archiveFinancialTransactionBlock.getOffsetIndex()).getEntries();
+
+        List<GetAccountStatementTransactionResponse> financialTransactions = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ArchiveBlockIndex.Entry entry = entries.get(i);
+            financialTransactions.add(GetAccountStatementTransactionResponse.builder()
+                .transactionId(entry.getTransactionId())
+                .transactionNumber(archiveFinancialTransactionBlock.getFirstTransactionNumber() + i)
+                .data(ArchiveBlockIndex.extract(payload, entry))
+                .build()
+            );
+        }
+
+        return financialTransactions;
+    }
+
+    private CompletionStage<byte[]> decompress(byte[] compressedData, Integer compressionDictionaryId) {
+        return Patterns
+            .ask(zipActor,
+                ZipDecompressorRequest.builder().compressedData(compressedData).compressionDictionaryId(compressionDictionaryId).build(),
+                DECOMPRESS_TIMEOUT
+            )
+            .thenApply(ZipDecompressorResponse.class::cast)
+            .thenApply(ZipDecompressorResponse::getDecompressedData);
+    }
+
+    private CompletionStage<List<ArchiveFinancialTransaction>> findArchiveFinancialTransactionPage(String accountStatementId,
+        int lastTransactionNumber, int toTransactionNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (
+                Connection connection = dataSourceProvider.get().getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ARCHIVE_FINANCIAL_TRANSACTION_PAGE)
+            ) {
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                preparedStatement.setInt(1, pageSize);
+                preparedStatement.setString(2, accountStatementId);
+                preparedStatement.setInt(3, lastTransactionNumber);
+                preparedStatement.setInt(4, toTransactionNumber);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    List<ArchiveFinancialTransaction> page = new ArrayList<>(pageSize);
+                    while (resultSet.next()) {
+                        page.add(ArchiveFinancialTransaction.builder()
+                            .accountStatementId(accountStatementId)
+                            .transactionId(resultSet.getString(ArchiveFinancialTransaction.TRANSACTION_ID_COLUMN_NAME))
+                            .transactionNumber(resultSet.getInt(ArchiveFinancialTransaction.TRANSACTION_NUMBER_COLUMN_NAME))
+                            .compressedData(resultSet.getBytes(ArchiveFinancialTransaction.COMPRESSED_DATA_COLUMN_NAME))
+                            .compressionDictionaryId(getNullableInt(resultSet, ArchiveFinancialTransaction.COMPRESSION_DICTIONARY_ID_COLUMN_NAME))
+                            .build()
+                        );
+                    }
+
+                    return page;
+                }
+            } catch (SQLException e) {
+                throw new DbException("Failed to select archive financial transaction page", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    private CompletionStage<List<ArchiveFinancialTransactionBlock>> findArchiveFinancialTransactionBlockPage(String accountStatementId,
+        int lastBlockNumber, int fromTransactionNumber, int toTransactionNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (
+                Connection connection = dataSourceProvider.get().getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ARCHIVE_FINANCIAL_TRANSACTION_BLOCK_PAGE)
+            ) {
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                preparedStatement.setInt(1, blockPageSize);
+                preparedStatement.setString(2, accountStatementId);
+                preparedStatement.setInt(3, lastBlockNumber);
+                preparedStatement.setInt(4, toTransactionNumber);
+                preparedStatement.setInt(5, fromTransactionNumber);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    List<ArchiveFinancialTransactionBlock> page = new ArrayList<>(blockPageSize);
+                    while (resultSet.next()) {
+                        page.add(ArchiveFinancialTransactionBlock.builder()
+                            .accountStatementId(accountStatementId)
+                            .blockNumber(resultSet.getInt(ArchiveFinancialTransactionBlock.BLOCK_NUMBER_COLUMN_NAME))
+                            .firstTransactionNumber(resultSet.getInt(ArchiveFinancialTransactionBlock.FIRST_TRANSACTION_NUMBER_COLUMN_NAME))
+                            .transactionCount(resultSet.getInt(ArchiveFinancialTransactionBlock.TRANSACTION_COUNT_COLUMN_NAME))
+                            .offsetIndex(resultSet.getBytes(ArchiveFinancialTransactionBlock.OFFSET_INDEX_COLUMN_NAME))
+                            .compressedData(resultSet.getBytes(ArchiveFinancialTransactionBlock.COMPRESSED_DATA_COLUMN_NAME))
+                            .compressionDictionaryId(getNullableInt(resultSet, ArchiveFinancialTransactionBlock.COMPRESSION_DICTIONARY_ID_COLUMN_NAME))
+                            .build()
+                        );
+                    }
+
+                    return page;
+                }
+            } catch (SQLException e) {
+                throw new DbException("Failed to select archive financial transaction block page", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    private static Integer getNullableInt(ResultSet resultSet, String columnName) throws SQLException {
+        int value = resultSet.getInt(columnName);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * Collects the streamed financial transactions of one read and caches them once the read has completed. The collection is dropped as soon as it
+     * outgrows the cache entry limit, and a read that is cancelled never reaches the end of load marker.
+     */
+    private final class AccountStatementLoad {
+
+        private final String accountStatementId;
+        private final int fromTransactionNumber;
+        private final int toTransactionNumber;
+        private final long loadToken;
+
+        private List<GetAccountStatementTransactionResponse> financialTransactions = new ArrayList<>();
+        private long weightInBytes;
+
+        private AccountStatementLoad(String accountStatementId, int fromTransactionNumber, int toTransactionNumber, long loadToken) {
+            this.accountStatementId = accountStatementId;
+            this.fromTransactionNumber = fromTransactionNumber;
+            this.toTransactionNumber = toTransactionNumber;
+            this.loadToken = loadToken;
+        }
+
+        /**
+         * @return <code>false</code> for the end of load marker, which is not streamed
+         */
+        private boolean add(GetAccountStatementTransactionResponse financialTransaction) {
+            if (financialTransaction == END_OF_LOAD) {
+                complete();
+                return false;
+            }
+
+            if (financialTransactions != null) {
+                weightInBytes += ArchiveStatementCache.weigh(financialTransaction);
+                if (weightInBytes > archiveStatementCache.getMaxEntryWeightInBytes()) {
+                    financialTransactions = null;
+                } else {
+                    financialTransactions.add(financialTransaction);
+                }
+            }
+            return true;
+        }
+
+        private void complete() {
+            if (financialTransactions != null && !financialTransactions.isEmpty()) {
+                archiveStatementCache.put(accountStatementId, fromTransactionNumber, toTransactionNumber, financialTransactions, loadToken);
+            }
+        }
+
+    }
+}
@@ -0,0 +1,381 @@
+package hu.upscale.akka.demo.archive;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.client.GetAccountStatementTransactionResponse;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-through cache of decompressed archived account statements, keyed by account statement id and transaction number range. Eviction is least
+ * recently used and bounded by the total size of the cached financial transactions instead of the number of entries. Entries can be kept in direct
+ * buffers, so large statements do not grow the heap; such entries are copied back to the heap on every hit.
+ * <p>
+ * Every archive write invalidates the statement it belongs to. Loads of a statement that were started before its last invalidation are not cached,
+ * so a read that raced with an archive write can not store a stale statement, while loads of other statements are not affected.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class ArchiveStatementCache implements ArchiveStatementCacheMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveStatementCache.class);
+
+    private static final String ENABLED_CONFIG_KEY = "microservice.account-statement.read.cache.enabled";
+    private static final String MAX_BYTES_CONFIG_KEY = "microservice.account-statement.read.cache.max-bytes";
+    private static final String MAX_ENTRY_BYTES_CONFIG_KEY = "microservice.account-statement.read.cache.max-entry-bytes";
+    private static final String OFF_HEAP_CONFIG_KEY = "microservice.account-statement.read.cache.off-heap";
+
+    private static final String OBJECT_NAME = "hu.upscale.akka.demo:type=ArchiveStatementCache";
+
+    public static final int FIRST_TRANSACTION_NUMBER = 1;
+    public static final int LAST_TRANSACTION_NUMBER = Integer.MAX_VALUE;
+
+    private static final int ENTRY_OVERHEAD_IN_BYTES = 128;
+    private static final int TRANSACTION_OVERHEAD_IN_BYTES = 64;
+    // Beyond this many invalidated statements the invalidations are forgotten, at the price of discarding every load in progress once
+    private static final int MAX_TRACKED_INVALIDATIONS = 16_384;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final boolean offHeap;
+
+    private final LinkedHashMap<Key, CachedAccountStatement> cachedAccountStatements = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> keysByAccountStatementId = new HashMap<>();
+    private long weightInBytes;
+    private long generation;
+    private long allInvalidatedGeneration;
+    private final Map<String, Long> invalidatedGenerations = new HashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    @Inject
+    public ArchiveStatementCache(Config config) {
+        enabled = config.getBoolean(ENABLED_CONFIG_KEY);
+        maxBytes = config.getBytes(MAX_BYTES_CONFIG_KEY);
+        maxEntryBytes = Math.min(config.getBytes(MAX_ENTRY_BYTES_CONFIG_KEY), maxBytes);
+        offHeap = config.getBoolean(OFF_HEAP_CONFIG_KEY);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            LOGGER.warn("Failed to register archive statement cache MBean - objectName: [{}]", OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * A range is served from its own entry, or sliced from the entry of the whole statement.
+     *
+     * @param accountStatementId id of the account statement
+     * @param fromTransactionNumber first transaction number of the range, inclusive
+     * @param toTransactionNumber last transaction number of the range, inclusive
+     * @return the cached financial transactions of the range
+     */
+    public Optional<List<GetAccountStatementTransactionResponse>> get(String accountStatementId, int fromTransactionNumber, int toTransactionNumber) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        CachedAccountStatement cachedAccountStatement;
+        boolean wholeStatement;
+        synchronized (this) {
+            cachedAccountStatement = cachedAccountStatements.get(new Key(accountStatementId, fromTransactionNumber, toTransactionNumber));
+            wholeStatement = cachedAccountStatement == null;
+            if (wholeStatement) {
+                cachedAccountStatement = cachedAccountStatements.get(new Key(accountStatementId, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER));
+            }
+        }
+
+        if (cachedAccountStatement == null) {
+            missCount.increment();
+            return Optional.empty();
+        }
+
+        hitCount.increment();
+        List<GetAccountStatementTransactionResponse> financialTransactions = cachedAccountStatement.getFinancialTransactions();
+        if (!wholeStatement) {
+            return Optional.of(financialTransactions);
+        }
+
+        return Optional.of(financialTransactions.stream()
+            .filter(financialTransaction -> financialTransaction.getTransactionNumber() >= fromTransactionNumber
+                && financialTransaction.getTransactionNumber() <= toTransactionNumber)
+            .collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * @return token to pass to {@link #put(String, int, int, List, long)} once the load has completed, the load is discarded if its statement is
+     * invalidated in the meantime
+     */
+    public synchronized long startLoad() {
+        return generation;
+    }
+
+    /**
+     * Caches a loaded range unless it is larger than the entry limit or the statement was written since the load was started. Least recently used
+     * entries are evicted until the new entry fits.
+     *
+     * @param accountStatementId id of the account statement
+     * @param fromTransactionNumber first transaction number of the range, inclusive
+     * @param toTransactionNumber last transaction number of the range, inclusive
+     * @param financialTransactions financial transactions of the range in transaction number order
+     * @param loadToken value of {@link #startLoad()} before the range was read
+     */
+    public void put(String accountStatementId, int fromTransactionNumber, int toTransactionNumber,
+        List<GetAccountStatementTransactionResponse> financialTransactions, long loadToken) {
+        if (!enabled || weigh(financialTransactions) > maxEntryBytes) {
+            return;
+        }
+
+        CachedAccountStatement cachedAccountStatement = offHeap
+            ? OffHeapCachedAccountStatement.of(financialTransactions)
+            : new HeapCachedAccountStatement(List.copyOf(financialTransactions), weigh(financialTransactions));
+        Key key = new Key(accountStatementId, fromTransactionNumber, toTransactionNumber);
+
+        synchronized (this) {
+            if (loadToken < invalidatedGeneration(accountStatementId)) {
+                return;
+            }
+
+            remove(key);
+            cachedAccountStatements.put(key, cachedAccountStatement);
+            keysByAccountStatementId.computeIfAbsent(accountStatementId, ignore -> new HashSet<>()).add(key);
+            weightInBytes += cachedAccountStatement.getWeightInBytes();
+
+            Iterator<Map.Entry<Key, CachedAccountStatement>> leastRecentlyUsed = cachedAccountStatements.entrySet().iterator();
+            while (weightInBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+                Map.Entry<Key, CachedAccountStatement> evicted = leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                forget(evicted.getKey());
+                weightInBytes -= evicted.getValue().getWeightInBytes();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops every cached range of the account statement and discards its loads still in progress.
+     *
+     * @param accountStatementId id of the account statement that was written
+     */
+    public void invalidate(String accountStatementId) {
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (this) {
+            generation++;
+            if (invalidatedGenerations.size() >= MAX_TRACKED_INVALIDATIONS) {
+                allInvalidatedGeneration = generation;
+                invalidatedGenerations.clear();
+            }
+            invalidatedGenerations.put(accountStatementId, generation);
+
+            Set<Key> keys = keysByAccountStatementId.remove(accountStatementId);
+            if (keys != null) {
+                keys.forEach(key -> weightInBytes -= cachedAccountStatements.remove(key).getWeightInBytes());
+                invalidationCount.add(keys.size());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        generation++;
+        allInvalidatedGeneration = generation;
+        invalidatedGenerations.clear();
+        invalidationCount.add(cachedAccountStatements.size());
+        cachedAccountStatements.clear();
+        keysByAccountStatementId.clear();
+        weightInBytes = 0;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    @Override
+    public synchronized int getEntryCount() {
+        return cachedAccountStatements.size();
+    }
+
+    @Override
+    public synchronized long getWeightInBytes() {
+        return weightInBytes;
+    }
+
+    @Override
+    public long getMaxWeightInBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public long getMaxEntryWeightInBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * @return the estimated heap size of the financial transactions, the same estimate is used for the off-heap limit
+     */
+    public static long weigh(List<GetAccountStatementTransactionResponse> financialTransactions) {
+        long weight = ENTRY_OVERHEAD_IN_BYTES;
+        for (GetAccountStatementTransactionResponse financialTransaction : financialTransactions) {
+            weight += weigh(financialTransaction);
+        }
+        return weight;
+    }
+
+    public static long weigh(GetAccountStatementTransactionResponse financialTransaction) {
+        return TRANSACTION_OVERHEAD_IN_BYTES + financialTransaction.getTransactionId().length() + financialTransaction.getData().length;
+    }
+
+    private long invalidatedGeneration(String accountStatementId) {
+        return Math.max(allInvalidatedGeneration, invalidatedGenerations.getOrDefault(accountStatementId, 0L));
+    }
+
+    private void remove(Key key) {
+        CachedAccountStatement cachedAccountStatement = cachedAccountStatements.remove(key);
+        if (cachedAccountStatement != null) {
+            forget(key);
+            weightInBytes -= cachedAccountStatement.getWeightInBytes();
+        }
+    }
+
+    private void forget(Key key) {
+        Set<Key> keys = keysByAccountStatementId.get(key.getAccountStatementId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByAccountStatementId.remove(key.getAccountStatementId());
+            }
+        }
+    }
+
+    @Data
+    private static final class Key {
+
+        private final String accountStatementId;
+        private final int fromTransactionNumber;
+        private final int toTransactionNumber;
+
+    }
+
+    private interface CachedAccountStatement {
+
+        List<GetAccountStatementTransactionResponse> getFinancialTransactions();
+
+        long getWeightInBytes();
+
+    }
+
+    @Data
+    private static final class HeapCachedAccountStatement implements CachedAccountStatement {
+
+        private final List<GetAccountStatementTransactionResponse> financialTransactions;
+        private final long weightInBytes;
+
+    }
+
+    /**
+     * Financial transactions serialized into one direct buffer: transaction number, transaction id length, transaction id, data length and data for
+     * every financial transaction.
+     */
+    @Data
+    private static final class OffHeapCachedAccountStatement implements CachedAccountStatement {
+
+        private final ByteBuffer buffer;
+        private final int transactionCount;
+        private final long weightInBytes;
+
+        private static OffHeapCachedAccountStatement of(List<GetAccountStatementTransactionResponse> financialTransactions) {
+            int length = 0;
+            for (GetAccountStatementTransactionResponse financialTransaction : financialTransactions) {
+                length += 3 * Integer.BYTES + financialTransaction.getTransactionId().length() + financialTransaction.getData().length;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+            for (GetAccountStatementTransactionResponse financialTransaction : financialTransactions) {
+                byte[] transactionId = financialTransaction.getTransactionId().getBytes(StandardCharsets.US_ASCII);
+                buffer.putInt(financialTransaction.getTransactionNumber());
+                buffer.putInt(transactionId.length);
+                buffer.put(transactionId);
+                buffer.putInt(financialTransaction.getData().length);
+                buffer.put(financialTransaction.getData());
+            }
+            buffer.flip();
+
+            return new OffHeapCachedAccountStatement(buffer.asReadOnlyBuffer(), financialTransactions.size(), weigh(financialTransactions));
+        }
+
+        @Override
+        public List<GetAccountStatementTransactionResponse> getFinancialTransactions() {
+            ByteBuffer reader = buffer.duplicate();
+            List<GetAccountStatementTransactionResponse> financialTransactions = new ArrayList<>(transactionCount);
+            for (int i = 0; i < transactionCount; i++) {
+                int transactionNumber = reader.getInt();
+                byte[] transactionId = new byte[reader.getInt()];
+                reader.get(transactionId);
+                byte[] data = new byte[reader.getInt()];
+                reader.get(data);
+
+                financialTransactions.add(GetAccountStatementTransactionResponse.builder()
+                    .transactionId(new String(transactionId, StandardCharsets.US_ASCII))
+                    .transactionNumber(transactionNumber)
+                    .data(data)
+                    .build()
+                );
+            }
+            return financialTransactions;
+        }
+
+    }
+}
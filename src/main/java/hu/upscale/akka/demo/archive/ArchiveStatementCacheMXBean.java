@@ -0,0 +1,32 @@
+package hu.upscale.akka.demo.archive;
+
+/**
+ * JMX view of the {@link ArchiveStatementCache}, registered as <b>hu.upscale.akka.demo:type=ArchiveStatementCache</b>.
+ *
+ * @author László Zoltán
+ */
+public interface ArchiveStatementCacheMXBean {
+
+    boolean isEnabled();
+
+    boolean isOffHeap();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    long getInvalidationCount();
+
+    int getEntryCount();
+
+    long getWeightInBytes();
+
+    long getMaxWeightInBytes();
+
+    long getMaxEntryWeightInBytes();
+
+    void invalidateAll();
+
+}
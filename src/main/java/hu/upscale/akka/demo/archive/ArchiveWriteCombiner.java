@@ -0,0 +1,177 @@
+package hu.upscale.akka.demo.archive;
+
+import akka.actor.ActorSystem;
+import akka.stream.BoundedSourceQueue;
+import akka.stream.QueueOfferResult;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.repository.ArchiveRepository;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the archive moves of every concurrently running account statement and executes them in size and time bounded windows: one batch for
+ * the deletes, one for the inserts and a single commit per window through the {@link ArchiveRepository}. Every submitted move still completes its
+ * own completion stage. Every write invalidates the cached reads of its account statement in the {@link ArchiveStatementCache}. A window is traced
+ * in its own span linked to the spans that submitted its moves, because it belongs to the traces of several statements.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class ArchiveWriteCombiner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveWriteCombiner.class);
+
+    private static final String MAX_BATCH_SIZE_CONFIG_KEY = "microservice.archive.write-combiner.max-batch-size";
+    private static final String MAX_BATCH_DELAY_CONFIG_KEY = "microservice.archive.write-combiner.max-batch-delay";
+    private static final String PARALLELISM_CONFIG_KEY = "microservice.archive.write-combiner.parallelism";
+    private static final String BUFFER_SIZE_CONFIG_KEY = "microservice.archive.write-combiner.buffer-size";
+
+    private final ArchiveRepository archiveRepository;
+    private final ArchiveStatementCache archiveStatementCache;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineTracing pipelineTracing;
+    private final BoundedSourceQueue<ArchiveWrite> sourceQueue;
+
+    @Inject
+    public ArchiveWriteCombiner(Config config, ActorSystem actorSystem, ArchiveRepository archiveRepository,
+        ArchiveStatementCache archiveStatementCache, PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        this.archiveRepository = archiveRepository;
+        this.archiveStatementCache = archiveStatementCache;
+        this.pipelineMetrics = pipelineMetrics;
+        this.pipelineTracing = pipelineTracing;
+
+        int maxBatchSize = config.getInt(MAX_BATCH_SIZE_CONFIG_KEY);
+        Duration maxBatchDelay = config.getDuration(MAX_BATCH_DELAY_CONFIG_KEY);
+        int parallelism = config.getInt(PARALLELISM_CONFIG_KEY);
+
+        sourceQueue = Source.<ArchiveWrite>queue(config.getInt(BUFFER_SIZE_CONFIG_KEY))
+            .groupedWithin(maxBatchSize, maxBatchDelay)
+            .mapAsyncUnordered(parallelism, this::moveFinancialTransactionsToArchive)
+            .to(Sink.ignore())
+            .run(actorSystem);
+        pipelineMetrics.setArchiveWriteQueueSize(sourceQueue::size);
+    }
+
+    /**
+     * Deletes the financial transaction and inserts its archived form within the next write window.
+     *
+     * @param archiveFinancialTransaction archived form of the financial transaction
+     * @return completes when the window containing the move has been committed
+     */
+    public CompletionStage<Void> moveFinancialTransactionToArchive(ArchiveFinancialTransaction archiveFinancialTransaction) {
+        ArchiveWrite archiveWrite = new ArchiveWrite(archiveFinancialTransaction, new CompletableFuture<>(), Context.current());
+        QueueOfferResult queueOfferResult = sourceQueue.offer(archiveWrite);
+
+        if (!QueueOfferResult.enqueued().equals(queueOfferResult)) {
+            LOGGER.warn("Archive write window is full, moving financial transaction on its own - transactionId: [{}]",
+                archiveFinancialTransaction.getTransactionId());
+            return moveFinancialTransactionToArchiveIndividually(archiveFinancialTransaction);
+        }
+
+        return archiveWrite.getCompletion();
+    }
+
+    /**
+     * Deletes the packed financial transactions and inserts the archive block in one commit. Blocks already amortize the commit over many financial
+     * transactions, so they are not combined into write windows.
+     *
+     * @param archiveFinancialTransactionBlock archive block
+     * @param transactionIds ids of the financial transactions packed into the block
+     * @return completes when the block has been committed
+     */
+    public CompletionStage<Void> moveFinancialTransactionBlockToArchive(ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock,
+        List<String> transactionIds) {
+        long startNanos = System.nanoTime();
+        return archiveRepository.moveFinancialTransactionBlockToArchive(archiveFinancialTransactionBlock, transactionIds)
+            .whenComplete((ignore, failure) -> {
+                pipelineMetrics.recordArchiveCommit(System.nanoTime() - startNanos);
+                archiveStatementCache.invalidate(archiveFinancialTransactionBlock.getAccountStatementId());
+            });
+    }
+
+    private CompletionStage<Void> moveFinancialTransactionsToArchive(List<ArchiveWrite> archiveWrites) {
+        List<ArchiveFinancialTransaction> archiveFinancialTransactions = archiveWrites.stream()
+            .map(ArchiveWrite::getArchiveFinancialTransaction)
+            .collect(Collectors.toList());
+
+        Span span = pipelineTracing.startLinkedSpan("ArchiveWriteCombiner.commit",
+            archiveWrites.stream().map(ArchiveWrite::getTraceContext).collect(Collectors.toList()));
+        span.setAttribute(PipelineTracing.TRANSACTION_COUNT, archiveWrites.size());
+
+        long startNanos = System.nanoTime();
+        CompletionStage<Void> commit = PipelineTracing.callInScope(span,
+            () -> archiveRepository.moveFinancialTransactionsToArchive(archiveFinancialTransactions));
+
+        return commit
+            .whenComplete((ignore, failure) -> {
+                PipelineTracing.end(span, failure);
+                pipelineMetrics.recordArchiveCommit(System.nanoTime() - startNanos);
+                archiveFinancialTransactions.stream()
+                    .map(ArchiveFinancialTransaction::getAccountStatementId)
+                    .distinct()
+                    .forEach(archiveStatementCache::invalidate);
+            })
+            .handle((ignore, failure) -> {
+                if (failure == null) {
+                    LOGGER.info("Archive write window committed - size: [{}]", archiveWrites.size());
+                    archiveWrites.forEach(archiveWrite -> archiveWrite.getCompletion().complete(null));
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+
+                LOGGER.warn("Archive write window failed, retrying financial transactions one by one - size: [{}]", archiveWrites.size(), failure);
+                return CompletableFuture.allOf(archiveWrites.stream()
+                    .map(this::retryIndividually)
+                    .map(CompletionStage::toCompletableFuture)
+                    .toArray(CompletableFuture[]::new)
+                );
+            })
+            .thenCompose(retries -> retries);
+    }
+
+    private CompletionStage<Void> retryIndividually(ArchiveWrite archiveWrite) {
+        return moveFinancialTransactionToArchiveIndividually(archiveWrite.getArchiveFinancialTransaction())
+            .whenComplete((ignore, failure) -> {
+                if (failure != null) {
+                    archiveWrite.getCompletion().completeExceptionally(failure);
+                } else {
+                    archiveWrite.getCompletion().complete(null);
+                }
+            })
+            .exceptionally(failure -> null);
+    }
+
+    private CompletionStage<Void> moveFinancialTransactionToArchiveIndividually(ArchiveFinancialTransaction archiveFinancialTransaction) {
+        return archiveRepository.moveFinancialTransactionsToArchive(List.of(archiveFinancialTransaction))
+            .whenComplete((ignore, failure) -> archiveStatementCache.invalidate(archiveFinancialTransaction.getAccountStatementId()));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class ArchiveWrite {
+
+        private final ArchiveFinancialTransaction archiveFinancialTransaction;
+        private final CompletableFuture<Void> completion;
+        /**
+         * Context of the submitter, the span of the window links to its span.
+         */
+        private final Context traceContext;
+
+    }
+}
@@ -0,0 +1,43 @@
+package hu.upscale.akka.demo.audit;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Summary of an archive audit run.
+ *
+ * @author László Zoltán
+ */
+@Data
+@Builder
+public final class ArchiveAuditReport {
+
+    private static final double BYTES_IN_MB = 1_024.0 * 1_024.0;
+
+    private final long rows;
+    private final long failedRows;
+    private final long blocks;
+    private final long failedBlocks;
+    /**
+     * Archived financial transactions verified: one per row and the packed ones of every block.
+     */
+    private final long transactions;
+    private final long statements;
+    private final long failedStatements;
+    private final long decompressedBytes;
+    private final Duration elapsed;
+
+    public boolean isFailed() {
+        return failedRows > 0 || failedBlocks > 0;
+    }
+
+    public double getTransactionsPerSecond() {
+        return transactions * 1_000.0 / Math.max(elapsed.toMillis(), 1);
+    }
+
+    public double getMegabytesPerSecond() {
+        return decompressedBytes / BYTES_IN_MB * 1_000.0 / Math.max(elapsed.toMillis(), 1);
+    }
+
+}
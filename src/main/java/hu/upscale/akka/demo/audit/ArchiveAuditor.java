@@ -0,0 +1,451 @@
+package hu.upscale.akka.demo.audit;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.compression.CompressionCodec;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
+import hu.upscale.akka.demo.crypto.ArchiveSignatureVerifier;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.exception.DbException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Offline audit of <b>demo.ArchiveFinancialTransaction</b> and <b>demo.ArchiveFinancialTransactionBlock</b>. Both tables are read in primary key
+ * order with keyset pagination on a dedicated reader thread, one page ahead of the verification. The rows and blocks of a page are decompressed and
+ * verified in parallel on a fork-join pool sized to the cores, every worker thread owning its own {@link CompressionCodec}. The two tables are merged
+ * by account statement id, so the per statement results are written to the report file as soon as a statement is complete in both of them.
+ * <p>
+ * The audit is a batch job run by {@link hu.upscale.akka.demo.AkkaArchiveAudit}, it reads the archive through JDBC with either persistence engine.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class ArchiveAuditor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveAuditor.class);
+
+    private static final String PAGE_SIZE_CONFIG_KEY = "microservice.audit.page-size";
+    private static final String BLOCK_PAGE_SIZE_CONFIG_KEY = "microservice.audit.block-page-size";
+    private static final String PARALLELISM_CONFIG_KEY = "microservice.audit.parallelism";
+
+    private static final String SELECT_ARCHIVE_FINANCIAL_TRANSACTION_PAGE
+        = "SELECT TOP (?) AccountStatementId, TransactionId, TransactionNumber, CompressedData, CompressionDictionaryId, Signature, SignatureAlgorithm, "
+        + "InclusionProof FROM demo.ArchiveFinancialTransaction "
+        + "WHERE AccountStatementId > ? OR (AccountStatementId = ? AND TransactionId > ?) "
+        + "ORDER BY AccountStatementId, TransactionId";
+    private static final String SELECT_ARCHIVE_FINANCIAL_TRANSACTION_BLOCK_PAGE
+        = "SELECT TOP (?) AccountStatementId, BlockNumber, TransactionCount, CompressedData, CompressionDictionaryId, Signature, "
+        + "SignatureAlgorithm FROM demo.ArchiveFinancialTransactionBlock "
+        + "WHERE AccountStatementId > ? OR (AccountStatementId = ? AND BlockNumber > ?) "
+        + "ORDER BY AccountStatementId, BlockNumber";
+
+    private static final String FIRST_KEY = "";
+    private static final int FIRST_BLOCK_NUMBER_KEY = Integer.MIN_VALUE;
+    private static final String REPORT_HEADER = "AccountStatementId;Transactions;Rows;FailedRows;Blocks;FailedBlocks;Verified";
+
+    private final DataSource dataSource;
+    private final CompressionDictionaryRegistry compressionDictionaryRegistry;
+    private final int pageSize;
+    private final int blockPageSize;
+    private final int parallelism;
+    private final ThreadLocal<CompressionCodec> compressionCodec;
+
+    @Inject
+    public ArchiveAuditor(Config config, DataSource dataSource, CompressionDictionaryRegistry compressionDictionaryRegistry) {
+        this.dataSource = dataSource;
+        this.compressionDictionaryRegistry = compressionDictionaryRegistry;
+
+        pageSize = config.getInt(PAGE_SIZE_CONFIG_KEY);
+        blockPageSize = config.getInt(BLOCK_PAGE_SIZE_CONFIG_KEY);
+        int configuredParallelism = config.getInt(PARALLELISM_CONFIG_KEY);
+        parallelism = configuredParallelism > 0 ? configuredParallelism : Runtime.getRuntime().availableProcessors();
+        compressionCodec = ThreadLocal.withInitial(() -> new CompressionCodec(config));
+    }
+
+    /**
+     * Audits the whole archive.
+     *
+     * @param reportFile file receiving the per statement results
+     * @return summary of the audit
+     */
+    public ArchiveAuditReport audit(Path reportFile) {
+        LOGGER.info("Archive audit started - parallelism: [{}], pageSize: [{}], blockPageSize: [{}], report: [{}]", parallelism, pageSize,
+            blockPageSize, reportFile);
+
+        long startNanos = System.nanoTime();
+        ForkJoinPool verifierPool = new ForkJoinPool(parallelism);
+        ExecutorService readerExecutor = Executors.newSingleThreadExecutor();
+        AuditTotals auditTotals = new AuditTotals();
+        Runnable logProgress = () -> LOGGER.info("Archive audit progress - rows: [{}], failedRows: [{}], blocks: [{}], failedBlocks: [{}], "
+                + "transactions/s: [{}]", auditTotals.rows, auditTotals.failedRows, auditTotals.blocks, auditTotals.failedBlocks,
+            String.format("%.0f", auditTotals.transactions * 1_000_000_000.0 / (System.nanoTime() - startNanos)));
+
+        try (BufferedWriter reportWriter = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            reportWriter.write(REPORT_HEADER);
+            reportWriter.newLine();
+
+            AuditCursor<ArchiveFinancialTransaction> rowCursor = new AuditCursor<>(
+                lastRow -> lastRow == null
+                    ? findArchiveFinancialTransactionPage(FIRST_KEY, FIRST_KEY)
+                    : findArchiveFinancialTransactionPage(lastRow.getAccountStatementId(), lastRow.getTransactionId()),
+                this::auditArchiveFinancialTransaction, readerExecutor, verifierPool, logProgress);
+            AuditCursor<ArchiveFinancialTransactionBlock> blockCursor = new AuditCursor<>(
+                lastBlock -> lastBlock == null
+                    ? findArchiveFinancialTransactionBlockPage(FIRST_KEY, FIRST_BLOCK_NUMBER_KEY)
+                    : findArchiveFinancialTransactionBlockPage(lastBlock.getAccountStatementId(), lastBlock.getBlockNumber()),
+                this::auditArchiveFinancialTransactionBlock, readerExecutor, verifierPool, logProgress);
+
+            StatementAudit statementAudit = null;
+            while (rowCursor.peek() != null || blockCursor.peek() != null) {
+                EntryAudit rowAudit = rowCursor.peek();
+                EntryAudit blockAudit = blockCursor.peek();
+                EntryAudit entryAudit = blockAudit == null
+                    || rowAudit != null && rowAudit.getAccountStatementId().compareTo(blockAudit.getAccountStatementId()) <= 0
+                    ? rowCursor.poll()
+                    : blockCursor.poll();
+
+                if (statementAudit == null || !statementAudit.getAccountStatementId().equals(entryAudit.getAccountStatementId())) {
+                    writeStatementAudit(reportWriter, statementAudit, auditTotals);
+                    statementAudit = new StatementAudit(entryAudit.getAccountStatementId());
+                }
+                statementAudit.add(entryAudit);
+                auditTotals.add(entryAudit);
+            }
+
+            writeStatementAudit(reportWriter, statementAudit, auditTotals);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write archive audit report: " + reportFile, e);
+        } finally {
+            readerExecutor.shutdownNow();
+            verifierPool.shutdownNow();
+        }
+
+        ArchiveAuditReport archiveAuditReport = ArchiveAuditReport.builder()
+            .rows(auditTotals.rows)
+            .failedRows(auditTotals.failedRows)
+            .blocks(auditTotals.blocks)
+            .failedBlocks(auditTotals.failedBlocks)
+            .transactions(auditTotals.transactions)
+            .statements(auditTotals.statements)
+            .failedStatements(auditTotals.failedStatements)
+            .decompressedBytes(auditTotals.decompressedBytes)
+            .elapsed(Duration.ofNanos(System.nanoTime() - startNanos))
+            .build();
+
+        LOGGER.info("Archive audit finished - rows: [{}], failedRows: [{}], blocks: [{}], failedBlocks: [{}], transactions: [{}], statements: [{}], "
+                + "failedStatements: [{}], elapsed: [{}], transactions/s: [{}], MB/s: [{}]", archiveAuditReport.getRows(),
+            archiveAuditReport.getFailedRows(), archiveAuditReport.getBlocks(), archiveAuditReport.getFailedBlocks(),
+            archiveAuditReport.getTransactions(), archiveAuditReport.getStatements(), archiveAuditReport.getFailedStatements(),
+            archiveAuditReport.getElapsed(), String.format("%.0f", archiveAuditReport.getTransactionsPerSecond()),
+            String.format("%.1f", archiveAuditReport.getMegabytesPerSecond()));
+
+        return archiveAuditReport;
+    }
+
+    private EntryAudit auditArchiveFinancialTransaction(ArchiveFinancialTransaction archiveFinancialTransaction) {
+        try {
+            byte[] data = compressionCodec.get().decompress(archiveFinancialTransaction.getCompressedData(),
+                findDictionary(archiveFinancialTransaction.getCompressionDictionaryId()));
+
+            boolean verified = ArchiveSignatureVerifier.verify(data, archiveFinancialTransaction.getSignature(),
+                archiveFinancialTransaction.getSignatureAlgorithm(), archiveFinancialTransaction.getInclusionProof());
+            if (!verified) {
+                LOGGER.warn("Archived financial transaction signature is invalid - accountStatementId: [{}], transactionId: [{}]",
+                    archiveFinancialTransaction.getAccountStatementId(), archiveFinancialTransaction.getTransactionId());
+            }
+
+            return new EntryAudit(archiveFinancialTransaction.getAccountStatementId(), false, 1, verified, data.length);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to audit archived financial transaction - accountStatementId: [{}], transactionId: [{}]",
+                archiveFinancialTransaction.getAccountStatementId(), archiveFinancialTransaction.getTransactionId(), e);
+
+            return new EntryAudit(archiveFinancialTransaction.getAccountStatementId(), false, 1, false, 0);
+        }
+    }
+
+    /**
+     * A block is signed as a whole over its uncompressed payload, blocks are never signed through a Merkle root.
+     */
+    private EntryAudit auditArchiveFinancialTransactionBlock(ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock) {
+        try {
+            byte[] data = compressionCodec.get().decompress(archiveFinancialTransactionBlock.getCompressedData(),
+                findDictionary(archiveFinancialTransactionBlock.getCompressionDictionaryId()));
+
+            boolean verified = ArchiveSignatureVerifier.verify(data, archiveFinancialTransactionBlock.getSignature(),
+                archiveFinancialTransactionBlock.getSignatureAlgorithm(), null);
+            if (!verified) {
+                LOGGER.warn("Archive block signature is invalid - accountStatementId: [{}], blockNumber: [{}]",
+                    archiveFinancialTransactionBlock.getAccountStatementId(), archiveFinancialTransactionBlock.getBlockNumber());
+            }
+
+            return new EntryAudit(archiveFinancialTransactionBlock.getAccountStatementId(), true,
+                archiveFinancialTransactionBlock.getTransactionCount(), verified, data.length);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to audit archive block - accountStatementId: [{}], blockNumber: [{}]",
+                archiveFinancialTransactionBlock.getAccountStatementId(), archiveFinancialTransactionBlock.getBlockNumber(), e);
+
+            return new EntryAudit(archiveFinancialTransactionBlock.getAccountStatementId(), true,
+                archiveFinancialTransactionBlock.getTransactionCount(), false, 0);
+        }
+    }
+
+    private byte[] findDictionary(Integer compressionDictionaryId) {
+        return compressionDictionaryId != null
+            ? compressionDictionaryRegistry.findCompressionDictionary(compressionDictionaryId).toCompletableFuture().join().getDictionary()
+            : null;
+    }
+
+    private List<ArchiveFinancialTransaction> findArchiveFinancialTransactionPage(String lastAccountStatementId, String lastTransactionId) {
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ARCHIVE_FINANCIAL_TRANSACTION_PAGE)
+        ) {
+            connection.setAutoCommit(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            preparedStatement.setInt(1, pageSize);
+            preparedStatement.setString(2, lastAccountStatementId);
+            preparedStatement.setString(3, lastAccountStatementId);
+            preparedStatement.setString(4, lastTransactionId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<ArchiveFinancialTransaction> page = new ArrayList<>(pageSize);
+                while (resultSet.next()) {
+                    page.add(resultSetToArchiveFinancialTransaction(resultSet));
+                }
+
+                return page;
+            }
+        } catch (SQLException e) {
+            throw new DbException("Failed to select archive financial transaction page", e);
+        }
+    }
+
+    private static ArchiveFinancialTransaction resultSetToArchiveFinancialTransaction(ResultSet resultSet) throws SQLException {
+        int compressionDictionaryId = resultSet.getInt(ArchiveFinancialTransaction.COMPRESSION_DICTIONARY_ID_COLUMN_NAME);
+        boolean compressedWithoutDictionary = resultSet.wasNull();
+
+        return ArchiveFinancialTransaction.builder()
+            .accountStatementId(resultSet.getString(ArchiveFinancialTransaction.ACCOUNT_STATEMENT_ID_COLUMN_NAME))
+            .transactionId(resultSet.getString(ArchiveFinancialTransaction.TRANSACTION_ID_COLUMN_NAME))
+            .transactionNumber(resultSet.getInt(ArchiveFinancialTransaction.TRANSACTION_NUMBER_COLUMN_NAME))
+            .compressedData(resultSet.getBytes(ArchiveFinancialTransaction.COMPRESSED_DATA_COLUMN_NAME))
+            .compressionDictionaryId(compressedWithoutDictionary ? null : compressionDictionaryId)
+            .signature(resultSet.getBytes(ArchiveFinancialTransaction.SIGNATURE_COLUMN_NAME))
+            .signatureAlgorithm(SignatureAlgorithm.of(resultSet.getInt(ArchiveFinancialTransaction.SIGNATURE_ALGORITHM_COLUMN_NAME)))
+            .inclusionProof(resultSet.getBytes(ArchiveFinancialTransaction.INCLUSION_PROOF_COLUMN_NAME))
+            .build();
+    }
+
+    private List<ArchiveFinancialTransactionBlock> findArchiveFinancialTransactionBlockPage(String lastAccountStatementId, int lastBlockNumber) {
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ARCHIVE_FINANCIAL_TRANSACTION_BLOCK_PAGE)
+        ) {
+            connection.setAutoCommit(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            preparedStatement.setInt(1, blockPageSize);
+            preparedStatement.setString(2, lastAccountStatementId);
+            preparedStatement.setString(3, lastAccountStatementId);
+            preparedStatement.setInt(4, lastBlockNumber);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<ArchiveFinancialTransactionBlock> page = new ArrayList<>(blockPageSize);
+                while (resultSet.next()) {
+                    page.add(resultSetToArchiveFinancialTransactionBlock(resultSet));
+                }
+
+                return page;
+            }
+        } catch (SQLException e) {
+            throw new DbException("Failed to select archive financial transaction block page", e);
+        }
+    }
+
+    private static ArchiveFinancialTransactionBlock resultSetToArchiveFinancialTransactionBlock(ResultSet resultSet) throws SQLException {
+        int compressionDictionaryId = resultSet.getInt(ArchiveFinancialTransactionBlock.COMPRESSION_DICTIONARY_ID_COLUMN_NAME);
+        boolean compressedWithoutDictionary = resultSet.wasNull();
+
+        return ArchiveFinancialTransactionBlock.builder()
+            .accountStatementId(resultSet.getString(ArchiveFinancialTransactionBlock.ACCOUNT_STATEMENT_ID_COLUMN_NAME))
+            .blockNumber(resultSet.getInt(ArchiveFinancialTransactionBlock.BLOCK_NUMBER_COLUMN_NAME))
+            .transactionCount(resultSet.getInt(ArchiveFinancialTransactionBlock.TRANSACTION_COUNT_COLUMN_NAME))
+            .compressedData(resultSet.getBytes(ArchiveFinancialTransactionBlock.COMPRESSED_DATA_COLUMN_NAME))
+            .compressionDictionaryId(compressedWithoutDictionary ? null : compressionDictionaryId)
+            .signature(resultSet.getBytes(ArchiveFinancialTransactionBlock.SIGNATURE_COLUMN_NAME))
+            .signatureAlgorithm(SignatureAlgorithm.of(resultSet.getInt(ArchiveFinancialTransactionBlock.SIGNATURE_ALGORITHM_COLUMN_NAME)))
+            .build();
+    }
+
+    private static void writeStatementAudit(BufferedWriter reportWriter, StatementAudit statementAudit, AuditTotals auditTotals) throws IOException {
+        if (statementAudit == null) {
+            return;
+        }
+
+        auditTotals.statements++;
+        boolean verified = statementAudit.failedRows == 0 && statementAudit.failedBlocks == 0;
+        if (!verified) {
+            auditTotals.failedStatements++;
+            LOGGER.warn("Account statement failed the audit - accountStatementId: [{}], rows: [{}], failedRows: [{}], blocks: [{}], "
+                    + "failedBlocks: [{}]", statementAudit.getAccountStatementId(), statementAudit.rows, statementAudit.failedRows,
+                statementAudit.blocks, statementAudit.failedBlocks);
+        }
+
+        reportWriter.write(String.join(";", statementAudit.getAccountStatementId(), Long.toString(statementAudit.transactions),
+            Long.toString(statementAudit.rows), Long.toString(statementAudit.failedRows), Long.toString(statementAudit.blocks),
+            Long.toString(statementAudit.failedBlocks), Boolean.toString(verified)));
+        reportWriter.newLine();
+    }
+
+    /**
+     * Audit result of an archive row or an archive block.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class EntryAudit {
+
+        private final String accountStatementId;
+        private final boolean block;
+        private final int transactions;
+        private final boolean verified;
+        private final long decompressedBytes;
+
+    }
+
+    /**
+     * Reads one of the archive tables page by page, one page ahead, and verifies every page in parallel. The audits are handed out one by one in
+     * primary key order.
+     */
+    private static final class AuditCursor<T> {
+
+        /**
+         * Reads the page after the given entry, or the first page for <code>null</code>.
+         */
+        private final Function<T, List<T>> findPageAfter;
+        private final Function<T, EntryAudit> auditEntry;
+        private final ExecutorService readerExecutor;
+        private final ForkJoinPool verifierPool;
+        private final Runnable pageVerified;
+        private final Deque<EntryAudit> entryAudits = new ArrayDeque<>();
+        private CompletableFuture<List<T>> nextPage;
+
+        private AuditCursor(Function<T, List<T>> findPageAfter, Function<T, EntryAudit> auditEntry, ExecutorService readerExecutor,
+            ForkJoinPool verifierPool, Runnable pageVerified) {
+            this.findPageAfter = findPageAfter;
+            this.auditEntry = auditEntry;
+            this.readerExecutor = readerExecutor;
+            this.verifierPool = verifierPool;
+            this.pageVerified = pageVerified;
+            nextPage = CompletableFuture.supplyAsync(() -> findPageAfter.apply(null), readerExecutor);
+        }
+
+        /**
+         * @return the next audit, or <code>null</code> when the table has been read
+         */
+        private EntryAudit peek() {
+            while (entryAudits.isEmpty() && nextPage != null) {
+                List<T> page = nextPage.join();
+                if (page.isEmpty()) {
+                    nextPage = null;
+                } else {
+                    T lastEntry = page.get(page.size() - 1);
+                    nextPage = CompletableFuture.supplyAsync(() -> findPageAfter.apply(lastEntry), readerExecutor);
+                    entryAudits.addAll(verifierPool.submit(() -> page.parallelStream().map(auditEntry).collect(Collectors.toList())).join());
+                    pageVerified.run();
+                }
+            }
+
+            return entryAudits.peekFirst();
+        }
+
+        private EntryAudit poll() {
+            return peek() != null ? entryAudits.pollFirst() : null;
+        }
+
+    }
+
+    @Getter
+    private static final class StatementAudit {
+
+        private final String accountStatementId;
+        private long transactions;
+        private long rows;
+        private long failedRows;
+        private long blocks;
+        private long failedBlocks;
+
+        private StatementAudit(String accountStatementId) {
+            this.accountStatementId = accountStatementId;
+        }
+
+        private void add(EntryAudit entryAudit) {
+            transactions += entryAudit.getTransactions();
+            if (entryAudit.isBlock()) {
+                blocks++;
+                if (!entryAudit.isVerified()) {
+                    failedBlocks++;
+                }
+            } else {
+                rows++;
+                if (!entryAudit.isVerified()) {
+                    failedRows++;
+                }
+            }
+        }
+
+    }
+
+    private static final class AuditTotals {
+
+        private long rows;
+        private long failedRows;
+        private long blocks;
+        private long failedBlocks;
+        private long transactions;
+        private long statements;
+        private long failedStatements;
+        private long decompressedBytes;
+
+        private void add(EntryAudit entryAudit) {
+            transactions += entryAudit.getTransactions();
+            decompressedBytes += entryAudit.getDecompressedBytes();
+            if (entryAudit.isBlock()) {
+                blocks++;
+                if (!entryAudit.isVerified()) {
+                    failedBlocks++;
+                }
+            } else {
+                rows++;
+                if (!entryAudit.isVerified()) {
+                    failedRows++;
+                }
+            }
+        }
+
+    }
+}
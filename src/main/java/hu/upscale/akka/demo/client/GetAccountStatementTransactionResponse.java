@@ -0,0 +1,26 @@
+package hu.upscale.akka.demo.client;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * One line of the streamed account statement, the data is serialized as Base64.
+ *
+ * @author László Zoltán
+ */
+@Data
+@JsonDeserialize(builder = GetAccountStatementTransactionResponse.GetAccountStatementTransactionResponseBuilder.class)
+@Builder(builderClassName = "GetAccountStatementTransactionResponseBuilder", toBuilder = true)
+public final class GetAccountStatementTransactionResponse {
+
+    private final String transactionId;
+    private final int transactionNumber;
+    private final byte[] data;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class GetAccountStatementTransactionResponseBuilder {
+    }
+
+}
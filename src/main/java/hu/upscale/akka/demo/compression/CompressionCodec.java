@@ -0,0 +1,223 @@
+package hu.upscale.akka.demo.compression;
+
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.exception.CompressionException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adaptive archive payload codec on top of a {@link CompressionEngine}. Payloads that are too small or look incompressible (high byte entropy in the
+ * sampled prefix) are stored as they are, the others are deflated with the highest level whose estimated cost fits into the per transaction CPU
+ * budget. The cost estimation is learned from the payloads this codec has compressed, so every worker adapts to its own CPU. Small payloads are
+ * deflated with a trained preset dictionary when one is available. The chosen mode is recorded in the first byte of the result (see
+ * {@link CompressionMode}), the id of the dictionary has to be stored next to it by the caller.
+ *
+ * @author László Zoltán
+ */
+public final class CompressionCodec implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressionCodec.class);
+
+    private static final String MIN_COMPRESSIBLE_SIZE_CONFIG_KEY = "microservice.compression.min-compressible-size";
+    private static final String ENTROPY_SAMPLE_SIZE_CONFIG_KEY = "microservice.compression.entropy-sample-size";
+    private static final String STORED_ENTROPY_THRESHOLD_CONFIG_KEY = "microservice.compression.stored-entropy-threshold";
+    private static final String CPU_BUDGET_CONFIG_KEY = "microservice.compression.cpu-budget";
+    private static final String MAX_LEVEL_CONFIG_KEY = "microservice.compression.max-level";
+    private static final String DICTIONARY_MAX_PAYLOAD_SIZE_CONFIG_KEY = "microservice.compression.dictionary.max-payload-size";
+
+    private static final int BYTE_VALUES = 256;
+    private static final double MAX_ENTROPY = 8.0;
+    private static final double LOG_2 = Math.log(2);
+    private static final double COST_SMOOTHING_FACTOR = 0.1;
+    private static final int MIN_COST_SAMPLE_SIZE = 4 * 1_024;
+    private static final double INITIAL_NANOS_PER_BYTE_BASE = 4.0;
+    private static final double INITIAL_NANOS_PER_BYTE_FACTOR = 0.4;
+
+    private final CompressionEngine compressionEngine = new CompressionEngine(Deflater.DEFAULT_COMPRESSION);
+    private final int[] byteHistogram = new int[BYTE_VALUES];
+    private final double[] nanosPerByteByLevel = new double[Deflater.BEST_COMPRESSION + 1];
+
+    private final int minCompressibleSize;
+    private final int entropySampleSize;
+    private final double storedEntropyThreshold;
+    private final long cpuBudgetNanos;
+    private final int maxLevel;
+    private final int dictionaryMaxPayloadSize;
+
+    public CompressionCodec(Config config) {
+        minCompressibleSize = config.getInt(MIN_COMPRESSIBLE_SIZE_CONFIG_KEY);
+        entropySampleSize = config.getInt(ENTROPY_SAMPLE_SIZE_CONFIG_KEY);
+        storedEntropyThreshold = config.getDouble(STORED_ENTROPY_THRESHOLD_CONFIG_KEY);
+        cpuBudgetNanos = config.getDuration(CPU_BUDGET_CONFIG_KEY).toNanos();
+        maxLevel = Math.min(config.getInt(MAX_LEVEL_CONFIG_KEY), Deflater.BEST_COMPRESSION);
+        dictionaryMaxPayloadSize = config.getInt(DICTIONARY_MAX_PAYLOAD_SIZE_CONFIG_KEY);
+
+        for (int level = Deflater.BEST_SPEED; level <= Deflater.BEST_COMPRESSION; level++) {
+            nanosPerByteByLevel[level] = INITIAL_NANOS_PER_BYTE_BASE + INITIAL_NANOS_PER_BYTE_FACTOR * level * level;
+        }
+    }
+
+    /**
+     * Compresses the payload with the mode and level chosen by the policy.
+     *
+     * @param rawData uncompressed payload
+     * @return compression mode marker followed by the (possibly) compressed payload
+     */
+    public byte[] compress(byte[] rawData) {
+        return compress(rawData, null);
+    }
+
+    /**
+     * Compresses the payload with the mode and level chosen by the policy, using the preset dictionary for small payloads. Whether the dictionary
+     * was used can be checked with {@link CompressionMode#of(byte[])}.
+     *
+     * @param rawData uncompressed payload
+     * @param dictionary preset dictionary, or <code>null</code> if none is available
+     * @return compression mode marker followed by the (possibly) compressed payload
+     */
+    public byte[] compress(byte[] rawData, byte[] dictionary) {
+        return compress(rawData, dictionary, null);
+    }
+
+    /**
+     * Compresses the payload like {@link #compress(byte[], byte[])} and updates the message digest with the payload in the same pass.
+     *
+     * @param rawData uncompressed payload
+     * @param dictionary preset dictionary, or <code>null</code> if none is available
+     * @param messageDigest digest updated with the payload, or <code>null</code>
+     * @return compression mode marker followed by the (possibly) compressed payload
+     */
+    public byte[] compress(byte[] rawData, byte[] dictionary, MessageDigest messageDigest) {
+        if (rawData.length < minCompressibleSize || looksIncompressible(rawData)) {
+            if (messageDigest != null) {
+                messageDigest.update(rawData);
+            }
+            return store(rawData);
+        }
+
+        int level = selectLevel(rawData.length);
+        CompressionMode compressionMode = dictionary != null && rawData.length <= dictionaryMaxPayloadSize
+            ? CompressionMode.DICTIONARY
+            : CompressionMode.DEFLATE;
+
+        long startNanos = System.nanoTime();
+        byte[] compressedData = compressionEngine.compress(rawData, level, compressionMode == CompressionMode.DICTIONARY ? dictionary : null,
+            compressionMode.getHeaderLength(), messageDigest);
+        recordCost(level, rawData.length, System.nanoTime() - startNanos);
+
+        if (compressedData.length >= rawData.length + CompressionMode.STORED.getHeaderLength()) {
+            return store(rawData);
+        }
+
+        compressedData[0] = compressionMode.getMarker();
+        LOGGER.debug("Payload compressed - mode: [{}], level: [{}], length: [{}], compressed length: [{}]", compressionMode, level, rawData.length,
+            compressedData.length);
+
+        return compressedData;
+    }
+
+    /**
+     * Decompresses a payload produced by {@link #compress(byte[], byte[])} or by the earlier marker-less zlib format.
+     *
+     * @param compressedData compressed payload
+     * @param dictionary preset dictionary recorded for the payload, or <code>null</code>
+     * @return uncompressed payload
+     */
+    public byte[] decompress(byte[] compressedData, byte[] dictionary) {
+        return decompress(compressedData, dictionary, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decompresses at most the first <i>maxLength</i> bytes of a payload, e.g. to extract a single financial transaction from an archive block.
+     *
+     * @param compressedData compressed payload
+     * @param dictionary preset dictionary recorded for the payload, or <code>null</code>
+     * @param maxLength maximum number of uncompressed bytes returned
+     * @return uncompressed payload, or its prefix
+     */
+    public byte[] decompress(byte[] compressedData, byte[] dictionary, int maxLength) {
+        CompressionMode compressionMode = CompressionMode.of(compressedData);
+        switch (compressionMode) {
+            case STORED:
+                return Arrays.copyOfRange(compressedData, compressionMode.getHeaderLength(),
+                    (int) Math.min(compressedData.length, (long) compressionMode.getHeaderLength() + maxLength));
+            case DICTIONARY:
+                if (dictionary == null) {
+                    throw new CompressionException("Compressed data requires a compression dictionary");
+                }
+                return compressionEngine.decompress(compressedData, compressionMode.getHeaderLength(), dictionary, maxLength);
+            case DEFLATE:
+            case LEGACY_DEFLATE:
+                return compressionEngine.decompress(compressedData, compressionMode.getHeaderLength(), null, maxLength);
+            default:
+                throw new IllegalStateException("Unhandled compression mode: " + compressionMode);
+        }
+    }
+
+    @Override
+    public void close() {
+        compressionEngine.close();
+    }
+
+    private byte[] store(byte[] rawData) {
+        byte[] storedData = new byte[CompressionMode.STORED.getHeaderLength() + rawData.length];
+        storedData[0] = CompressionMode.STORED.getMarker();
+        System.arraycopy(rawData, 0, storedData, CompressionMode.STORED.getHeaderLength(), rawData.length);
+
+        LOGGER.debug("Payload stored without compression - length: [{}]", rawData.length);
+
+        return storedData;
+    }
+
+    /**
+     * The entropy of an n byte sample can not exceed log2(n) bits per byte and repeated byte values keep even random samples below that, so the
+     * threshold is scaled by the entropy of a random sample: log2 of the expected number of distinct byte values in it. Without scaling, random
+     * payloads below about 1 KB would never reach the threshold and would be deflated before being stored.
+     */
+    boolean looksIncompressible(byte[] rawData) {
+        int sampleSize = Math.min(rawData.length, entropySampleSize);
+        double randomSampleEntropy = Math.log(BYTE_VALUES * -Math.expm1(-(double) sampleSize / BYTE_VALUES)) / LOG_2;
+
+        return sampleEntropy(rawData, sampleSize) >= storedEntropyThreshold * randomSampleEntropy / MAX_ENTROPY;
+    }
+
+    /**
+     * Shannon entropy of the sampled prefix in bits per byte (0 - 8).
+     */
+    private double sampleEntropy(byte[] rawData, int sampleSize) {
+        Arrays.fill(byteHistogram, 0);
+        for (int i = 0; i < sampleSize; i++) {
+            byteHistogram[rawData[i] & 0xFF]++;
+        }
+
+        double entropy = 0.0;
+        for (int count : byteHistogram) {
+            if (count > 0) {
+                double probability = (double) count / sampleSize;
+                entropy -= probability * (Math.log(probability) / LOG_2);
+            }
+        }
+
+        return entropy;
+    }
+
+    private int selectLevel(int rawDataLength) {
+        for (int level = maxLevel; level > Deflater.BEST_SPEED; level--) {
+            if (nanosPerByteByLevel[level] * rawDataLength <= cpuBudgetNanos) {
+                return level;
+            }
+        }
+
+        return Deflater.BEST_SPEED;
+    }
+
+    private void recordCost(int level, int rawDataLength, long elapsedNanos) {
+        if (rawDataLength >= MIN_COST_SAMPLE_SIZE) {
+            double nanosPerByte = (double) elapsedNanos / rawDataLength;
+            nanosPerByteByLevel[level] += COST_SMOOTHING_FACTOR * (nanosPerByte - nanosPerByteByLevel[level]);
+        }
+    }
+}
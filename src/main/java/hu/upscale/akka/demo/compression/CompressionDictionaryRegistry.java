@@ -0,0 +1,395 @@
+package hu.upscale.akka.demo.compression;
+
+import static hu.upscale.akka.demo.guice.GuiceInjectionModule.JDBC_EXECUTOR;
+
+import akka.actor.ActorSystem;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.entity.CompressionDictionary;
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import hu.upscale.akka.demo.exception.DbException;
+import hu.upscale.akka.demo.repository.SqlDialect;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Versioned store of the trained compression dictionaries. The dictionaries are trained from sampled financial transactions, persisted in
+ * <b>demo.CompressionDictionary</b> and cached in memory: new archive payloads are compressed with the latest dictionary, archived payloads are
+ * decompressed with the dictionary whose id was recorded next to them.
+ * <p>
+ * A trained dictionary is only stored if it compresses held out samples better than the current version by more than <i>min-improvement</i>.
+ * Every version records the version it was trained against in the unique <b>BaseDictionaryId</b> column, so when several instances retrain at
+ * the same time only one of them can store a successor and the others adopt it. Versions older than the newest <i>retained-versions</i> are
+ * deleted once no archived row or block references them.
+ * <p>
+ * The dictionaries are read and written through JDBC with either persistence engine. They are small and rarely written, so the data source is
+ * only asked for when the registry first touches the database.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class CompressionDictionaryRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressionDictionaryRegistry.class);
+
+    private static final String ENABLED_CONFIG_KEY = "microservice.compression.dictionary.enabled";
+    private static final String SIZE_CONFIG_KEY = "microservice.compression.dictionary.size";
+    private static final String MAX_PAYLOAD_SIZE_CONFIG_KEY = "microservice.compression.dictionary.max-payload-size";
+    private static final String SAMPLE_SIZE_CONFIG_KEY = "microservice.compression.dictionary.sample-size";
+    private static final String MIN_SAMPLE_SIZE_CONFIG_KEY = "microservice.compression.dictionary.min-sample-size";
+    private static final String RETRAIN_INTERVAL_CONFIG_KEY = "microservice.compression.dictionary.retrain-interval";
+    private static final String MIN_IMPROVEMENT_CONFIG_KEY = "microservice.compression.dictionary.min-improvement";
+    private static final String RETAINED_VERSIONS_CONFIG_KEY = "microservice.compression.dictionary.retained-versions";
+    private static final String DATASOURCE_URL_CONFIG_KEY = "microservice.datasource.url";
+
+    /**
+     * Every n-th sample is held out of training to compare the new dictionary with the current one.
+     */
+    private static final int EVALUATION_SAMPLE_INTERVAL = 5;
+    /**
+     * Base of the first version, which is not trained against another one.
+     */
+    private static final int NO_BASE_DICTIONARY_ID = 0;
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION_SQL_STATE_CLASS = "23";
+
+    private static final String SELECT_COMPRESSION_DICTIONARY_IDS
+        = "SELECT DictionaryId FROM demo.CompressionDictionary ORDER BY DictionaryId DESC";
+    private static final String SELECT_COMPRESSION_DICTIONARY_BY_DICTIONARY_ID
+        = "SELECT DictionaryId, Dictionary FROM demo.CompressionDictionary WHERE DictionaryId = ?";
+    private static final String INSERT_COMPRESSION_DICTIONARY
+        = "INSERT INTO demo.CompressionDictionary (Dictionary, BaseDictionaryId, CreatedAt) VALUES (?, ?, ?)";
+    private static final String DELETE_UNREFERENCED_COMPRESSION_DICTIONARIES
+        = "DELETE FROM demo.CompressionDictionary WHERE DictionaryId < ? "
+        + "AND NOT EXISTS (SELECT 1 FROM demo.ArchiveFinancialTransaction a "
+        + "WHERE a.CompressionDictionaryId = demo.CompressionDictionary.DictionaryId) "
+        + "AND NOT EXISTS (SELECT 1 FROM demo.ArchiveFinancialTransactionBlock b "
+        + "WHERE b.CompressionDictionaryId = demo.CompressionDictionary.DictionaryId)";
+    /**
+     * Without an order the database returns the same physical prefix every time, usually the oldest chains.
+     */
+    private static final String SELECT_FINANCIAL_TRANSACTION_SAMPLE
+        = "SELECT TOP (?) Data FROM demo.FinancialTransaction ORDER BY %s";
+
+    private final Provider<DataSource> dataSourceProvider;
+    private final Executor jdbcExecutor;
+
+    private final int dictionarySize;
+    private final int maxPayloadSize;
+    private final int sampleSize;
+    private final int minSampleSize;
+    private final double minImprovement;
+    private final int retainedVersions;
+    private final String selectFinancialTransactionSample;
+
+    private final Map<Integer, CompressionDictionary> compressionDictionaries = new ConcurrentHashMap<>();
+    private volatile CompressionDictionary currentCompressionDictionary;
+
+    @Inject
+    public CompressionDictionaryRegistry(Config config, ActorSystem actorSystem, Provider<DataSource> dataSourceProvider,
+        @Named(JDBC_EXECUTOR) Executor jdbcExecutor) {
+        this.dataSourceProvider = dataSourceProvider;
+        this.jdbcExecutor = jdbcExecutor;
+
+        dictionarySize = config.getInt(SIZE_CONFIG_KEY);
+        maxPayloadSize = config.getInt(MAX_PAYLOAD_SIZE_CONFIG_KEY);
+        sampleSize = config.getInt(SAMPLE_SIZE_CONFIG_KEY);
+        minSampleSize = config.getInt(MIN_SAMPLE_SIZE_CONFIG_KEY);
+        minImprovement = config.getDouble(MIN_IMPROVEMENT_CONFIG_KEY);
+        retainedVersions = config.getInt(RETAINED_VERSIONS_CONFIG_KEY);
+        selectFinancialTransactionSample = String.format(SELECT_FINANCIAL_TRANSACTION_SAMPLE,
+            SqlDialect.of(config.getString(DATASOURCE_URL_CONFIG_KEY)).getRandomOrder());
+
+        if (config.getBoolean(ENABLED_CONFIG_KEY)) {
+            Duration retrainInterval = config.getDuration(RETRAIN_INTERVAL_CONFIG_KEY);
+
+            CompletableFuture.runAsync(this::refreshCompressionDictionaries, jdbcExecutor)
+                .thenCompose(ignore -> currentCompressionDictionary == null ? trainCompressionDictionary() : CompletableFuture.completedFuture(null))
+                .whenComplete((ignore, failure) -> {
+                    if (failure != null) {
+                        LOGGER.error("Failed to initialize compression dictionaries", failure);
+                    }
+                });
+
+            actorSystem.scheduler().scheduleWithFixedDelay(retrainInterval, retrainInterval, () ->
+                trainCompressionDictionary().whenComplete((ignore, failure) -> {
+                    if (failure != null) {
+                        LOGGER.error("Failed to train compression dictionary", failure);
+                    }
+                }), actorSystem.dispatcher()
+            );
+        }
+    }
+
+    /**
+     * @return the latest dictionary, empty until the first dictionary has been loaded or trained
+     */
+    public Optional<CompressionDictionary> getCurrentCompressionDictionary() {
+        return Optional.ofNullable(currentCompressionDictionary);
+    }
+
+    /**
+     * @param dictionaryId id of the dictionary
+     * @return the dictionary if it is already cached
+     */
+    public Optional<CompressionDictionary> getCachedCompressionDictionary(int dictionaryId) {
+        return Optional.ofNullable(compressionDictionaries.get(dictionaryId));
+    }
+
+    /**
+     * @param dictionaryId id of the dictionary
+     * @return the cached dictionary, or the dictionary loaded from the database (e.g. when it was trained by another instance)
+     */
+    public CompletionStage<CompressionDictionary> findCompressionDictionary(int dictionaryId) {
+        return getCachedCompressionDictionary(dictionaryId)
+            .<CompletionStage<CompressionDictionary>>map(CompletableFuture::completedFuture)
+            .orElseGet(() -> CompletableFuture.supplyAsync(() -> loadCompressionDictionary(dictionaryId), jdbcExecutor));
+    }
+
+    /**
+     * Adopts the latest stored version, trains a new one from sampled financial transactions and stores it if it compresses better than the latest
+     * version. Nothing is stored if there are not enough samples, if the improvement is below <i>min-improvement</i> or if another instance stored
+     * a successor of the same version first. Unreferenced old versions are deleted afterwards.
+     *
+     * @return completes when the new version has been persisted or discarded
+     */
+    public CompletionStage<Void> trainCompressionDictionary() {
+        return CompletableFuture.runAsync(() -> {
+            refreshCompressionDictionaries();
+            trainCompressionDictionary(currentCompressionDictionary);
+            pruneCompressionDictionaries();
+        }, jdbcExecutor);
+    }
+
+    /**
+     * @param baseCompressionDictionary version the new dictionary has to beat and succeed, null for the first version
+     */
+    void trainCompressionDictionary(CompressionDictionary baseCompressionDictionary) {
+        List<byte[]> samples = sampleFinancialTransactionData();
+        if (samples.size() < minSampleSize) {
+            LOGGER.info("Not enough samples to train compression dictionary - samples: [{}]", samples.size());
+            return;
+        }
+
+        List<byte[]> trainingSamples = new ArrayList<>(samples.size());
+        List<byte[]> evaluationSamples = new ArrayList<>(samples.size() / EVALUATION_SAMPLE_INTERVAL + 1);
+        for (int i = 0; i < samples.size(); i++) {
+            (i % EVALUATION_SAMPLE_INTERVAL == 0 ? evaluationSamples : trainingSamples).add(samples.get(i));
+        }
+
+        byte[] dictionary = CompressionDictionaryTrainer.train(trainingSamples, dictionarySize);
+        if (dictionary.length == 0) {
+            LOGGER.info("Sampled financial transactions share no content, compression dictionary is not trained");
+            return;
+        }
+
+        byte[] baseDictionary = baseCompressionDictionary != null ? baseCompressionDictionary.getDictionary() : null;
+        long baseCompressedLength = compressedLength(evaluationSamples, baseDictionary);
+        long compressedLength = compressedLength(evaluationSamples, dictionary);
+        if (compressedLength > baseCompressedLength * (1 - minImprovement)) {
+            LOGGER.info("Trained compression dictionary does not improve compression enough, it is discarded - compressedLength: [{}], "
+                + "currentCompressedLength: [{}]", compressedLength, baseCompressedLength);
+            return;
+        }
+
+        int baseDictionaryId = baseCompressionDictionary != null ? baseCompressionDictionary.getDictionaryId() : NO_BASE_DICTIONARY_ID;
+        Optional<CompressionDictionary> compressionDictionary = insertCompressionDictionary(dictionary, baseDictionaryId);
+        if (compressionDictionary.isEmpty()) {
+            LOGGER.info("Compression dictionary was retrained by another instance - baseDictionaryId: [{}]", baseDictionaryId);
+            refreshCompressionDictionaries();
+            return;
+        }
+
+        currentCompressionDictionary = cacheCompressionDictionary(compressionDictionary.get());
+        LOGGER.info("Compression dictionary trained - dictionaryId: [{}], baseDictionaryId: [{}], samples: [{}], length: [{}], "
+                + "compressedLength: [{}], currentCompressedLength: [{}]", compressionDictionary.get().getDictionaryId(), baseDictionaryId,
+            samples.size(), dictionary.length, compressedLength, baseCompressedLength);
+    }
+
+    /**
+     * Makes the latest stored version the current one and forgets the cached versions that have been deleted.
+     */
+    private void refreshCompressionDictionaries() {
+        List<Integer> dictionaryIds = selectCompressionDictionaryIds();
+        compressionDictionaries.keySet().retainAll(dictionaryIds);
+        if (!dictionaryIds.isEmpty()) {
+            int latestDictionaryId = dictionaryIds.get(0);
+            currentCompressionDictionary = getCachedCompressionDictionary(latestDictionaryId)
+                .orElseGet(() -> loadCompressionDictionary(latestDictionaryId));
+        }
+
+        LOGGER.info("Compression dictionaries refreshed - count: [{}], current: [{}]", dictionaryIds.size(),
+            dictionaryIds.isEmpty() ? null : dictionaryIds.get(0));
+    }
+
+    /**
+     * Deletes the versions older than the newest <i>retained-versions</i> that no archived row or block references. The newest versions are kept
+     * even when unreferenced, because instances that have not refreshed yet may still compress with them.
+     */
+    void pruneCompressionDictionaries() {
+        List<Integer> dictionaryIds = selectCompressionDictionaryIds();
+        if (dictionaryIds.size() <= retainedVersions) {
+            return;
+        }
+
+        int oldestRetainedDictionaryId = dictionaryIds.get(retainedVersions - 1);
+        try (
+            Connection connection = dataSourceProvider.get().getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(DELETE_UNREFERENCED_COMPRESSION_DICTIONARIES)
+        ) {
+            connection.setAutoCommit(true);
+            preparedStatement.setInt(1, oldestRetainedDictionaryId);
+            int deletedDictionaries = preparedStatement.executeUpdate();
+            if (deletedDictionaries > 0) {
+                compressionDictionaries.keySet().retainAll(selectCompressionDictionaryIds());
+                LOGGER.info("Unreferenced compression dictionaries deleted - count: [{}]", deletedDictionaries);
+            }
+        } catch (SQLException e) {
+            throw new DbException("Failed to delete unreferenced compression dictionaries", e);
+        }
+    }
+
+    private long compressedLength(List<byte[]> samples, byte[] dictionary) {
+        byte[] output = new byte[CompressionEngine.maxCompressedLength(maxPayloadSize, dictionary)];
+        long compressedLength = 0;
+        try (CompressionEngine compressionEngine = new CompressionEngine(Deflater.DEFAULT_COMPRESSION)) {
+            for (byte[] sample : samples) {
+                compressedLength += compressionEngine.compress(sample, Deflater.DEFAULT_COMPRESSION, dictionary, output, 0);
+            }
+        }
+        return compressedLength;
+    }
+
+    private List<Integer> selectCompressionDictionaryIds() {
+        try (
+            Connection connection = dataSourceProvider.get().getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_COMPRESSION_DICTIONARY_IDS)
+        ) {
+            connection.setAutoCommit(true);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<Integer> dictionaryIds = new ArrayList<>();
+                while (resultSet.next()) {
+                    dictionaryIds.add(resultSet.getInt(CompressionDictionary.DICTIONARY_ID_COLUMN_NAME));
+                }
+                return dictionaryIds;
+            }
+        } catch (SQLException e) {
+            throw new DbException("Failed to select compression dictionary ids", e);
+        }
+    }
+
+    private CompressionDictionary loadCompressionDictionary(int dictionaryId) {
+        try (
+            Connection connection = dataSourceProvider.get().getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_COMPRESSION_DICTIONARY_BY_DICTIONARY_ID)
+        ) {
+            connection.setAutoCommit(true);
+            preparedStatement.setInt(1, dictionaryId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    return cacheCompressionDictionary(resultSetToCompressionDictionary(resultSet));
+                }
+
+                throw new SQLException("No compression dictionary found for id: " + dictionaryId);
+            }
+        } catch (SQLException e) {
+            throw new DbException("Failed to select compression dictionary by id", e);
+        }
+    }
+
+    private List<byte[]> sampleFinancialTransactionData() {
+        try (
+            Connection connection = dataSourceProvider.get().getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(selectFinancialTransactionSample)
+        ) {
+            connection.setAutoCommit(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            preparedStatement.setInt(1, sampleSize);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<byte[]> samples = new ArrayList<>(sampleSize);
+                while (resultSet.next()) {
+                    byte[] data = resultSet.getBytes(FinancialTransaction.DATA_COLUMN_NAME);
+                    if (data.length <= maxPayloadSize) {
+                        samples.add(data);
+                    }
+                }
+                return samples;
+            }
+        } catch (SQLException e) {
+            throw new DbException("Failed to sample financial transactions", e);
+        }
+    }
+
+    /**
+     * @return the stored version, empty if another instance has already stored a successor of the same base version
+     */
+    private Optional<CompressionDictionary> insertCompressionDictionary(byte[] dictionary, int baseDictionaryId) {
+        try (
+            Connection connection = dataSourceProvider.get().getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(INSERT_COMPRESSION_DICTIONARY, Statement.RETURN_GENERATED_KEYS)
+        ) {
+            connection.setAutoCommit(false);
+            preparedStatement.setBytes(1, dictionary);
+            preparedStatement.setInt(2, baseDictionaryId);
+            preparedStatement.setTimestamp(3, Timestamp.from(Instant.now()));
+            try {
+                preparedStatement.executeUpdate();
+            } catch (SQLException e) {
+                connection.rollback();
+                if (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION_SQL_STATE_CLASS)) {
+                    return Optional.empty();
+                }
+                throw e;
+            }
+
+            try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("No dictionary id generated");
+                }
+
+                CompressionDictionary compressionDictionary = CompressionDictionary.builder()
+                    .dictionaryId(generatedKeys.getInt(1))
+                    .dictionary(dictionary)
+                    .build();
+
+                connection.commit();
+
+                return Optional.of(compressionDictionary);
+            }
+        } catch (SQLException e) {
+            throw new DbException("Failed to insert compression dictionary", e);
+        }
+    }
+
+    private CompressionDictionary cacheCompressionDictionary(CompressionDictionary compressionDictionary) {
+        compressionDictionaries.put(compressionDictionary.getDictionaryId(), compressionDictionary);
+        return compressionDictionary;
+    }
+
+    private static CompressionDictionary resultSetToCompressionDictionary(ResultSet resultSet) throws SQLException {
+        return CompressionDictionary.builder()
+            .dictionaryId(resultSet.getInt(CompressionDictionary.DICTIONARY_ID_COLUMN_NAME))
+            .dictionary(resultSet.getBytes(CompressionDictionary.DICTIONARY_COLUMN_NAME))
+            .build();
+    }
+}
@@ -0,0 +1,125 @@
+package hu.upscale.akka.demo.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Builds a zlib preset dictionary from sample payloads. Every sample is cut into fixed size segments, a segment is scored by how many other samples
+ * share its 8 byte shingles, and the best scoring distinct segments are concatenated. The best segments are put at the end of the dictionary, because
+ * deflate encodes closer matches with shorter distances.
+ *
+ * @author László Zoltán
+ */
+public final class CompressionDictionaryTrainer {
+
+    /**
+     * Deflate can only reference the last 32 KB of the preset dictionary.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1_024;
+
+    private static final int SHINGLE_LENGTH = Long.BYTES;
+    private static final int SEGMENT_LENGTH = 64;
+    private static final int SHINGLE_TABLE_BITS = 20;
+    private static final int SHINGLE_TABLE_SIZE = 1 << SHINGLE_TABLE_BITS;
+    private static final long SHINGLE_HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private CompressionDictionaryTrainer() {
+        // Static class
+    }
+
+    /**
+     * @param samples sample payloads
+     * @param dictionarySize requested dictionary size, capped at {@link #MAX_DICTIONARY_SIZE}
+     * @return preset dictionary, empty if the samples do not share any content
+     */
+    public static byte[] train(List<byte[]> samples, int dictionarySize) {
+        int[] documentFrequency = countShingleDocumentFrequency(samples);
+
+        List<Segment> segments = new ArrayList<>();
+        for (int sampleIndex = 0; sampleIndex < samples.size(); sampleIndex++) {
+            byte[] sample = samples.get(sampleIndex);
+            for (int offset = 0; offset + SEGMENT_LENGTH <= sample.length; offset += SEGMENT_LENGTH) {
+                long score = scoreSegment(documentFrequency, sample, offset);
+                if (score > 0) {
+                    segments.add(new Segment(sampleIndex, offset, score));
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(Segment::getScore).reversed());
+
+        int maxSize = Math.min(dictionarySize, MAX_DICTIONARY_SIZE);
+        List<Segment> selectedSegments = new ArrayList<>();
+        Set<Integer> selectedSegmentHashes = new HashSet<>();
+        for (Segment segment : segments) {
+            if ((selectedSegments.size() + 1) * SEGMENT_LENGTH > maxSize) {
+                break;
+            }
+
+            byte[] sample = samples.get(segment.getSampleIndex());
+            int segmentHash = Arrays.hashCode(Arrays.copyOfRange(sample, segment.getOffset(), segment.getOffset() + SEGMENT_LENGTH));
+            if (selectedSegmentHashes.add(segmentHash)) {
+                selectedSegments.add(segment);
+            }
+        }
+
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(selectedSegments.size() * SEGMENT_LENGTH);
+        for (int i = selectedSegments.size() - 1; i >= 0; i--) {
+            Segment segment = selectedSegments.get(i);
+            dictionary.write(samples.get(segment.getSampleIndex()), segment.getOffset(), SEGMENT_LENGTH);
+        }
+
+        return dictionary.toByteArray();
+    }
+
+    private static int[] countShingleDocumentFrequency(List<byte[]> samples) {
+        int[] documentFrequency = new int[SHINGLE_TABLE_SIZE];
+        int[] lastSampleInSlot = new int[SHINGLE_TABLE_SIZE];
+
+        for (int sampleIndex = 0; sampleIndex < samples.size(); sampleIndex++) {
+            byte[] sample = samples.get(sampleIndex);
+            for (int offset = 0; offset + SHINGLE_LENGTH <= sample.length; offset++) {
+                int slot = shingleSlot(sample, offset);
+                if (lastSampleInSlot[slot] != sampleIndex + 1) {
+                    lastSampleInSlot[slot] = sampleIndex + 1;
+                    documentFrequency[slot]++;
+                }
+            }
+        }
+
+        return documentFrequency;
+    }
+
+    private static long scoreSegment(int[] documentFrequency, byte[] sample, int offset) {
+        long score = 0;
+        int lastShingleOffset = Math.min(offset + SEGMENT_LENGTH, sample.length) - SHINGLE_LENGTH;
+        for (int shingleOffset = offset; shingleOffset <= lastShingleOffset; shingleOffset++) {
+            score += documentFrequency[shingleSlot(sample, shingleOffset)] - 1;
+        }
+        return score;
+    }
+
+    private static int shingleSlot(byte[] data, int offset) {
+        long shingle = 0;
+        for (int i = 0; i < SHINGLE_LENGTH; i++) {
+            shingle = (shingle << Byte.SIZE) | (data[offset + i] & 0xFF);
+        }
+        return (int) ((shingle * SHINGLE_HASH_MULTIPLIER) >>> (Long.SIZE - SHINGLE_TABLE_BITS));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Segment {
+
+        private final int sampleIndex;
+        private final int offset;
+        private final long score;
+
+    }
+}
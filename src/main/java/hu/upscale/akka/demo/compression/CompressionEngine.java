@@ -0,0 +1,299 @@
+package hu.upscale.akka.demo.compression;
+
+import hu.upscale.akka.demo.exception.CompressionException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reusable zlib compression engine. The {@link Deflater} / {@link Inflater} instances and the scratch buffer are created once per engine and reset
+ * between payloads, so the native zlib state is not recreated for every message. An engine is not thread safe: every worker owns its own instance
+ * and has to {@link #close()} it when it stops.
+ *
+ * @author László Zoltán
+ */
+public final class CompressionEngine implements AutoCloseable {
+
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1_024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1_024 * 1_024;
+    private static final int EXPECTED_COMPRESSION_RATIO = 4;
+    private static final int DIGEST_CHUNK_SIZE = 32 * 1_024;
+    private static final int DICTIONARY_ID_LENGTH = 4;
+
+    private final int level;
+
+    private Deflater deflater;
+    private Inflater inflater;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    public CompressionEngine(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Upper bound of the zlib compressed length of a payload (zlib's <i>compressBound</i>).
+     *
+     * @param rawDataLength length of the uncompressed payload
+     * @return maximum length of the compressed payload
+     */
+    public static int maxCompressedLength(int rawDataLength) {
+        return maxCompressedLength(rawDataLength, null);
+    }
+
+    /**
+     * Upper bound of the zlib compressed length of a payload. zlib's <i>compressBound</i> does not count the id of a preset dictionary, which is
+     * written into the zlib header when a dictionary is set.
+     *
+     * @param rawDataLength length of the uncompressed payload
+     * @param dictionary preset dictionary, or <code>null</code> if the payload is compressed without one
+     * @return maximum length of the compressed payload
+     */
+    public static int maxCompressedLength(int rawDataLength, byte[] dictionary) {
+        int dictionaryIdLength = dictionary != null ? DICTIONARY_ID_LENGTH : 0;
+        return rawDataLength + (rawDataLength >>> 12) + (rawDataLength >>> 14) + (rawDataLength >>> 25) + 13 + dictionaryIdLength;
+    }
+
+    /**
+     * Compresses the payload into an exactly sized array with the engine's default level.
+     *
+     * @param rawData uncompressed payload
+     * @return compressed payload
+     */
+    public byte[] compress(byte[] rawData) {
+        return compress(rawData, level, 0);
+    }
+
+    /**
+     * Compresses the payload into an exactly sized array, leaving room for a header in front of the compressed bytes.
+     *
+     * @param rawData uncompressed payload
+     * @param compressionLevel zlib compression level of this payload
+     * @param headerLength number of bytes reserved in front of the compressed payload
+     * @return header placeholder followed by the compressed payload
+     */
+    public byte[] compress(byte[] rawData, int compressionLevel, int headerLength) {
+        return compress(rawData, compressionLevel, null, headerLength);
+    }
+
+    /**
+     * Compresses the payload with a preset dictionary into an exactly sized array, leaving room for a header in front of the compressed bytes.
+     *
+     * @param rawData uncompressed payload
+     * @param compressionLevel zlib compression level of this payload
+     * @param dictionary preset dictionary, or <code>null</code> to compress without one
+     * @param headerLength number of bytes reserved in front of the compressed payload
+     * @return header placeholder followed by the compressed payload
+     */
+    public byte[] compress(byte[] rawData, int compressionLevel, byte[] dictionary, int headerLength) {
+        return compress(rawData, compressionLevel, dictionary, headerLength, null);
+    }
+
+    /**
+     * Compresses the payload with a preset dictionary into an exactly sized array, leaving room for a header in front of the compressed bytes, and
+     * feeds the payload into the message digest in the same pass.
+     *
+     * @param rawData uncompressed payload
+     * @param compressionLevel zlib compression level of this payload
+     * @param dictionary preset dictionary, or <code>null</code> to compress without one
+     * @param headerLength number of bytes reserved in front of the compressed payload
+     * @param messageDigest digest updated with the payload, or <code>null</code>
+     * @return header placeholder followed by the compressed payload
+     */
+    public byte[] compress(byte[] rawData, int compressionLevel, byte[] dictionary, int headerLength, MessageDigest messageDigest) {
+        byte[] output = acquireBuffer(headerLength + maxCompressedLength(rawData.length, dictionary));
+        int compressedDataLength = compress(rawData, compressionLevel, dictionary, output, headerLength, messageDigest);
+        byte[] compressedData = new byte[headerLength + compressedDataLength];
+        System.arraycopy(output, headerLength, compressedData, headerLength, compressedDataLength);
+        releaseBuffer(output);
+
+        return compressedData;
+    }
+
+    /**
+     * Compresses the payload into a caller supplied buffer with the engine's default level.
+     *
+     * @param rawData uncompressed payload
+     * @param output buffer receiving the compressed payload
+     * @param offset position of the first compressed byte in the output buffer
+     * @return number of compressed bytes written
+     */
+    public int compress(byte[] rawData, byte[] output, int offset) {
+        return compress(rawData, level, null, output, offset);
+    }
+
+    /**
+     * Compresses the payload into a caller supplied buffer. {@link #maxCompressedLength(int, byte[])} bytes after the offset are always enough.
+     *
+     * @param rawData uncompressed payload
+     * @param compressionLevel zlib compression level of this payload
+     * @param dictionary preset dictionary, or <code>null</code> to compress without one
+     * @param output buffer receiving the compressed payload
+     * @param offset position of the first compressed byte in the output buffer
+     * @return number of compressed bytes written
+     */
+    public int compress(byte[] rawData, int compressionLevel, byte[] dictionary, byte[] output, int offset) {
+        return compress(rawData, compressionLevel, dictionary, output, offset, null);
+    }
+
+    /**
+     * Compresses the payload into a caller supplied buffer. When a message digest is given, the payload is handed to the digest and to the deflater
+     * in the same cache sized chunks, so every chunk is read from memory only once.
+     *
+     * @param rawData uncompressed payload
+     * @param compressionLevel zlib compression level of this payload
+     * @param dictionary preset dictionary, or <code>null</code> to compress without one
+     * @param output buffer receiving the compressed payload
+     * @param offset position of the first compressed byte in the output buffer
+     * @param messageDigest digest updated with the payload, or <code>null</code>
+     * @return number of compressed bytes written
+     */
+    public int compress(byte[] rawData, int compressionLevel, byte[] dictionary, byte[] output, int offset, MessageDigest messageDigest) {
+        Deflater activeDeflater = getDeflater();
+        activeDeflater.setLevel(compressionLevel);
+        if (dictionary != null) {
+            activeDeflater.setDictionary(dictionary);
+        }
+
+        try {
+            int position = offset;
+            if (messageDigest == null) {
+                activeDeflater.setInput(rawData);
+            } else {
+                for (int chunkOffset = 0; chunkOffset < rawData.length; chunkOffset += DIGEST_CHUNK_SIZE) {
+                    int chunkLength = Math.min(DIGEST_CHUNK_SIZE, rawData.length - chunkOffset);
+                    messageDigest.update(rawData, chunkOffset, chunkLength);
+                    activeDeflater.setInput(rawData, chunkOffset, chunkLength);
+                    while (!activeDeflater.needsInput()) {
+                        position = deflate(activeDeflater, output, position);
+                    }
+                }
+            }
+
+            activeDeflater.finish();
+            while (!activeDeflater.finished()) {
+                position = deflate(activeDeflater, output, position);
+            }
+
+            return position - offset;
+        } finally {
+            activeDeflater.reset();
+        }
+    }
+
+    /**
+     * Decompresses a zlib payload into an exactly sized array.
+     *
+     * @param compressedData compressed payload
+     * @return uncompressed payload
+     */
+    public byte[] decompress(byte[] compressedData) {
+        return decompress(compressedData, 0);
+    }
+
+    /**
+     * Decompresses a zlib payload starting at the given offset into an exactly sized array.
+     *
+     * @param compressedData compressed payload
+     * @param offset position of the first zlib byte, e.g. the length of a header preceding it
+     * @return uncompressed payload
+     */
+    public byte[] decompress(byte[] compressedData, int offset) {
+        return decompress(compressedData, offset, null);
+    }
+
+    /**
+     * Decompresses a zlib payload that may have been compressed with a preset dictionary.
+     *
+     * @param compressedData compressed payload
+     * @param offset position of the first zlib byte, e.g. the length of a header preceding it
+     * @param dictionary preset dictionary the payload was compressed with, or <code>null</code>
+     * @return uncompressed payload
+     */
+    public byte[] decompress(byte[] compressedData, int offset, byte[] dictionary) {
+        return decompress(compressedData, offset, dictionary, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decompresses at most the first <i>maxLength</i> bytes of a zlib payload, the rest of the stream is not inflated.
+     *
+     * @param compressedData compressed payload
+     * @param offset position of the first zlib byte, e.g. the length of a header preceding it
+     * @param dictionary preset dictionary the payload was compressed with, or <code>null</code>
+     * @param maxLength maximum number of uncompressed bytes returned
+     * @return uncompressed payload, or its prefix
+     */
+    public byte[] decompress(byte[] compressedData, int offset, byte[] dictionary, int maxLength) {
+        Inflater activeInflater = getInflater();
+        activeInflater.setInput(compressedData, offset, compressedData.length - offset);
+
+        byte[] output = acquireBuffer(Math.min((compressedData.length - offset) * EXPECTED_COMPRESSION_RATIO, maxLength));
+        try {
+            int position = 0;
+            while (!activeInflater.finished() && position < maxLength) {
+                if (position == output.length) {
+                    output = Arrays.copyOf(output, (int) Math.min((long) output.length * 2, maxLength));
+                }
+
+                int count = activeInflater.inflate(output, position, output.length - position);
+                if (count == 0 && activeInflater.needsDictionary() && dictionary != null) {
+                    activeInflater.setDictionary(dictionary);
+                    continue;
+                }
+                if (count == 0 && !activeInflater.finished() && (activeInflater.needsInput() || activeInflater.needsDictionary())) {
+                    throw new CompressionException("Compressed data is truncated");
+                }
+                position += count;
+            }
+
+            return Arrays.copyOf(output, Math.min(position, maxLength));
+        } catch (DataFormatException e) {
+            throw new CompressionException("Failed to decompress data", e);
+        } finally {
+            activeInflater.reset();
+            releaseBuffer(output);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (deflater != null) {
+            deflater.end();
+        }
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    private static int deflate(Deflater activeDeflater, byte[] output, int position) {
+        if (position == output.length) {
+            throw new CompressionException("Output buffer is too small for the compressed data");
+        }
+        return position + activeDeflater.deflate(output, position, output.length - position);
+    }
+
+    private Deflater getDeflater() {
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        }
+        return deflater;
+    }
+
+    private Inflater getInflater() {
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        return inflater;
+    }
+
+    private byte[] acquireBuffer(int minimumSize) {
+        return buffer.length >= minimumSize ? buffer : new byte[minimumSize];
+    }
+
+    private void releaseBuffer(byte[] usedBuffer) {
+        if (usedBuffer.length > buffer.length && usedBuffer.length <= MAX_RETAINED_BUFFER_SIZE) {
+            buffer = usedBuffer;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package hu.upscale.akka.demo.compression;
+
+import hu.upscale.akka.demo.exception.CompressionException;
+
+/**
+ * Compression mode of an archived payload. The mode is recorded in the first byte of the compressed data, payloads written before the marker was
+ * introduced are plain zlib streams, which can be recognized by their zlib header.
+ *
+ * @author László Zoltán
+ */
+public enum CompressionMode {
+
+    STORED((byte) 0x00, 1),
+    DEFLATE((byte) 0x01, 1),
+    DICTIONARY((byte) 0x02, 1),
+    LEGACY_DEFLATE((byte) 0x78, 0);
+
+    private static final int ZLIB_COMPRESSION_METHOD_MASK = 0x0F;
+    private static final int ZLIB_DEFLATE_COMPRESSION_METHOD = 0x08;
+
+    private final byte marker;
+    private final int headerLength;
+
+    CompressionMode(byte marker, int headerLength) {
+        this.marker = marker;
+        this.headerLength = headerLength;
+    }
+
+    public byte getMarker() {
+        return marker;
+    }
+
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
+    public static CompressionMode of(byte[] compressedData) {
+        if (compressedData.length == 0) {
+            throw new CompressionException("Compressed data is empty");
+        }
+
+        byte marker = compressedData[0];
+        if (marker == STORED.marker) {
+            return STORED;
+        }
+        if (marker == DEFLATE.marker) {
+            return DEFLATE;
+        }
+        if (marker == DICTIONARY.marker) {
+            return DICTIONARY;
+        }
+        if ((marker & ZLIB_COMPRESSION_METHOD_MASK) == ZLIB_DEFLATE_COMPRESSION_METHOD) {
+            return LEGACY_DEFLATE;
+        }
+
+        throw new CompressionException("Unknown compression mode marker: " + marker);
+    }
+}
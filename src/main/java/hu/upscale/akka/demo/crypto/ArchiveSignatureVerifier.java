@@ -0,0 +1,31 @@
+package hu.upscale.akka.demo.crypto;
+
+/**
+ * Verifies the signature of an archived payload, either signed on its own or through the Merkle root of its signing batch.
+ *
+ * @author László Zoltán
+ */
+public final class ArchiveSignatureVerifier {
+
+    private ArchiveSignatureVerifier() {
+        // Static class
+    }
+
+    /**
+     * @param data uncompressed archived payload
+     * @param signature archived signature
+     * @param signatureAlgorithm algorithm the signature was created with
+     * @param inclusionProof inclusion proof of the payload if it was signed through a Merkle root, otherwise <code>null</code>
+     * @return whether the signature belongs to the payload, <code>false</code> for a truncated or malformed inclusion proof
+     */
+    public static boolean verify(byte[] data, byte[] signature, SignatureAlgorithm signatureAlgorithm, byte[] inclusionProof) {
+        if (inclusionProof != null && !MerkleTree.isWellFormed(inclusionProof)) {
+            return false;
+        }
+
+        byte[] signedData = inclusionProof != null ? MerkleTree.computeRoot(MerkleTree.hashLeaf(data), inclusionProof) : data;
+
+        return SignatureSchemes.of(signatureAlgorithm).verify(signedData, signature);
+    }
+
+}
@@ -0,0 +1,28 @@
+package hu.upscale.akka.demo.crypto;
+
+/**
+ * Ed25519 with the key of the <b>ed25519</b> resource folder. The algorithm is looked up by name, it is available from Java 15 on. A precomputed
+ * digest is signed as a 64 byte message, see {@link SignatureAlgorithm#ED25519_OVER_SHA512}.
+ *
+ * @author László Zoltán
+ */
+public final class Ed25519SignatureScheme extends JcaSignatureScheme {
+
+    public static final String SIGNATURE_ALGORITHM = "Ed25519";
+    public static final String ED25519_KEY_FACTORY_ALGORITHM = "Ed25519";
+
+    public Ed25519SignatureScheme() {
+        super(SignatureAlgorithm.ED25519, SIGNATURE_ALGORITHM, ED25519_KEY_FACTORY_ALGORITHM, "ed25519/privateKey.der", "ed25519/publicKey.der");
+    }
+
+    @Override
+    public SignatureAlgorithm getDigestSignatureAlgorithm() {
+        return SignatureAlgorithm.ED25519_OVER_SHA512;
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest) {
+        return sign(digest);
+    }
+
+}
@@ -0,0 +1,77 @@
+package hu.upscale.akka.demo.crypto;
+
+import hu.upscale.akka.demo.exception.CryptographyException;
+import hu.upscale.akka.demo.util.ResourceUtil;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * Signature scheme backed by a JCA {@link Signature}, with a PKCS#8 private key and an X.509 public key loaded from DER encoded resource files.
+ *
+ * @author László Zoltán
+ */
+abstract class JcaSignatureScheme implements SignatureScheme {
+
+    private final SignatureAlgorithm signatureAlgorithm;
+    private final String jcaSignatureAlgorithm;
+    private final PrivateKey privateKey;
+    private final PublicKey publicKey;
+
+    JcaSignatureScheme(SignatureAlgorithm signatureAlgorithm, String jcaSignatureAlgorithm, String keyFactoryAlgorithm, String privateKeyResource,
+        String publicKeyResource) {
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.jcaSignatureAlgorithm = jcaSignatureAlgorithm;
+
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(keyFactoryAlgorithm);
+            privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(ResourceUtil.readResourceFile(privateKeyResource)));
+            publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(ResourceUtil.readResourceFile(publicKeyResource)));
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new CryptographyException("Failed to load " + signatureAlgorithm + " keys", e);
+        }
+    }
+
+    @Override
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    @Override
+    public byte[] sign(byte[] data) {
+        return sign(jcaSignatureAlgorithm, data);
+    }
+
+    protected byte[] sign(String signatureAlgorithmName, byte[] data) {
+        try {
+            Signature signature = Signature.getInstance(signatureAlgorithmName);
+            signature.initSign(privateKey);
+            signature.update(data);
+
+            return signature.sign();
+        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
+            throw new CryptographyException("Failed to sign data", e);
+        }
+    }
+
+    @Override
+    public boolean verify(byte[] data, byte[] signature) {
+        try {
+            Signature verifier = Signature.getInstance(jcaSignatureAlgorithm);
+            verifier.initVerify(publicKey);
+            verifier.update(data);
+
+            return verifier.verify(signature);
+        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
+            throw new CryptographyException("Failed to verify signature", e);
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+package hu.upscale.akka.demo.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SHA-512 Merkle tree over the financial transactions of a signing batch. A leaf is derived from the SHA-512 digest of the payload, so the digest
+ * computed during compression can be reused. Leaves and inner nodes are hashed with distinct prefixes, so a leaf can not be passed off as an inner
+ * node. An unpaired node at the end of a level is promoted to the next level unchanged.
+ *
+ * @author László Zoltán
+ */
+public final class MerkleTree {
+
+    public static final int HASH_LENGTH = MessageDigests.DIGEST_LENGTH;
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private static final byte SIBLING_ON_LEFT = 0x00;
+    private static final byte SIBLING_ON_RIGHT = 0x01;
+
+    private static final int PROOF_STEP_LENGTH = 1 + HASH_LENGTH;
+    /**
+     * Leaves are indexed with an int, so no tree is deeper than this.
+     */
+    private static final int MAX_DEPTH = Integer.SIZE - 1;
+
+    private final List<byte[][]> levels;
+
+    private MerkleTree(List<byte[][]> levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * Builds the tree over the given leaf hashes.
+     *
+     * @param leafHashes leaf hashes in transaction number order, see {@link #hashLeafDigest(byte[])}
+     * @return Merkle tree
+     */
+    public static MerkleTree of(List<byte[]> leafHashes) {
+        if (leafHashes.isEmpty()) {
+            throw new IllegalArgumentException("Merkle tree needs at least one leaf");
+        }
+
+        MessageDigest messageDigest = MessageDigests.newSha512MessageDigest();
+
+        List<byte[][]> levels = new ArrayList<>();
+        byte[][] level = leafHashes.toArray(new byte[0][]);
+        levels.add(level);
+        while (level.length > 1) {
+            byte[][] parentLevel = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parentLevel.length; i++) {
+                int left = 2 * i;
+                parentLevel[i] = left + 1 < level.length ? hashNode(messageDigest, level[left], level[left + 1]) : level[left];
+            }
+            levels.add(parentLevel);
+            level = parentLevel;
+        }
+
+        return new MerkleTree(levels);
+    }
+
+    public static byte[] hashLeaf(byte[] data) {
+        return hashLeafDigest(MessageDigests.sha512(data));
+    }
+
+    /**
+     * Leaf hash of a payload whose SHA-512 digest is already known.
+     *
+     * @param digest SHA-512 digest of the payload
+     * @return leaf hash
+     */
+    public static byte[] hashLeafDigest(byte[] digest) {
+        MessageDigest messageDigest = MessageDigests.newSha512MessageDigest();
+        messageDigest.update(LEAF_PREFIX);
+        messageDigest.update(digest);
+
+        return messageDigest.digest();
+    }
+
+    /**
+     * Checks the encoding of an inclusion proof read from the archive: whole steps with a valid side marker, no more than the depth of the deepest
+     * possible tree.
+     *
+     * @param inclusionProof inclusion proof
+     * @return whether {@link #computeRoot(byte[], byte[])} accepts the proof
+     */
+    public static boolean isWellFormed(byte[] inclusionProof) {
+        if (inclusionProof.length % PROOF_STEP_LENGTH != 0 || inclusionProof.length / PROOF_STEP_LENGTH > MAX_DEPTH) {
+            return false;
+        }
+
+        for (int offset = 0; offset < inclusionProof.length; offset += PROOF_STEP_LENGTH) {
+            if (inclusionProof[offset] != SIBLING_ON_LEFT && inclusionProof[offset] != SIBLING_ON_RIGHT) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Recomputes the root from a leaf hash and its inclusion proof. The leaf belongs to the signed batch if the result equals the signed root.
+     *
+     * @param leafHash leaf hash of the financial transaction
+     * @param inclusionProof inclusion proof created by {@link #getInclusionProof(int)}
+     * @return root of the tree the proof was taken from
+     * @throws IllegalArgumentException if the proof is truncated or malformed, see {@link #isWellFormed(byte[])}
+     */
+    public static byte[] computeRoot(byte[] leafHash, byte[] inclusionProof) {
+        if (!isWellFormed(inclusionProof)) {
+            throw new IllegalArgumentException("Malformed inclusion proof - length: " + inclusionProof.length);
+        }
+
+        MessageDigest messageDigest = MessageDigests.newSha512MessageDigest();
+        ByteBuffer byteBuffer = ByteBuffer.wrap(inclusionProof);
+
+        byte[] hash = leafHash;
+        while (byteBuffer.hasRemaining()) {
+            byte side = byteBuffer.get();
+            byte[] sibling = new byte[HASH_LENGTH];
+            byteBuffer.get(sibling);
+            hash = side == SIBLING_ON_LEFT ? hashNode(messageDigest, sibling, hash) : hashNode(messageDigest, hash, sibling);
+        }
+
+        return hash;
+    }
+
+    public byte[] getRoot() {
+        return levels.get(levels.size() - 1)[0];
+    }
+
+    public int getLeafCount() {
+        return levels.get(0).length;
+    }
+
+    /**
+     * Sibling hashes on the path from the leaf to the root. Every step is a side marker followed by the sibling hash, promoted levels add no step.
+     *
+     * @param leafIndex index of the leaf
+     * @return encoded inclusion proof
+     */
+    public byte[] getInclusionProof(int leafIndex) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate((levels.size() - 1) * PROOF_STEP_LENGTH);
+
+        int index = leafIndex;
+        for (int i = 0; i < levels.size() - 1; i++) {
+            byte[][] level = levels.get(i);
+            int siblingIndex = index ^ 1;
+            if (siblingIndex < level.length) {
+                byteBuffer.put(siblingIndex < index ? SIBLING_ON_LEFT : SIBLING_ON_RIGHT);
+                byteBuffer.put(level[siblingIndex]);
+            }
+            index /= 2;
+        }
+
+        byte[] inclusionProof = new byte[byteBuffer.position()];
+        byteBuffer.flip();
+        byteBuffer.get(inclusionProof);
+
+        return inclusionProof;
+    }
+
+    private static byte[] hashNode(MessageDigest messageDigest, byte[] left, byte[] right) {
+        messageDigest.update(NODE_PREFIX);
+        messageDigest.update(left);
+        messageDigest.update(right);
+
+        return messageDigest.digest();
+    }
+
+}
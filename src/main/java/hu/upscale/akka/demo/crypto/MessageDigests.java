@@ -0,0 +1,34 @@
+package hu.upscale.akka.demo.crypto;
+
+import hu.upscale.akka.demo.exception.CryptographyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-512 digests of archived payloads. The digest is computed once per payload, while it is compressed, and shared by the signature and the Merkle
+ * tree.
+ *
+ * @author László Zoltán
+ */
+public final class MessageDigests {
+
+    public static final String DIGEST_ALGORITHM = "SHA-512";
+    public static final int DIGEST_LENGTH = 64;
+
+    private MessageDigests() {
+        // Static class
+    }
+
+    public static MessageDigest newSha512MessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new CryptographyException("Failed to create message digest", e);
+        }
+    }
+
+    public static byte[] sha512(byte[] data) {
+        return newSha512MessageDigest().digest(data);
+    }
+
+}
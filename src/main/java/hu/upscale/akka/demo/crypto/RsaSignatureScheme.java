@@ -0,0 +1,40 @@
+package hu.upscale.akka.demo.crypto;
+
+/**
+ * SHA512withRSA with the 4096 bit key of the <b>rsa</b> resource folder. A precomputed digest is signed as a PKCS#1 v1.5 DigestInfo with
+ * NONEwithRSA, which yields the same signature as SHA512withRSA over the data.
+ *
+ * @author László Zoltán
+ */
+public final class RsaSignatureScheme extends JcaSignatureScheme {
+
+    public static final String SIGNATURE_ALGORITHM = "SHA512withRSA";
+    public static final String RSA_KEY_FACTORY_ALGORITHM = "RSA";
+    public static final String DIGEST_SIGNATURE_ALGORITHM = "NONEwithRSA";
+
+    /**
+     * DER encoded DigestInfo prefix of a SHA-512 digest (RFC 8017, section 9.2).
+     */
+    private static final byte[] SHA512_DIGEST_INFO_PREFIX = {
+        0x30, 0x51, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x03, 0x05, 0x00, 0x04, 0x40
+    };
+
+    public RsaSignatureScheme() {
+        super(SignatureAlgorithm.SHA512_WITH_RSA, SIGNATURE_ALGORITHM, RSA_KEY_FACTORY_ALGORITHM, "rsa/privateKey.der", "rsa/publicKey.der");
+    }
+
+    @Override
+    public SignatureAlgorithm getDigestSignatureAlgorithm() {
+        return SignatureAlgorithm.SHA512_WITH_RSA;
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest) {
+        byte[] digestInfo = new byte[SHA512_DIGEST_INFO_PREFIX.length + digest.length];
+        System.arraycopy(SHA512_DIGEST_INFO_PREFIX, 0, digestInfo, 0, SHA512_DIGEST_INFO_PREFIX.length);
+        System.arraycopy(digest, 0, digestInfo, SHA512_DIGEST_INFO_PREFIX.length, digest.length);
+
+        return sign(DIGEST_SIGNATURE_ALGORITHM, digestInfo);
+    }
+
+}
@@ -0,0 +1,43 @@
+package hu.upscale.akka.demo.crypto;
+
+/**
+ * Signature scheme that signs the SHA-512 digest of the data with another scheme, used to verify rows signed over a precomputed digest.
+ *
+ * @author László Zoltán
+ */
+public final class Sha512DigestSignatureScheme implements SignatureScheme {
+
+    private final SignatureAlgorithm signatureAlgorithm;
+    private final SignatureScheme signatureScheme;
+
+    public Sha512DigestSignatureScheme(SignatureAlgorithm signatureAlgorithm, SignatureScheme signatureScheme) {
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.signatureScheme = signatureScheme;
+    }
+
+    @Override
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    @Override
+    public SignatureAlgorithm getDigestSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    @Override
+    public byte[] sign(byte[] data) {
+        return signatureScheme.sign(MessageDigests.sha512(data));
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest) {
+        return signatureScheme.sign(digest);
+    }
+
+    @Override
+    public boolean verify(byte[] data, byte[] signature) {
+        return signatureScheme.verify(MessageDigests.sha512(data), signature);
+    }
+
+}
@@ -0,0 +1,38 @@
+package hu.upscale.akka.demo.crypto;
+
+import java.util.Arrays;
+
+/**
+ * Signature algorithms of the archived rows. The id is stored next to every signature, so rows signed with an older algorithm can still be
+ * verified after the signing algorithm has been changed.
+ *
+ * @author László Zoltán
+ */
+public enum SignatureAlgorithm {
+
+    SHA512_WITH_RSA(1),
+    ED25519(2),
+    /**
+     * Ed25519 signature of the SHA-512 digest of the data, created when the digest is computed ahead of signing. Unlike RSA, an Ed25519 signature
+     * of the digest differs from the signature of the data, so it is recorded as a separate algorithm.
+     */
+    ED25519_OVER_SHA512(3);
+
+    private final int id;
+
+    SignatureAlgorithm(int id) {
+        this.id = id;
+    }
+
+    public static SignatureAlgorithm of(int id) {
+        return Arrays.stream(values())
+            .filter(signatureAlgorithm -> signatureAlgorithm.id == id)
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown signature algorithm id: " + id));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+}
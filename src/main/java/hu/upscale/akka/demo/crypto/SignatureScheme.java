@@ -0,0 +1,29 @@
+package hu.upscale.akka.demo.crypto;
+
+/**
+ * Creates and verifies the signatures of archived data. Implementations are thread-safe.
+ *
+ * @author László Zoltán
+ */
+public interface SignatureScheme {
+
+    SignatureAlgorithm getSignatureAlgorithm();
+
+    /**
+     * Algorithm to be recorded for signatures created by {@link #signDigest(byte[])}.
+     */
+    SignatureAlgorithm getDigestSignatureAlgorithm();
+
+    byte[] sign(byte[] data);
+
+    /**
+     * Signs data whose SHA-512 digest has already been computed, without reading the data again.
+     *
+     * @param digest SHA-512 digest of the data
+     * @return signature verifiable with the scheme of {@link #getDigestSignatureAlgorithm()}
+     */
+    byte[] signDigest(byte[] digest);
+
+    boolean verify(byte[] data, byte[] signature);
+
+}
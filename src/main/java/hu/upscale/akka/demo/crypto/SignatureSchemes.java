@@ -0,0 +1,46 @@
+package hu.upscale.akka.demo.crypto;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared signature scheme instances. A scheme and its keys are only loaded when it is first used, so a runtime without Ed25519 support can still
+ * sign and verify RSA rows.
+ *
+ * @author László Zoltán
+ */
+public final class SignatureSchemes {
+
+    private static final Map<SignatureAlgorithm, SignatureScheme> SIGNATURE_SCHEMES = new ConcurrentHashMap<>();
+
+    private SignatureSchemes() {
+        // Static class
+    }
+
+    public static SignatureScheme of(SignatureAlgorithm signatureAlgorithm) {
+        SignatureScheme signatureScheme = SIGNATURE_SCHEMES.get(signatureAlgorithm);
+        if (signatureScheme != null) {
+            return signatureScheme;
+        }
+
+        // Not created inside computeIfAbsent: a digest scheme looks up its underlying scheme from this map
+        SignatureScheme createdSignatureScheme = create(signatureAlgorithm);
+        SignatureScheme previousSignatureScheme = SIGNATURE_SCHEMES.putIfAbsent(signatureAlgorithm, createdSignatureScheme);
+
+        return previousSignatureScheme != null ? previousSignatureScheme : createdSignatureScheme;
+    }
+
+    private static SignatureScheme create(SignatureAlgorithm signatureAlgorithm) {
+        switch (signatureAlgorithm) {
+            case SHA512_WITH_RSA:
+                return new RsaSignatureScheme();
+            case ED25519:
+                return new Ed25519SignatureScheme();
+            case ED25519_OVER_SHA512:
+                return new Sha512DigestSignatureScheme(signatureAlgorithm, of(SignatureAlgorithm.ED25519));
+            default:
+                throw new IllegalArgumentException("Unsupported signature algorithm: " + signatureAlgorithm);
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package hu.upscale.akka.demo.crypto;
+
+/**
+ * How archived financial transactions are signed.
+ *
+ * @author László Zoltán
+ */
+public enum SigningMode {
+
+    /**
+     * Every financial transaction is signed on its own.
+     */
+    TRANSACTION,
+
+    /**
+     * Financial transactions are signed in batches: only the root of a Merkle tree over the batch is signed, every row stores the root signature
+     * and its inclusion proof.
+     */
+    MERKLE
+
+}
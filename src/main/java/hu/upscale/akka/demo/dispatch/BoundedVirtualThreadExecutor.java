@@ -0,0 +1,125 @@
+package hu.upscale.akka.demo.dispatch;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs every task on its own virtual thread and lets at most as many tasks run at the same time as there are permits, typically the size of the
+ * connection pool. Waiting tasks park their virtual thread on the semaphore instead of occupying a platform thread, so the number of in-flight
+ * queries is limited by the database connections only. The executor is published as a {@link DispatcherMetricsMXBean}, where the queue depth is the
+ * number of tasks waiting for a permit.
+ * <p>
+ * The service is compiled for Java 11, so the virtual thread executor is looked up reflectively; {@link #isSupported()} tells whether the running JVM
+ * provides it.
+ *
+ * @author László Zoltán
+ */
+public class BoundedVirtualThreadExecutor implements DispatcherMetricsMXBean, Executor, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedVirtualThreadExecutor.class);
+
+    private static final String NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR_METHOD_NAME = "newVirtualThreadPerTaskExecutor";
+    private static final String OBJECT_NAME_PATTERN = "hu.upscale.akka.demo:type=Dispatcher,name=%s";
+
+    private final ExecutorService virtualThreadExecutorService;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final String objectName;
+
+    private final AtomicInteger largestQueueDepth = new AtomicInteger();
+    private final LongAdder completedTaskCount = new LongAdder();
+
+    public BoundedVirtualThreadExecutor(String name, int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+        virtualThreadExecutorService = newVirtualThreadPerTaskExecutor();
+        permits = new Semaphore(maxConcurrency, true);
+        objectName = String.format(OBJECT_NAME_PATTERN, ObjectName.quote(name));
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+        } catch (JMException e) {
+            LOGGER.warn("Failed to register virtual thread executor MBean - objectName: [{}]", objectName, e);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the running JVM can create virtual threads (Java 21 or newer)
+     */
+    public static boolean isSupported() {
+        try {
+            Executors.class.getMethod(NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR_METHOD_NAME);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        virtualThreadExecutorService.execute(() -> {
+            if (!permits.tryAcquire()) {
+                largestQueueDepth.accumulateAndGet(permits.getQueueLength() + 1, Math::max);
+                permits.acquireUninterruptibly();
+            }
+
+            try {
+                command.run();
+            } finally {
+                permits.release();
+                completedTaskCount.increment();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        virtualThreadExecutorService.shutdown();
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+        } catch (JMException e) {
+            LOGGER.debug("Virtual thread executor MBean was not registered - objectName: [{}]", objectName, e);
+        }
+    }
+
+    @Override
+    public int getPoolSize() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public int getActiveThreadCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public int getLargestQueueDepth() {
+        return largestQueueDepth.get();
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return completedTaskCount.sum();
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR_METHOD_NAME).invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer", e);
+        }
+    }
+}
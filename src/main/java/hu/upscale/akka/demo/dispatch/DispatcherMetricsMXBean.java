@@ -0,0 +1,23 @@
+package hu.upscale.akka.demo.dispatch;
+
+/**
+ * JMX view of an instrumented dispatcher, registered as <b>hu.upscale.akka.demo:type=Dispatcher,name=&lt;dispatcher id&gt;</b>.
+ *
+ * @author László Zoltán
+ */
+public interface DispatcherMetricsMXBean {
+
+    int getPoolSize();
+
+    int getActiveThreadCount();
+
+    /**
+     * @return number of actor mailboxes waiting for a free thread of the dispatcher
+     */
+    int getQueueDepth();
+
+    int getLargestQueueDepth();
+
+    long getCompletedTaskCount();
+
+}
@@ -0,0 +1,119 @@
+package hu.upscale.akka.demo.dispatch;
+
+import akka.dispatch.DispatcherPrerequisites;
+import akka.dispatch.ExecutorServiceConfigurator;
+import akka.dispatch.ExecutorServiceFactory;
+import akka.dispatch.MonitorableThreadFactory;
+import akka.dispatch.ThreadPoolConfig;
+import com.typesafe.config.Config;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fixed size thread pool executor for CPU bound dispatchers. The pool is sized from the number of available cores like Akka's own executors and is
+ * published as a {@link DispatcherMetricsMXBean}, so the number of mailboxes waiting for a thread can be watched while the pool is sized. Used by
+ * setting the <i>executor</i> of a dispatcher to this class:
+ * <pre>
+ * executor = "hu.upscale.akka.demo.dispatch.InstrumentedExecutorServiceConfigurator"
+ * instrumented-executor {
+ *   parallelism-min = 2
+ *   parallelism-factor = 1.0
+ *   parallelism-max = 16
+ * }
+ * </pre>
+ *
+ * @author László Zoltán
+ */
+public class InstrumentedExecutorServiceConfigurator extends ExecutorServiceConfigurator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentedExecutorServiceConfigurator.class);
+
+    private static final String PARALLELISM_MIN_CONFIG_KEY = "instrumented-executor.parallelism-min";
+    private static final String PARALLELISM_FACTOR_CONFIG_KEY = "instrumented-executor.parallelism-factor";
+    private static final String PARALLELISM_MAX_CONFIG_KEY = "instrumented-executor.parallelism-max";
+
+    private static final String OBJECT_NAME_PATTERN = "hu.upscale.akka.demo:type=Dispatcher,name=%s";
+
+    private final int poolSize;
+
+    public InstrumentedExecutorServiceConfigurator(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+        poolSize = ThreadPoolConfig.scaledPoolSize(
+            config.getInt(PARALLELISM_MIN_CONFIG_KEY),
+            config.getDouble(PARALLELISM_FACTOR_CONFIG_KEY),
+            config.getInt(PARALLELISM_MAX_CONFIG_KEY)
+        );
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        ThreadFactory namedThreadFactory = threadFactory instanceof MonitorableThreadFactory
+            ? ((MonitorableThreadFactory) threadFactory).withName(((MonitorableThreadFactory) threadFactory).name() + "-" + id)
+            : threadFactory;
+
+        return () -> {
+            InstrumentedThreadPoolExecutor instrumentedThreadPoolExecutor = new InstrumentedThreadPoolExecutor(poolSize, namedThreadFactory, id);
+            instrumentedThreadPoolExecutor.register();
+            return instrumentedThreadPoolExecutor;
+        };
+    }
+
+    private static final class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor implements DispatcherMetricsMXBean {
+
+        private final String objectName;
+        private final AtomicInteger largestQueueDepth = new AtomicInteger();
+
+        private InstrumentedThreadPoolExecutor(int poolSize, ThreadFactory threadFactory, String id) {
+            super(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+            objectName = String.format(OBJECT_NAME_PATTERN, ObjectName.quote(id));
+        }
+
+        private void register() {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+                LOGGER.info("Instrumented dispatcher started - objectName: [{}], poolSize: [{}]", objectName, getCorePoolSize());
+            } catch (JMException e) {
+                LOGGER.warn("Failed to register dispatcher MBean - objectName: [{}]", objectName, e);
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(command);
+            largestQueueDepth.accumulateAndGet(getQueue().size(), Math::max);
+        }
+
+        @Override
+        protected void terminated() {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+            } catch (JMException e) {
+                LOGGER.debug("Dispatcher MBean was not registered - objectName: [{}]", objectName, e);
+            }
+        }
+
+        @Override
+        public int getActiveThreadCount() {
+            return getActiveCount();
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return getQueue().size();
+        }
+
+        @Override
+        public int getLargestQueueDepth() {
+            return largestQueueDepth.get();
+        }
+
+    }
+}
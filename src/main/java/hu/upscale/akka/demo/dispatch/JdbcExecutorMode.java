@@ -0,0 +1,19 @@
+package hu.upscale.akka.demo.dispatch;
+
+/**
+ * Execution mode of the blocking JDBC work.
+ *
+ * @author László Zoltán
+ */
+public enum JdbcExecutorMode {
+
+    /**
+     * JDBC calls run on the fixed thread pool of <b>akka.actor.jdbc-dispatcher</b>.
+     */
+    DISPATCHER,
+    /**
+     * Every JDBC call runs on its own virtual thread, concurrency is bounded by the size of the connection pool. Requires Java 21 or newer.
+     */
+    VIRTUAL_THREAD
+
+}
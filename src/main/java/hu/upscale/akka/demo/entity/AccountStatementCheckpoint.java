@@ -0,0 +1,44 @@
+package hu.upscale.akka.demo.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Progress of an account statement being generated, saved at batch boundaries so an interrupted statement can be resumed. Every financial
+ * transaction up to <i>lastArchivedTransactionNumber</i> is archived, the ones after it may be archived only partially.
+ *
+ * @author László Zoltán
+ */
+@Data
+@JsonDeserialize(builder = AccountStatementCheckpoint.AccountStatementCheckpointBuilder.class)
+@Builder(builderClassName = "AccountStatementCheckpointBuilder", toBuilder = true)
+public final class AccountStatementCheckpoint {
+
+    public static final String ACCOUNT_STATEMENT_ID_COLUMN_NAME = "AccountStatementId";
+    public static final String LAST_TRANSACTION_ID_COLUMN_NAME = "LastTransactionId";
+    public static final String LAST_ARCHIVED_TRANSACTION_NUMBER_COLUMN_NAME = "LastArchivedTransactionNumber";
+    public static final String NEXT_TRANSACTION_ID_COLUMN_NAME = "NextTransactionId";
+    public static final String NEXT_BLOCK_NUMBER_COLUMN_NAME = "NextBlockNumber";
+
+    private final String accountStatementId;
+    /**
+     * Head of the chain the statement was requested for.
+     */
+    private final String lastTransactionId;
+    /**
+     * 0 if nothing has been archived yet.
+     */
+    private final int lastArchivedTransactionNumber;
+    /**
+     * Financial transaction the chain continues with, null if the whole chain has been archived.
+     */
+    private final String nextTransactionId;
+    private final int nextBlockNumber;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class AccountStatementCheckpointBuilder {
+    }
+
+}
@@ -2,6 +2,7 @@ package hu.upscale.akka.demo.entity;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
 import lombok.Builder;
 import lombok.Data;
 
@@ -13,11 +14,28 @@ import lombok.Data;
 @Builder(builderClassName = "ArchiveFinancialTransactionBuilder", toBuilder = true)
 public final class ArchiveFinancialTransaction {
 
+    public static final String ACCOUNT_STATEMENT_ID_COLUMN_NAME = "AccountStatementId";
+    public static final String TRANSACTION_ID_COLUMN_NAME = "TransactionId";
+    public static final String TRANSACTION_NUMBER_COLUMN_NAME = "TransactionNumber";
+    public static final String PREVIOUS_TRANSACTION_ID_COLUMN_NAME = "PreviousTransactionId";
+    public static final String COMPRESSED_DATA_COLUMN_NAME = "CompressedData";
+    public static final String COMPRESSION_DICTIONARY_ID_COLUMN_NAME = "CompressionDictionaryId";
+    public static final String SIGNATURE_COLUMN_NAME = "Signature";
+    public static final String SIGNATURE_ALGORITHM_COLUMN_NAME = "SignatureAlgorithm";
+    public static final String INCLUSION_PROOF_COLUMN_NAME = "InclusionProof";
+
     private final String accountStatementId;
     private final String transactionId;
     private final int transactionNumber;
+    /**
+     * Previous financial transaction in the chain, the statement continues with it. Null at the end of the chain.
+     */
+    private final String previousTransactionId;
     private final byte[] compressedData;
+    private final Integer compressionDictionaryId;
     private final byte[] signature;
+    private final SignatureAlgorithm signatureAlgorithm;
+    private final byte[] inclusionProof;
 
     @JsonPOJOBuilder(withPrefix = "")
     public static final class ArchiveFinancialTransactionBuilder {
@@ -0,0 +1,46 @@
+package hu.upscale.akka.demo.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * @author László Zoltán
+ */
+@Data
+@JsonDeserialize(builder = ArchiveFinancialTransactionBlock.ArchiveFinancialTransactionBlockBuilder.class)
+@Builder(builderClassName = "ArchiveFinancialTransactionBlockBuilder", toBuilder = true)
+public final class ArchiveFinancialTransactionBlock {
+
+    public static final String ACCOUNT_STATEMENT_ID_COLUMN_NAME = "AccountStatementId";
+    public static final String BLOCK_NUMBER_COLUMN_NAME = "BlockNumber";
+    public static final String FIRST_TRANSACTION_NUMBER_COLUMN_NAME = "FirstTransactionNumber";
+    public static final String TRANSACTION_COUNT_COLUMN_NAME = "TransactionCount";
+    public static final String PREVIOUS_TRANSACTION_ID_COLUMN_NAME = "PreviousTransactionId";
+    public static final String OFFSET_INDEX_COLUMN_NAME = "OffsetIndex";
+    public static final String COMPRESSED_DATA_COLUMN_NAME = "CompressedData";
+    public static final String COMPRESSION_DICTIONARY_ID_COLUMN_NAME = "CompressionDictionaryId";
+    public static final String SIGNATURE_COLUMN_NAME = "Signature";
+    public static final String SIGNATURE_ALGORITHM_COLUMN_NAME = "SignatureAlgorithm";
+
+    private final String accountStatementId;
+    private final int blockNumber;
+    private final int firstTransactionNumber;
+    private final int transactionCount;
+    /**
+     * Previous financial transaction of the last packed one, the statement continues with it. Null at the end of the chain.
+     */
+    private final String previousTransactionId;
+    private final byte[] offsetIndex;
+    private final byte[] compressedData;
+    private final Integer compressionDictionaryId;
+    private final byte[] signature;
+    private final SignatureAlgorithm signatureAlgorithm;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class ArchiveFinancialTransactionBlockBuilder {
+    }
+
+}
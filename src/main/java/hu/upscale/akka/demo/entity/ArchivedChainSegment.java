@@ -0,0 +1,38 @@
+package hu.upscale.akka.demo.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Consecutive financial transactions of a statement archived together: a single archive row or an archive block.
+ *
+ * @author László Zoltán
+ */
+@Data
+@JsonDeserialize(builder = ArchivedChainSegment.ArchivedChainSegmentBuilder.class)
+@Builder(builderClassName = "ArchivedChainSegmentBuilder", toBuilder = true)
+public final class ArchivedChainSegment {
+
+    public static final String FIRST_TRANSACTION_NUMBER_COLUMN_NAME = "FirstTransactionNumber";
+    public static final String TRANSACTION_COUNT_COLUMN_NAME = "TransactionCount";
+    public static final String BLOCK_NUMBER_COLUMN_NAME = "BlockNumber";
+    public static final String PREVIOUS_TRANSACTION_ID_COLUMN_NAME = "PreviousTransactionId";
+
+    private final int firstTransactionNumber;
+    private final int transactionCount;
+    /**
+     * Null for an archive row.
+     */
+    private final Integer blockNumber;
+    /**
+     * Financial transaction the chain continues with after the segment, null at the end of the chain.
+     */
+    private final String previousTransactionId;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class ArchivedChainSegmentBuilder {
+    }
+
+}
@@ -0,0 +1,25 @@
+package hu.upscale.akka.demo.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * @author László Zoltán
+ */
+@Data
+@JsonDeserialize(builder = CompressionDictionary.CompressionDictionaryBuilder.class)
+@Builder(builderClassName = "CompressionDictionaryBuilder", toBuilder = true)
+public final class CompressionDictionary {
+
+    public static final String DICTIONARY_ID_COLUMN_NAME = "DictionaryId";
+    public static final String DICTIONARY_COLUMN_NAME = "Dictionary";
+
+    private final int dictionaryId;
+    private final byte[] dictionary;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class CompressionDictionaryBuilder {
+    }
+}
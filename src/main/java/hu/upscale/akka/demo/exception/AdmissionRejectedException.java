@@ -0,0 +1,15 @@
+package hu.upscale.akka.demo.exception;
+
+/**
+ * The account statement was not admitted, because the service is saturated.
+ *
+ * @author László Zoltán
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AdmissionRejectedException(String message) {
+        super(message);
+    }
+}
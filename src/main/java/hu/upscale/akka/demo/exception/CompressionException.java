@@ -7,6 +7,10 @@ public class CompressionException extends RuntimeException {
 
     private static final long serialVersionUID = 1L;
 
+    public CompressionException(String message) {
+        super(message);
+    }
+
     public CompressionException(String message, Throwable cause) {
         super(message, cause);
     }
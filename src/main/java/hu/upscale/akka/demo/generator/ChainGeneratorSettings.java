@@ -0,0 +1,88 @@
+package hu.upscale.akka.demo.generator;
+
+import com.typesafe.config.Config;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Shape of the synthetic financial transaction chains, read from <b>microservice.generator</b>.
+ *
+ * @author László Zoltán
+ */
+@Data
+@Builder(builderClassName = "ChainGeneratorSettingsBuilder", toBuilder = true)
+public final class ChainGeneratorSettings {
+
+    private static final String CHAINS_CONFIG_KEY = "microservice.generator.chains";
+    private static final String CHAIN_LENGTH_DISTRIBUTION_CONFIG_KEY = "microservice.generator.chain-length.distribution";
+    private static final String MIN_CHAIN_LENGTH_CONFIG_KEY = "microservice.generator.chain-length.min";
+    private static final String MEAN_CHAIN_LENGTH_CONFIG_KEY = "microservice.generator.chain-length.mean";
+    private static final String MAX_CHAIN_LENGTH_CONFIG_KEY = "microservice.generator.chain-length.max";
+    private static final String MIN_PAYLOAD_SIZE_CONFIG_KEY = "microservice.generator.payload-size.min";
+    private static final String MAX_PAYLOAD_SIZE_CONFIG_KEY = "microservice.generator.payload-size.max";
+    private static final String COMPRESSIBILITY_CONFIG_KEY = "microservice.generator.compressibility";
+    private static final String BATCH_SIZE_CONFIG_KEY = "microservice.generator.batch-size";
+    private static final String PARALLELISM_CONFIG_KEY = "microservice.generator.parallelism";
+    private static final String SEED_CONFIG_KEY = "microservice.generator.seed";
+
+    private final int chains;
+    private final ChainLengthDistribution chainLengthDistribution;
+    private final int minChainLength;
+    private final int meanChainLength;
+    private final int maxChainLength;
+    private final int minPayloadSize;
+    private final int maxPayloadSize;
+    /**
+     * Share of the payload made of repetitive JSON text, the rest is random bytes: 0 is incompressible, 1 compresses like real transaction data.
+     */
+    private final double compressibility;
+    private final int batchSize;
+    private final int parallelism;
+    private final long seed;
+
+    public static ChainGeneratorSettings fromConfig(Config config) {
+        int configuredParallelism = config.getInt(PARALLELISM_CONFIG_KEY);
+
+        return ChainGeneratorSettings.builder()
+            .chains(config.getInt(CHAINS_CONFIG_KEY))
+            .chainLengthDistribution(config.getEnum(ChainLengthDistribution.class, CHAIN_LENGTH_DISTRIBUTION_CONFIG_KEY))
+            .minChainLength(config.getInt(MIN_CHAIN_LENGTH_CONFIG_KEY))
+            .meanChainLength(config.getInt(MEAN_CHAIN_LENGTH_CONFIG_KEY))
+            .maxChainLength(config.getInt(MAX_CHAIN_LENGTH_CONFIG_KEY))
+            .minPayloadSize(config.getBytes(MIN_PAYLOAD_SIZE_CONFIG_KEY).intValue())
+            .maxPayloadSize(config.getBytes(MAX_PAYLOAD_SIZE_CONFIG_KEY).intValue())
+            .compressibility(config.getDouble(COMPRESSIBILITY_CONFIG_KEY))
+            .batchSize(config.getInt(BATCH_SIZE_CONFIG_KEY))
+            .parallelism(configuredParallelism > 0 ? configuredParallelism : Runtime.getRuntime().availableProcessors())
+            .seed(config.getLong(SEED_CONFIG_KEY))
+            .build();
+    }
+
+    /**
+     * @return settings generating chains of exactly the given length and payloads of exactly the given size
+     */
+    public ChainGeneratorSettings withFixedShape(int chains, int chainLength, int payloadSize) {
+        return toBuilder()
+            .chains(chains)
+            .chainLengthDistribution(ChainLengthDistribution.FIXED)
+            .minChainLength(chainLength)
+            .meanChainLength(chainLength)
+            .maxChainLength(chainLength)
+            .minPayloadSize(payloadSize)
+            .maxPayloadSize(payloadSize)
+            .build();
+    }
+
+    void validate() {
+        if (chains < 0 || minChainLength < 1 || minChainLength > meanChainLength || meanChainLength > maxChainLength) {
+            throw new IllegalArgumentException("Invalid chain settings, 0 <= chains and 1 <= min <= mean <= max chain length are required: " + this);
+        }
+        if (minPayloadSize < 1 || minPayloadSize > maxPayloadSize || compressibility < 0.0 || compressibility > 1.0) {
+            throw new IllegalArgumentException(
+                "Invalid payload settings, 1 <= min <= max payload size and 0 <= compressibility <= 1 are required: " + this);
+        }
+        if (batchSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Invalid generator settings, batch size and parallelism have to be positive: " + this);
+        }
+    }
+}
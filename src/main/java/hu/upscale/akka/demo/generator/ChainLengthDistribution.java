@@ -0,0 +1,46 @@
+package hu.upscale.akka.demo.generator;
+
+import java.util.Random;
+
+/**
+ * Distribution of the number of financial transactions in a generated chain.
+ *
+ * @author László Zoltán
+ */
+public enum ChainLengthDistribution {
+
+    /**
+     * Every chain has the mean length.
+     */
+    FIXED {
+        @Override
+        int nextChainLength(Random random, int min, int mean, int max) {
+            return mean;
+        }
+    },
+
+    /**
+     * Chain lengths are uniformly distributed between the minimum and the maximum length.
+     */
+    UNIFORM {
+        @Override
+        int nextChainLength(Random random, int min, int mean, int max) {
+            return min + random.nextInt(max - min + 1);
+        }
+    },
+
+    /**
+     * Most chains are short and a few are long, like the activity of accounts: the length above the minimum is exponentially distributed, the
+     * lengths are truncated to the maximum.
+     */
+    EXPONENTIAL {
+        @Override
+        int nextChainLength(Random random, int min, int mean, int max) {
+            double length = min - (mean - min) * Math.log(1.0 - random.nextDouble());
+            return (int) Math.min(max, Math.round(length));
+        }
+    };
+
+    abstract int nextChainLength(Random random, int min, int mean, int max);
+
+}
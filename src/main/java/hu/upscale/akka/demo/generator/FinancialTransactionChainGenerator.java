@@ -0,0 +1,180 @@
+package hu.upscale.akka.demo.generator;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import hu.upscale.akka.demo.exception.DbException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes synthetic financial transaction chains into <b>demo.FinancialTransaction</b>, so the statement generation can be measured without the
+ * Spring demo service. The chains are split into contiguous ranges generated in parallel, every worker inserting its rows with JDBC batches on its
+ * own connection and committing after every batch. Chain lengths and payloads are drawn from a seeded random, the transaction ids are random UUIDs,
+ * so generating into the same database again adds new chains.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class FinancialTransactionChainGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FinancialTransactionChainGenerator.class);
+
+    private static final String INSERT_FINANCIAL_TRANSACTION
+        = "INSERT INTO demo.FinancialTransaction (TransactionId, PreviousTransactionId, Data) VALUES (?, ?, ?)";
+
+    /**
+     * Random blocks are spread over the whole payload in this granularity, so the entropy sampled from the beginning of a payload is representative.
+     */
+    private static final int RANDOM_BLOCK_SIZE = 64;
+    private static final int PROGRESS_LOG_INTERVAL = 100_000;
+
+    private final DataSource dataSource;
+
+    @Inject
+    public FinancialTransactionChainGenerator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param settings shape of the chains
+     * @return id of the last financial transaction of every chain, the ids a statement generation can be started with
+     */
+    public List<UUID> generate(ChainGeneratorSettings settings) {
+        settings.validate();
+        LOGGER.info("Financial transaction chain generation started - settings: [{}]", settings);
+
+        long startNanos = System.nanoTime();
+        AtomicLong rows = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        int workers = Math.max(1, Math.min(settings.getParallelism(), settings.getChains()));
+        ExecutorService workerExecutor = Executors.newFixedThreadPool(workers);
+
+        List<UUID> lastTransactionIds;
+        try {
+            List<CompletableFuture<List<UUID>>> workerResults = IntStream.range(0, workers)
+                .mapToObj(worker -> {
+                    int firstChain = (int) ((long) settings.getChains() * worker / workers);
+                    int chains = (int) ((long) settings.getChains() * (worker + 1) / workers) - firstChain;
+                    Random random = new Random(settings.getSeed() + worker);
+                    return CompletableFuture.supplyAsync(() -> generateChains(settings, chains, random, rows, bytes, startNanos), workerExecutor);
+                })
+                .collect(Collectors.toList());
+
+            lastTransactionIds = workerResults.stream()
+                .map(CompletableFuture::join)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        } finally {
+            workerExecutor.shutdownNow();
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        LOGGER.info("Financial transaction chain generation finished - chains: [{}], rows: [{}], MB: [{}], elapsed: [{} s], rows/s: [{}]",
+            lastTransactionIds.size(), rows.get(), String.format("%.1f", bytes.get() / 1_048_576.0), String.format("%.1f", elapsedSeconds),
+            String.format("%.0f", rows.get() / Math.max(elapsedSeconds, 0.001)));
+
+        return lastTransactionIds;
+    }
+
+    private List<UUID> generateChains(ChainGeneratorSettings settings, int chains, Random random, AtomicLong rows, AtomicLong bytes, long startNanos) {
+        List<UUID> lastTransactionIds = new ArrayList<>(chains);
+
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(INSERT_FINANCIAL_TRANSACTION)
+        ) {
+            int batchedRows = 0;
+            for (int chain = 0; chain < chains; chain++) {
+                int chainLength = settings.getChainLengthDistribution()
+                    .nextChainLength(random, settings.getMinChainLength(), settings.getMeanChainLength(), settings.getMaxChainLength());
+
+                UUID previousTransactionId = null;
+                for (int link = 0; link < chainLength; link++) {
+                    UUID transactionId = UUID.randomUUID();
+                    int payloadSize = settings.getMinPayloadSize()
+                        + random.nextInt(settings.getMaxPayloadSize() - settings.getMinPayloadSize() + 1);
+
+                    preparedStatement.setString(1, transactionId.toString());
+                    preparedStatement.setString(2, previousTransactionId != null ? previousTransactionId.toString() : null);
+                    preparedStatement.setBytes(3, payload(random, transactionId, payloadSize, settings.getCompressibility()));
+                    preparedStatement.addBatch();
+                    previousTransactionId = transactionId;
+                    bytes.addAndGet(payloadSize);
+
+                    if (++batchedRows == settings.getBatchSize()) {
+                        executeBatch(connection, preparedStatement, batchedRows, rows, startNanos);
+                        batchedRows = 0;
+                    }
+                }
+                lastTransactionIds.add(previousTransactionId);
+            }
+            executeBatch(connection, preparedStatement, batchedRows, rows, startNanos);
+        } catch (SQLException e) {
+            throw new DbException("Failed to insert synthetic financial transaction chains", e);
+        }
+
+        return lastTransactionIds;
+    }
+
+    private static void executeBatch(Connection connection, PreparedStatement preparedStatement, int batchedRows, AtomicLong rows, long startNanos)
+        throws SQLException {
+        if (batchedRows == 0) {
+            return;
+        }
+
+        preparedStatement.executeBatch();
+        connection.commit();
+
+        long insertedRows = rows.addAndGet(batchedRows);
+        if (insertedRows / PROGRESS_LOG_INTERVAL != (insertedRows - batchedRows) / PROGRESS_LOG_INTERVAL) {
+            LOGGER.info("Financial transaction chain generation progress - rows: [{}], rows/s: [{}]", insertedRows,
+                String.format("%.0f", insertedRows * 1_000_000_000.0 / (System.nanoTime() - startNanos)));
+        }
+    }
+
+    /**
+     * JSON records like the ones of the Spring demo service, with blocks of random bytes mixed in to reach the requested compressibility.
+     */
+    private static byte[] payload(Random random, UUID transactionId, int payloadSize, double compressibility) {
+        StringBuilder text = new StringBuilder(payloadSize + 256);
+        while (text.length() < payloadSize) {
+            text.append("{\"transactionId\":\"").append(transactionId)
+                .append("\",\"amount\":").append(random.nextInt(10_000_000))
+                .append(",\"currency\":\"HUF\",\"counterpartyAccount\":\"HU").append(10_000_000 + random.nextInt(90_000_000))
+                .append("\",\"description\":\"Card payment\"}\n");
+        }
+
+        byte[] payload = new byte[payloadSize];
+        System.arraycopy(text.toString().getBytes(StandardCharsets.US_ASCII), 0, payload, 0, payloadSize);
+
+        if (compressibility < 1.0) {
+            byte[] randomBlock = new byte[RANDOM_BLOCK_SIZE];
+            for (int offset = 0; offset < payloadSize; offset += RANDOM_BLOCK_SIZE) {
+                if (random.nextDouble() >= compressibility) {
+                    random.nextBytes(randomBlock);
+                    System.arraycopy(randomBlock, 0, payload, offset, Math.min(RANDOM_BLOCK_SIZE, payloadSize - offset));
+                }
+            }
+        }
+
+        return payload;
+    }
+}
@@ -4,9 +4,11 @@ import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.http.javadsl.Http;
 import akka.http.javadsl.server.Route;
+import akka.stream.Materializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
 import com.google.inject.Injector;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
@@ -16,16 +18,60 @@ import com.typesafe.config.ConfigFactory;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor;
+import hu.upscale.akka.demo.actor.zip.ZipActor;
+import hu.upscale.akka.demo.archive.ArchiveWriteCombiner;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
+import hu.upscale.akka.demo.dispatch.BoundedVirtualThreadExecutor;
+import hu.upscale.akka.demo.dispatch.JdbcExecutorMode;
+import hu.upscale.akka.demo.metrics.HikariPoolCollector;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.repository.AccountStatementCheckpointRepository;
+import hu.upscale.akka.demo.repository.ArchiveRepository;
+import hu.upscale.akka.demo.repository.FinancialTransactionRepository;
+import hu.upscale.akka.demo.repository.JdbcAccountStatementCheckpointRepository;
+import hu.upscale.akka.demo.repository.JdbcArchiveRepository;
+import hu.upscale.akka.demo.repository.JdbcFinancialTransactionRepository;
+import hu.upscale.akka.demo.repository.JdbcSchemaInitializer;
+import hu.upscale.akka.demo.repository.PersistenceEngine;
+import hu.upscale.akka.demo.repository.R2dbcAccountStatementCheckpointRepository;
+import hu.upscale.akka.demo.repository.R2dbcArchiveRepository;
+import hu.upscale.akka.demo.repository.R2dbcFinancialTransactionRepository;
+import hu.upscale.akka.demo.repository.R2dbcSchemaInitializer;
+import hu.upscale.akka.demo.repository.SqlDialect;
+import hu.upscale.akka.demo.route.AdminRoute;
 import hu.upscale.akka.demo.route.ServerRoute;
+import hu.upscale.akka.demo.tracing.JsonFileSpanExporter;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import hu.upscale.akka.demo.tracing.SpanExporterType;
 import hu.upscale.akka.demo.util.ObjectMapperProvider;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.prometheus.client.CollectorRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import java.nio.file.Paths;
 import java.util.concurrent.Executor;
 import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * @author László Zoltán
  */
 public class GuiceInjectionModule extends AbstractModule {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(GuiceInjectionModule.class);
+
     private static final String ACTOR_SYSTEM_NAME = "non-blocking-akka-service-demo";
     private static final String DB_CONNECTION_POOL_NAME = "non-blocking-akka-service-connection-pool";
 
@@ -42,6 +88,18 @@ public class GuiceInjectionModule extends AbstractModule {
     private static final String DATASOURCE_CONNECTION_IDLE_TIMEOUT_CONFIGURATION_KEY = "microservice.datasource.connection-idle-timeout";
     private static final String DATASOURCE_CONNECTION_MAX_LIFETIME_CONFIGURATION_KEY = "microservice.datasource.connection-max-lifetime";
     private static final String DATASOURCE_THRESHOLD_CONFIGURATION_KEY = "microservice.datasource.connection-leak-detection-threshold";
+    private static final String DATASOURCE_SCHEMA_CONFIGURATION_KEY = "microservice.datasource.schema";
+    private static final String JDBC_EXECUTOR_MODE_CONFIGURATION_KEY = "microservice.datasource.executor-mode";
+    private static final String PERSISTENCE_ENGINE_CONFIGURATION_KEY = "microservice.persistence.engine";
+    private static final String R2DBC_URL_CONFIGURATION_KEY = "microservice.persistence.r2dbc.url";
+    private static final String R2DBC_CONNECTION_POOL_MAX_SIZE_CONFIGURATION_KEY = "microservice.persistence.r2dbc.connection-pool-max-size";
+    private static final String R2DBC_SCHEMA_CONFIGURATION_KEY = "microservice.persistence.r2dbc.schema";
+    private static final String TRACING_EXPORTER_CONFIGURATION_KEY = "microservice.tracing.exporter";
+    private static final String TRACING_FILE_CONFIGURATION_KEY = "microservice.tracing.file";
+    private static final String TRACING_SAMPLE_RATIO_CONFIGURATION_KEY = "microservice.tracing.sample-ratio";
+    private static final String TRACING_SERVICE_NAME_CONFIGURATION_KEY = "microservice.tracing.service-name";
+
+    private static final AttributeKey<String> SERVICE_NAME_RESOURCE_ATTRIBUTE = AttributeKey.stringKey("service.name");
 
     @Provides
     @Singleton
@@ -80,16 +138,32 @@ public class GuiceInjectionModule extends AbstractModule {
 
     @Provides
     @Singleton
-    public DataSource provideDataSource(Config config, ActorSystem actorSystem) {
-        String jdbcUrl = config.getString(DATASOURCE_URL_CONFIGURATION_KEY);
+    @Named(AdminRoute.MANAGEMENT_ROUTE)
+    public Route provideManagementRoute(AdminRoute adminRoute) {
+        return adminRoute.getAdminRoute();
+    }
 
-        SQLServerDataSource sqlServerDataSource = new SQLServerDataSource();
-        sqlServerDataSource.setURL(jdbcUrl);
-        sqlServerDataSource.setUser(config.getString(DATASOURCE_USER_CONFIGURATION_KEY));
-        sqlServerDataSource.setPassword(config.getString(DATASOURCE_PASSWORD_CONFIGURATION_KEY));
+    /**
+     * The Hikari pool is only created when JDBC is first used. With the R2DBC persistence engine that is the archive read, the compression
+     * dictionaries or the archive audit, which stay on JDBC.
+     */
+    @Provides
+    @Singleton
+    public DataSource provideDataSource(Config config, ActorSystem actorSystem, CollectorRegistry collectorRegistry) {
+        String jdbcUrl = config.getString(DATASOURCE_URL_CONFIGURATION_KEY);
 
         HikariConfig hikariConfig = new HikariConfig();
-        hikariConfig.setDataSource(sqlServerDataSource);
+        if (SqlDialect.of(jdbcUrl) == SqlDialect.MSSQL) {
+            SQLServerDataSource sqlServerDataSource = new SQLServerDataSource();
+            sqlServerDataSource.setURL(jdbcUrl);
+            sqlServerDataSource.setUser(config.getString(DATASOURCE_USER_CONFIGURATION_KEY));
+            sqlServerDataSource.setPassword(config.getString(DATASOURCE_PASSWORD_CONFIGURATION_KEY));
+            hikariConfig.setDataSource(sqlServerDataSource);
+        } else {
+            hikariConfig.setJdbcUrl(jdbcUrl);
+            hikariConfig.setUsername(config.getString(DATASOURCE_USER_CONFIGURATION_KEY));
+            hikariConfig.setPassword(config.getString(DATASOURCE_PASSWORD_CONFIGURATION_KEY));
+        }
         hikariConfig.setAutoCommit(false);
         hikariConfig.setMinimumIdle(config.getInt(DATASOURCE_CONNECTION_POOL_MIN_SIZE_CONFIGURATION_KEY));
         hikariConfig.setMaximumPoolSize(config.getInt(DATASOURCE_CONNECTION_POOL_MAX_SIZE_CONFIGURATION_KEY));
@@ -116,21 +190,155 @@ public class GuiceInjectionModule extends AbstractModule {
 
         HikariDataSource hikariDataSource = new HikariDataSource(hikariConfig);
         actorSystem.registerOnTermination(hikariDataSource::close);
+        new HikariPoolCollector(DB_CONNECTION_POOL_NAME, hikariDataSource.getHikariPoolMXBean()).register(collectorRegistry);
+
+        String schemaResource = config.getString(DATASOURCE_SCHEMA_CONFIGURATION_KEY);
+        if (!schemaResource.isEmpty()) {
+            JdbcSchemaInitializer.initialize(hikariDataSource, schemaResource);
+            LOGGER.info("JDBC schema initialized - schema: [{}]", schemaResource);
+        }
 
         return hikariDataSource;
     }
 
+    @Provides
+    @Singleton
+    public CollectorRegistry provideCollectorRegistry() {
+        return new CollectorRegistry();
+    }
+
+    /**
+     * Sampled spans are exported in batches on a background thread. Child spans follow the sampling decision of their parent, so a trace is either
+     * recorded completely or not at all.
+     */
+    @Provides
+    @Singleton
+    public OpenTelemetry provideOpenTelemetry(Config config, ObjectMapper objectMapper, ActorSystem actorSystem) {
+        SpanExporterType spanExporterType = config.getEnum(SpanExporterType.class, TRACING_EXPORTER_CONFIGURATION_KEY);
+        if (spanExporterType == SpanExporterType.NONE) {
+            return OpenTelemetry.noop();
+        }
+
+        SdkTracerProvider sdkTracerProvider = SdkTracerProvider.builder()
+            .setResource(Resource.getDefault().merge(Resource.create(
+                Attributes.of(SERVICE_NAME_RESOURCE_ATTRIBUTE, config.getString(TRACING_SERVICE_NAME_CONFIGURATION_KEY))
+            )))
+            .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(config.getDouble(TRACING_SAMPLE_RATIO_CONFIGURATION_KEY))))
+            .addSpanProcessor(BatchSpanProcessor.builder(
+                new JsonFileSpanExporter(objectMapper, Paths.get(config.getString(TRACING_FILE_CONFIGURATION_KEY)))
+            ).build())
+            .build();
+        actorSystem.registerOnTermination(sdkTracerProvider::shutdown);
+        LOGGER.info("Tracing enabled - exporter: [{}]", spanExporterType);
+
+        return OpenTelemetrySdk.builder()
+            .setTracerProvider(sdkTracerProvider)
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build();
+    }
+
     @Provides
     @Singleton
     @Named(AccountStatementGeneratorActor.ACTOR_NAME)
-    public ActorRef provideAccountStatementGeneratorActor(ActorSystem actorSystem, DataSource dataSource, @Named(JDBC_EXECUTOR) Executor jdbcExecutor) {
-        return actorSystem.actorOf(AccountStatementGeneratorActor.props(dataSource, jdbcExecutor));
+    public ActorRef provideAccountStatementGeneratorActor(ActorSystem actorSystem, Config config,
+        FinancialTransactionRepository financialTransactionRepository, AccountStatementCheckpointRepository accountStatementCheckpointRepository,
+        ArchiveWriteCombiner archiveWriteCombiner, CompressionDictionaryRegistry compressionDictionaryRegistry, PipelineMetrics pipelineMetrics,
+        PipelineTracing pipelineTracing) {
+        return actorSystem.actorOf(AccountStatementGeneratorActor.props(config, financialTransactionRepository, accountStatementCheckpointRepository,
+            archiveWriteCombiner, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing));
+    }
+
+    @Provides
+    @Singleton
+    public FinancialTransactionRepository provideFinancialTransactionRepository(ActorSystem actorSystem, Config config,
+        Provider<DataSource> dataSourceProvider, @Named(JDBC_EXECUTOR) Provider<Executor> jdbcExecutorProvider,
+        Provider<ConnectionFactory> connectionFactoryProvider) {
+        if (config.getEnum(PersistenceEngine.class, PERSISTENCE_ENGINE_CONFIGURATION_KEY) == PersistenceEngine.R2DBC) {
+            return new R2dbcFinancialTransactionRepository(connectionFactoryProvider.get(), Materializer.matFromSystem(actorSystem),
+                SqlDialect.of(config.getString(R2DBC_URL_CONFIGURATION_KEY)));
+        }
+
+        return new JdbcFinancialTransactionRepository(dataSourceProvider.get(), jdbcExecutorProvider.get(),
+            SqlDialect.of(config.getString(DATASOURCE_URL_CONFIGURATION_KEY)));
+    }
+
+    @Provides
+    @Singleton
+    public ArchiveRepository provideArchiveRepository(ActorSystem actorSystem, Config config,
+        Provider<DataSource> dataSourceProvider, @Named(JDBC_EXECUTOR) Provider<Executor> jdbcExecutorProvider,
+        Provider<ConnectionFactory> connectionFactoryProvider) {
+        if (config.getEnum(PersistenceEngine.class, PERSISTENCE_ENGINE_CONFIGURATION_KEY) == PersistenceEngine.R2DBC) {
+            return new R2dbcArchiveRepository(connectionFactoryProvider.get(), Materializer.matFromSystem(actorSystem),
+                SqlDialect.of(config.getString(R2DBC_URL_CONFIGURATION_KEY)));
+        }
+
+        return new JdbcArchiveRepository(dataSourceProvider.get(), jdbcExecutorProvider.get());
+    }
+
+    @Provides
+    @Singleton
+    public AccountStatementCheckpointRepository provideAccountStatementCheckpointRepository(ActorSystem actorSystem, Config config,
+        Provider<DataSource> dataSourceProvider, @Named(JDBC_EXECUTOR) Provider<Executor> jdbcExecutorProvider,
+        Provider<ConnectionFactory> connectionFactoryProvider) {
+        if (config.getEnum(PersistenceEngine.class, PERSISTENCE_ENGINE_CONFIGURATION_KEY) == PersistenceEngine.R2DBC) {
+            return new R2dbcAccountStatementCheckpointRepository(connectionFactoryProvider.get(), Materializer.matFromSystem(actorSystem),
+                SqlDialect.of(config.getString(R2DBC_URL_CONFIGURATION_KEY)));
+        }
+
+        return new JdbcAccountStatementCheckpointRepository(dataSourceProvider.get(), jdbcExecutorProvider.get());
+    }
+
+    @Provides
+    @Singleton
+    public ConnectionFactory provideConnectionFactory(ActorSystem actorSystem, Config config) {
+        ConnectionPool connectionPool = new ConnectionPool(
+            ConnectionPoolConfiguration.builder(ConnectionFactories.get(config.getString(R2DBC_URL_CONFIGURATION_KEY)))
+                .maxSize(config.getInt(R2DBC_CONNECTION_POOL_MAX_SIZE_CONFIGURATION_KEY))
+                .name(DB_CONNECTION_POOL_NAME)
+                .build()
+        );
+        actorSystem.registerOnTermination(connectionPool::dispose);
+
+        String schemaResource = config.getString(R2DBC_SCHEMA_CONFIGURATION_KEY);
+        if (!schemaResource.isEmpty()) {
+            R2dbcSchemaInitializer.initialize(connectionPool, Materializer.matFromSystem(actorSystem), schemaResource).toCompletableFuture().join();
+            LOGGER.info("R2DBC schema initialized - schema: [{}]", schemaResource);
+        }
+
+        return connectionPool;
+    }
+
+    @Provides
+    @Singleton
+    @Named(ZipActor.ACTOR_NAME)
+    public ActorRef provideZipActor(ActorSystem actorSystem, Config config, CompressionDictionaryRegistry compressionDictionaryRegistry,
+        PipelineMetrics pipelineMetrics, PipelineTracing pipelineTracing) {
+        return actorSystem.actorOf(ZipActor.props(config, compressionDictionaryRegistry, pipelineMetrics, pipelineTracing));
     }
 
     @Provides
     @Singleton
     @Named(JDBC_EXECUTOR)
-    public Executor provideJdbcExecutor(ActorSystem actorSystem) {
+    public Executor provideJdbcExecutor(ActorSystem actorSystem, Config config, PipelineTracing pipelineTracing) {
+        return pipelineTracing.tracingExecutor("JdbcExecutor.execute", jdbcExecutor(actorSystem, config));
+    }
+
+    private static Executor jdbcExecutor(ActorSystem actorSystem, Config config) {
+        JdbcExecutorMode jdbcExecutorMode = config.getEnum(JdbcExecutorMode.class, JDBC_EXECUTOR_MODE_CONFIGURATION_KEY);
+
+        if (jdbcExecutorMode == JdbcExecutorMode.VIRTUAL_THREAD) {
+            if (BoundedVirtualThreadExecutor.isSupported()) {
+                int maxConcurrency = config.getInt(DATASOURCE_CONNECTION_POOL_MAX_SIZE_CONFIGURATION_KEY);
+                BoundedVirtualThreadExecutor boundedVirtualThreadExecutor = new BoundedVirtualThreadExecutor(JDBC_EXECUTOR, maxConcurrency);
+                actorSystem.registerOnTermination(boundedVirtualThreadExecutor::close);
+                LOGGER.info("JDBC work runs on virtual threads - maxConcurrency: [{}]", maxConcurrency);
+
+                return boundedVirtualThreadExecutor;
+            }
+
+            LOGGER.warn("Virtual threads are not supported by Java {}, JDBC work runs on [{}]", Runtime.version().feature(), JDBC_EXECUTOR);
+        }
+
         return actorSystem.dispatchers().lookup(JDBC_EXECUTOR);
     }
 
@@ -0,0 +1,44 @@
+package hu.upscale.akka.demo.jfr;
+
+import java.util.UUID;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Generation of one account statement, from the request until its last financial transaction is archived.
+ *
+ * @author László Zoltán
+ */
+@Name("hu.upscale.akka.demo.AccountStatement")
+@Label("Account Statement")
+@Category({"Akka Demo", "Account Statement"})
+@Description("Generation of an account statement, from the request until its last financial transaction is archived")
+@StackTrace(false)
+public class AccountStatementEvent extends jdk.jfr.Event {
+
+    @Label("Account Statement Id")
+    String accountStatementId;
+
+    @Label("Last Transaction Id")
+    String lastTransactionId;
+
+    @Label("Financial Transactions")
+    int financialTransactions;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public void finish(UUID accountStatementId, UUID lastTransactionId, int financialTransactions, boolean succeeded) {
+        end();
+        if (shouldCommit()) {
+            this.accountStatementId = accountStatementId.toString();
+            this.lastTransactionId = lastTransactionId.toString();
+            this.financialTransactions = financialTransactions;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
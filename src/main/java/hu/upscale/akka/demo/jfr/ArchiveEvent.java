@@ -0,0 +1,52 @@
+package hu.upscale.akka.demo.jfr;
+
+import java.util.UUID;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Archiving of one financial transaction, Merkle batch or block: compression, signing and the archive commit including the time spent in the
+ * mailboxes of the compressor and signer actors.
+ *
+ * @author László Zoltán
+ */
+@Name("hu.upscale.akka.demo.Archive")
+@Label("Archive")
+@Category({"Akka Demo", "Account Statement"})
+@Description("Archiving of a financial transaction, Merkle batch or block including compression, signing, mailbox queuing and the commit")
+@StackTrace(false)
+public class ArchiveEvent extends jdk.jfr.Event {
+
+    @Label("Account Statement Id")
+    String accountStatementId;
+
+    @Label("Transaction Id")
+    @Description("First financial transaction of a batch or block")
+    String transactionId;
+
+    @Label("Financial Transactions")
+    int financialTransactions;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public void finish(UUID accountStatementId, String transactionId, int financialTransactions, long bytes, boolean succeeded) {
+        end();
+        if (shouldCommit()) {
+            this.accountStatementId = accountStatementId.toString();
+            this.transactionId = transactionId;
+            this.financialTransactions = financialTransactions;
+            this.bytes = bytes;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package hu.upscale.akka.demo.jfr;
+
+import java.util.UUID;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Database round trip loading one page of a financial transaction chain.
+ *
+ * @author László Zoltán
+ */
+@Name("hu.upscale.akka.demo.ChainPageLoad")
+@Label("Chain Page Load")
+@Category({"Akka Demo", "Account Statement"})
+@Description("Database round trip loading one page of a financial transaction chain")
+@StackTrace(false)
+public class ChainPageLoadEvent extends jdk.jfr.Event {
+
+    @Label("Account Statement Id")
+    String accountStatementId;
+
+    @Label("Transaction Id")
+    @Description("Newest financial transaction of the page")
+    String transactionId;
+
+    @Label("Financial Transactions")
+    int financialTransactions;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    public void finish(UUID accountStatementId, String transactionId, int financialTransactions, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.accountStatementId = accountStatementId.toString();
+            this.transactionId = transactionId;
+            this.financialTransactions = financialTransactions;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package hu.upscale.akka.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Compression and digesting of one archive row or block on the compression dispatcher.
+ *
+ * @author László Zoltán
+ */
+@Name("hu.upscale.akka.demo.Compression")
+@Label("Compression")
+@Category({"Akka Demo", "Account Statement"})
+@Description("Compression and digesting of an archive row or block, the queue time is spent in the mailbox before")
+@StackTrace(false)
+public class CompressionEvent extends jdk.jfr.Event {
+
+    @Label("Account Statement Id")
+    String accountStatementId;
+
+    @Label("Transaction Id")
+    String transactionId;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Compressed Bytes")
+    @DataAmount
+    long compressedBytes;
+
+    @Label("Queue Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+
+    public void finish(String accountStatementId, String transactionId, long bytes, long compressedBytes, long queueTime) {
+        end();
+        if (shouldCommit()) {
+            this.accountStatementId = accountStatementId;
+            this.transactionId = transactionId;
+            this.bytes = bytes;
+            this.compressedBytes = compressedBytes;
+            this.queueTime = queueTime;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package hu.upscale.akka.demo.jfr;
+
+import akka.actor.ActorSystem;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.typesafe.config.Config;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Owns the single JDK Flight Recorder recording of the service. Every recording is bounded by <i>max-age</i> and <i>max-size</i>, so it can run
+ * continuously, and it can be dumped at any time while the older data is discarded.
+ * <p>
+ * Recordings only use the configurations built into the JDK, so a start request can not make the service read an arbitrary file. The events
+ * recording the environment variables and system properties of the JVM are always disabled, because the dumps leave the host and those values can
+ * hold credentials, e.g. the datasource password.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class FlightRecorderService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    private static final String ENABLED_CONFIG_KEY = "microservice.jfr.recording.enabled";
+    private static final String SETTINGS_CONFIG_KEY = "microservice.jfr.recording.settings";
+    private static final String MAX_AGE_CONFIG_KEY = "microservice.jfr.recording.max-age";
+    private static final String MAX_SIZE_CONFIG_KEY = "microservice.jfr.recording.max-size";
+    private static final String MAX_DURATION_CONFIG_KEY = "microservice.jfr.recording.max-duration";
+    private static final String DUMP_DIRECTORY_CONFIG_KEY = "microservice.jfr.dump-directory";
+
+    private static final String RECORDING_NAME = "account-service";
+    private static final Set<String> CONFIGURATION_NAMES = Set.of("default", "profile");
+    private static final Map<String, String> DISABLED_EVENT_SETTINGS = Map.of(
+        "jdk.InitialEnvironmentVariable#enabled", "false",
+        "jdk.InitialSystemProperty#enabled", "false"
+    );
+    private static final DateTimeFormatter DUMP_FILE_TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final String defaultSettings;
+    private final Duration maxAge;
+    private final long maxSize;
+    private final Duration maxDuration;
+    private final Path dumpDirectory;
+
+    private Recording recording;
+
+    @Inject
+    public FlightRecorderService(Config config, ActorSystem actorSystem) {
+        defaultSettings = config.getString(SETTINGS_CONFIG_KEY);
+        if (!CONFIGURATION_NAMES.contains(defaultSettings)) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + defaultSettings + ", expected one of " + CONFIGURATION_NAMES);
+        }
+        maxAge = config.getDuration(MAX_AGE_CONFIG_KEY);
+        maxSize = config.getBytes(MAX_SIZE_CONFIG_KEY);
+        maxDuration = config.getDuration(MAX_DURATION_CONFIG_KEY);
+        dumpDirectory = Paths.get(config.getString(DUMP_DIRECTORY_CONFIG_KEY));
+
+        if (config.getBoolean(ENABLED_CONFIG_KEY)) {
+            start(Optional.empty(), Optional.empty());
+        }
+
+        actorSystem.registerOnTermination(this::stop);
+    }
+
+    /**
+     * Replaces the current recording with a new one.
+     *
+     * @param duration the recording stops by itself after this time, it runs until it is stopped when empty. Capped by <i>max-duration</i>.
+     * @param settings name of a JDK configuration: <i>default</i> or <i>profile</i>
+     * @return the status of the new recording
+     * @throws IllegalArgumentException if the settings are not one of the JDK configurations
+     */
+    public synchronized FlightRecordingStatus start(Optional<Duration> duration, Optional<String> settings) {
+        String settingsName = settings.orElse(defaultSettings);
+        Map<String, String> recordingSettings = recordingSettings(settingsName);
+
+        closeRecording();
+
+        recording = new Recording(recordingSettings);
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSize);
+        duration.map(requestedDuration -> requestedDuration.compareTo(maxDuration) > 0 ? maxDuration : requestedDuration)
+            .ifPresent(recording::setDuration);
+        recording.start();
+
+        LOGGER.info("JFR recording started - settings: [{}], duration: [{}], maxAge: [{}], maxSize: [{}]", settingsName, recording.getDuration(),
+            maxAge, maxSize);
+
+        return status();
+    }
+
+    /**
+     * Writes the data kept by the current recording to a new file of the dump directory, the recording keeps running.
+     *
+     * @return the written file, empty if no recording has been started
+     */
+    public synchronized Optional<Path> dump() {
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return Optional.empty();
+        }
+
+        Path dumpFile = dumpDirectory.resolve(RECORDING_NAME + '-' + LocalDateTime.now().format(DUMP_FILE_TIMESTAMP_FORMATTER) + ".jfr");
+        try {
+            Files.createDirectories(dumpDirectory);
+            recording.dump(dumpFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to dump JFR recording to " + dumpFile, e);
+        }
+
+        LOGGER.info("JFR recording dumped - file: [{}]", dumpFile);
+        return Optional.of(dumpFile);
+    }
+
+    /**
+     * Stops and discards the current recording.
+     */
+    public synchronized void stop() {
+        if (recording != null) {
+            closeRecording();
+            LOGGER.info("JFR recording stopped");
+        }
+    }
+
+    public synchronized FlightRecordingStatus status() {
+        if (recording == null) {
+            return FlightRecordingStatus.builder().state(RecordingState.CLOSED.name()).build();
+        }
+
+        return FlightRecordingStatus.builder()
+            .state(recording.getState().name())
+            .startTime(recording.getStartTime())
+            .duration(recording.getDuration())
+            .maxAge(recording.getMaxAge())
+            .maxSize(recording.getMaxSize())
+            .size(recording.getSize())
+            .build();
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * @param settings name of a JDK configuration
+     * @return the event settings of the configuration, without the events recording the environment of the JVM
+     */
+    static Map<String, String> recordingSettings(String settings) {
+        if (!CONFIGURATION_NAMES.contains(settings)) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + settings + ", expected one of " + CONFIGURATION_NAMES);
+        }
+
+        Map<String, String> recordingSettings;
+        try {
+            recordingSettings = new HashMap<>(Configuration.getConfiguration(settings).getSettings());
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Failed to load JFR settings: " + settings, e);
+        }
+        recordingSettings.putAll(DISABLED_EVENT_SETTINGS);
+
+        return recordingSettings;
+    }
+}
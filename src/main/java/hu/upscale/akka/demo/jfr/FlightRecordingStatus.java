@@ -0,0 +1,34 @@
+package hu.upscale.akka.demo.jfr;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.Duration;
+import java.time.Instant;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * @author László Zoltán
+ */
+@Data
+@Builder
+public final class FlightRecordingStatus {
+
+    /**
+     * {@link jdk.jfr.RecordingState} of the recording, CLOSED when no recording has been started.
+     */
+    private final String state;
+    private final Instant startTime;
+    /**
+     * Empty when the recording runs until it is stopped.
+     */
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private final Duration duration;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private final Duration maxAge;
+    private final long maxSize;
+    /**
+     * Bytes written to the disk repository so far.
+     */
+    private final long size;
+
+}
@@ -0,0 +1,52 @@
+package hu.upscale.akka.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Creation of one signature on the crypto dispatcher.
+ *
+ * @author László Zoltán
+ */
+@Name("hu.upscale.akka.demo.Signing")
+@Label("Signing")
+@Category({"Akka Demo", "Account Statement"})
+@Description("Creation of a signature, the queue time is spent in the mailbox before")
+@StackTrace(false)
+public class SigningEvent extends jdk.jfr.Event {
+
+    @Label("Account Statement Id")
+    String accountStatementId;
+
+    @Label("Transaction Id")
+    String transactionId;
+
+    @Label("Signature Algorithm")
+    String signatureAlgorithm;
+
+    @Label("Bytes")
+    @Description("Size of the signed data or digest")
+    @DataAmount
+    long bytes;
+
+    @Label("Queue Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+
+    public void finish(String accountStatementId, String transactionId, String signatureAlgorithm, long bytes, long queueTime) {
+        end();
+        if (shouldCommit()) {
+            this.accountStatementId = accountStatementId;
+            this.transactionId = transactionId;
+            this.signatureAlgorithm = signatureAlgorithm;
+            this.bytes = bytes;
+            this.queueTime = queueTime;
+            commit();
+        }
+    }
+}
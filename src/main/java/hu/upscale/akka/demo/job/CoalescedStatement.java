@@ -0,0 +1,25 @@
+package hu.upscale.akka.demo.job;
+
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Outcome of a statement request: either the account statement already created for the chain, or the job generating it.
+ *
+ * @author László Zoltán
+ */
+@Data
+@Builder
+public final class CoalescedStatement {
+
+    /**
+     * Set when the statement of the chain has already been created, the request is answered from the result cache.
+     */
+    private final UUID accountStatementId;
+    /**
+     * Set when the statement is being generated, either by this request or by an earlier one for the same chain.
+     */
+    private final StatementJob statementJob;
+
+}
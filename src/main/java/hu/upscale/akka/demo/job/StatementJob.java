@@ -0,0 +1,108 @@
+package hu.upscale.akka.demo.job;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+/**
+ * Progress of one asynchronous account statement, updated by the generator and read by the status requests.
+ *
+ * @author László Zoltán
+ */
+public class StatementJob implements StatementProgressListener {
+
+    private final UUID jobId;
+    private final Instant startTime = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong financialTransactionsLoaded = new AtomicLong();
+    private final AtomicLong financialTransactionsArchived = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private volatile UUID accountStatementId;
+    private volatile boolean chainLoaded;
+    private volatile Instant finishTime;
+
+    StatementJob(UUID jobId) {
+        this.jobId = jobId;
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    /**
+     * @return completes with the id of the created account statement, fails with the failure of the generator
+     */
+    public CompletionStage<UUID> getAccountStatementId() {
+        return completion.thenApply(ignore -> accountStatementId);
+    }
+
+    @Override
+    public void started(UUID accountStatementId) {
+        this.accountStatementId = accountStatementId;
+    }
+
+    @Override
+    public void loaded(int financialTransactionCount) {
+        financialTransactionsLoaded.addAndGet(financialTransactionCount);
+    }
+
+    @Override
+    public void chainLoaded() {
+        chainLoaded = true;
+    }
+
+    @Override
+    public void archived(int financialTransactionCount, long bytes) {
+        financialTransactionsArchived.addAndGet(financialTransactionCount);
+        this.bytes.addAndGet(bytes);
+    }
+
+    @Override
+    public void finished(Throwable failure) {
+        finishTime = Instant.now();
+        if (failure != null) {
+            completion.completeExceptionally(failure);
+        } else {
+            completion.complete(null);
+        }
+    }
+
+    public StatementJobStatus status() {
+        long archived = financialTransactionsArchived.get();
+        long loaded = financialTransactionsLoaded.get();
+        StatementJobStatus.StatementJobStatusBuilder statementJobStatusBuilder = StatementJobStatus.builder()
+            .jobId(jobId)
+            .state(state())
+            .accountStatementId(accountStatementId)
+            .startTime(startTime)
+            .finishTime(finishTime)
+            .financialTransactionsLoaded(loaded)
+            .chainLoaded(chainLoaded)
+            .financialTransactionsArchived(archived)
+            .bytes(bytes.get());
+
+        if (completion.isCompletedExceptionally()) {
+            statementJobStatusBuilder.error(completion.handle((ignore, failure) -> ExceptionUtils.getRootCauseMessage(failure)).join());
+        } else if (!completion.isDone() && chainLoaded && archived > 0) {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            statementJobStatusBuilder.eta(Duration.ofNanos((long) ((double) elapsedNanos / archived * (loaded - archived))));
+        }
+
+        return statementJobStatusBuilder.build();
+    }
+
+    private StatementJobState state() {
+        if (!completion.isDone()) {
+            return accountStatementId == null ? StatementJobState.QUEUED : StatementJobState.RUNNING;
+        }
+
+        return completion.isCompletedExceptionally() ? StatementJobState.FAILED : StatementJobState.COMPLETED;
+    }
+
+}
@@ -0,0 +1,78 @@
+package hu.upscale.akka.demo.job;
+
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.stream.javadsl.Source;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.exception.AdmissionRejectedException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the asynchronous account statement jobs in memory. A finished job can be queried for <i>retention</i>, then it is forgotten.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class StatementJobRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementJobRegistry.class);
+
+    private static final String RETENTION_CONFIG_KEY = "microservice.account-statement.job.retention";
+    private static final String PROGRESS_INTERVAL_CONFIG_KEY = "microservice.account-statement.job.progress-interval";
+
+    private final Map<UUID, StatementJob> statementJobs = new ConcurrentHashMap<>();
+    private final ActorSystem actorSystem;
+    private final Duration retention;
+    private final Duration progressInterval;
+
+    @Inject
+    public StatementJobRegistry(Config config, ActorSystem actorSystem) {
+        this.actorSystem = actorSystem;
+        retention = config.getDuration(RETENTION_CONFIG_KEY);
+        progressInterval = config.getDuration(PROGRESS_INTERVAL_CONFIG_KEY);
+    }
+
+    public StatementJob create() {
+        StatementJob statementJob = new StatementJob(UUID.randomUUID());
+        statementJobs.put(statementJob.getJobId(), statementJob);
+        statementJob.getAccountStatementId().whenComplete((accountStatementId, failure) -> {
+            if (failure != null && ExceptionUtils.getRootCause(failure) instanceof AdmissionRejectedException) {
+                LOGGER.warn("Account statement job rejected - jobId: [{}], reason: [{}]", statementJob.getJobId(),
+                    ExceptionUtils.getRootCauseMessage(failure));
+            } else if (failure != null) {
+                LOGGER.error("Account statement job failed - jobId: [{}]", statementJob.getJobId(), failure);
+            } else {
+                LOGGER.info("Account statement job completed - jobId: [{}], accountStatementId: [{}]", statementJob.getJobId(), accountStatementId);
+            }
+            actorSystem.scheduler().scheduleOnce(retention, () -> statementJobs.remove(statementJob.getJobId()), actorSystem.dispatcher());
+        });
+
+        return statementJob;
+    }
+
+    public Optional<StatementJobStatus> status(UUID jobId) {
+        return Optional.ofNullable(statementJobs.get(jobId)).map(StatementJob::status);
+    }
+
+    /**
+     * @return the status of the job every <i>progress-interval</i>, the source completes after the final status of the job
+     */
+    public Optional<Source<StatementJobStatus, NotUsed>> progress(UUID jobId) {
+        return Optional.ofNullable(statementJobs.get(jobId))
+            .map(statementJob -> Source.tick(Duration.ZERO, progressInterval, NotUsed.notUsed())
+                .map(ignore -> statementJob.status())
+                .takeWhile(statementJobStatus -> !statementJobStatus.getState().isFinished(), true)
+                .mapMaterializedValue(ignore -> NotUsed.notUsed())
+            );
+    }
+
+}
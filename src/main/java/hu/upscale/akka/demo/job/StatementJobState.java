@@ -0,0 +1,20 @@
+package hu.upscale.akka.demo.job;
+
+/**
+ * @author László Zoltán
+ */
+public enum StatementJobState {
+
+    /**
+     * Waiting for admission, the generator has not picked up the job yet.
+     */
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+
+}
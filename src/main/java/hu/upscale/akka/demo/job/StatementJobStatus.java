@@ -0,0 +1,42 @@
+package hu.upscale.akka.demo.job;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * @author László Zoltán
+ */
+@Data
+@Builder
+public final class StatementJobStatus {
+
+    private final UUID jobId;
+    private final StatementJobState state;
+    /**
+     * Empty until the generator has picked up the job.
+     */
+    private final UUID accountStatementId;
+    private final Instant startTime;
+    private final Instant finishTime;
+    private final long financialTransactionsLoaded;
+    /**
+     * Whether the end of the chain has been reached, so <i>financialTransactionsLoaded</i> is the size of the statement.
+     */
+    private final boolean chainLoaded;
+    private final long financialTransactionsArchived;
+    /**
+     * Uncompressed size of the archived financial transactions.
+     */
+    private final long bytes;
+    /**
+     * Remaining time at the archiving rate of the job so far. Empty until the chain is loaded, because the chain length is not known before.
+     */
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private final Duration eta;
+    private final String error;
+
+}
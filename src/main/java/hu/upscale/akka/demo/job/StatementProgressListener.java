@@ -0,0 +1,40 @@
+package hu.upscale.akka.demo.job;
+
+import java.util.UUID;
+
+/**
+ * Follows the generation of one account statement. The callbacks are invoked from stream and future threads, implementations have to be thread
+ * safe.
+ *
+ * @author László Zoltán
+ */
+public interface StatementProgressListener {
+
+    StatementProgressListener NONE = new StatementProgressListener() {
+    };
+
+    default void started(UUID accountStatementId) {
+    }
+
+    /**
+     * A chain page has been loaded from the database.
+     */
+    default void loaded(int financialTransactionCount) {
+    }
+
+    /**
+     * The last financial transaction of the chain has been loaded, the size of the statement is known from now on.
+     */
+    default void chainLoaded() {
+    }
+
+    default void archived(int financialTransactionCount, long bytes) {
+    }
+
+    /**
+     * @param failure the cause of the failure, null if the statement has been created
+     */
+    default void finished(Throwable failure) {
+    }
+
+}
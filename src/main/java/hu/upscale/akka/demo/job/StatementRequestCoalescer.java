@@ -0,0 +1,148 @@
+package hu.upscale.akka.demo.job;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.typesafe.config.Config;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Makes statement creation idempotent per <i>lastTransactionId</i>. Concurrent requests for the same chain share the job of the first one
+ * (single-flight), because a second pipeline would race the first one on the financial transactions it is deleting. Created statements are
+ * remembered for <i>expire-after</i>, up to <i>max-entries</i> least recently used ones, so a replayed request gets the original account statement
+ * id without touching the database. A failed job is forgotten, so the request can be retried.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class StatementRequestCoalescer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementRequestCoalescer.class);
+
+    private static final String MAX_ENTRIES_CONFIG_KEY = "microservice.account-statement.idempotency.max-entries";
+    private static final String EXPIRE_AFTER_CONFIG_KEY = "microservice.account-statement.idempotency.expire-after";
+
+    private final int maxEntries;
+    private final long expireAfterNanos;
+
+    private final Map<UUID, CompletableFuture<Optional<StatementJob>>> runningStatementJobs = new ConcurrentHashMap<>();
+    private final LinkedHashMap<UUID, CreatedAccountStatement> createdAccountStatements = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, CreatedAccountStatement> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    @Inject
+    public StatementRequestCoalescer(Config config) {
+        maxEntries = config.getInt(MAX_ENTRIES_CONFIG_KEY);
+        expireAfterNanos = config.getDuration(EXPIRE_AFTER_CONFIG_KEY).toNanos();
+    }
+
+    /**
+     * @param starter starts a new job for the chain, empty if the statement can not be started. Called only if no statement of the chain is running
+     * or remembered, and at most once at a time for the same chain. It is not called inside a map operation, so it may block or fail.
+     * @return the created statement or the running job of the chain, empty if a new job was needed but the starter did not start it
+     */
+    public Optional<CoalescedStatement> coalesce(UUID lastTransactionId, Supplier<Optional<StatementJob>> starter) {
+        while (true) {
+            Optional<UUID> createdAccountStatementId = findCreatedAccountStatementId(lastTransactionId);
+            if (createdAccountStatementId.isPresent()) {
+                LOGGER.info("Account statement replayed from cache - lastTransactionId: [{}], accountStatementId: [{}]", lastTransactionId,
+                    createdAccountStatementId.get());
+                return createdAccountStatementId.map(accountStatementId ->
+                    CoalescedStatement.builder().accountStatementId(accountStatementId).build()
+                );
+            }
+
+            CompletableFuture<Optional<StatementJob>> startingStatementJob = new CompletableFuture<>();
+            CompletableFuture<Optional<StatementJob>> runningStatementJob = runningStatementJobs.putIfAbsent(lastTransactionId, startingStatementJob);
+            if (runningStatementJob == null) {
+                return start(lastTransactionId, startingStatementJob, starter);
+            }
+
+            // A starter that failed or did not start a job leaves the chain free, the request tries again with its own starter
+            Optional<StatementJob> statementJob = runningStatementJob.exceptionally(ignore -> Optional.empty()).join();
+            if (statementJob.isPresent()) {
+                LOGGER.info("Account statement request joined running job - lastTransactionId: [{}], jobId: [{}]", lastTransactionId,
+                    statementJob.get().getJobId());
+                return Optional.of(CoalescedStatement.builder().statementJob(statementJob.get()).build());
+            }
+        }
+    }
+
+    /**
+     * Runs the starter for the placeholder this request has put into the running jobs and completes the placeholder with its result, so the
+     * requests waiting on it join the job. The placeholder is removed again unless a job has been started.
+     */
+    private Optional<CoalescedStatement> start(UUID lastTransactionId, CompletableFuture<Optional<StatementJob>> startingStatementJob,
+        Supplier<Optional<StatementJob>> starter) {
+        // The statement may have been created since the lookup of the caller, it is looked up again before a new job is started
+        Optional<UUID> createdAccountStatementId = findCreatedAccountStatementId(lastTransactionId);
+        if (createdAccountStatementId.isPresent()) {
+            runningStatementJobs.remove(lastTransactionId, startingStatementJob);
+            startingStatementJob.complete(Optional.empty());
+            return createdAccountStatementId.map(accountStatementId -> CoalescedStatement.builder().accountStatementId(accountStatementId).build());
+        }
+
+        Optional<StatementJob> newStatementJob;
+        try {
+            newStatementJob = starter.get();
+        } catch (RuntimeException e) {
+            runningStatementJobs.remove(lastTransactionId, startingStatementJob);
+            startingStatementJob.completeExceptionally(e);
+            throw e;
+        }
+
+        if (newStatementJob.isEmpty()) {
+            runningStatementJobs.remove(lastTransactionId, startingStatementJob);
+            startingStatementJob.complete(Optional.empty());
+            return Optional.empty();
+        }
+
+        StatementJob statementJob = newStatementJob.get();
+        statementJob.getAccountStatementId().whenComplete((accountStatementId, failure) -> {
+            if (failure == null) {
+                remember(lastTransactionId, accountStatementId);
+            }
+            runningStatementJobs.remove(lastTransactionId, startingStatementJob);
+        });
+        startingStatementJob.complete(newStatementJob);
+
+        return Optional.of(CoalescedStatement.builder().statementJob(statementJob).build());
+    }
+
+    private synchronized Optional<UUID> findCreatedAccountStatementId(UUID lastTransactionId) {
+        CreatedAccountStatement createdAccountStatement = createdAccountStatements.get(lastTransactionId);
+        if (createdAccountStatement == null) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - createdAccountStatement.getCreatedNanos() > expireAfterNanos) {
+            createdAccountStatements.remove(lastTransactionId);
+            return Optional.empty();
+        }
+
+        return Optional.of(createdAccountStatement.getAccountStatementId());
+    }
+
+    private synchronized void remember(UUID lastTransactionId, UUID accountStatementId) {
+        createdAccountStatements.put(lastTransactionId, new CreatedAccountStatement(accountStatementId, System.nanoTime()));
+    }
+
+    @Data
+    private static final class CreatedAccountStatement {
+
+        private final UUID accountStatementId;
+        private final long createdNanos;
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package hu.upscale.akka.demo.metrics;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+import java.util.List;
+
+/**
+ * Publishes the state of the Hikari connection pool, read from the same {@link HikariPoolMXBean} that is registered in JMX. Connection acquisition is
+ * not tracked per call, the pool is only inspected when the registry is scraped.
+ *
+ * @author László Zoltán
+ */
+public class HikariPoolCollector extends Collector {
+
+    private static final List<String> LABEL_NAMES = List.of("pool");
+
+    private final HikariPoolMXBean hikariPoolMXBean;
+    private final List<String> labelValues;
+
+    public HikariPoolCollector(String poolName, HikariPoolMXBean hikariPoolMXBean) {
+        this.hikariPoolMXBean = hikariPoolMXBean;
+        labelValues = List.of(poolName);
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        return List.of(
+            gauge("hikaricp_connections_active", "Connections in use", hikariPoolMXBean.getActiveConnections()),
+            gauge("hikaricp_connections_idle", "Idle connections", hikariPoolMXBean.getIdleConnections()),
+            gauge("hikaricp_connections", "Connections in the pool", hikariPoolMXBean.getTotalConnections()),
+            gauge("hikaricp_connections_pending", "Threads waiting for a connection", hikariPoolMXBean.getThreadsAwaitingConnection())
+        );
+    }
+
+    private GaugeMetricFamily gauge(String name, String help, int value) {
+        return new GaugeMetricFamily(name, help, LABEL_NAMES).addMetric(labelValues, value);
+    }
+}
@@ -0,0 +1,154 @@
+package hu.upscale.akka.demo.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.Histogram;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Prometheus metrics of the account statement pipeline. The recorders are called on the hot path, so they only update striped adders: histogram and
+ * counter children resolved up front and {@link LongAdder} backed gauges, nothing is allocated or locked per call. The gauges are read when the
+ * registry is scraped.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class PipelineMetrics {
+
+    private static final double NANOS_IN_SECOND = 1_000_000_000.0;
+
+    private static final double[] STAGE_BUCKETS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0};
+    private static final double[] STATEMENT_BUCKETS = {0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0, 25.0, 50.0, 100.0, 250.0, 500.0};
+
+    private final Histogram.Child chainPageLoadSeconds;
+    private final Counter.Child chainRowsLoaded;
+    private final Histogram.Child compressionSeconds;
+    private final Counter.Child compressionInputBytes;
+    private final Counter.Child compressionOutputBytes;
+    private final Histogram.Child signingSeconds;
+    private final Histogram.Child archiveCommitSeconds;
+    private final Histogram.Child succeededStatementSeconds;
+    private final Histogram.Child failedStatementSeconds;
+    private final Counter.Child rejectedStatements;
+
+    private final LongAdder inFlightStatements = new LongAdder();
+    private final LongAdder queuedFinancialTransactions = new LongAdder();
+    private volatile IntSupplier archiveWriteQueueSize = () -> 0;
+    private volatile IntSupplier admissionQueueSize = () -> 0;
+
+    @Inject
+    public PipelineMetrics(CollectorRegistry collectorRegistry) {
+        chainPageLoadSeconds = Histogram.build("account_statement_chain_page_load_seconds",
+                "Time of loading one page of a financial transaction chain")
+            .buckets(STAGE_BUCKETS)
+            .register(collectorRegistry)
+            .labels();
+        chainRowsLoaded = Counter.build("account_statement_chain_rows_loaded_total", "Financial transactions loaded from the chains")
+            .register(collectorRegistry)
+            .labels();
+        compressionSeconds = Histogram.build("account_statement_compression_seconds", "Time of compressing and digesting one archive row or block")
+            .buckets(STAGE_BUCKETS)
+            .register(collectorRegistry)
+            .labels();
+        compressionInputBytes = Counter.build("account_statement_compression_input_bytes_total", "Raw bytes passed to the compression")
+            .register(collectorRegistry)
+            .labels();
+        compressionOutputBytes = Counter.build("account_statement_compression_output_bytes_total", "Compressed bytes produced by the compression")
+            .register(collectorRegistry)
+            .labels();
+        signingSeconds = Histogram.build("account_statement_signing_seconds", "Time of creating one signature")
+            .buckets(STAGE_BUCKETS)
+            .register(collectorRegistry)
+            .labels();
+        archiveCommitSeconds = Histogram.build("account_statement_archive_commit_seconds", "Time of committing one archive write window or block")
+            .buckets(STAGE_BUCKETS)
+            .register(collectorRegistry)
+            .labels();
+
+        Histogram statementSeconds = Histogram.build("account_statement_seconds", "End-to-end time of generating an account statement")
+            .labelNames("outcome")
+            .buckets(STATEMENT_BUCKETS)
+            .register(collectorRegistry);
+        succeededStatementSeconds = statementSeconds.labels("success");
+        failedStatementSeconds = statementSeconds.labels("failure");
+        rejectedStatements = Counter.build("account_statement_admission_rejected_total",
+                "Account statements rejected because the admission queue was full or the wait timed out")
+            .register(collectorRegistry)
+            .labels();
+
+        new PipelineGauges().register(collectorRegistry);
+    }
+
+    public void recordChainPageLoad(long nanos, int rows) {
+        chainPageLoadSeconds.observe(nanos / NANOS_IN_SECOND);
+        chainRowsLoaded.inc(rows);
+    }
+
+    public void recordCompression(long nanos, int inputBytes, int outputBytes) {
+        compressionSeconds.observe(nanos / NANOS_IN_SECOND);
+        compressionInputBytes.inc(inputBytes);
+        compressionOutputBytes.inc(outputBytes);
+    }
+
+    public void recordSigning(long nanos) {
+        signingSeconds.observe(nanos / NANOS_IN_SECOND);
+    }
+
+    public void recordArchiveCommit(long nanos) {
+        archiveCommitSeconds.observe(nanos / NANOS_IN_SECOND);
+    }
+
+    public void statementStarted() {
+        inFlightStatements.increment();
+    }
+
+    public void statementFinished(long nanos, boolean succeeded) {
+        inFlightStatements.decrement();
+        (succeeded ? succeededStatementSeconds : failedStatementSeconds).observe(nanos / NANOS_IN_SECOND);
+    }
+
+    public void admissionRejected() {
+        rejectedStatements.inc();
+    }
+
+    /**
+     * @param financialTransactions change of the number of financial transactions waiting in the source queues of the running statements
+     */
+    public void addQueuedFinancialTransactions(int financialTransactions) {
+        queuedFinancialTransactions.add(financialTransactions);
+    }
+
+    /**
+     * @param archiveWriteQueueSize size of the queue in front of the archive write windows, read on every scrape
+     */
+    public void setArchiveWriteQueueSize(IntSupplier archiveWriteQueueSize) {
+        this.archiveWriteQueueSize = archiveWriteQueueSize;
+    }
+
+    /**
+     * @param admissionQueueSize number of account statements waiting for admission, read on every scrape
+     */
+    public void setAdmissionQueueSize(IntSupplier admissionQueueSize) {
+        this.admissionQueueSize = admissionQueueSize;
+    }
+
+    private final class PipelineGauges extends Collector {
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            return List.of(
+                new GaugeMetricFamily("account_statement_in_flight", "Account statements being generated", inFlightStatements.sum()),
+                new GaugeMetricFamily("account_statement_queued_financial_transactions",
+                    "Financial transactions waiting in the source queues of the running account statements", queuedFinancialTransactions.sum()),
+                new GaugeMetricFamily("archive_write_queued_moves", "Archive moves waiting for a write window", archiveWriteQueueSize.getAsInt()),
+                new GaugeMetricFamily("account_statement_admission_queued", "Account statements waiting for admission", admissionQueueSize.getAsInt())
+            );
+        }
+    }
+}
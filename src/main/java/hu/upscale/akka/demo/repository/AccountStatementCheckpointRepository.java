@@ -0,0 +1,59 @@
+package hu.upscale.akka.demo.repository;
+
+import hu.upscale.akka.demo.entity.AccountStatementCheckpoint;
+import hu.upscale.akka.demo.entity.ArchivedChainSegment;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Keeps the checkpoints of the account statements being generated in <b>demo.AccountStatementCheckpoint</b>. A checkpoint is written in its own
+ * commit after the archive moves it covers, so it never claims more than what is archived.
+ *
+ * @author László Zoltán
+ */
+public interface AccountStatementCheckpointRepository {
+
+    String INSERT_ACCOUNT_STATEMENT_CHECKPOINT
+        = "INSERT INTO demo.AccountStatementCheckpoint (AccountStatementId, LastTransactionId, LastArchivedTransactionNumber, NextTransactionId, "
+        + "NextBlockNumber, UpdatedAt) VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+    String UPDATE_ACCOUNT_STATEMENT_CHECKPOINT
+        = "UPDATE demo.AccountStatementCheckpoint SET LastArchivedTransactionNumber = ?, NextTransactionId = ?, NextBlockNumber = ?, "
+        + "UpdatedAt = CURRENT_TIMESTAMP WHERE AccountStatementId = ?";
+    String DELETE_ACCOUNT_STATEMENT_CHECKPOINT
+        = "DELETE FROM demo.AccountStatementCheckpoint WHERE AccountStatementId = ?";
+    String SELECT_ACCOUNT_STATEMENT_CHECKPOINT
+        = "SELECT AccountStatementId, LastTransactionId, LastArchivedTransactionNumber, NextTransactionId, NextBlockNumber "
+        + "FROM demo.AccountStatementCheckpoint WHERE AccountStatementId = ?";
+    String SELECT_ARCHIVED_CHAIN_SEGMENTS
+        = "SELECT TransactionNumber AS FirstTransactionNumber, 1 AS TransactionCount, CAST(NULL AS INT) AS BlockNumber, PreviousTransactionId "
+        + "FROM demo.ArchiveFinancialTransaction WHERE AccountStatementId = ? AND TransactionNumber > ? "
+        + "UNION ALL "
+        + "SELECT FirstTransactionNumber, TransactionCount, BlockNumber, PreviousTransactionId "
+        + "FROM demo.ArchiveFinancialTransactionBlock WHERE AccountStatementId = ? AND FirstTransactionNumber > ? "
+        + "ORDER BY FirstTransactionNumber";
+
+    /**
+     * Saves the first checkpoint of a statement, before anything is archived.
+     */
+    CompletionStage<Void> insertCheckpoint(AccountStatementCheckpoint accountStatementCheckpoint);
+
+    CompletionStage<Void> updateCheckpoint(AccountStatementCheckpoint accountStatementCheckpoint);
+
+    /**
+     * Deletes the checkpoint of a completed statement.
+     */
+    CompletionStage<Void> deleteCheckpoint(String accountStatementId);
+
+    CompletionStage<Optional<AccountStatementCheckpoint>> findCheckpoint(String accountStatementId);
+
+    /**
+     * Archive moves of the statement may be committed after the checkpoint and out of order, so the archive rows and blocks beyond it are read
+     * back when the statement is resumed.
+     *
+     * @param afterTransactionNumber last archived transaction number of the checkpoint
+     * @return the archive rows and blocks of the statement starting after the given transaction number, in transaction number order
+     */
+    CompletionStage<List<ArchivedChainSegment>> findArchivedChainSegments(String accountStatementId, int afterTransactionNumber);
+
+}
@@ -0,0 +1,43 @@
+package hu.upscale.akka.demo.repository;
+
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Moves financial transactions from <b>demo.FinancialTransaction</b> into the archive tables.
+ *
+ * @author László Zoltán
+ */
+public interface ArchiveRepository {
+
+    String DELETE_FINANCIAL_TRANSACTION_BY_TRANSACTION_ID
+        = "DELETE FROM demo.FinancialTransaction WHERE TransactionId = ?";
+    String INSERT_ARCHIVE_FINANCIAL_TRANSACTION
+        = "INSERT INTO demo.ArchiveFinancialTransaction (AccountStatementId, TransactionId, TransactionNumber, PreviousTransactionId, "
+        + "CompressedData, CompressionDictionaryId, Signature, SignatureAlgorithm, InclusionProof) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    String INSERT_ARCHIVE_FINANCIAL_TRANSACTION_BLOCK
+        = "INSERT INTO demo.ArchiveFinancialTransactionBlock (AccountStatementId, BlockNumber, FirstTransactionNumber, TransactionCount, "
+        + "PreviousTransactionId, OffsetIndex, CompressedData, CompressionDictionaryId, Signature, SignatureAlgorithm) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Deletes the financial transactions and inserts their archived form in a single commit.
+     *
+     * @param archiveFinancialTransactions archived form of the financial transactions
+     * @return completes when the moves have been committed, fails with {@link hu.upscale.akka.demo.exception.DbException} after a rollback
+     */
+    CompletionStage<Void> moveFinancialTransactionsToArchive(List<ArchiveFinancialTransaction> archiveFinancialTransactions);
+
+    /**
+     * Deletes the packed financial transactions and inserts the archive block in a single commit.
+     *
+     * @param archiveFinancialTransactionBlock archive block
+     * @param transactionIds ids of the financial transactions packed into the block
+     * @return completes when the block has been committed, fails with {@link hu.upscale.akka.demo.exception.DbException} after a rollback
+     */
+    CompletionStage<Void> moveFinancialTransactionBlockToArchive(ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock,
+        List<String> transactionIds);
+
+}
@@ -0,0 +1,42 @@
+package hu.upscale.akka.demo.repository;
+
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Reads the financial transaction chain of an account statement.
+ *
+ * @author László Zoltán
+ */
+public interface FinancialTransactionRepository {
+
+    /**
+     * Walks at most <i>pageSize</i> links of the chain backwards from the given transaction in a single round trip. The recursion only carries the
+     * identifiers, the payload is joined once per link at the end.
+     *
+     * @param transactionId id of the newest financial transaction of the page
+     * @param pageSize maximum number of financial transactions returned
+     * @return the financial transactions in chain order, fails with {@link hu.upscale.akka.demo.exception.DbException} if the transaction is
+     * missing
+     */
+    CompletionStage<List<FinancialTransaction>> findFinancialTransactionChainPage(String transactionId, int pageSize);
+
+    /**
+     * @param sqlDialect dialect of the database
+     * @return the chain page query with JDBC bind markers: transaction id, page size
+     */
+    static String selectFinancialTransactionChainPage(SqlDialect sqlDialect) {
+        return sqlDialect.getRecursiveCommonTableExpression() + " Chain (TransactionId, PreviousTransactionId, Depth) AS ("
+            + "SELECT TransactionId, PreviousTransactionId, 1 FROM demo.FinancialTransaction WHERE TransactionId = ? "
+            + "UNION ALL "
+            + "SELECT ft.TransactionId, ft.PreviousTransactionId, c.Depth + 1 FROM demo.FinancialTransaction ft "
+            + "INNER JOIN Chain c ON ft.TransactionId = c.PreviousTransactionId WHERE c.Depth < ?"
+            + ") "
+            + "SELECT c.TransactionId, c.PreviousTransactionId, ft.Data FROM Chain c "
+            + "INNER JOIN demo.FinancialTransaction ft ON ft.TransactionId = c.TransactionId "
+            + "ORDER BY c.Depth"
+            + sqlDialect.getRecursionHint();
+    }
+
+}
@@ -0,0 +1,150 @@
+package hu.upscale.akka.demo.repository;
+
+import hu.upscale.akka.demo.entity.AccountStatementCheckpoint;
+import hu.upscale.akka.demo.entity.ArchivedChainSegment;
+import hu.upscale.akka.demo.exception.DbException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import javax.sql.DataSource;
+
+/**
+ * Blocking JDBC implementation, every statement runs in auto-commit mode on the JDBC executor.
+ *
+ * @author László Zoltán
+ */
+public class JdbcAccountStatementCheckpointRepository implements AccountStatementCheckpointRepository {
+
+    private final DataSource dataSource;
+    private final Executor jdbcExecutor;
+
+    public JdbcAccountStatementCheckpointRepository(DataSource dataSource, Executor jdbcExecutor) {
+        this.dataSource = dataSource;
+        this.jdbcExecutor = jdbcExecutor;
+    }
+
+    @Override
+    public CompletionStage<Void> insertCheckpoint(AccountStatementCheckpoint accountStatementCheckpoint) {
+        return CompletableFuture.runAsync(() -> {
+            try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(INSERT_ACCOUNT_STATEMENT_CHECKPOINT)
+            ) {
+                connection.setAutoCommit(true);
+                preparedStatement.setString(1, accountStatementCheckpoint.getAccountStatementId());
+                preparedStatement.setString(2, accountStatementCheckpoint.getLastTransactionId());
+                preparedStatement.setInt(3, accountStatementCheckpoint.getLastArchivedTransactionNumber());
+                preparedStatement.setString(4, accountStatementCheckpoint.getNextTransactionId());
+                preparedStatement.setInt(5, accountStatementCheckpoint.getNextBlockNumber());
+                preparedStatement.execute();
+            } catch (SQLException e) {
+                throw new DbException("Failed to insert account statement checkpoint", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    @Override
+    public CompletionStage<Void> updateCheckpoint(AccountStatementCheckpoint accountStatementCheckpoint) {
+        return CompletableFuture.runAsync(() -> {
+            try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_ACCOUNT_STATEMENT_CHECKPOINT)
+            ) {
+                connection.setAutoCommit(true);
+                preparedStatement.setInt(1, accountStatementCheckpoint.getLastArchivedTransactionNumber());
+                preparedStatement.setString(2, accountStatementCheckpoint.getNextTransactionId());
+                preparedStatement.setInt(3, accountStatementCheckpoint.getNextBlockNumber());
+                preparedStatement.setString(4, accountStatementCheckpoint.getAccountStatementId());
+                preparedStatement.execute();
+            } catch (SQLException e) {
+                throw new DbException("Failed to update account statement checkpoint", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    @Override
+    public CompletionStage<Void> deleteCheckpoint(String accountStatementId) {
+        return CompletableFuture.runAsync(() -> {
+            try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(DELETE_ACCOUNT_STATEMENT_CHECKPOINT)
+            ) {
+                connection.setAutoCommit(true);
+                preparedStatement.setString(1, accountStatementId);
+                preparedStatement.execute();
+            } catch (SQLException e) {
+                throw new DbException("Failed to delete account statement checkpoint", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    @Override
+    public CompletionStage<Optional<AccountStatementCheckpoint>> findCheckpoint(String accountStatementId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ACCOUNT_STATEMENT_CHECKPOINT)
+            ) {
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                preparedStatement.setString(1, accountStatementId);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return Optional.empty();
+                    }
+
+                    return Optional.of(AccountStatementCheckpoint.builder()
+                        .accountStatementId(resultSet.getString(AccountStatementCheckpoint.ACCOUNT_STATEMENT_ID_COLUMN_NAME))
+                        .lastTransactionId(resultSet.getString(AccountStatementCheckpoint.LAST_TRANSACTION_ID_COLUMN_NAME))
+                        .lastArchivedTransactionNumber(resultSet.getInt(AccountStatementCheckpoint.LAST_ARCHIVED_TRANSACTION_NUMBER_COLUMN_NAME))
+                        .nextTransactionId(resultSet.getString(AccountStatementCheckpoint.NEXT_TRANSACTION_ID_COLUMN_NAME))
+                        .nextBlockNumber(resultSet.getInt(AccountStatementCheckpoint.NEXT_BLOCK_NUMBER_COLUMN_NAME))
+                        .build());
+                }
+            } catch (SQLException e) {
+                throw new DbException("Failed to select account statement checkpoint", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    @Override
+    public CompletionStage<List<ArchivedChainSegment>> findArchivedChainSegments(String accountStatementId, int afterTransactionNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ARCHIVED_CHAIN_SEGMENTS)
+            ) {
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                preparedStatement.setString(1, accountStatementId);
+                preparedStatement.setInt(2, afterTransactionNumber);
+                preparedStatement.setString(3, accountStatementId);
+                preparedStatement.setInt(4, afterTransactionNumber);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    List<ArchivedChainSegment> archivedChainSegments = new ArrayList<>();
+                    while (resultSet.next()) {
+                        int blockNumber = resultSet.getInt(ArchivedChainSegment.BLOCK_NUMBER_COLUMN_NAME);
+                        boolean archiveRow = resultSet.wasNull();
+                        archivedChainSegments.add(ArchivedChainSegment.builder()
+                            .firstTransactionNumber(resultSet.getInt(ArchivedChainSegment.FIRST_TRANSACTION_NUMBER_COLUMN_NAME))
+                            .transactionCount(resultSet.getInt(ArchivedChainSegment.TRANSACTION_COUNT_COLUMN_NAME))
+                            .blockNumber(archiveRow ? null : blockNumber)
+                            .previousTransactionId(resultSet.getString(ArchivedChainSegment.PREVIOUS_TRANSACTION_ID_COLUMN_NAME))
+                            .build());
+                    }
+
+                    return archivedChainSegments;
+                }
+            } catch (SQLException e) {
+                throw new DbException("Failed to select archived chain segments", e);
+            }
+        }, jdbcExecutor);
+    }
+}
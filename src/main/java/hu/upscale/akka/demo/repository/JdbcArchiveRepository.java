@@ -0,0 +1,139 @@
+package hu.upscale.akka.demo.repository;
+
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.exception.DbException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+
+/**
+ * Blocking JDBC implementation: one JDBC batch for the deletes, one for the inserts and a single commit, executed on the JDBC executor. The move is
+ * rolled back if any of the financial transactions is no longer in the chain, e.g. because a concurrent or resumed run has already archived it.
+ *
+ * @author László Zoltán
+ */
+public class JdbcArchiveRepository implements ArchiveRepository {
+
+    private final DataSource dataSource;
+    private final Executor jdbcExecutor;
+
+    public JdbcArchiveRepository(DataSource dataSource, Executor jdbcExecutor) {
+        this.dataSource = dataSource;
+        this.jdbcExecutor = jdbcExecutor;
+    }
+
+    @Override
+    public CompletionStage<Void> moveFinancialTransactionsToArchive(List<ArchiveFinancialTransaction> archiveFinancialTransactions) {
+        return CompletableFuture.runAsync(() -> {
+            try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement deletePreparedStatement = connection.prepareStatement(DELETE_FINANCIAL_TRANSACTION_BY_TRANSACTION_ID);
+                PreparedStatement insertPreparedStatement = connection.prepareStatement(INSERT_ARCHIVE_FINANCIAL_TRANSACTION)
+            ) {
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                connection.setAutoCommit(false);
+
+                try {
+                    for (ArchiveFinancialTransaction archiveFinancialTransaction : archiveFinancialTransactions) {
+                        deletePreparedStatement.setString(1, archiveFinancialTransaction.getTransactionId());
+                        deletePreparedStatement.addBatch();
+
+                        setInsertParameters(insertPreparedStatement, archiveFinancialTransaction);
+                        insertPreparedStatement.addBatch();
+                    }
+
+                    verifyDeleted(deletePreparedStatement.executeBatch(), archiveFinancialTransactions.stream()
+                        .map(ArchiveFinancialTransaction::getTransactionId)
+                        .collect(Collectors.toList()));
+                    insertPreparedStatement.executeBatch();
+
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                throw new DbException("Failed to move financial transactions to archive", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    @Override
+    public CompletionStage<Void> moveFinancialTransactionBlockToArchive(ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock,
+        List<String> transactionIds) {
+        return CompletableFuture.runAsync(() -> {
+            try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement deletePreparedStatement = connection.prepareStatement(DELETE_FINANCIAL_TRANSACTION_BY_TRANSACTION_ID);
+                PreparedStatement insertPreparedStatement = connection.prepareStatement(INSERT_ARCHIVE_FINANCIAL_TRANSACTION_BLOCK)
+            ) {
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                connection.setAutoCommit(false);
+
+                try {
+                    for (String transactionId : transactionIds) {
+                        deletePreparedStatement.setString(1, transactionId);
+                        deletePreparedStatement.addBatch();
+                    }
+                    verifyDeleted(deletePreparedStatement.executeBatch(), transactionIds);
+
+                    insertPreparedStatement.setString(1, archiveFinancialTransactionBlock.getAccountStatementId());
+                    insertPreparedStatement.setInt(2, archiveFinancialTransactionBlock.getBlockNumber());
+                    insertPreparedStatement.setInt(3, archiveFinancialTransactionBlock.getFirstTransactionNumber());
+                    insertPreparedStatement.setInt(4, archiveFinancialTransactionBlock.getTransactionCount());
+                    insertPreparedStatement.setString(5, archiveFinancialTransactionBlock.getPreviousTransactionId());
+                    insertPreparedStatement.setBytes(6, archiveFinancialTransactionBlock.getOffsetIndex());
+                    insertPreparedStatement.setBytes(7, archiveFinancialTransactionBlock.getCompressedData());
+                    setNullableInt(insertPreparedStatement, 8, archiveFinancialTransactionBlock.getCompressionDictionaryId());
+                    insertPreparedStatement.setBytes(9, archiveFinancialTransactionBlock.getSignature());
+                    insertPreparedStatement.setInt(10, archiveFinancialTransactionBlock.getSignatureAlgorithm().getId());
+                    insertPreparedStatement.execute();
+
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                throw new DbException("Failed to move financial transaction block to archive", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    private static void verifyDeleted(int[] deletedRows, List<String> transactionIds) throws SQLException {
+        for (int i = 0; i < deletedRows.length; i++) {
+            if (deletedRows[i] != 1) {
+                throw new SQLException("Financial transaction is no longer in the chain - transactionId: [" + transactionIds.get(i) + "]");
+            }
+        }
+    }
+
+    private static void setInsertParameters(PreparedStatement insertPreparedStatement, ArchiveFinancialTransaction archiveFinancialTransaction)
+        throws SQLException {
+        insertPreparedStatement.setString(1, archiveFinancialTransaction.getAccountStatementId());
+        insertPreparedStatement.setString(2, archiveFinancialTransaction.getTransactionId());
+        insertPreparedStatement.setInt(3, archiveFinancialTransaction.getTransactionNumber());
+        insertPreparedStatement.setString(4, archiveFinancialTransaction.getPreviousTransactionId());
+        insertPreparedStatement.setBytes(5, archiveFinancialTransaction.getCompressedData());
+        setNullableInt(insertPreparedStatement, 6, archiveFinancialTransaction.getCompressionDictionaryId());
+        insertPreparedStatement.setBytes(7, archiveFinancialTransaction.getSignature());
+        insertPreparedStatement.setInt(8, archiveFinancialTransaction.getSignatureAlgorithm().getId());
+        insertPreparedStatement.setBytes(9, archiveFinancialTransaction.getInclusionProof());
+    }
+
+    private static void setNullableInt(PreparedStatement preparedStatement, int parameterIndex, Integer value) throws SQLException {
+        if (value != null) {
+            preparedStatement.setInt(parameterIndex, value);
+        } else {
+            preparedStatement.setNull(parameterIndex, Types.INTEGER);
+        }
+    }
+}
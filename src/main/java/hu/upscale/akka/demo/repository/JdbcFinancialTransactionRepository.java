@@ -0,0 +1,77 @@
+package hu.upscale.akka.demo.repository;
+
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import hu.upscale.akka.demo.exception.DbException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Blocking JDBC implementation, every query occupies a thread of the JDBC executor for its whole round trip.
+ *
+ * @author László Zoltán
+ */
+public class JdbcFinancialTransactionRepository implements FinancialTransactionRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcFinancialTransactionRepository.class);
+
+    private final DataSource dataSource;
+    private final Executor jdbcExecutor;
+    private final String selectFinancialTransactionChainPage;
+
+    public JdbcFinancialTransactionRepository(DataSource dataSource, Executor jdbcExecutor, SqlDialect sqlDialect) {
+        this.dataSource = dataSource;
+        this.jdbcExecutor = jdbcExecutor;
+        selectFinancialTransactionChainPage = FinancialTransactionRepository.selectFinancialTransactionChainPage(sqlDialect);
+    }
+
+    @Override
+    public CompletionStage<List<FinancialTransaction>> findFinancialTransactionChainPage(String transactionId, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(selectFinancialTransactionChainPage)
+            ) {
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                preparedStatement.setString(1, transactionId);
+                preparedStatement.setInt(2, pageSize);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    List<FinancialTransaction> financialTransactionChainPage = new ArrayList<>(pageSize);
+                    while (resultSet.next()) {
+                        financialTransactionChainPage.add(resultSetToFinancialTransaction(resultSet));
+                    }
+
+                    if (financialTransactionChainPage.isEmpty()) {
+                        throw new SQLException("No financial transaction found for id: " + transactionId);
+                    }
+
+                    return financialTransactionChainPage;
+                }
+            } catch (SQLException e) {
+                throw new DbException("Failed to select financial transaction chain page by id", e);
+            }
+        }, jdbcExecutor);
+    }
+
+    private FinancialTransaction resultSetToFinancialTransaction(ResultSet resultSet) throws SQLException {
+        FinancialTransaction financialTransaction = FinancialTransaction.builder()
+            .transactionId(resultSet.getString(FinancialTransaction.TRANSACTION_ID_COLUMN_NAME))
+            .previousTransactionId(resultSet.getString(FinancialTransaction.PREVIOUS_TRANSACTION_ID_COLUMN_NAME))
+            .data(resultSet.getBytes(FinancialTransaction.DATA_COLUMN_NAME))
+            .build();
+
+        LOGGER.debug("Financial transaction found - transactionId: [{}]", financialTransaction.getTransactionId());
+
+        return financialTransaction;
+    }
+}
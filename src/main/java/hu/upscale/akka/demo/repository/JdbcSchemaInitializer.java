@@ -0,0 +1,50 @@
+package hu.upscale.akka.demo.repository;
+
+import hu.upscale.akka.demo.exception.DbException;
+import hu.upscale.akka.demo.util.ResourceUtil;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+
+/**
+ * Creates the demo tables in the in-process database used instead of MS SQL Server, e.g. <i>jdbc:h2:mem:rxjava;MODE=MSSQLServer</i>. The script is a
+ * class path resource of semicolon separated statements.
+ *
+ * @author László Zoltán
+ */
+public final class JdbcSchemaInitializer {
+
+    private JdbcSchemaInitializer() {
+        // Static class
+    }
+
+    /**
+     * @param dataSource data source of the database
+     * @param schemaResource class path resource of the schema script
+     */
+    public static void initialize(DataSource dataSource, String schemaResource) {
+        List<String> statements = Arrays.stream(ResourceUtil.readResourceFileAsString(schemaResource, StandardCharsets.UTF_8).split(";"))
+            .map(String::strip)
+            .filter(Predicate.not(String::isEmpty))
+            .collect(Collectors.toList());
+
+        try (
+            Connection connection = dataSource.getConnection();
+            Statement statement = connection.createStatement()
+        ) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            throw new DbException("Failed to initialize schema: " + schemaResource, e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package hu.upscale.akka.demo.repository;
+
+/**
+ * Database access used by the account statement generation.
+ *
+ * @author László Zoltán
+ */
+public enum PersistenceEngine {
+
+    /**
+     * Blocking JDBC calls executed on the JDBC executor.
+     */
+    JDBC,
+
+    /**
+     * Non-blocking R2DBC calls, the results are consumed through Reactive Streams by Akka Streams.
+     */
+    R2DBC
+
+}
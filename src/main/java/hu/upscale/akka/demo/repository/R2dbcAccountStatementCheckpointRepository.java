@@ -0,0 +1,120 @@
+package hu.upscale.akka.demo.repository;
+
+import akka.stream.Materializer;
+import hu.upscale.akka.demo.entity.AccountStatementCheckpoint;
+import hu.upscale.akka.demo.entity.ArchivedChainSegment;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking R2DBC implementation, every statement runs in auto-commit mode without holding a thread while the database works.
+ *
+ * @author László Zoltán
+ */
+public class R2dbcAccountStatementCheckpointRepository implements AccountStatementCheckpointRepository {
+
+    private final ConnectionFactory connectionFactory;
+    private final Materializer materializer;
+    private final String insertAccountStatementCheckpoint;
+    private final String updateAccountStatementCheckpoint;
+    private final String deleteAccountStatementCheckpoint;
+    private final String selectAccountStatementCheckpoint;
+    private final String selectArchivedChainSegments;
+
+    public R2dbcAccountStatementCheckpointRepository(ConnectionFactory connectionFactory, Materializer materializer, SqlDialect sqlDialect) {
+        this.connectionFactory = connectionFactory;
+        this.materializer = materializer;
+        insertAccountStatementCheckpoint = sqlDialect.toR2dbcSql(INSERT_ACCOUNT_STATEMENT_CHECKPOINT);
+        updateAccountStatementCheckpoint = sqlDialect.toR2dbcSql(UPDATE_ACCOUNT_STATEMENT_CHECKPOINT);
+        deleteAccountStatementCheckpoint = sqlDialect.toR2dbcSql(DELETE_ACCOUNT_STATEMENT_CHECKPOINT);
+        selectAccountStatementCheckpoint = sqlDialect.toR2dbcSql(SELECT_ACCOUNT_STATEMENT_CHECKPOINT);
+        selectArchivedChainSegments = sqlDialect.toR2dbcSql(SELECT_ARCHIVED_CHAIN_SEGMENTS);
+    }
+
+    @Override
+    public CompletionStage<Void> insertCheckpoint(AccountStatementCheckpoint accountStatementCheckpoint) {
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to insert account statement checkpoint", connection -> {
+            Statement insertStatement = connection.createStatement(insertAccountStatementCheckpoint)
+                .bind(0, accountStatementCheckpoint.getAccountStatementId())
+                .bind(1, accountStatementCheckpoint.getLastTransactionId())
+                .bind(2, accountStatementCheckpoint.getLastArchivedTransactionNumber());
+            bindNullable(insertStatement, 3, accountStatementCheckpoint.getNextTransactionId());
+            insertStatement.bind(4, accountStatementCheckpoint.getNextBlockNumber());
+
+            return R2dbcSupport.execute(insertStatement, materializer).thenApply(ignore -> null);
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> updateCheckpoint(AccountStatementCheckpoint accountStatementCheckpoint) {
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to update account statement checkpoint", connection -> {
+            Statement updateStatement = connection.createStatement(updateAccountStatementCheckpoint)
+                .bind(0, accountStatementCheckpoint.getLastArchivedTransactionNumber());
+            bindNullable(updateStatement, 1, accountStatementCheckpoint.getNextTransactionId());
+            updateStatement
+                .bind(2, accountStatementCheckpoint.getNextBlockNumber())
+                .bind(3, accountStatementCheckpoint.getAccountStatementId());
+
+            return R2dbcSupport.execute(updateStatement, materializer).thenApply(ignore -> null);
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> deleteCheckpoint(String accountStatementId) {
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to delete account statement checkpoint", connection ->
+            R2dbcSupport.execute(connection.createStatement(deleteAccountStatementCheckpoint).bind(0, accountStatementId), materializer)
+                .thenApply(ignore -> null)
+        );
+    }
+
+    @Override
+    public CompletionStage<Optional<AccountStatementCheckpoint>> findCheckpoint(String accountStatementId) {
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to select account statement checkpoint", connection ->
+            R2dbcSupport.query(
+                    connection.createStatement(selectAccountStatementCheckpoint).bind(0, accountStatementId),
+                    materializer,
+                    (row, rowMetadata) -> AccountStatementCheckpoint.builder()
+                        .accountStatementId(row.get(AccountStatementCheckpoint.ACCOUNT_STATEMENT_ID_COLUMN_NAME, String.class))
+                        .lastTransactionId(row.get(AccountStatementCheckpoint.LAST_TRANSACTION_ID_COLUMN_NAME, String.class))
+                        .lastArchivedTransactionNumber(
+                            row.get(AccountStatementCheckpoint.LAST_ARCHIVED_TRANSACTION_NUMBER_COLUMN_NAME, Integer.class)
+                        )
+                        .nextTransactionId(row.get(AccountStatementCheckpoint.NEXT_TRANSACTION_ID_COLUMN_NAME, String.class))
+                        .nextBlockNumber(row.get(AccountStatementCheckpoint.NEXT_BLOCK_NUMBER_COLUMN_NAME, Integer.class))
+                        .build()
+                )
+                .thenApply(accountStatementCheckpoints -> accountStatementCheckpoints.stream().findFirst())
+        );
+    }
+
+    @Override
+    public CompletionStage<List<ArchivedChainSegment>> findArchivedChainSegments(String accountStatementId, int afterTransactionNumber) {
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to select archived chain segments", connection ->
+            R2dbcSupport.query(
+                connection.createStatement(selectArchivedChainSegments)
+                    .bind(0, accountStatementId)
+                    .bind(1, afterTransactionNumber)
+                    .bind(2, accountStatementId)
+                    .bind(3, afterTransactionNumber),
+                materializer,
+                (row, rowMetadata) -> ArchivedChainSegment.builder()
+                    .firstTransactionNumber(row.get(ArchivedChainSegment.FIRST_TRANSACTION_NUMBER_COLUMN_NAME, Integer.class))
+                    .transactionCount(row.get(ArchivedChainSegment.TRANSACTION_COUNT_COLUMN_NAME, Integer.class))
+                    .blockNumber(row.get(ArchivedChainSegment.BLOCK_NUMBER_COLUMN_NAME, Integer.class))
+                    .previousTransactionId(row.get(ArchivedChainSegment.PREVIOUS_TRANSACTION_ID_COLUMN_NAME, String.class))
+                    .build()
+            )
+        );
+    }
+
+    private static void bindNullable(Statement statement, int index, String value) {
+        if (value != null) {
+            statement.bind(index, value);
+        } else {
+            statement.bindNull(index, String.class);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package hu.upscale.akka.demo.repository;
+
+import akka.stream.Materializer;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Statement;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking R2DBC implementation: one batched statement for the deletes, one for the inserts and a single commit, without holding a thread while
+ * the database works. The move is rolled back if any of the financial transactions is no longer in the chain.
+ *
+ * @author László Zoltán
+ */
+public class R2dbcArchiveRepository implements ArchiveRepository {
+
+    private final ConnectionFactory connectionFactory;
+    private final Materializer materializer;
+    private final String deleteFinancialTransactionByTransactionId;
+    private final String insertArchiveFinancialTransaction;
+    private final String insertArchiveFinancialTransactionBlock;
+
+    public R2dbcArchiveRepository(ConnectionFactory connectionFactory, Materializer materializer, SqlDialect sqlDialect) {
+        this.connectionFactory = connectionFactory;
+        this.materializer = materializer;
+        deleteFinancialTransactionByTransactionId = sqlDialect.toR2dbcSql(DELETE_FINANCIAL_TRANSACTION_BY_TRANSACTION_ID);
+        insertArchiveFinancialTransaction = sqlDialect.toR2dbcSql(INSERT_ARCHIVE_FINANCIAL_TRANSACTION);
+        insertArchiveFinancialTransactionBlock = sqlDialect.toR2dbcSql(INSERT_ARCHIVE_FINANCIAL_TRANSACTION_BLOCK);
+    }
+
+    @Override
+    public CompletionStage<Void> moveFinancialTransactionsToArchive(List<ArchiveFinancialTransaction> archiveFinancialTransactions) {
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to move financial transactions to archive", connection ->
+            R2dbcSupport.inTransaction(connection, materializer, () -> {
+                Statement deleteStatement = connection.createStatement(deleteFinancialTransactionByTransactionId);
+                Statement insertStatement = connection.createStatement(insertArchiveFinancialTransaction);
+                for (int i = 0; i < archiveFinancialTransactions.size(); i++) {
+                    if (i > 0) {
+                        deleteStatement.add();
+                        insertStatement.add();
+                    }
+                    deleteStatement.bind(0, archiveFinancialTransactions.get(i).getTransactionId());
+                    bindInsertParameters(insertStatement, archiveFinancialTransactions.get(i));
+                }
+
+                return R2dbcSupport.execute(deleteStatement, materializer)
+                    .thenCompose(deletedRows -> {
+                        verifyDeleted(deletedRows, archiveFinancialTransactions.size());
+                        return R2dbcSupport.execute(insertStatement, materializer);
+                    })
+                    .thenApply(ignore -> null);
+            })
+        );
+    }
+
+    @Override
+    public CompletionStage<Void> moveFinancialTransactionBlockToArchive(ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock,
+        List<String> transactionIds) {
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to move financial transaction block to archive", connection ->
+            R2dbcSupport.inTransaction(connection, materializer, () -> {
+                Statement deleteStatement = connection.createStatement(deleteFinancialTransactionByTransactionId);
+                for (int i = 0; i < transactionIds.size(); i++) {
+                    if (i > 0) {
+                        deleteStatement.add();
+                    }
+                    deleteStatement.bind(0, transactionIds.get(i));
+                }
+
+                Statement insertStatement = connection.createStatement(insertArchiveFinancialTransactionBlock)
+                    .bind(0, archiveFinancialTransactionBlock.getAccountStatementId())
+                    .bind(1, archiveFinancialTransactionBlock.getBlockNumber())
+                    .bind(2, archiveFinancialTransactionBlock.getFirstTransactionNumber())
+                    .bind(3, archiveFinancialTransactionBlock.getTransactionCount());
+                bindNullable(insertStatement, 4, archiveFinancialTransactionBlock.getPreviousTransactionId(), String.class);
+                insertStatement
+                    .bind(5, archiveFinancialTransactionBlock.getOffsetIndex())
+                    .bind(6, archiveFinancialTransactionBlock.getCompressedData());
+                bindNullable(insertStatement, 7, archiveFinancialTransactionBlock.getCompressionDictionaryId(), Integer.class);
+                insertStatement
+                    .bind(8, archiveFinancialTransactionBlock.getSignature())
+                    .bind(9, archiveFinancialTransactionBlock.getSignatureAlgorithm().getId());
+
+                return R2dbcSupport.execute(deleteStatement, materializer)
+                    .thenCompose(deletedRows -> {
+                        verifyDeleted(deletedRows, transactionIds.size());
+                        return R2dbcSupport.execute(insertStatement, materializer);
+                    })
+                    .thenApply(ignore -> null);
+            })
+        );
+    }
+
+    /**
+     * TransactionId is the primary key, so every delete removes at most one row and the total only matches if each of them removed one.
+     */
+    private static void verifyDeleted(long deletedRows, int financialTransactions) {
+        if (deletedRows != financialTransactions) {
+            throw new IllegalStateException("Financial transactions are no longer in the chain - financialTransactions: [" + financialTransactions
+                + "], deleted: [" + deletedRows + "]");
+        }
+    }
+
+    private static void bindInsertParameters(Statement insertStatement, ArchiveFinancialTransaction archiveFinancialTransaction) {
+        insertStatement
+            .bind(0, archiveFinancialTransaction.getAccountStatementId())
+            .bind(1, archiveFinancialTransaction.getTransactionId())
+            .bind(2, archiveFinancialTransaction.getTransactionNumber());
+        bindNullable(insertStatement, 3, archiveFinancialTransaction.getPreviousTransactionId(), String.class);
+        insertStatement.bind(4, archiveFinancialTransaction.getCompressedData());
+        bindNullable(insertStatement, 5, archiveFinancialTransaction.getCompressionDictionaryId(), Integer.class);
+        insertStatement
+            .bind(6, archiveFinancialTransaction.getSignature())
+            .bind(7, archiveFinancialTransaction.getSignatureAlgorithm().getId());
+        bindNullable(insertStatement, 8, archiveFinancialTransaction.getInclusionProof(), byte[].class);
+    }
+
+    private static <T> void bindNullable(Statement statement, int index, T value, Class<T> type) {
+        if (value != null) {
+            statement.bind(index, value);
+        } else {
+            statement.bindNull(index, type);
+        }
+    }
+}
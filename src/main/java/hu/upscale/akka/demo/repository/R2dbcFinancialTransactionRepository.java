@@ -0,0 +1,46 @@
+package hu.upscale.akka.demo.repository;
+
+import akka.stream.Materializer;
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking R2DBC implementation, the rows of the chain page are streamed from the driver's publisher without holding a thread for the round trip.
+ *
+ * @author László Zoltán
+ */
+public class R2dbcFinancialTransactionRepository implements FinancialTransactionRepository {
+
+    private final ConnectionFactory connectionFactory;
+    private final Materializer materializer;
+    private final String selectFinancialTransactionChainPage;
+
+    public R2dbcFinancialTransactionRepository(ConnectionFactory connectionFactory, Materializer materializer, SqlDialect sqlDialect) {
+        this.connectionFactory = connectionFactory;
+        this.materializer = materializer;
+        selectFinancialTransactionChainPage = sqlDialect.toR2dbcSql(FinancialTransactionRepository.selectFinancialTransactionChainPage(sqlDialect));
+    }
+
+    @Override
+    public CompletionStage<List<FinancialTransaction>> findFinancialTransactionChainPage(String transactionId, int pageSize) {
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to select financial transaction chain page by id", connection ->
+            R2dbcSupport.query(
+                    connection.createStatement(selectFinancialTransactionChainPage).bind(0, transactionId).bind(1, pageSize),
+                    materializer,
+                    (row, rowMetadata) -> FinancialTransaction.builder()
+                        .transactionId(row.get(FinancialTransaction.TRANSACTION_ID_COLUMN_NAME, String.class))
+                        .previousTransactionId(row.get(FinancialTransaction.PREVIOUS_TRANSACTION_ID_COLUMN_NAME, String.class))
+                        .data(row.get(FinancialTransaction.DATA_COLUMN_NAME, byte[].class))
+                        .build()
+                )
+                .thenCompose(financialTransactionChainPage -> financialTransactionChainPage.isEmpty()
+                    ? CompletableFuture.failedFuture(new NoSuchElementException("No financial transaction found for id: " + transactionId))
+                    : CompletableFuture.completedFuture(financialTransactionChainPage)
+                )
+        );
+    }
+}
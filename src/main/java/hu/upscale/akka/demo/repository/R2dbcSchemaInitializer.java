@@ -0,0 +1,46 @@
+package hu.upscale.akka.demo.repository;
+
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import hu.upscale.akka.demo.util.ResourceUtil;
+import io.r2dbc.spi.ConnectionFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the demo tables in the in-process database used instead of MS SQL Server, e.g. <i>r2dbc:h2:mem:///rxjava</i>. The script is a class path
+ * resource of semicolon separated statements.
+ *
+ * @author László Zoltán
+ */
+public final class R2dbcSchemaInitializer {
+
+    private R2dbcSchemaInitializer() {
+        // Static class
+    }
+
+    /**
+     * @param connectionFactory connection factory of the database
+     * @param materializer materializer running the statements
+     * @param schemaResource class path resource of the schema script
+     * @return completes when every statement of the script has been executed in order
+     */
+    public static CompletionStage<Void> initialize(ConnectionFactory connectionFactory, Materializer materializer, String schemaResource) {
+        List<String> statements = Arrays.stream(ResourceUtil.readResourceFileAsString(schemaResource, StandardCharsets.UTF_8).split(";"))
+            .map(String::strip)
+            .filter(Predicate.not(String::isEmpty))
+            .collect(Collectors.toList());
+
+        return R2dbcSupport.withConnection(connectionFactory, materializer, "Failed to initialize schema: " + schemaResource, connection ->
+            Source.from(statements)
+                .mapAsync(1, statement -> R2dbcSupport.execute(connection.createStatement(statement), materializer))
+                .runWith(Sink.ignore(), materializer)
+                .thenApply(ignore -> null)
+        );
+    }
+}
@@ -0,0 +1,111 @@
+package hu.upscale.akka.demo.repository;
+
+import akka.Done;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import hu.upscale.akka.demo.exception.DbException;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.reactivestreams.Publisher;
+
+/**
+ * Bridges the R2DBC publishers into Akka Streams: every publisher is subscribed by a stream materialized on demand, so no thread waits for the
+ * database while a statement is in flight.
+ *
+ * @author László Zoltán
+ */
+final class R2dbcSupport {
+
+    private R2dbcSupport() {
+    }
+
+    /**
+     * Opens a connection, runs the work with it and closes it regardless of the outcome. Failures are reported as {@link DbException}.
+     */
+    static <T> CompletionStage<T> withConnection(ConnectionFactory connectionFactory, Materializer materializer, String failureMessage,
+        Function<Connection, CompletionStage<T>> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        first(connectionFactory.create(), materializer).whenComplete((connection, connectionFailure) -> {
+            if (connectionFailure != null) {
+                result.completeExceptionally(new DbException(failureMessage, unwrap(connectionFailure)));
+                return;
+            }
+
+            work.apply(connection).whenComplete((value, failure) ->
+                complete(connection.close(), materializer).whenComplete((ignore, closeFailure) -> {
+                    if (failure != null) {
+                        result.completeExceptionally(new DbException(failureMessage, unwrap(failure)));
+                    } else {
+                        result.complete(value);
+                    }
+                })
+            );
+        });
+
+        return result;
+    }
+
+    /**
+     * Runs the work in a read committed transaction, which is committed if the work succeeds and rolled back otherwise.
+     */
+    static <T> CompletionStage<T> inTransaction(Connection connection, Materializer materializer, Supplier<CompletionStage<T>> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        complete(connection.beginTransaction(), materializer)
+            .thenCompose(ignore -> complete(connection.setTransactionIsolationLevel(IsolationLevel.READ_COMMITTED), materializer))
+            .thenCompose(ignore -> work.get())
+            .thenCompose(value -> complete(connection.commitTransaction(), materializer).thenApply(ignore -> value))
+            .whenComplete((value, failure) -> {
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    complete(connection.rollbackTransaction(), materializer).whenComplete((ignore, rollbackFailure) -> result.completeExceptionally(failure));
+                }
+            });
+
+        return result;
+    }
+
+    /**
+     * @return total number of rows updated by the statement
+     */
+    static CompletionStage<Long> execute(Statement statement, Materializer materializer) {
+        return Source.fromPublisher(statement.execute())
+            .flatMapConcat(result -> Source.fromPublisher(result.getRowsUpdated()))
+            .runWith(Sink.fold(0L, (rowsUpdated, resultRowsUpdated) -> rowsUpdated + resultRowsUpdated), materializer);
+    }
+
+    /**
+     * @return every row of every result of the statement, mapped in order
+     */
+    static <T> CompletionStage<List<T>> query(Statement statement, Materializer materializer, BiFunction<Row, RowMetadata, T> rowMapper) {
+        return Source.fromPublisher(statement.execute())
+            .flatMapConcat(result -> Source.fromPublisher(result.map(rowMapper)))
+            .runWith(Sink.seq(), materializer);
+    }
+
+    private static <T> CompletionStage<T> first(Publisher<? extends T> publisher, Materializer materializer) {
+        return Source.fromPublisher(publisher).<T>map(element -> element).runWith(Sink.head(), materializer);
+    }
+
+    private static CompletionStage<Done> complete(Publisher<?> publisher, Materializer materializer) {
+        return Source.fromPublisher(publisher).runWith(Sink.ignore(), materializer);
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+}
@@ -0,0 +1,92 @@
+package hu.upscale.akka.demo.repository;
+
+/**
+ * SQL differences between the production MS SQL Server database and the in-process H2 stand-in.
+ *
+ * @author László Zoltán
+ */
+public enum SqlDialect {
+
+    MSSQL("WITH", " OPTION (MAXRECURSION 0)", "NEWID()") {
+        @Override
+        public String bindMarker(int index) {
+            return "@P" + index;
+        }
+    },
+
+    H2("WITH RECURSIVE", "", "RAND()") {
+        @Override
+        public String bindMarker(int index) {
+            return "$" + (index + 1);
+        }
+    };
+
+    private static final char JDBC_BIND_MARKER = '?';
+
+    private final String recursiveCommonTableExpression;
+    private final String recursionHint;
+    private final String randomOrder;
+
+    SqlDialect(String recursiveCommonTableExpression, String recursionHint, String randomOrder) {
+        this.recursiveCommonTableExpression = recursiveCommonTableExpression;
+        this.recursionHint = recursionHint;
+        this.randomOrder = randomOrder;
+    }
+
+    /**
+     * @param url JDBC or R2DBC connection url
+     * @return the dialect of the database the url points to
+     */
+    public static SqlDialect of(String url) {
+        return url.contains(":h2:") ? H2 : MSSQL;
+    }
+
+    /**
+     * @return keyword starting a recursive common table expression
+     */
+    public String getRecursiveCommonTableExpression() {
+        return recursiveCommonTableExpression;
+    }
+
+    /**
+     * @return query hint lifting the recursion limit of a recursive common table expression, may be empty
+     */
+    public String getRecursionHint() {
+        return recursionHint;
+    }
+
+    /**
+     * @return ORDER BY expression returning the rows in random order
+     */
+    public String getRandomOrder() {
+        return randomOrder;
+    }
+
+    /**
+     * @param index zero based index of the parameter
+     * @return R2DBC bind marker of the parameter
+     */
+    public abstract String bindMarker(int index);
+
+    /**
+     * Replaces the JDBC <code>?</code> bind markers with the native R2DBC bind markers of the dialect. The statements of the repositories do not
+     * contain question marks in literals.
+     *
+     * @param sql statement with JDBC bind markers
+     * @return statement with R2DBC bind markers
+     */
+    public String toR2dbcSql(String sql) {
+        StringBuilder r2dbcSql = new StringBuilder(sql.length() + 16);
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == JDBC_BIND_MARKER) {
+                r2dbcSql.append(bindMarker(index++));
+            } else {
+                r2dbcSql.append(c);
+            }
+        }
+        return r2dbcSql.toString();
+    }
+
+}
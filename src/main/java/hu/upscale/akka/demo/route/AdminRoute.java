@@ -0,0 +1,142 @@
+package hu.upscale.akka.demo.route;
+
+import static akka.http.javadsl.server.Directives.authenticateOAuth2;
+import static akka.http.javadsl.server.Directives.complete;
+import static akka.http.javadsl.server.Directives.concat;
+import static akka.http.javadsl.server.Directives.get;
+import static akka.http.javadsl.server.Directives.handleExceptions;
+import static akka.http.javadsl.server.Directives.onSuccess;
+import static akka.http.javadsl.server.Directives.parameterOptional;
+import static akka.http.javadsl.server.Directives.path;
+import static akka.http.javadsl.server.Directives.pathEndOrSingleSlash;
+import static akka.http.javadsl.server.Directives.pathPrefix;
+import static akka.http.javadsl.server.Directives.post;
+import static akka.http.javadsl.server.PathMatchers.separateOnSlashes;
+
+import akka.actor.ActorSystem;
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.model.headers.ContentDisposition;
+import akka.http.javadsl.model.headers.ContentDispositionTypes;
+import akka.http.javadsl.server.ExceptionHandler;
+import akka.http.javadsl.server.Route;
+import akka.stream.javadsl.FileIO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.jfr.FlightRecorderService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Operational endpoints served on the management port, not on the API port. <i>admin/jfr</i> controls the JDK Flight Recorder recording: GET
+ * returns its status, POST <i>start</i> replaces it with a new one (<i>duration</i> in ISO-8601, <i>settings</i> <i>default</i> or <i>profile</i>),
+ * POST <i>dump</i> streams the data recorded so far as a .jfr file and POST <i>stop</i> discards it. When <i>microservice.management.token</i> is set
+ * every request has to present it as a bearer token.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+@RequiredArgsConstructor(onConstructor = @__({@Inject}))
+public class AdminRoute {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdminRoute.class);
+
+    public static final String MANAGEMENT_ROUTE = "management-route";
+
+    private static final String BLOCKING_IO_DISPATCHER = "akka.actor.default-blocking-io-dispatcher";
+    private static final String TOKEN_CONFIG_KEY = "microservice.management.token";
+    private static final String REALM = "management";
+
+    private final Config config;
+    private final ObjectMapper objectMapper;
+    private final ActorSystem actorSystem;
+    private final FlightRecorderService flightRecorderService;
+
+    private final ExceptionHandler badRequestExceptionHandler = ExceptionHandler.newBuilder()
+        .match(IllegalArgumentException.class, ex -> complete(StatusCodes.BAD_REQUEST, ex.getMessage()))
+        .match(DateTimeParseException.class, ex -> complete(StatusCodes.BAD_REQUEST, "Invalid ISO-8601 duration: " + ex.getParsedString()))
+        .build();
+
+    public Route getAdminRoute() {
+        String token = config.getString(TOKEN_CONFIG_KEY);
+        if (token.isEmpty()) {
+            return flightRecorderRoute();
+        }
+
+        return authenticateOAuth2(REALM, credentials -> credentials.filter(providedCredentials -> providedCredentials.verify(token)),
+            ignore -> flightRecorderRoute());
+    }
+
+    private Route flightRecorderRoute() {
+        return pathPrefix(separateOnSlashes("admin/jfr"), () -> handleExceptions(badRequestExceptionHandler, () -> concat(
+            pathEndOrSingleSlash(() -> get(() -> complete(StatusCodes.OK, flightRecorderService.status(), Jackson.marshaller(objectMapper)))),
+            path("start", () -> post(() ->
+                parameterOptional("duration", duration -> parameterOptional("settings", settings ->
+                    complete(StatusCodes.OK, flightRecorderService.start(duration.map(Duration::parse), settings), Jackson.marshaller(objectMapper))
+                ))
+            )),
+            path("dump", () -> post(this::dumpRecording)),
+            path("stop", () -> post(() -> {
+                flightRecorderService.stop();
+                return complete(StatusCodes.OK, flightRecorderService.status(), Jackson.marshaller(objectMapper));
+            }))
+        )));
+    }
+
+    /**
+     * Dumps on the blocking IO dispatcher and streams the file, the file is deleted once the response has been sent.
+     */
+    private Route dumpRecording() {
+        Executor blockingIoExecutor = actorSystem.dispatchers().lookup(BLOCKING_IO_DISPATCHER);
+        CompletionStage<Optional<Path>> dumpFile = CompletableFuture.supplyAsync(flightRecorderService::dump, blockingIoExecutor);
+
+        return onSuccess(dumpFile, optionalDumpFile -> optionalDumpFile
+            .map(this::streamDumpFile)
+            .orElseGet(() -> complete(StatusCodes.CONFLICT, "No JFR recording has been started"))
+        );
+    }
+
+    private Route streamDumpFile(Path dumpFile) {
+        long size;
+        try {
+            size = Files.size(dumpFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JFR dump " + dumpFile, e);
+        }
+
+        return complete(HttpResponse.create()
+            .addHeader(ContentDisposition.create(ContentDispositionTypes.ATTACHMENT, Map.of("filename", dumpFile.getFileName().toString())))
+            .withEntity(HttpEntities.create(ContentTypes.APPLICATION_OCTET_STREAM, size, FileIO.fromPath(dumpFile)
+                .watchTermination((ioResult, streamed) -> {
+                    streamed.whenComplete((ignore, failure) -> deleteDumpFile(dumpFile));
+                    return ioResult;
+                })
+            ))
+        );
+    }
+
+    private static void deleteDumpFile(Path dumpFile) {
+        try {
+            Files.deleteIfExists(dumpFile);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete JFR dump - file: [{}]", dumpFile, e);
+        }
+    }
+}
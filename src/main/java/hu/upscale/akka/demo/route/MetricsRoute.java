@@ -0,0 +1,48 @@
+package hu.upscale.akka.demo.route;
+
+import static akka.http.javadsl.server.Directives.complete;
+import static akka.http.javadsl.server.Directives.get;
+import static akka.http.javadsl.server.Directives.pathEndOrSingleSlash;
+import static akka.http.javadsl.server.Directives.pathPrefix;
+
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.server.Route;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Prometheus scrape endpoint, renders every collector of the registry in the text exposition format.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+@RequiredArgsConstructor(onConstructor = @__({@Inject}))
+public class MetricsRoute {
+
+    private final CollectorRegistry collectorRegistry;
+
+    public Route getMetricsRoute() {
+        return pathPrefix("metrics", () -> pathEndOrSingleSlash(() -> get(() ->
+            complete(StatusCodes.OK, HttpEntities.create(ContentTypes.TEXT_PLAIN_UTF8, scrape()))
+        )));
+    }
+
+    private String scrape() {
+        StringWriter metrics = new StringWriter();
+        try {
+            TextFormat.write004(metrics, collectorRegistry.metricFamilySamples());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render metrics", e);
+        }
+
+        return metrics.toString();
+    }
+}
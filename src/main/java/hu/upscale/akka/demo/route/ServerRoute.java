@@ -17,6 +17,7 @@ import ch.megard.akka.http.cors.javadsl.settings.CorsSettings;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.typesafe.config.Config;
+import hu.upscale.akka.demo.admission.AdmissionController;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -39,6 +40,8 @@ public class ServerRoute {
 
     private final Config config;
     private final StatementRoute statementRoute;
+    private final MetricsRoute metricsRoute;
+    private final AdmissionController admissionController;
 
     private final ExceptionHandler generalExceptionHandler = ExceptionHandler.newBuilder()
         .matchAny(ex -> {
@@ -49,17 +52,34 @@ public class ServerRoute {
 
     public Route getRoute() {
         return concat(
-            pathPrefix("readiness", () -> pathEndOrSingleSlash(() -> get(() -> complete(StatusCodes.OK, Boolean.toString(true))))),
+            pathPrefix("readiness", () -> pathEndOrSingleSlash(() -> get(this::readiness))),
             pathPrefix("liveness", () -> pathEndOrSingleSlash(() -> get(() -> complete(StatusCodes.OK, Boolean.toString(true))))),
+            metricsRoute.getMetricsRoute(),
             cors(corsSettings, () ->
                 pathPrefix(
                     separateOnSlashes(config.getString(CONTEXT_PATH_CONFIG_KEY)),
                     () -> handleExceptions(generalExceptionHandler,
-                        () -> pathPrefix(separateOnSlashes("accounts/statements"), statementRoute::getPostAccountStatementRoute)
+                        () -> pathPrefix(separateOnSlashes("accounts/statements"), () -> concat(
+                            statementRoute.getPostAccountStatementRoute(),
+                            statementRoute.getGetAccountStatementJobRoute(),
+                            statementRoute.getResumeAccountStatementRoute(),
+                            statementRoute.getGetAccountStatementRoute()
+                        ))
                     )
                 )
             )
         );
     }
 
+    /**
+     * The service is not ready while every admission permit is taken, so the load balancer sends new statements to less busy instances.
+     */
+    private Route readiness() {
+        if (admissionController.isSaturated()) {
+            return complete(StatusCodes.SERVICE_UNAVAILABLE, Boolean.toString(false));
+        }
+
+        return complete(StatusCodes.OK, Boolean.toString(true));
+    }
+
 }
@@ -1,27 +1,78 @@
 package hu.upscale.akka.demo.route;
 
 import static akka.http.javadsl.server.Directives.complete;
+import static akka.http.javadsl.server.Directives.completeOK;
+import static akka.http.javadsl.server.Directives.concat;
+import static akka.http.javadsl.server.Directives.extractRequest;
+import static akka.http.javadsl.server.Directives.get;
 import static akka.http.javadsl.server.Directives.onComplete;
+import static akka.http.javadsl.server.Directives.onSuccess;
+import static akka.http.javadsl.server.Directives.parameterOptional;
+import static akka.http.javadsl.server.Directives.path;
 import static akka.http.javadsl.server.Directives.pathEndOrSingleSlash;
+import static akka.http.javadsl.server.Directives.pathPrefix;
 import static akka.http.javadsl.server.Directives.post;
+import static akka.http.javadsl.server.Directives.respondWithHeader;
 
+import akka.NotUsed;
 import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
 import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.marshalling.sse.EventStreamMarshalling;
+import akka.http.javadsl.model.ContentType;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpCharsets;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.MediaTypes;
 import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.model.headers.Location;
+import akka.http.javadsl.model.headers.RetryAfter;
+import akka.http.javadsl.model.sse.ServerSentEvent;
 import akka.http.javadsl.server.Directives;
+import akka.http.javadsl.server.PathMatchers;
 import akka.http.javadsl.server.Route;
-import akka.pattern.Patterns;
+import akka.http.javadsl.unmarshalling.StringUnmarshallers;
+import akka.japi.Pair;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor;
 import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor.AccountStatementGeneratorRequest;
-import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor.AccountStatementGeneratorResponse;
+import hu.upscale.akka.demo.admission.AdmissionController;
+import hu.upscale.akka.demo.admission.AdmissionPermit;
+import hu.upscale.akka.demo.archive.ArchiveReader;
+import hu.upscale.akka.demo.archive.ArchiveStatementCache;
+import hu.upscale.akka.demo.client.GetAccountStatementTransactionResponse;
 import hu.upscale.akka.demo.client.PostAccountStatementRequest;
 import hu.upscale.akka.demo.client.PostAccountStatementResponse;
+import hu.upscale.akka.demo.entity.AccountStatementCheckpoint;
+import hu.upscale.akka.demo.exception.AdmissionRejectedException;
+import hu.upscale.akka.demo.job.CoalescedStatement;
+import hu.upscale.akka.demo.job.StatementJob;
+import hu.upscale.akka.demo.job.StatementJobRegistry;
+import hu.upscale.akka.demo.job.StatementJobStatus;
+import hu.upscale.akka.demo.job.StatementRequestCoalescer;
+import hu.upscale.akka.demo.repository.AccountStatementCheckpointRepository;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,45 +84,301 @@ public class StatementRoute {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StatementRoute.class);
 
+    private static final ContentType NDJSON_CONTENT_TYPE = ContentTypes.create(
+        MediaTypes.applicationWithFixedCharset("x-ndjson", HttpCharsets.UTF_8, "ndjson")
+    );
+    private static final ByteString NDJSON_LINE_SEPARATOR = ByteString.fromString("\n");
+
+    private static final String JOBS_PATH_SEGMENT = "jobs";
+    private static final String RESUME_PATH_SEGMENT = "resume";
+    private static final String PROGRESS_EVENT_TYPE = "progress";
+    private static final Duration STATEMENT_TIMEOUT = Duration.ofSeconds(90);
+
     private final ObjectMapper objectMapper;
+    private final ActorSystem actorSystem;
     private final ActorRef accountStatementGeneratorActor;
+    private final ArchiveReader archiveReader;
+    private final PipelineTracing pipelineTracing;
+    private final StatementJobRegistry statementJobRegistry;
+    private final AdmissionController admissionController;
+    private final StatementRequestCoalescer statementRequestCoalescer;
+    private final AccountStatementCheckpointRepository accountStatementCheckpointRepository;
 
     @Inject
-    public StatementRoute(ObjectMapper objectMapper, @Named(AccountStatementGeneratorActor.ACTOR_NAME) ActorRef accountStatementGeneratorActor) {
+    public StatementRoute(ObjectMapper objectMapper, ActorSystem actorSystem,
+        @Named(AccountStatementGeneratorActor.ACTOR_NAME) ActorRef accountStatementGeneratorActor, ArchiveReader archiveReader,
+        PipelineTracing pipelineTracing, StatementJobRegistry statementJobRegistry, AdmissionController admissionController,
+        StatementRequestCoalescer statementRequestCoalescer, AccountStatementCheckpointRepository accountStatementCheckpointRepository) {
         this.objectMapper = objectMapper;
+        this.actorSystem = actorSystem;
         this.accountStatementGeneratorActor = accountStatementGeneratorActor;
-
+        this.archiveReader = archiveReader;
+        this.pipelineTracing = pipelineTracing;
+        this.statementJobRegistry = statementJobRegistry;
+        this.admissionController = admissionController;
+        this.statementRequestCoalescer = statementRequestCoalescer;
+        this.accountStatementCheckpointRepository = accountStatementCheckpointRepository;
     }
 
+    /**
+     * With <i>async=true</i> the statement is created as a job: the request is answered with 202 right away and the job can be followed on its
+     * status and progress endpoints.
+     */
     public Route getPostAccountStatementRoute() {
-        return pathEndOrSingleSlash(() -> post(this::createAccountStatement));
+        return pathEndOrSingleSlash(() -> post(() -> extractRequest(httpRequest ->
+            Directives.entity(Jackson.unmarshaller(objectMapper, PostAccountStatementRequest.class), postAccountStatementRequest ->
+                parameterOptional(StringUnmarshallers.BOOLEAN, "async", async -> async.orElse(false)
+                    ? createAccountStatementJob(postAccountStatementRequest.getLastTransactionId(), null, pipelineTracing.extract(httpRequest),
+                    httpRequest.getUri().path())
+                    : createAccountStatement(postAccountStatementRequest.getLastTransactionId(), null, pipelineTracing.extract(httpRequest))
+                )
+            )
+        )));
+    }
+
+    /**
+     * Resumes an interrupted statement from its checkpoint with the same id and numbering, the response is the same as for a new statement. A
+     * statement without checkpoint, because it is complete or unknown, is answered with 404.
+     */
+    public Route getResumeAccountStatementRoute() {
+        return pathPrefix(PathMatchers.uuidSegment(), accountStatementId -> path(RESUME_PATH_SEGMENT, () -> post(() -> extractRequest(httpRequest ->
+            parameterOptional(StringUnmarshallers.BOOLEAN, "async", async ->
+                onSuccess(accountStatementCheckpointRepository.findCheckpoint(accountStatementId.toString()), accountStatementCheckpoint ->
+                    accountStatementCheckpoint
+                        .map(checkpoint -> resumeAccountStatement(checkpoint, async.orElse(false), httpRequest))
+                        .orElseGet(() -> complete(StatusCodes.NOT_FOUND))
+                )
+            )
+        ))));
     }
 
-    private Route createAccountStatement() {
-        return Directives.entity(Jackson.unmarshaller(objectMapper, PostAccountStatementRequest.class), postAccountStatementRequest -> {
-            LOGGER.info("Creating account statement from lastTransactionId: [{}]", postAccountStatementRequest.getLastTransactionId());
+    private Route resumeAccountStatement(AccountStatementCheckpoint checkpoint, boolean async, HttpRequest httpRequest) {
+        UUID lastTransactionId = UUID.fromString(checkpoint.getLastTransactionId());
+        if (async) {
+            String statementsPath = StringUtils.substringBeforeLast(httpRequest.getUri().path(), "/" + checkpoint.getAccountStatementId());
+            return createAccountStatementJob(lastTransactionId, checkpoint, pipelineTracing.extract(httpRequest), statementsPath);
+        }
 
-            CompletionStage<PostAccountStatementResponse> result = Patterns
-                .ask(accountStatementGeneratorActor,
-                    AccountStatementGeneratorRequest.builder().lastTransactionId(postAccountStatementRequest.getLastTransactionId()).build(),
-                    Duration.ofSeconds(90)
+        return createAccountStatement(lastTransactionId, checkpoint, pipelineTracing.extract(httpRequest));
+    }
+
+    public Route getGetAccountStatementJobRoute() {
+        return pathPrefix(JOBS_PATH_SEGMENT, () -> pathPrefix(PathMatchers.uuidSegment(), jobId -> concat(
+            pathEndOrSingleSlash(() -> get(() -> statementJobRegistry.status(jobId)
+                .<Route>map(statementJobStatus -> complete(StatusCodes.OK, statementJobStatus, Jackson.marshaller(objectMapper)))
+                .orElseGet(() -> complete(StatusCodes.NOT_FOUND))
+            )),
+            path("events", () -> get(() -> getAccountStatementJobEvents(jobId)))
+        )));
+    }
+
+    public Route getGetAccountStatementRoute() {
+        return pathPrefix(PathMatchers.uuidSegment(), accountStatementId -> pathEndOrSingleSlash(() -> get(() ->
+            parameterOptional(StringUnmarshallers.INTEGER, "from", fromTransactionNumber ->
+                parameterOptional(StringUnmarshallers.INTEGER, "to", toTransactionNumber ->
+                    getAccountStatement(accountStatementId, fromTransactionNumber.orElse(ArchiveStatementCache.FIRST_TRANSACTION_NUMBER),
+                        toTransactionNumber.orElse(ArchiveStatementCache.LAST_TRANSACTION_NUMBER))
                 )
-                .thenApply(AccountStatementGeneratorResponse.class::cast)
-                .thenApply(AccountStatementGeneratorResponse::getAccountStatementId)
-                .thenApply(accountStatementId -> PostAccountStatementResponse.builder().accountStatementId(accountStatementId).build())
-                .whenComplete((postAccountStatementResponse, failure) -> {
-                    if (failure != null) {
-                        LOGGER.error("Failed to create account statement", failure);
-                    } else {
-                        LOGGER.info("Account statement successfully created - postAccountStatementResponse: [{}]", postAccountStatementResponse);
-                    }
-                });
-
-            return onComplete(
-                result,
-                postAccountStatementResponse -> complete(StatusCodes.CREATED, postAccountStatementResponse.get(), Jackson.marshaller(objectMapper))
-            );
+            )
+        )));
+    }
+
+    /**
+     * Streams the archived financial transactions as newline delimited JSON in a chunked response. The first element is awaited before the response
+     * is started, so an unknown statement or an empty transaction number range is answered with 404.
+     */
+    private Route getAccountStatement(UUID accountStatementId, int fromTransactionNumber, int toTransactionNumber) {
+        LOGGER.info("Streaming account statement - accountStatementId: [{}], from: [{}], to: [{}]", accountStatementId, fromTransactionNumber,
+            toTransactionNumber);
+
+        CompletionStage<Pair<List<GetAccountStatementTransactionResponse>, Source<GetAccountStatementTransactionResponse, NotUsed>>> firstTransaction =
+            archiveReader.readAccountStatement(accountStatementId, fromTransactionNumber, toTransactionNumber)
+                .prefixAndTail(1)
+                .runWith(Sink.head(), actorSystem);
+
+        return onSuccess(firstTransaction, firstTransactionAndRest -> {
+            if (firstTransactionAndRest.first().isEmpty()) {
+                return complete(StatusCodes.NOT_FOUND);
+            }
+
+            Source<ByteString, NotUsed> ndjson = Source.from(firstTransactionAndRest.first())
+                .concat(firstTransactionAndRest.second())
+                .map(this::toNdjsonLine);
+
+            return complete(HttpResponse.create().withEntity(HttpEntities.createChunked(NDJSON_CONTENT_TYPE, ndjson)));
+        });
+    }
+
+    private ByteString toNdjsonLine(GetAccountStatementTransactionResponse getAccountStatementTransactionResponse) {
+        try {
+            return ByteString.fromArrayUnsafe(objectMapper.writeValueAsBytes(getAccountStatementTransactionResponse)).concat(NDJSON_LINE_SEPARATOR);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to serialize archived financial transaction", e);
+        }
+    }
+
+    /**
+     * Streams the status of the job as Server-Sent Events: a <i>progress</i> event every progress interval until the job finishes, then a
+     * <i>completed</i> or <i>failed</i> event and the end of the stream.
+     */
+    private Route getAccountStatementJobEvents(UUID jobId) {
+        return statementJobRegistry.progress(jobId)
+            .<Route>map(progress -> completeOK(progress.map(this::toServerSentEvent), EventStreamMarshalling.toEventStream()))
+            .orElseGet(() -> complete(StatusCodes.NOT_FOUND));
+    }
+
+    private ServerSentEvent toServerSentEvent(StatementJobStatus statementJobStatus) {
+        try {
+            String eventType = !statementJobStatus.getState().isFinished()
+                ? PROGRESS_EVENT_TYPE
+                : statementJobStatus.getState().name().toLowerCase(Locale.ROOT);
+            return ServerSentEvent.create(objectMapper.writeValueAsString(statementJobStatus), eventType);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to serialize account statement job status", e);
+        }
+    }
+
+    /**
+     * Hands the statement to the generator without waiting for it, so the length of the chain is not limited by the request timeout and no
+     * connection is held while it is archived. A job admitted to the admission queue waits there in QUEUED state without a time limit. A request for
+     * a chain whose statement is being generated gets the running job, one for an already created statement gets 201 with the original id.
+     *
+     * @param checkpoint checkpoint of the statement to resume, null for a new statement
+     * @param statementsPath path of the account statements, the location of the job is resolved against it
+     */
+    private Route createAccountStatementJob(UUID lastTransactionId, AccountStatementCheckpoint checkpoint, Context traceContext,
+        String statementsPath) {
+        Span span = startServerSpan(lastTransactionId, checkpoint, traceContext);
+
+        LOGGER.info("Creating account statement job from lastTransactionId: [{}], checkpoint: [{}], traceId: [{}]", lastTransactionId, checkpoint,
+            span.getSpanContext().getTraceId());
+
+        Optional<CoalescedStatement> coalescedStatement = statementRequestCoalescer.coalesce(lastTransactionId,
+            () -> startAccountStatementJob(lastTransactionId, checkpoint, traceContext.with(span), false));
+        span.end();
+
+        if (coalescedStatement.isEmpty()) {
+            LOGGER.warn("Account statement job rejected - lastTransactionId: [{}]", lastTransactionId);
+            return rejectAccountStatement();
+        }
+        if (coalescedStatement.get().getAccountStatementId() != null) {
+            return completeCreated(coalescedStatement.get().getAccountStatementId());
+        }
+
+        StatementJob statementJob = coalescedStatement.get().getStatementJob();
+        String jobLocation = StringUtils.removeEnd(statementsPath, "/") + "/" + JOBS_PATH_SEGMENT + "/" + statementJob.getJobId();
+        return respondWithHeader(Location.create(jobLocation), () ->
+            complete(StatusCodes.ACCEPTED, statementJob.status(), Jackson.marshaller(objectMapper))
+        );
+    }
+
+    /**
+     * Waits for admission at most <i>max-queue-time</i>, the request is answered with 503 when the admission queue is full or the wait times out. A
+     * request for a chain whose statement is being generated waits for the running job, one for an already created statement is answered right away.
+     *
+     * @param checkpoint checkpoint of the statement to resume, null for a new statement
+     * @param traceContext context of the <i>traceparent</i> header of the request, the statement is traced as its child
+     */
+    private Route createAccountStatement(UUID lastTransactionId, AccountStatementCheckpoint checkpoint, Context traceContext) {
+        Span span = startServerSpan(lastTransactionId, checkpoint, traceContext);
+
+        LOGGER.info("Creating account statement from lastTransactionId: [{}], checkpoint: [{}], traceId: [{}]", lastTransactionId, checkpoint,
+            span.getSpanContext().getTraceId());
+
+        Optional<CoalescedStatement> coalescedStatement = statementRequestCoalescer.coalesce(lastTransactionId,
+            () -> startAccountStatementJob(lastTransactionId, checkpoint, traceContext.with(span), true));
+
+        if (coalescedStatement.isEmpty()) {
+            LOGGER.warn("Account statement rejected - lastTransactionId: [{}]", lastTransactionId);
+            span.end();
+            return rejectAccountStatement();
+        }
+        if (coalescedStatement.get().getAccountStatementId() != null) {
+            span.end();
+            return completeCreated(coalescedStatement.get().getAccountStatementId());
+        }
+
+        CompletionStage<PostAccountStatementResponse> result = coalescedStatement.get().getStatementJob().getAccountStatementId()
+            .toCompletableFuture()
+            .orTimeout(STATEMENT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+            .thenApply(accountStatementId -> PostAccountStatementResponse.builder().accountStatementId(accountStatementId).build())
+            .whenComplete((postAccountStatementResponse, failure) -> {
+                PipelineTracing.end(span, failure);
+                if (failure != null && ExceptionUtils.getRootCause(failure) instanceof AdmissionRejectedException) {
+                    LOGGER.warn("Account statement rejected - lastTransactionId: [{}], reason: [{}]", lastTransactionId,
+                        ExceptionUtils.getRootCauseMessage(failure));
+                } else if (failure != null) {
+                    LOGGER.error("Failed to create account statement", failure);
+                } else {
+                    LOGGER.info("Account statement successfully created - postAccountStatementResponse: [{}]", postAccountStatementResponse);
+                }
+            });
+
+        return onComplete(result, postAccountStatementResponse -> {
+            if (postAccountStatementResponse.isFailure()
+                && ExceptionUtils.getRootCause(postAccountStatementResponse.failed().get()) instanceof AdmissionRejectedException) {
+                return rejectAccountStatement();
+            }
+
+            return complete(StatusCodes.CREATED, postAccountStatementResponse.get(), Jackson.marshaller(objectMapper));
+        });
+    }
+
+    private Span startServerSpan(UUID lastTransactionId, AccountStatementCheckpoint checkpoint, Context traceContext) {
+        Span span = pipelineTracing.startServerSpan(checkpoint == null ? "POST accounts/statements" : "POST accounts/statements/resume",
+            traceContext);
+        span.setAttribute(PipelineTracing.TRANSACTION_ID, lastTransactionId.toString());
+        if (checkpoint != null) {
+            span.setAttribute(PipelineTracing.ACCOUNT_STATEMENT_ID, checkpoint.getAccountStatementId());
+        }
+
+        return span;
+    }
+
+    /**
+     * Starts a job once the statement is admitted. A job whose admission wait times out fails with {@link AdmissionRejectedException}.
+     *
+     * @param holdsConnection whether the request waits for the statement, such a request waits at most <i>max-queue-time</i> for admission
+     * @return empty if the admission queue is full
+     */
+    private Optional<StatementJob> startAccountStatementJob(UUID lastTransactionId, AccountStatementCheckpoint checkpoint, Context traceContext,
+        boolean holdsConnection) {
+        Optional<CompletionStage<AdmissionPermit>> admission = admissionController.tryAcquire(holdsConnection);
+        if (admission.isEmpty()) {
+            return Optional.empty();
+        }
+
+        StatementJob statementJob = statementJobRegistry.create();
+        LOGGER.info("Account statement job created - lastTransactionId: [{}], jobId: [{}]", lastTransactionId, statementJob.getJobId());
+
+        admission.get().whenComplete((admissionPermit, failure) -> {
+            if (failure != null) {
+                statementJob.finished(failure);
+                return;
+            }
+
+            accountStatementGeneratorActor.tell(AccountStatementGeneratorRequest.builder()
+                .lastTransactionId(lastTransactionId)
+                .sentNanos(System.nanoTime())
+                .traceContext(traceContext)
+                .progressListener(statementJob)
+                .admissionPermit(admissionPermit)
+                .checkpoint(checkpoint)
+                .build(), ActorRef.noSender());
         });
+
+        return Optional.of(statementJob);
+    }
+
+    private Route completeCreated(UUID accountStatementId) {
+        return complete(StatusCodes.CREATED, PostAccountStatementResponse.builder().accountStatementId(accountStatementId).build(),
+            Jackson.marshaller(objectMapper));
+    }
+
+    private Route rejectAccountStatement() {
+        return respondWithHeader(RetryAfter.create(admissionController.getRetryAfter().toSeconds()), () ->
+            complete(StatusCodes.SERVICE_UNAVAILABLE, "Too many account statements in progress")
+        );
     }
 
 }
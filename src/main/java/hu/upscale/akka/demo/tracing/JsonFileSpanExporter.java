@@ -0,0 +1,118 @@
+package hu.upscale.akka.demo.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends every finished span to a local file as one JSON object per line, so traces can be inspected with jq without a collector. Times are epoch
+ * nanoseconds, event times are relative to the start of their span.
+ *
+ * @author László Zoltán
+ */
+public class JsonFileSpanExporter implements SpanExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JsonFileSpanExporter.class);
+
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter writer;
+
+    public JsonFileSpanExporter(ObjectMapper objectMapper, Path file) {
+        this.objectMapper = objectMapper;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open span file " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            for (SpanData span : spans) {
+                writer.write(objectMapper.writeValueAsString(toJson(span)));
+                writer.newLine();
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            LOGGER.error("Failed to write spans - size: [{}]", spans.size(), e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            writer.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close span file", e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private static Map<String, Object> toJson(SpanData span) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("traceId", span.getTraceId());
+        json.put("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            json.put("parentSpanId", span.getParentSpanId());
+        }
+        json.put("name", span.getName());
+        json.put("kind", span.getKind().name());
+        json.put("startEpochNanos", span.getStartEpochNanos());
+        json.put("durationNanos", span.getEndEpochNanos() - span.getStartEpochNanos());
+        json.put("status", span.getStatus().getStatusCode().name());
+        json.put("attributes", span.getAttributes().asMap().entrySet().stream()
+            .collect(Collectors.toMap(attribute -> attribute.getKey().getKey(), Map.Entry::getValue, (first, second) -> second, LinkedHashMap::new)));
+        if (!span.getEvents().isEmpty()) {
+            json.put("events", span.getEvents().stream().map(event -> toJson(span, event)).collect(Collectors.toList()));
+        }
+        if (!span.getLinks().isEmpty()) {
+            json.put("links", span.getLinks().stream().map(link -> toJson(link.getSpanContext())).collect(Collectors.toList()));
+        }
+
+        return json;
+    }
+
+    private static Map<String, Object> toJson(SpanData span, EventData event) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("name", event.getName());
+        json.put("offsetNanos", event.getEpochNanos() - span.getStartEpochNanos());
+
+        return json;
+    }
+
+    private static Map<String, Object> toJson(SpanContext spanContext) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("traceId", spanContext.getTraceId());
+        json.put("spanId", spanContext.getSpanId());
+
+        return json;
+    }
+}
@@ -0,0 +1,174 @@
+package hu.upscale.akka.demo.tracing;
+
+import akka.http.javadsl.model.HttpHeader;
+import akka.http.javadsl.model.HttpRequest;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * OpenTelemetry tracing of the account statement pipeline. The trace context is carried explicitly on the request messages, so every actor hop
+ * starts its span from the context of the sender. Spans of queued work are back-dated to the time the message was sent and mark the moment it was
+ * picked up with a <i>dequeued</i> event, so mailbox and executor queuing is visible as the gap before that event.
+ *
+ * @author László Zoltán
+ */
+@Singleton
+public class PipelineTracing {
+
+    public static final AttributeKey<String> ACCOUNT_STATEMENT_ID = AttributeKey.stringKey("account_statement.id");
+    public static final AttributeKey<String> TRANSACTION_ID = AttributeKey.stringKey("financial_transaction.id");
+    public static final AttributeKey<Long> TRANSACTION_COUNT = AttributeKey.longKey("financial_transaction.count");
+    public static final AttributeKey<Long> BYTES = AttributeKey.longKey("bytes");
+    public static final AttributeKey<Long> QUEUE_TIME_NANOS = AttributeKey.longKey("queue.time_ns");
+
+    private static final String INSTRUMENTATION_NAME = "hu.upscale.akka.demo";
+    private static final String DEQUEUED_EVENT = "dequeued";
+
+    private static final TextMapGetter<HttpRequest> HTTP_REQUEST_GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(HttpRequest httpRequest) {
+            return StreamSupport.stream(httpRequest.getHeaders().spliterator(), false).map(HttpHeader::lowercaseName).collect(Collectors.toList());
+        }
+
+        @Override
+        public String get(HttpRequest httpRequest, String key) {
+            return httpRequest.getHeader(key).map(HttpHeader::value).orElse(null);
+        }
+    };
+
+    private final Tracer tracer;
+    private final TextMapPropagator textMapPropagator;
+
+    @Inject
+    public PipelineTracing(OpenTelemetry openTelemetry) {
+        tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+        textMapPropagator = openTelemetry.getPropagators().getTextMapPropagator();
+    }
+
+    /**
+     * @return the trace context of the W3C <i>traceparent</i> header of the request, the root context without it
+     */
+    public Context extract(HttpRequest httpRequest) {
+        return textMapPropagator.extract(Context.root(), httpRequest, HTTP_REQUEST_GETTER);
+    }
+
+    public Span startServerSpan(String name, Context parent) {
+        return tracer.spanBuilder(name).setParent(parent).setSpanKind(SpanKind.SERVER).startSpan();
+    }
+
+    public Span startSpan(String name, Context parent) {
+        return spanBuilder(name, parent).startSpan();
+    }
+
+    /**
+     * Starts the span of a message at the time it was sent.
+     *
+     * @param sentNanos {@link System#nanoTime()} when the message was sent, 0 if unknown
+     */
+    public Span startQueuedSpan(String name, Context parent, long sentNanos) {
+        long queueNanos = sentNanos == 0 ? 0 : System.nanoTime() - sentNanos;
+        Span span = spanBuilder(name, parent)
+            .setStartTimestamp(epochNanos() - queueNanos, TimeUnit.NANOSECONDS)
+            .setAttribute(QUEUE_TIME_NANOS, queueNanos)
+            .startSpan();
+        span.addEvent(DEQUEUED_EVENT);
+
+        return span;
+    }
+
+    /**
+     * Starts a span without parent that links the spans of the given contexts, e.g. for a write window shared by many statements.
+     */
+    public Span startLinkedSpan(String name, List<Context> linkedContexts) {
+        SpanBuilder spanBuilder = tracer.spanBuilder(name).setNoParent();
+        linkedContexts.stream()
+            .map(linkedContext -> Span.fromContext(linkedContext).getSpanContext())
+            .filter(spanContext -> spanContext.isValid() && spanContext.isSampled())
+            .collect(Collectors.toList())
+            .forEach(spanBuilder::addLink);
+
+        return spanBuilder.startSpan();
+    }
+
+    /**
+     * Ends the span when the stage completes and marks it as failed if the stage fails.
+     */
+    public static <T> CompletionStage<T> endOnCompletion(Span span, CompletionStage<T> completionStage) {
+        return completionStage.whenComplete((ignore, failure) -> end(span, failure));
+    }
+
+    public static void end(Span span, Throwable failure) {
+        if (failure != null) {
+            span.recordException(failure);
+            span.setStatus(StatusCode.ERROR);
+        }
+        span.end();
+    }
+
+    /**
+     * Calls the supplier with the span as the current span, so the executors started by the call inherit its context. The scope is closed in a
+     * finally block, a try-with-resources variable that is never referenced would be reported by <i>-Xlint:try</i>.
+     */
+    public static <T> T callInScope(Span span, Supplier<T> supplier) {
+        Scope scope = span.makeCurrent();
+        try {
+            return supplier.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Wraps a blocking executor: a task submitted within a traced context runs in its own span, which starts at submission and ends when the task
+     * returns. Tasks submitted outside of a trace run as they are.
+     */
+    public Executor tracingExecutor(String name, Executor executor) {
+        return task -> {
+            Context context = Context.current();
+            if (!Span.fromContext(context).getSpanContext().isValid()) {
+                executor.execute(task);
+                return;
+            }
+
+            long sentNanos = System.nanoTime();
+            executor.execute(() -> {
+                Span span = startQueuedSpan(name, context, sentNanos);
+                Scope scope = span.makeCurrent();
+                try {
+                    task.run();
+                } finally {
+                    scope.close();
+                    span.end();
+                }
+            });
+        };
+    }
+
+    private SpanBuilder spanBuilder(String name, Context parent) {
+        return tracer.spanBuilder(name).setParent(parent == null ? Context.current() : parent);
+    }
+
+    private static long epochNanos() {
+        Instant now = Instant.now();
+        return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+    }
+}
@@ -0,0 +1,19 @@
+package hu.upscale.akka.demo.tracing;
+
+/**
+ * Destination of the finished spans.
+ *
+ * @author László Zoltán
+ */
+public enum SpanExporterType {
+
+    /**
+     * Tracing is disabled, the pipeline runs with the no-op tracer.
+     */
+    NONE,
+    /**
+     * Finished spans are appended to <b>microservice.tracing.file</b> as JSON lines.
+     */
+    FILE
+
+}
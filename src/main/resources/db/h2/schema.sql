@@ -0,0 +1,70 @@
+CREATE SCHEMA IF NOT EXISTS demo;
+
+CREATE TABLE IF NOT EXISTS demo.FinancialTransaction
+(
+    TransactionId         CHAR(36) NOT NULL PRIMARY KEY,
+    PreviousTransactionId CHAR(36) NULL,
+    Data                  VARBINARY NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS demo.ArchiveFinancialTransaction
+(
+    AccountStatementId      CHAR(36) NOT NULL,
+    TransactionId           CHAR(36) NOT NULL,
+    TransactionNumber       INT      NOT NULL,
+    PreviousTransactionId   CHAR(36) NULL,
+    CompressedData          VARBINARY NOT NULL,
+    CompressionDictionaryId INT NULL,
+    Signature               VARBINARY(512) NOT NULL,
+    SignatureAlgorithm      TINYINT  DEFAULT 1 NOT NULL,
+    InclusionProof          VARBINARY NULL,
+    PRIMARY KEY (AccountStatementId, TransactionId)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS AK_ArchiveFinancialTransaction_TransactionId
+    ON demo.ArchiveFinancialTransaction (TransactionId);
+
+CREATE INDEX IF NOT EXISTS IX_ArchiveFinancialTransaction_AccountStatementId_TransactionNumber
+    ON demo.ArchiveFinancialTransaction (AccountStatementId, TransactionNumber);
+
+CREATE TABLE IF NOT EXISTS demo.ArchiveFinancialTransactionBlock
+(
+    AccountStatementId      CHAR(36) NOT NULL,
+    BlockNumber             INT      NOT NULL,
+    FirstTransactionNumber  INT      NOT NULL,
+    TransactionCount        INT      NOT NULL,
+    PreviousTransactionId   CHAR(36) NULL,
+    OffsetIndex             VARBINARY NOT NULL,
+    CompressedData          VARBINARY NOT NULL,
+    CompressionDictionaryId INT NULL,
+    Signature               VARBINARY(512) NOT NULL,
+    SignatureAlgorithm      TINYINT  NOT NULL,
+    PRIMARY KEY (AccountStatementId, BlockNumber)
+);
+
+CREATE TABLE IF NOT EXISTS demo.AccountStatementCheckpoint
+(
+    AccountStatementId            CHAR(36) NOT NULL PRIMARY KEY,
+    LastTransactionId             CHAR(36) NOT NULL,
+    LastArchivedTransactionNumber INT      NOT NULL,
+    NextTransactionId             CHAR(36) NULL,
+    NextBlockNumber               INT      NOT NULL,
+    UpdatedAt                     TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS demo.CompressionDictionary
+(
+    DictionaryId     INT AUTO_INCREMENT PRIMARY KEY,
+    Dictionary       VARBINARY NOT NULL,
+    BaseDictionaryId INT       NOT NULL,
+    CreatedAt        TIMESTAMP NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS AK_CompressionDictionary_BaseDictionaryId
+    ON demo.CompressionDictionary (BaseDictionaryId);
+
+CREATE INDEX IF NOT EXISTS IX_ArchiveFinancialTransaction_CompressionDictionaryId
+    ON demo.ArchiveFinancialTransaction (CompressionDictionaryId);
+
+CREATE INDEX IF NOT EXISTS IX_ArchiveFinancialTransactionBlock_CompressionDictionaryId
+    ON demo.ArchiveFinancialTransactionBlock (CompressionDictionaryId);
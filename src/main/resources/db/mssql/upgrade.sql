@@ -0,0 +1,110 @@
+-- Upgrades a database created with the original schema of the README to the current one. Every step checks whether it has already been applied,
+-- so the script can be run again. The batches are separated by GO, because SQL Server resolves the columns of a batch before running it.
+USE
+RXJAVA;
+GO
+
+-- Archive rows: chain link, dictionary compression, pluggable signatures (existing rows were signed with SHA512withRSA) and Merkle proofs
+IF COL_LENGTH('demo.ArchiveFinancialTransaction', 'PreviousTransactionId') IS NULL
+ALTER TABLE demo.ArchiveFinancialTransaction
+    ADD PreviousTransactionId CHAR(36) NULL;
+
+IF COL_LENGTH('demo.ArchiveFinancialTransaction', 'CompressionDictionaryId') IS NULL
+ALTER TABLE demo.ArchiveFinancialTransaction
+    ADD CompressionDictionaryId INT NULL;
+
+IF COL_LENGTH('demo.ArchiveFinancialTransaction', 'SignatureAlgorithm') IS NULL
+ALTER TABLE demo.ArchiveFinancialTransaction
+    ADD SignatureAlgorithm TINYINT NOT NULL
+        CONSTRAINT DF_ArchiveFinancialTransaction_SignatureAlgorithm DEFAULT 1;
+
+IF COL_LENGTH('demo.ArchiveFinancialTransaction', 'InclusionProof') IS NULL
+ALTER TABLE demo.ArchiveFinancialTransaction
+    ADD InclusionProof VARBINARY( MAX) NULL;
+
+-- Ed25519 signatures are shorter than the 512 bytes of an RSA signature
+IF EXISTS(SELECT 1
+          FROM sys.columns
+          WHERE object_id = OBJECT_ID('demo.ArchiveFinancialTransaction')
+            AND name = 'Signature'
+            AND system_type_id = TYPE_ID('binary'))
+ALTER TABLE demo.ArchiveFinancialTransaction
+    ALTER COLUMN Signature VARBINARY(512) NOT NULL;
+GO
+
+IF NOT EXISTS(SELECT 1
+              FROM sys.indexes
+              WHERE object_id = OBJECT_ID('demo.ArchiveFinancialTransaction')
+                AND name = 'IX_ArchiveFinancialTransaction_AccountStatementId_TransactionNumber')
+CREATE INDEX IX_ArchiveFinancialTransaction_AccountStatementId_TransactionNumber
+    ON demo.ArchiveFinancialTransaction (AccountStatementId, TransactionNumber);
+
+IF NOT EXISTS(SELECT 1
+              FROM sys.indexes
+              WHERE object_id = OBJECT_ID('demo.ArchiveFinancialTransaction')
+                AND name = 'IX_ArchiveFinancialTransaction_CompressionDictionaryId')
+CREATE INDEX IX_ArchiveFinancialTransaction_CompressionDictionaryId
+    ON demo.ArchiveFinancialTransaction (CompressionDictionaryId)
+    WHERE CompressionDictionaryId IS NOT NULL;
+GO
+
+IF OBJECT_ID('demo.ArchiveFinancialTransactionBlock', 'U') IS NULL
+CREATE TABLE demo.ArchiveFinancialTransactionBlock
+(
+    AccountStatementId      CHAR(36) NOT NULL,
+    BlockNumber             INT      NOT NULL,
+    FirstTransactionNumber  INT      NOT NULL,
+    TransactionCount        INT      NOT NULL,
+    PreviousTransactionId   CHAR(36) NULL,
+    OffsetIndex             VARBINARY( MAX) NOT NULL,
+    CompressedData          VARBINARY( MAX) NOT NULL,
+    CompressionDictionaryId INT NULL,
+    Signature               VARBINARY(512) NOT NULL,
+    SignatureAlgorithm      TINYINT  NOT NULL,
+    CONSTRAINT PK_ArchiveFinancialTransactionBlock
+        PRIMARY KEY CLUSTERED (AccountStatementId, BlockNumber)
+);
+GO
+
+IF NOT EXISTS(SELECT 1
+              FROM sys.indexes
+              WHERE object_id = OBJECT_ID('demo.ArchiveFinancialTransactionBlock')
+                AND name = 'IX_ArchiveFinancialTransactionBlock_CompressionDictionaryId')
+CREATE INDEX IX_ArchiveFinancialTransactionBlock_CompressionDictionaryId
+    ON demo.ArchiveFinancialTransactionBlock (CompressionDictionaryId)
+    WHERE CompressionDictionaryId IS NOT NULL;
+GO
+
+IF OBJECT_ID('demo.AccountStatementCheckpoint', 'U') IS NULL
+CREATE TABLE demo.AccountStatementCheckpoint
+(
+    AccountStatementId            CHAR(36)
+        CONSTRAINT PK_AccountStatementCheckpoint
+            PRIMARY KEY CLUSTERED,
+    LastTransactionId             CHAR(36) NOT NULL,
+    LastArchivedTransactionNumber INT      NOT NULL,
+    NextTransactionId             CHAR(36) NULL,
+    NextBlockNumber               INT      NOT NULL,
+    UpdatedAt                     DATETIME2 NOT NULL
+);
+GO
+
+IF OBJECT_ID('demo.CompressionDictionary', 'U') IS NULL
+CREATE TABLE demo.CompressionDictionary
+(
+    DictionaryId     INT IDENTITY (1, 1)
+        CONSTRAINT PK_CompressionDictionary
+            PRIMARY KEY CLUSTERED,
+    Dictionary       VARBINARY( MAX) NOT NULL,
+    BaseDictionaryId INT NOT NULL,
+    CreatedAt        DATETIME2 NOT NULL
+);
+GO
+
+IF NOT EXISTS(SELECT 1
+              FROM sys.indexes
+              WHERE object_id = OBJECT_ID('demo.CompressionDictionary')
+                AND name = 'AK_CompressionDictionary_BaseDictionaryId')
+CREATE UNIQUE INDEX AK_CompressionDictionary_BaseDictionaryId
+    ON demo.CompressionDictionary (BaseDictionaryId);
+GO
@@ -0,0 +1,58 @@
+package hu.upscale.akka.demo;
+
+import akka.actor.ActorSystem;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+import com.google.inject.util.Modules;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.guice.GuiceInjectionModule;
+import java.util.UUID;
+
+/**
+ * Injector of the service running against its own in-process H2 database (the <b>h2.conf</b> profile), for JDBC and R2DBC alike. Singletons are
+ * created lazily, so only what a test asks for is started.
+ *
+ * @author László Zoltán
+ */
+public final class H2TestInjector {
+
+    private static final String DATABASE_CONFIG = "microservice {%n"
+        + "  datasource.url = \"jdbc:h2:mem:%1$s;MODE=MSSQLServer;DB_CLOSE_DELAY=-1\"%n"
+        + "  persistence.r2dbc.url = \"r2dbc:h2:mem:///%1$s;MODE=MSSQLServer;DB_CLOSE_DELAY=-1;USER=SA\"%n"
+        + "  compression.dictionary.enabled = false%n"
+        + "  jfr.recording.enabled = false%n"
+        + "}";
+
+    private H2TestInjector() {
+        // Static class
+    }
+
+    /**
+     * @param overrides configuration overriding the h2.conf profile, e.g. the persistence engine
+     * @return injector of a service with an empty database
+     */
+    public static Injector create(String overrides) {
+        Config config = ConfigFactory.parseString(overrides)
+            .withFallback(ConfigFactory.parseString(String.format(DATABASE_CONFIG, "test" + UUID.randomUUID().toString().replace("-", ""))))
+            .withFallback(ConfigFactory.load("h2.conf"));
+
+        return Guice.createInjector(Stage.DEVELOPMENT, Modules.override(new GuiceInjectionModule()).with(new AbstractModule() {
+            @Provides
+            @Singleton
+            public Config provideConfig() {
+                return config;
+            }
+        }));
+    }
+
+    public static void shutdown(Injector injector) {
+        ActorSystem actorSystem = injector.getInstance(ActorSystem.class);
+        actorSystem.terminate();
+        actorSystem.getWhenTerminated().toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,173 @@
+package hu.upscale.akka.demo.actor;
+
+import static org.junit.Assert.assertEquals;
+
+import akka.actor.ActorRef;
+import akka.pattern.Patterns;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.H2TestInjector;
+import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor.AccountStatementGeneratorRequest;
+import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor.AccountStatementGeneratorResponse;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
+import hu.upscale.akka.demo.entity.AccountStatementCheckpoint;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import hu.upscale.akka.demo.repository.AccountStatementCheckpointRepository;
+import hu.upscale.akka.demo.repository.ArchiveRepository;
+import hu.upscale.akka.demo.repository.FinancialTransactionRepository;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Resumes interrupted statements against the in-process H2 database.
+ *
+ * @author László Zoltán
+ */
+public class AccountStatementGeneratorActorTest {
+
+    private static final int CHAIN_LENGTH = 8;
+    private static final Duration GENERATION_TIMEOUT = Duration.ofSeconds(30);
+    private static final String SELECT_ARCHIVED_TRANSACTION_IDS
+        = "SELECT TransactionId FROM demo.ArchiveFinancialTransaction WHERE AccountStatementId = ? ORDER BY TransactionNumber";
+
+    private Injector injector;
+    private DataSource dataSource;
+    private ArchiveRepository archiveRepository;
+    private AccountStatementCheckpointRepository accountStatementCheckpointRepository;
+    private UUID lastTransactionId;
+    private List<FinancialTransaction> chain;
+
+    @Before
+    public void setUp() {
+        // Small pages, so the gaps and the rest of the chain are loaded in more than one round trip
+        injector = H2TestInjector.create("microservice.account-statement.chain-page-size = 2");
+        dataSource = injector.getInstance(DataSource.class);
+        archiveRepository = injector.getInstance(ArchiveRepository.class);
+        accountStatementCheckpointRepository = injector.getInstance(AccountStatementCheckpointRepository.class);
+
+        lastTransactionId = new FinancialTransactionChainGenerator(dataSource)
+            .generate(ChainGeneratorSettings.fromConfig(injector.getInstance(Config.class)).withFixedShape(1, CHAIN_LENGTH, 256))
+            .get(0);
+        chain = join(injector.getInstance(FinancialTransactionRepository.class)
+            .findFinancialTransactionChainPage(lastTransactionId.toString(), CHAIN_LENGTH));
+    }
+
+    @After
+    public void tearDown() {
+        H2TestInjector.shutdown(injector);
+    }
+
+    @Test
+    public void resumeArchivesTheGapsBetweenArchiveRowsCommittedAfterTheCheckpoint() throws Exception {
+        UUID accountStatementId = UUID.randomUUID();
+        // Transaction 1 is covered by the checkpoint, 3, 6 and 7 were committed after it, 2, 4, 5 and 8 are still in the chain
+        archive(accountStatementId, 1, 3, 6, 7);
+
+        resume(accountStatementId, 1);
+
+        assertEquals(chainTransactionIds(), archivedTransactionIds(accountStatementId));
+        assertEquals(Optional.empty(), join(accountStatementCheckpointRepository.findCheckpoint(accountStatementId.toString())));
+        assertEquals(List.of(),
+            join(accountStatementCheckpointRepository.findArchivedChainSegments(accountStatementId.toString(), CHAIN_LENGTH)));
+    }
+
+    @Test
+    public void resumeContinuesAfterTheCheckpointWithoutGaps() throws Exception {
+        UUID accountStatementId = UUID.randomUUID();
+        archive(accountStatementId, 1, 2, 3);
+
+        resume(accountStatementId, 3);
+
+        assertEquals(chainTransactionIds(), archivedTransactionIds(accountStatementId));
+        assertEquals(Optional.empty(), join(accountStatementCheckpointRepository.findCheckpoint(accountStatementId.toString())));
+    }
+
+    /**
+     * Saves the checkpoint of an interrupted statement and resumes it like POST .../{accountStatementId}/resume does.
+     */
+    private void resume(UUID accountStatementId, int lastArchivedTransactionNumber) {
+        AccountStatementCheckpoint accountStatementCheckpoint = AccountStatementCheckpoint.builder()
+            .accountStatementId(accountStatementId.toString())
+            .lastTransactionId(lastTransactionId.toString())
+            .lastArchivedTransactionNumber(lastArchivedTransactionNumber)
+            .nextTransactionId(chain.get(lastArchivedTransactionNumber).getTransactionId())
+            .nextBlockNumber(1)
+            .build();
+        join(accountStatementCheckpointRepository.insertCheckpoint(accountStatementCheckpoint));
+
+        AccountStatementGeneratorResponse accountStatementGeneratorResponse = (AccountStatementGeneratorResponse) join(Patterns.ask(
+            injector.getInstance(Key.get(ActorRef.class, Names.named(AccountStatementGeneratorActor.ACTOR_NAME))),
+            AccountStatementGeneratorRequest.builder()
+                .lastTransactionId(lastTransactionId)
+                .checkpoint(accountStatementCheckpoint)
+                .build(),
+            GENERATION_TIMEOUT
+        ));
+        assertEquals(accountStatementId, accountStatementGeneratorResponse.getAccountStatementId());
+    }
+
+    private void archive(UUID accountStatementId, int... transactionNumbers) {
+        List<ArchiveFinancialTransaction> archiveFinancialTransactions = new ArrayList<>();
+        for (int transactionNumber : transactionNumbers) {
+            archiveFinancialTransactions.add(archiveFinancialTransaction(accountStatementId, chain.get(transactionNumber - 1), transactionNumber));
+        }
+        join(archiveRepository.moveFinancialTransactionsToArchive(archiveFinancialTransactions));
+    }
+
+    private static ArchiveFinancialTransaction archiveFinancialTransaction(UUID accountStatementId, FinancialTransaction financialTransaction,
+        int transactionNumber) {
+        return ArchiveFinancialTransaction.builder()
+            .accountStatementId(accountStatementId.toString())
+            .transactionId(financialTransaction.getTransactionId())
+            .transactionNumber(transactionNumber)
+            .previousTransactionId(financialTransaction.getPreviousTransactionId())
+            .compressedData(financialTransaction.getData())
+            .signature(new byte[]{(byte) transactionNumber})
+            .signatureAlgorithm(SignatureAlgorithm.SHA512_WITH_RSA)
+            .build();
+    }
+
+    private List<String> chainTransactionIds() {
+        return chain.stream().map(FinancialTransaction::getTransactionId).collect(Collectors.toList());
+    }
+
+    private List<String> archivedTransactionIds(UUID accountStatementId) throws SQLException {
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ARCHIVED_TRANSACTION_IDS)
+        ) {
+            preparedStatement.setString(1, accountStatementId.toString());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<String> transactionIds = new ArrayList<>();
+                while (resultSet.next()) {
+                    transactionIds.add(resultSet.getString(1));
+                }
+                return transactionIds;
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    private static <T> T join(CompletionStage<T> completionStage) {
+        return completionStage.toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,129 @@
+package hu.upscale.akka.demo.admission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.exception.AdmissionRejectedException;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import io.prometheus.client.CollectorRegistry;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class AdmissionControllerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final long MAX_QUEUE_TIME_MILLIS = 200;
+
+    private CollectorRegistry collectorRegistry;
+    private AdmissionController admissionController;
+
+    @Before
+    public void setUp() {
+        collectorRegistry = new CollectorRegistry();
+        admissionController = new AdmissionController(ConfigFactory.parseString(
+            "microservice.account-statement.admission { max-in-flight = 2, max-queued = 2, max-queue-time = " + MAX_QUEUE_TIME_MILLIS + " ms }"
+        ).withFallback(ConfigFactory.load()), new PipelineMetrics(collectorRegistry));
+    }
+
+    @Test
+    public void admitsUpToMaxInFlightStatementsAtOnce() throws Exception {
+        admit();
+        assertFalse(admissionController.isSaturated());
+
+        admit();
+        assertTrue(admissionController.isSaturated());
+    }
+
+    @Test
+    public void queuesUpToMaxQueuedStatementsAndRejectsTheRest() throws Exception {
+        admit();
+        admit();
+
+        CompletableFuture<AdmissionPermit> first = tryAcquire(false);
+        CompletableFuture<AdmissionPermit> second = tryAcquire(false);
+
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(2.0, collectorRegistry.getSampleValue("account_statement_admission_queued"), 0.0);
+        assertEquals(Optional.empty(), admissionController.tryAcquire(false));
+        assertEquals(1.0, rejectedStatements(), 0.0);
+    }
+
+    @Test
+    public void releaseHandsThePermitOverInArrivalOrder() throws Exception {
+        AdmissionPermit running = admit();
+        admit();
+        CompletableFuture<AdmissionPermit> first = tryAcquire(false);
+        CompletableFuture<AdmissionPermit> second = tryAcquire(false);
+
+        running.release();
+        // Releasing a permit more than once has no effect
+        running.release();
+
+        AdmissionPermit handedOver = first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(second.isDone());
+        assertTrue(admissionController.isSaturated());
+
+        handedOver.release();
+        second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(0.0, collectorRegistry.getSampleValue("account_statement_admission_queued"), 0.0);
+    }
+
+    @Test
+    public void rejectsQueuedStatementsHoldingAConnectionAfterMaxQueueTime() throws Exception {
+        AdmissionPermit running = admit();
+        admit();
+
+        CompletableFuture<AdmissionPermit> waiting = tryAcquire(true);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof AdmissionRejectedException);
+        assertEquals(1.0, rejectedStatements(), 0.0);
+        assertEquals(0.0, collectorRegistry.getSampleValue("account_statement_admission_queued"), 0.0);
+
+        // The timed out statement is not handed the permit, it goes back to the pool
+        running.release();
+        assertFalse(admissionController.isSaturated());
+    }
+
+    @Test
+    public void asynchronousStatementsWaitBeyondMaxQueueTime() throws Exception {
+        AdmissionPermit running = admit();
+        admit();
+
+        CompletableFuture<AdmissionPermit> waiting = tryAcquire(false);
+        Thread.sleep(2 * MAX_QUEUE_TIME_MILLIS);
+
+        assertFalse(waiting.isDone());
+        running.release();
+        waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(0.0, rejectedStatements(), 0.0);
+    }
+
+    private AdmissionPermit admit() throws Exception {
+        CompletableFuture<AdmissionPermit> permit = tryAcquire(false);
+        assertTrue("Permit must be granted immediately", permit.isDone());
+        return permit.get();
+    }
+
+    private CompletableFuture<AdmissionPermit> tryAcquire(boolean holdsConnection) {
+        return admissionController.tryAcquire(holdsConnection)
+            .map(CompletionStage::toCompletableFuture)
+            .orElseThrow(() -> new AssertionError("Admission queue is full"));
+    }
+
+    private double rejectedStatements() {
+        return collectorRegistry.getSampleValue("account_statement_admission_rejected_total");
+    }
+}
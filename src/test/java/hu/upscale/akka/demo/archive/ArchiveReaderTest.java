@@ -0,0 +1,245 @@
+package hu.upscale.akka.demo.archive;
+
+import static hu.upscale.akka.demo.archive.ArchiveStatementCache.FIRST_TRANSACTION_NUMBER;
+import static hu.upscale.akka.demo.archive.ArchiveStatementCache.LAST_TRANSACTION_NUMBER;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.H2TestInjector;
+import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor;
+import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor.AccountStatementGeneratorRequest;
+import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor.AccountStatementGeneratorResponse;
+import hu.upscale.akka.demo.client.GetAccountStatementTransactionResponse;
+import hu.upscale.akka.demo.compression.CompressionMode;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
+import hu.upscale.akka.demo.entity.AccountStatementCheckpoint;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import hu.upscale.akka.demo.repository.AccountStatementCheckpointRepository;
+import hu.upscale.akka.demo.repository.ArchiveRepository;
+import hu.upscale.akka.demo.repository.FinancialTransactionRepository;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Generates statements in the ROW and BLOCK archive layouts against the in-process H2 database and streams them back. The read page sizes are
+ * smaller than the statements, so every read takes several keyset queries.
+ *
+ * @author László Zoltán
+ */
+public class ArchiveReaderTest {
+
+    private static final int CHAIN_LENGTH = 11;
+    private static final int BLOCK_MAX_TRANSACTIONS = 3;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String READER_CONFIG = "microservice {%n"
+        + "  account-statement.read { page-size = 2, block-page-size = 1 }%n"
+        + "  archive { layout = %s, block { max-transactions = " + BLOCK_MAX_TRANSACTIONS + ", max-delay = 1 s } }%n"
+        + "}";
+
+    private static final String SELECT_ARCHIVE_ROW_COUNT = "SELECT COUNT(*) FROM demo.ArchiveFinancialTransaction WHERE AccountStatementId = ?";
+    private static final String SELECT_ARCHIVE_BLOCK_COUNT
+        = "SELECT COUNT(*) FROM demo.ArchiveFinancialTransactionBlock WHERE AccountStatementId = ?";
+    private static final String DELETE_ARCHIVE_ROWS = "DELETE FROM demo.ArchiveFinancialTransaction WHERE AccountStatementId = ?";
+    private static final String DELETE_ARCHIVE_BLOCKS = "DELETE FROM demo.ArchiveFinancialTransactionBlock WHERE AccountStatementId = ?";
+
+    private Injector injector;
+    private DataSource dataSource;
+    private ArchiveReader archiveReader;
+    private UUID lastTransactionId;
+    private List<FinancialTransaction> chain;
+
+    @After
+    public void tearDown() {
+        H2TestInjector.shutdown(injector);
+    }
+
+    @Test
+    public void readsAStatementArchivedRowByRow() throws SQLException {
+        setUp(ArchiveLayout.ROW);
+
+        UUID accountStatementId = generate(null);
+
+        assertEquals(CHAIN_LENGTH, count(SELECT_ARCHIVE_ROW_COUNT, accountStatementId));
+        assertChain(1, CHAIN_LENGTH, read(accountStatementId, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER));
+        assertChain(2, 7, read(accountStatementId, 2, 7));
+    }
+
+    @Test
+    public void readsAStatementArchivedInBlocks() throws SQLException {
+        setUp(ArchiveLayout.BLOCK);
+
+        UUID accountStatementId = generate(null);
+
+        assertEquals(0, count(SELECT_ARCHIVE_ROW_COUNT, accountStatementId));
+        assertTrue("The statement takes more than one block page", count(SELECT_ARCHIVE_BLOCK_COUNT, accountStatementId) > 1);
+        assertChain(1, CHAIN_LENGTH, read(accountStatementId, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER));
+        // The range starts and ends inside a block
+        assertChain(2, 8, read(accountStatementId, 2, 8));
+    }
+
+    @Test
+    public void readsTheArchiveRowsBeforeTheBlocksOfAResumedStatement() throws SQLException {
+        setUp(ArchiveLayout.BLOCK);
+        UUID accountStatementId = UUID.randomUUID();
+        // Rows archived before the layout was switched to BLOCK and the statement was interrupted
+        List<ArchiveFinancialTransaction> archiveFinancialTransactions = new ArrayList<>();
+        for (int transactionNumber = 1; transactionNumber <= 5; transactionNumber++) {
+            archiveFinancialTransactions.add(storedArchiveFinancialTransaction(accountStatementId, transactionNumber));
+        }
+        join(injector.getInstance(ArchiveRepository.class).moveFinancialTransactionsToArchive(archiveFinancialTransactions));
+
+        generate(AccountStatementCheckpoint.builder()
+            .accountStatementId(accountStatementId.toString())
+            .lastTransactionId(lastTransactionId.toString())
+            .lastArchivedTransactionNumber(5)
+            .nextTransactionId(chain.get(5).getTransactionId())
+            .nextBlockNumber(1)
+            .build());
+
+        assertEquals(5, count(SELECT_ARCHIVE_ROW_COUNT, accountStatementId));
+        assertTrue(count(SELECT_ARCHIVE_BLOCK_COUNT, accountStatementId) > 0);
+        assertChain(1, CHAIN_LENGTH, read(accountStatementId, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER));
+        assertChain(4, 7, read(accountStatementId, 4, 7));
+    }
+
+    @Test
+    public void completedReadsFillTheCache() throws SQLException {
+        setUp(ArchiveLayout.BLOCK);
+        UUID accountStatementId = generate(null);
+        ArchiveStatementCache archiveStatementCache = injector.getInstance(ArchiveStatementCache.class);
+
+        List<GetAccountStatementTransactionResponse> financialTransactions
+            = read(accountStatementId, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER);
+
+        assertEquals(financialTransactions,
+            archiveStatementCache.get(accountStatementId.toString(), FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER).orElseThrow());
+        // Later reads are served from the cache, even ranges of the statement
+        delete(accountStatementId);
+        assertChain(1, CHAIN_LENGTH, read(accountStatementId, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER));
+        assertChain(3, 9, read(accountStatementId, 3, 9));
+    }
+
+    private void setUp(ArchiveLayout archiveLayout) {
+        injector = H2TestInjector.create(String.format(READER_CONFIG, archiveLayout));
+        dataSource = injector.getInstance(DataSource.class);
+        archiveReader = injector.getInstance(ArchiveReader.class);
+
+        lastTransactionId = new FinancialTransactionChainGenerator(dataSource)
+            .generate(ChainGeneratorSettings.fromConfig(injector.getInstance(Config.class)).withFixedShape(1, CHAIN_LENGTH, 256))
+            .get(0);
+        chain = join(injector.getInstance(FinancialTransactionRepository.class)
+            .findFinancialTransactionChainPage(lastTransactionId.toString(), CHAIN_LENGTH));
+    }
+
+    /**
+     * Generates a statement from the chain like POST /account-statement does, or resumes it from the checkpoint.
+     */
+    private UUID generate(AccountStatementCheckpoint accountStatementCheckpoint) {
+        if (accountStatementCheckpoint != null) {
+            join(injector.getInstance(AccountStatementCheckpointRepository.class).insertCheckpoint(accountStatementCheckpoint));
+        }
+
+        AccountStatementGeneratorResponse accountStatementGeneratorResponse = (AccountStatementGeneratorResponse) join(Patterns.ask(
+            injector.getInstance(Key.get(ActorRef.class, Names.named(AccountStatementGeneratorActor.ACTOR_NAME))),
+            AccountStatementGeneratorRequest.builder()
+                .lastTransactionId(lastTransactionId)
+                .checkpoint(accountStatementCheckpoint)
+                .build(),
+            TIMEOUT
+        ));
+        return accountStatementGeneratorResponse.getAccountStatementId();
+    }
+
+    private List<GetAccountStatementTransactionResponse> read(UUID accountStatementId, int fromTransactionNumber, int toTransactionNumber) {
+        return join(archiveReader.readAccountStatement(accountStatementId, fromTransactionNumber, toTransactionNumber)
+            .runWith(Sink.seq(), Materializer.matFromSystem(injector.getInstance(ActorSystem.class))));
+    }
+
+    /**
+     * The transactions have to be streamed in transaction number order with their decompressed payloads.
+     */
+    private void assertChain(int fromTransactionNumber, int toTransactionNumber, List<GetAccountStatementTransactionResponse> financialTransactions) {
+        assertEquals(toTransactionNumber - fromTransactionNumber + 1, financialTransactions.size());
+        for (int i = 0; i < financialTransactions.size(); i++) {
+            int transactionNumber = fromTransactionNumber + i;
+            FinancialTransaction financialTransaction = chain.get(transactionNumber - 1);
+            GetAccountStatementTransactionResponse response = financialTransactions.get(i);
+
+            assertEquals(transactionNumber, response.getTransactionNumber());
+            assertEquals(financialTransaction.getTransactionId(), response.getTransactionId());
+            assertArrayEquals("transaction number " + transactionNumber, financialTransaction.getData(), response.getData());
+        }
+    }
+
+    private ArchiveFinancialTransaction storedArchiveFinancialTransaction(UUID accountStatementId, int transactionNumber) {
+        FinancialTransaction financialTransaction = chain.get(transactionNumber - 1);
+        byte[] data = financialTransaction.getData();
+        byte[] compressedData = new byte[data.length + 1];
+        compressedData[0] = CompressionMode.STORED.getMarker();
+        System.arraycopy(data, 0, compressedData, 1, data.length);
+
+        return ArchiveFinancialTransaction.builder()
+            .accountStatementId(accountStatementId.toString())
+            .transactionId(financialTransaction.getTransactionId())
+            .transactionNumber(transactionNumber)
+            .previousTransactionId(financialTransaction.getPreviousTransactionId())
+            .compressedData(compressedData)
+            .signature(new byte[]{(byte) transactionNumber})
+            .signatureAlgorithm(SignatureAlgorithm.SHA512_WITH_RSA)
+            .build();
+    }
+
+    private int count(String sql, UUID accountStatementId) throws SQLException {
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql)
+        ) {
+            preparedStatement.setString(1, accountStatementId.toString());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    private void delete(UUID accountStatementId) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (String sql : List.of(DELETE_ARCHIVE_ROWS, DELETE_ARCHIVE_BLOCKS)) {
+                try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                    preparedStatement.setString(1, accountStatementId.toString());
+                    preparedStatement.executeUpdate();
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    private static <T> T join(CompletionStage<T> completionStage) {
+        return completionStage.toCompletableFuture().join();
+    }
+}
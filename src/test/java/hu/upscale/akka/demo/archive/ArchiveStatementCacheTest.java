@@ -0,0 +1,101 @@
+package hu.upscale.akka.demo.archive;
+
+import static hu.upscale.akka.demo.archive.ArchiveStatementCache.FIRST_TRANSACTION_NUMBER;
+import static hu.upscale.akka.demo.archive.ArchiveStatementCache.LAST_TRANSACTION_NUMBER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.client.GetAccountStatementTransactionResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class ArchiveStatementCacheTest {
+
+    private static final String ACCOUNT_STATEMENT_ID = "statement";
+    private static final String OTHER_ACCOUNT_STATEMENT_ID = "other statement";
+
+    private final ArchiveStatementCache archiveStatementCache = new ArchiveStatementCache(ConfigFactory.load());
+
+    @Test
+    public void slicesRangesFromTheWholeStatement() {
+        archiveStatementCache.put(ACCOUNT_STATEMENT_ID, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER, financialTransactions(1, 5),
+            archiveStatementCache.startLoad());
+
+        assertEquals(Optional.of(financialTransactions(2, 3)), archiveStatementCache.get(ACCOUNT_STATEMENT_ID, 2, 4));
+        assertEquals(Optional.empty(), archiveStatementCache.get(OTHER_ACCOUNT_STATEMENT_ID, 2, 4));
+    }
+
+    @Test
+    public void discardsTheLoadOfAnInvalidatedStatement() {
+        long loadToken = archiveStatementCache.startLoad();
+        archiveStatementCache.invalidate(ACCOUNT_STATEMENT_ID);
+
+        archiveStatementCache.put(ACCOUNT_STATEMENT_ID, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER, financialTransactions(1, 5), loadToken);
+
+        assertEquals(Optional.empty(), archiveStatementCache.get(ACCOUNT_STATEMENT_ID, 1, 5));
+    }
+
+    @Test
+    public void keepsTheLoadOfAStatementInvalidatedBeforeTheLoadStarted() {
+        archiveStatementCache.invalidate(ACCOUNT_STATEMENT_ID);
+        long loadToken = archiveStatementCache.startLoad();
+
+        archiveStatementCache.put(ACCOUNT_STATEMENT_ID, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER, financialTransactions(1, 5), loadToken);
+
+        assertTrue(archiveStatementCache.get(ACCOUNT_STATEMENT_ID, 1, 5).isPresent());
+    }
+
+    @Test
+    public void writesOfOtherStatementsDoNotDiscardTheLoad() {
+        long loadToken = archiveStatementCache.startLoad();
+        archiveStatementCache.invalidate(OTHER_ACCOUNT_STATEMENT_ID);
+
+        archiveStatementCache.put(ACCOUNT_STATEMENT_ID, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER, financialTransactions(1, 5), loadToken);
+
+        assertEquals(Optional.of(financialTransactions(1, 5)), archiveStatementCache.get(ACCOUNT_STATEMENT_ID, 1, 5));
+    }
+
+    @Test
+    public void invalidateAllDiscardsEveryLoadInProgress() {
+        long loadToken = archiveStatementCache.startLoad();
+        archiveStatementCache.invalidateAll();
+
+        archiveStatementCache.put(ACCOUNT_STATEMENT_ID, FIRST_TRANSACTION_NUMBER, LAST_TRANSACTION_NUMBER, financialTransactions(1, 5), loadToken);
+
+        assertEquals(Optional.empty(), archiveStatementCache.get(ACCOUNT_STATEMENT_ID, 1, 5));
+        assertEquals(0, archiveStatementCache.getEntryCount());
+    }
+
+    @Test
+    public void invalidateDropsOnlyTheRangesOfTheStatement() {
+        archiveStatementCache.put(ACCOUNT_STATEMENT_ID, 1, 2, financialTransactions(1, 2), archiveStatementCache.startLoad());
+        archiveStatementCache.put(ACCOUNT_STATEMENT_ID, 3, 4, financialTransactions(3, 2), archiveStatementCache.startLoad());
+        archiveStatementCache.put(OTHER_ACCOUNT_STATEMENT_ID, 1, 2, financialTransactions(1, 2), archiveStatementCache.startLoad());
+
+        archiveStatementCache.invalidate(ACCOUNT_STATEMENT_ID);
+
+        assertEquals(1, archiveStatementCache.getEntryCount());
+        assertEquals(2, archiveStatementCache.getInvalidationCount());
+        assertEquals(ArchiveStatementCache.weigh(financialTransactions(1, 2)), archiveStatementCache.getWeightInBytes());
+        assertTrue(archiveStatementCache.get(OTHER_ACCOUNT_STATEMENT_ID, 1, 2).isPresent());
+    }
+
+    private static List<GetAccountStatementTransactionResponse> financialTransactions(int firstTransactionNumber, int count) {
+        GetAccountStatementTransactionResponse[] financialTransactions = new GetAccountStatementTransactionResponse[count];
+        for (int i = 0; i < count; i++) {
+            int transactionNumber = firstTransactionNumber + i;
+            financialTransactions[i] = GetAccountStatementTransactionResponse.builder()
+                .transactionId("transaction " + transactionNumber)
+                .transactionNumber(transactionNumber)
+                .data(("{\"transactionNumber\":" + transactionNumber + "}").getBytes(StandardCharsets.UTF_8))
+                .build();
+        }
+        return List.of(financialTransactions);
+    }
+}
@@ -0,0 +1,143 @@
+package hu.upscale.akka.demo.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.metrics.PipelineMetrics;
+import hu.upscale.akka.demo.repository.ArchiveRepository;
+import hu.upscale.akka.demo.tracing.PipelineTracing;
+import io.opentelemetry.api.OpenTelemetry;
+import io.prometheus.client.CollectorRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class ArchiveWriteCombinerTest {
+
+    private static final String ACCOUNT_STATEMENT_ID = "statement";
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private Config config;
+    private ActorSystem actorSystem;
+    private RecordingArchiveRepository archiveRepository;
+    private ArchiveWriteCombiner archiveWriteCombiner;
+
+    @Before
+    public void setUp() {
+        // A window closes when it is full, the delay is long enough for every move of a test to land in the same window
+        config = ConfigFactory.parseString(
+            "microservice.archive.write-combiner { max-batch-size = 3, max-batch-delay = 10 s, parallelism = 1, buffer-size = 16 }"
+        ).withFallback(ConfigFactory.load());
+        actorSystem = ActorSystem.create("ArchiveWriteCombinerTest", config);
+        archiveRepository = new RecordingArchiveRepository();
+        archiveWriteCombiner = new ArchiveWriteCombiner(config, actorSystem, archiveRepository, new ArchiveStatementCache(config),
+            new PipelineMetrics(new CollectorRegistry()), new PipelineTracing(OpenTelemetry.noop()));
+    }
+
+    @After
+    public void tearDown() {
+        TestKit.shutdownActorSystem(actorSystem);
+    }
+
+    @Test
+    public void completesEveryCallerWhenTheWindowIsCommitted() throws Exception {
+        CompletableFuture<Void> commit = new CompletableFuture<>();
+        archiveRepository.windowResult = commit;
+
+        List<CompletableFuture<Void>> completions = submit("a", "b", "c");
+        archiveRepository.awaitCalls(1);
+
+        assertEquals(List.of(List.of("a", "b", "c")), archiveRepository.calls);
+        assertTrue("Callers must wait for the commit", completions.stream().noneMatch(CompletableFuture::isDone));
+
+        commit.complete(null);
+        for (CompletableFuture<Void> completion : completions) {
+            completion.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        assertEquals(1, archiveRepository.calls.size());
+    }
+
+    @Test
+    public void retriesEveryMoveIndividuallyWhenTheWindowFails() throws Exception {
+        archiveRepository.windowResult = CompletableFuture.failedFuture(new IllegalStateException("window failed"));
+        archiveRepository.failingTransactionIds = Set.of("b");
+
+        List<CompletableFuture<Void>> completions = submit("a", "b", "c");
+
+        completions.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        completions.get(2).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> completions.get(1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("b", failure.getCause().getMessage());
+
+        assertEquals(4, archiveRepository.calls.size());
+        assertEquals(List.of("a", "b", "c"), archiveRepository.calls.get(0));
+        assertEquals(Set.of(List.of("a"), List.of("b"), List.of("c")), Set.copyOf(archiveRepository.calls.subList(1, 4)));
+    }
+
+    private List<CompletableFuture<Void>> submit(String... transactionIds) {
+        return List.of(transactionIds).stream()
+            .map(transactionId -> archiveWriteCombiner.moveFinancialTransactionToArchive(ArchiveFinancialTransaction.builder()
+                .accountStatementId(ACCOUNT_STATEMENT_ID)
+                .transactionId(transactionId)
+                .build()
+            ).toCompletableFuture())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Completes windows (more than one move) with {@link #windowResult}, single moves succeed unless their transaction id is failing.
+     */
+    private static final class RecordingArchiveRepository implements ArchiveRepository {
+
+        private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+        private volatile CompletableFuture<Void> windowResult = CompletableFuture.completedFuture(null);
+        private volatile Set<String> failingTransactionIds = Set.of();
+
+        @Override
+        public CompletionStage<Void> moveFinancialTransactionsToArchive(List<ArchiveFinancialTransaction> archiveFinancialTransactions) {
+            List<String> transactionIds = archiveFinancialTransactions.stream()
+                .map(ArchiveFinancialTransaction::getTransactionId)
+                .collect(Collectors.toList());
+            calls.add(transactionIds);
+
+            if (transactionIds.size() > 1) {
+                return windowResult;
+            }
+            if (failingTransactionIds.contains(transactionIds.get(0))) {
+                return CompletableFuture.failedFuture(new IllegalStateException(transactionIds.get(0)));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletionStage<Void> moveFinancialTransactionBlockToArchive(ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock,
+            List<String> transactionIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        private void awaitCalls(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (calls.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package hu.upscale.akka.demo.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.inject.Injector;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.H2TestInjector;
+import hu.upscale.akka.demo.compression.CompressionCodec;
+import hu.upscale.akka.demo.crypto.RsaSignatureScheme;
+import hu.upscale.akka.demo.crypto.SignatureScheme;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import hu.upscale.akka.demo.repository.ArchiveRepository;
+import hu.upscale.akka.demo.repository.FinancialTransactionRepository;
+import hu.upscale.akka.demo.repository.JdbcArchiveRepository;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class ArchiveAuditorTest {
+
+    private static final String ROW_STATEMENT_ID = new UUID(0, 1).toString();
+    private static final String BLOCK_STATEMENT_ID = new UUID(0, 2).toString();
+    private static final String MIXED_STATEMENT_ID = new UUID(0, 3).toString();
+    private static final int ARCHIVE_ROWS = 4;
+
+    private final SignatureScheme signatureScheme = new RsaSignatureScheme();
+    private final CompressionCodec compressionCodec = new CompressionCodec(ConfigFactory.load());
+
+    private Injector injector;
+    private ArchiveRepository archiveRepository;
+    private Path reportFile;
+    private Deque<String> chainTransactionIds;
+
+    @Before
+    public void setUp() throws Exception {
+        // Small pages, so the keyset pagination of both tables is exercised
+        injector = H2TestInjector.create("microservice.audit { page-size = 2, block-page-size = 1, parallelism = 2 }");
+        DataSource dataSource = injector.getInstance(DataSource.class);
+        archiveRepository = new JdbcArchiveRepository(dataSource, ForkJoinPool.commonPool());
+
+        // Archive rows are moved out of the chain, so they need financial transactions to move
+        String lastTransactionId = new FinancialTransactionChainGenerator(dataSource)
+            .generate(ChainGeneratorSettings.fromConfig(injector.getInstance(Config.class)).withFixedShape(1, ARCHIVE_ROWS, 256))
+            .get(0)
+            .toString();
+        chainTransactionIds = new ArrayDeque<>();
+        injector.getInstance(FinancialTransactionRepository.class).findFinancialTransactionChainPage(lastTransactionId, ARCHIVE_ROWS)
+            .toCompletableFuture().join()
+            .forEach(financialTransaction -> chainTransactionIds.add(financialTransaction.getTransactionId()));
+        reportFile = Files.createTempFile("archive-audit", ".csv");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        compressionCodec.close();
+        Files.deleteIfExists(reportFile);
+        H2TestInjector.shutdown(injector);
+    }
+
+    @Test
+    public void auditsArchiveRowsAndBlocks() throws Exception {
+        archiveRows(ROW_STATEMENT_ID, 1, 3);
+        archiveBlock(BLOCK_STATEMENT_ID, 1, 1, 3, false);
+        archiveBlock(BLOCK_STATEMENT_ID, 2, 4, 2, false);
+        archiveRows(MIXED_STATEMENT_ID, 1, 1);
+        archiveBlock(MIXED_STATEMENT_ID, 1, 2, 2, true);
+
+        ArchiveAuditReport archiveAuditReport = injector.getInstance(ArchiveAuditor.class).audit(reportFile);
+
+        assertEquals(4, archiveAuditReport.getRows());
+        assertEquals(0, archiveAuditReport.getFailedRows());
+        assertEquals(3, archiveAuditReport.getBlocks());
+        assertEquals(1, archiveAuditReport.getFailedBlocks());
+        assertEquals(11, archiveAuditReport.getTransactions());
+        assertEquals(3, archiveAuditReport.getStatements());
+        assertEquals(1, archiveAuditReport.getFailedStatements());
+        assertTrue(archiveAuditReport.isFailed());
+        assertEquals(List.of(
+            "AccountStatementId;Transactions;Rows;FailedRows;Blocks;FailedBlocks;Verified",
+            ROW_STATEMENT_ID + ";3;3;0;0;0;true",
+            BLOCK_STATEMENT_ID + ";5;0;0;2;0;true",
+            MIXED_STATEMENT_ID + ";3;1;0;1;1;false"
+        ), Files.readAllLines(reportFile));
+    }
+
+    @Test
+    public void emptyArchivePassesTheAudit() {
+        ArchiveAuditReport archiveAuditReport = injector.getInstance(ArchiveAuditor.class).audit(reportFile);
+
+        assertEquals(0, archiveAuditReport.getTransactions());
+        assertEquals(0, archiveAuditReport.getStatements());
+        assertFalse(archiveAuditReport.isFailed());
+    }
+
+    private void archiveRows(String accountStatementId, int firstTransactionNumber, int count) {
+        for (int transactionNumber = firstTransactionNumber; transactionNumber < firstTransactionNumber + count; transactionNumber++) {
+            byte[] data = data(accountStatementId, transactionNumber);
+            archiveRepository.moveFinancialTransactionsToArchive(List.of(ArchiveFinancialTransaction.builder()
+                .accountStatementId(accountStatementId)
+                .transactionId(chainTransactionIds.pop())
+                .transactionNumber(transactionNumber)
+                .compressedData(compressionCodec.compress(data))
+                .signature(signatureScheme.sign(data))
+                .signatureAlgorithm(signatureScheme.getSignatureAlgorithm())
+                .build()
+            )).toCompletableFuture().join();
+        }
+    }
+
+    private void archiveBlock(String accountStatementId, int blockNumber, int firstTransactionNumber, int count, boolean tampered) {
+        StringBuilder payload = new StringBuilder();
+        for (int transactionNumber = firstTransactionNumber; transactionNumber < firstTransactionNumber + count; transactionNumber++) {
+            payload.append(new String(data(accountStatementId, transactionNumber), StandardCharsets.UTF_8));
+        }
+        byte[] data = payload.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] signature = signatureScheme.sign(data);
+        if (tampered) {
+            signature[0] ^= 1;
+        }
+
+        archiveRepository.moveFinancialTransactionBlockToArchive(ArchiveFinancialTransactionBlock.builder()
+            .accountStatementId(accountStatementId)
+            .blockNumber(blockNumber)
+            .firstTransactionNumber(firstTransactionNumber)
+            .transactionCount(count)
+            .offsetIndex(new byte[0])
+            .compressedData(compressionCodec.compress(data))
+            .signature(signature)
+            .signatureAlgorithm(signatureScheme.getSignatureAlgorithm())
+            .build(), List.of()
+        ).toCompletableFuture().join();
+    }
+
+    private static byte[] data(String accountStatementId, int transactionNumber) {
+        return ("{\"accountStatementId\":\"" + accountStatementId + "\",\"transactionNumber\":" + transactionNumber + ",\"amount\":100}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+}
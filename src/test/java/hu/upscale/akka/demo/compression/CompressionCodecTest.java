@@ -0,0 +1,132 @@
+package hu.upscale.akka.demo.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.exception.CompressionException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class CompressionCodecTest {
+
+    private final CompressionCodec compressionCodec = new CompressionCodec(ConfigFactory.load());
+
+    @After
+    public void tearDown() {
+        compressionCodec.close();
+    }
+
+    @Test
+    public void storesPayloadsBelowTheMinimumSize() {
+        byte[] rawData = "{\"amount\":1}".getBytes(StandardCharsets.UTF_8);
+
+        byte[] compressedData = compressionCodec.compress(rawData);
+
+        assertEquals(CompressionMode.STORED, CompressionMode.of(compressedData));
+        assertArrayEquals(rawData, compressionCodec.decompress(compressedData, null));
+    }
+
+    @Test
+    public void storesRandomPayloads() {
+        for (int length : new int[]{64, 100, 200, 4_096, 100_000}) {
+            byte[] rawData = randomBytes(length);
+
+            byte[] compressedData = compressionCodec.compress(rawData);
+
+            assertEquals("length " + length, CompressionMode.STORED, CompressionMode.of(compressedData));
+            assertEquals(rawData.length + CompressionMode.STORED.getHeaderLength(), compressedData.length);
+            assertArrayEquals(rawData, compressionCodec.decompress(compressedData, null));
+        }
+    }
+
+    @Test
+    public void randomPayloadsOfAnySizeLookIncompressible() {
+        for (int length = 64; length <= 8_192; length *= 2) {
+            assertTrue("length " + length, compressionCodec.looksIncompressible(randomBytes(length)));
+            assertFalse("length " + length, compressionCodec.looksIncompressible(Arrays.copyOf(jsonBytes(200), length)));
+        }
+    }
+
+    @Test
+    public void deflatesCompressiblePayloads() {
+        byte[] rawData = jsonBytes(200);
+
+        byte[] compressedData = compressionCodec.compress(rawData);
+
+        assertEquals(CompressionMode.DEFLATE, CompressionMode.of(compressedData));
+        assertTrue(compressedData.length < rawData.length);
+        assertArrayEquals(rawData, compressionCodec.decompress(compressedData, null));
+    }
+
+    @Test
+    public void compressesSmallPayloadsWithThePresetDictionary() {
+        byte[] dictionary = jsonBytes(100);
+        byte[] rawData = jsonBytes(10);
+
+        byte[] compressedData = compressionCodec.compress(rawData, dictionary);
+
+        assertEquals(CompressionMode.DICTIONARY, CompressionMode.of(compressedData));
+        assertTrue(compressedData.length < compressionCodec.compress(rawData).length);
+        assertArrayEquals(rawData, compressionCodec.decompress(compressedData, dictionary));
+        assertThrows(CompressionException.class, () -> compressionCodec.decompress(compressedData, null));
+    }
+
+    @Test
+    public void deflatesLargePayloadsWithoutTheDictionary() {
+        byte[] rawData = jsonBytes(1_000);
+
+        byte[] compressedData = compressionCodec.compress(rawData, jsonBytes(100));
+
+        assertEquals(CompressionMode.DEFLATE, CompressionMode.of(compressedData));
+        assertArrayEquals(rawData, compressionCodec.decompress(compressedData, null));
+    }
+
+    @Test
+    public void decompressesAPrefixOfThePayload() {
+        byte[] rawData = jsonBytes(200);
+
+        byte[] prefix = compressionCodec.decompress(compressionCodec.compress(rawData), null, 100);
+
+        assertArrayEquals(Arrays.copyOf(rawData, 100), prefix);
+    }
+
+    @Test
+    public void decompressesLegacyZlibPayloads() {
+        byte[] rawData = jsonBytes(50);
+        Deflater deflater = new Deflater();
+        byte[] buffer = new byte[rawData.length + 64];
+        deflater.setInput(rawData);
+        deflater.finish();
+        byte[] legacyData = Arrays.copyOf(buffer, deflater.deflate(buffer));
+        deflater.end();
+
+        assertEquals((byte) 0x78, legacyData[0]);
+        assertEquals(CompressionMode.LEGACY_DEFLATE, CompressionMode.of(legacyData));
+        assertArrayEquals(rawData, compressionCodec.decompress(legacyData, null));
+    }
+
+    static byte[] jsonBytes(int transactions) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < transactions; i++) {
+            json.append("{\"transactionNumber\":").append(i).append(",\"amount\":").append(i * 37 % 1000).append(",\"currency\":\"HUF\"},");
+        }
+        return json.append("{}]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,160 @@
+package hu.upscale.akka.demo.compression;
+
+import static org.junit.Assert.assertEquals;
+
+import akka.actor.ActorSystem;
+import com.google.inject.Injector;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.H2TestInjector;
+import hu.upscale.akka.demo.entity.CompressionDictionary;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Trains, elects and prunes dictionary versions against the in-process H2 database.
+ *
+ * @author László Zoltán
+ */
+public class CompressionDictionaryRegistryTest {
+
+    private static final int CHAIN_LENGTH = 60;
+    private static final String DICTIONARY_CONFIG = "microservice.compression.dictionary { sample-size = %d, min-sample-size = 20, "
+        + "min-improvement = %s, retained-versions = %d }";
+
+    private static final String SELECT_DICTIONARY_VERSIONS
+        = "SELECT DictionaryId, BaseDictionaryId FROM demo.CompressionDictionary ORDER BY DictionaryId";
+    private static final String INSERT_COMPRESSION_DICTIONARY
+        = "INSERT INTO demo.CompressionDictionary (Dictionary, BaseDictionaryId, CreatedAt) VALUES (?, ?, ?)";
+    private static final String INSERT_ARCHIVE_FINANCIAL_TRANSACTION
+        = "INSERT INTO demo.ArchiveFinancialTransaction (AccountStatementId, TransactionId, TransactionNumber, CompressedData, "
+        + "CompressionDictionaryId, Signature, SignatureAlgorithm) VALUES (?, ?, 1, ?, ?, ?, 1)";
+
+    private Injector injector;
+    private DataSource dataSource;
+
+    @After
+    public void tearDown() {
+        H2TestInjector.shutdown(injector);
+    }
+
+    @Test
+    public void retrainingStoresANewVersionOnlyIfItImprovesCompressionEnough() throws SQLException {
+        CompressionDictionaryRegistry compressionDictionaryRegistry = compressionDictionaryRegistry("0", 3);
+        compressionDictionaryRegistry.trainCompressionDictionary().toCompletableFuture().join();
+        assertEquals(List.of(List.of(1, 0)), dictionaryVersions());
+
+        // No dictionary can shrink the held out samples to a hundredth of what the current version does
+        CompressionDictionaryRegistry demandingCompressionDictionaryRegistry = replica("0.99", 3);
+        demandingCompressionDictionaryRegistry.trainCompressionDictionary().toCompletableFuture().join();
+
+        assertEquals(List.of(List.of(1, 0)), dictionaryVersions());
+        assertEquals(Optional.of(1), demandingCompressionDictionaryRegistry.getCurrentCompressionDictionary()
+            .map(CompressionDictionary::getDictionaryId));
+    }
+
+    @Test
+    public void onlyOneReplicaStoresTheSuccessorOfAVersion() throws SQLException {
+        CompressionDictionaryRegistry compressionDictionaryRegistry = compressionDictionaryRegistry("0", 3);
+        // The replica has not seen the first version yet, it trains a successor of the same (empty) base
+        CompressionDictionaryRegistry staleCompressionDictionaryRegistry = replica("0", 3);
+
+        compressionDictionaryRegistry.trainCompressionDictionary().toCompletableFuture().join();
+        staleCompressionDictionaryRegistry.trainCompressionDictionary(null);
+
+        assertEquals(List.of(List.of(1, 0)), dictionaryVersions());
+        assertEquals(Optional.of(1), staleCompressionDictionaryRegistry.getCurrentCompressionDictionary()
+            .map(CompressionDictionary::getDictionaryId));
+    }
+
+    @Test
+    public void pruningKeepsTheNewestAndTheReferencedVersions() throws SQLException {
+        CompressionDictionaryRegistry compressionDictionaryRegistry = compressionDictionaryRegistry("0.02", 2);
+        for (int baseDictionaryId = 0; baseDictionaryId < 4; baseDictionaryId++) {
+            insertCompressionDictionary(baseDictionaryId);
+        }
+        insertArchiveFinancialTransaction(1);
+
+        compressionDictionaryRegistry.pruneCompressionDictionaries();
+
+        assertEquals(List.of(List.of(1, 0), List.of(3, 2), List.of(4, 3)), dictionaryVersions());
+    }
+
+    private CompressionDictionaryRegistry compressionDictionaryRegistry(String minImprovement, int retainedVersions) {
+        injector = H2TestInjector.create(String.format(DICTIONARY_CONFIG, CHAIN_LENGTH, minImprovement, retainedVersions));
+        dataSource = injector.getInstance(DataSource.class);
+        new FinancialTransactionChainGenerator(dataSource)
+            .generate(ChainGeneratorSettings.fromConfig(injector.getInstance(Config.class)).withFixedShape(1, CHAIN_LENGTH, 512));
+        return injector.getInstance(CompressionDictionaryRegistry.class);
+    }
+
+    /**
+     * Another instance of the service sharing the database.
+     */
+    private CompressionDictionaryRegistry replica(String minImprovement, int retainedVersions) {
+        Config config = injector.getInstance(Config.class);
+        return new CompressionDictionaryRegistry(
+            ConfigFactory.parseString(String.format(DICTIONARY_CONFIG, CHAIN_LENGTH, minImprovement, retainedVersions))
+                .withFallback(config),
+            injector.getInstance(ActorSystem.class), () -> dataSource, ForkJoinPool.commonPool());
+    }
+
+    private List<List<Integer>> dictionaryVersions() throws SQLException {
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_DICTIONARY_VERSIONS)
+        ) {
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<List<Integer>> dictionaryVersions = new ArrayList<>();
+                while (resultSet.next()) {
+                    dictionaryVersions.add(List.of(resultSet.getInt(1), resultSet.getInt(2)));
+                }
+                return dictionaryVersions;
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    private void insertCompressionDictionary(int baseDictionaryId) throws SQLException {
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(INSERT_COMPRESSION_DICTIONARY)
+        ) {
+            preparedStatement.setBytes(1, new byte[]{(byte) baseDictionaryId});
+            preparedStatement.setInt(2, baseDictionaryId);
+            preparedStatement.setTimestamp(3, Timestamp.from(Instant.now()));
+            preparedStatement.executeUpdate();
+            connection.commit();
+        }
+    }
+
+    private void insertArchiveFinancialTransaction(int compressionDictionaryId) throws SQLException {
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(INSERT_ARCHIVE_FINANCIAL_TRANSACTION)
+        ) {
+            preparedStatement.setString(1, UUID.randomUUID().toString());
+            preparedStatement.setString(2, UUID.randomUUID().toString());
+            preparedStatement.setBytes(3, new byte[]{2});
+            preparedStatement.setInt(4, compressionDictionaryId);
+            preparedStatement.setBytes(5, new byte[]{1});
+            preparedStatement.executeUpdate();
+            connection.commit();
+        }
+    }
+}
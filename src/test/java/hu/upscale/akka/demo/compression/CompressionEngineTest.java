@@ -0,0 +1,54 @@
+package hu.upscale.akka.demo.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.zip.Deflater;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class CompressionEngineTest {
+
+    private static final int[] LENGTHS = {0, 1, 64, 1_000, 16 * 1_024, 20_000, 100_000};
+    private static final int OFFSET = 3;
+
+    private final CompressionEngine compressionEngine = new CompressionEngine(Deflater.DEFAULT_COMPRESSION);
+
+    @After
+    public void tearDown() {
+        compressionEngine.close();
+    }
+
+    @Test
+    public void incompressiblePayloadsFitIntoTheMaxCompressedLength() {
+        byte[] dictionary = CompressionCodecTest.jsonBytes(100);
+        for (int length : LENGTHS) {
+            byte[] rawData = CompressionCodecTest.randomBytes(length);
+            for (byte[] presetDictionary : new byte[][]{null, dictionary}) {
+                byte[] output = new byte[OFFSET + CompressionEngine.maxCompressedLength(length, presetDictionary)];
+
+                int compressedDataLength = compressionEngine.compress(rawData, Deflater.BEST_COMPRESSION, presetDictionary, output, OFFSET);
+
+                assertTrue(compressedDataLength <= CompressionEngine.maxCompressedLength(length, presetDictionary));
+                byte[] compressedData = new byte[compressedDataLength];
+                System.arraycopy(output, OFFSET, compressedData, 0, compressedDataLength);
+                assertArrayEquals(rawData, compressionEngine.decompress(compressedData, 0, presetDictionary));
+            }
+        }
+    }
+
+    @Test
+    public void compressesIntoExactlySizedArraysWithADictionary() {
+        byte[] dictionary = CompressionCodecTest.jsonBytes(100);
+        for (int length : LENGTHS) {
+            byte[] rawData = CompressionCodecTest.randomBytes(length);
+
+            byte[] compressedData = compressionEngine.compress(rawData, Deflater.BEST_SPEED, dictionary, CompressionMode.DICTIONARY.getHeaderLength());
+
+            assertArrayEquals(rawData, compressionEngine.decompress(compressedData, CompressionMode.DICTIONARY.getHeaderLength(), dictionary));
+        }
+    }
+}
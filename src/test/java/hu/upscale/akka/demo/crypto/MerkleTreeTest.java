@@ -0,0 +1,146 @@
+package hu.upscale.akka.demo.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class MerkleTreeTest {
+
+    private static final int PROOF_STEP_LENGTH = 1 + MerkleTree.HASH_LENGTH;
+
+    @Test
+    public void rejectsAnEmptyBatch() {
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.of(List.of()));
+    }
+
+    @Test
+    public void singleLeafIsTheRoot() {
+        List<byte[]> leafHashes = leafHashes(1);
+
+        MerkleTree merkleTree = MerkleTree.of(leafHashes);
+
+        assertArrayEquals(leafHashes.get(0), merkleTree.getRoot());
+        assertEquals(0, merkleTree.getInclusionProof(0).length);
+        assertArrayEquals(merkleTree.getRoot(), MerkleTree.computeRoot(leafHashes.get(0), merkleTree.getInclusionProof(0)));
+    }
+
+    @Test
+    public void leavesAndNodesAreHashedWithDistinctPrefixes() {
+        byte[] data = "financial transaction".getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(MerkleTree.hashLeaf(data), MerkleTree.hashLeafDigest(MessageDigests.sha512(data)));
+        assertArrayEquals(sha512(new byte[]{0x00}, MessageDigests.sha512(data)), MerkleTree.hashLeaf(data));
+
+        List<byte[]> leafHashes = leafHashes(2);
+        assertArrayEquals(sha512(new byte[]{0x01}, leafHashes.get(0), leafHashes.get(1)), MerkleTree.of(leafHashes).getRoot());
+    }
+
+    @Test
+    public void promotesTheUnpairedNodeOfAnOddLevel() {
+        List<byte[]> leafHashes = leafHashes(5);
+
+        MerkleTree merkleTree = MerkleTree.of(leafHashes);
+
+        byte[] node01 = node(leafHashes.get(0), leafHashes.get(1));
+        byte[] node23 = node(leafHashes.get(2), leafHashes.get(3));
+        assertArrayEquals(node(node(node01, node23), leafHashes.get(4)), merkleTree.getRoot());
+        assertEquals(5, merkleTree.getLeafCount());
+        // The last leaf is promoted twice, only the top level adds a step to its proof
+        assertEquals(PROOF_STEP_LENGTH, merkleTree.getInclusionProof(4).length);
+        assertEquals(3 * PROOF_STEP_LENGTH, merkleTree.getInclusionProof(0).length);
+    }
+
+    @Test
+    public void inclusionProofOfEveryLeafLeadsToTheRoot() {
+        for (int leafCount = 1; leafCount <= 33; leafCount++) {
+            List<byte[]> leafHashes = leafHashes(leafCount);
+            MerkleTree merkleTree = MerkleTree.of(leafHashes);
+
+            for (int leafIndex = 0; leafIndex < leafCount; leafIndex++) {
+                assertArrayEquals("leaf " + leafIndex + " of " + leafCount, merkleTree.getRoot(),
+                    MerkleTree.computeRoot(leafHashes.get(leafIndex), merkleTree.getInclusionProof(leafIndex)));
+            }
+        }
+    }
+
+    @Test
+    public void tamperedLeavesAndProofsDoNotLeadToTheRoot() {
+        List<byte[]> leafHashes = leafHashes(7);
+        MerkleTree merkleTree = MerkleTree.of(leafHashes);
+        byte[] root = merkleTree.getRoot();
+
+        for (int leafIndex = 0; leafIndex < leafHashes.size(); leafIndex++) {
+            byte[] leafHash = leafHashes.get(leafIndex);
+            byte[] inclusionProof = merkleTree.getInclusionProof(leafIndex);
+
+            byte[] tamperedLeafHash = leafHash.clone();
+            tamperedLeafHash[0] ^= 1;
+            assertFalse(Arrays.equals(root, MerkleTree.computeRoot(tamperedLeafHash, inclusionProof)));
+
+            for (int step = 0; step < inclusionProof.length / PROOF_STEP_LENGTH; step++) {
+                byte[] swappedSide = inclusionProof.clone();
+                swappedSide[step * PROOF_STEP_LENGTH] ^= 1;
+                assertFalse(Arrays.equals(root, MerkleTree.computeRoot(leafHash, swappedSide)));
+
+                byte[] tamperedSibling = inclusionProof.clone();
+                tamperedSibling[step * PROOF_STEP_LENGTH + 1] ^= 1;
+                assertFalse(Arrays.equals(root, MerkleTree.computeRoot(leafHash, tamperedSibling)));
+            }
+
+            int otherLeafIndex = (leafIndex + 1) % leafHashes.size();
+            assertFalse(Arrays.equals(root, MerkleTree.computeRoot(leafHashes.get(otherLeafIndex), inclusionProof)));
+        }
+    }
+
+    @Test
+    public void truncatedAndMalformedProofsAreRejected() {
+        List<byte[]> leafHashes = leafHashes(7);
+        MerkleTree merkleTree = MerkleTree.of(leafHashes);
+        byte[] inclusionProof = merkleTree.getInclusionProof(0);
+        assertTrue(MerkleTree.isWellFormed(inclusionProof));
+
+        byte[] truncatedProof = Arrays.copyOf(inclusionProof, inclusionProof.length - 1);
+        byte[] sideOnlyProof = Arrays.copyOf(inclusionProof, inclusionProof.length + 1);
+        byte[] unknownSideProof = inclusionProof.clone();
+        unknownSideProof[PROOF_STEP_LENGTH] = 0x02;
+        byte[] tooDeepProof = new byte[Integer.SIZE * PROOF_STEP_LENGTH];
+
+        for (byte[] malformedProof : List.of(truncatedProof, sideOnlyProof, unknownSideProof, tooDeepProof)) {
+            assertFalse(MerkleTree.isWellFormed(malformedProof));
+            assertThrows(IllegalArgumentException.class, () -> MerkleTree.computeRoot(leafHashes.get(0), malformedProof));
+            assertFalse(ArchiveSignatureVerifier.verify(new byte[]{1}, new byte[]{2}, SignatureAlgorithm.SHA512_WITH_RSA, malformedProof));
+        }
+    }
+
+    private static List<byte[]> leafHashes(int count) {
+        List<byte[]> leafHashes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            leafHashes.add(MerkleTree.hashLeaf(("financial transaction " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        return leafHashes;
+    }
+
+    private static byte[] node(byte[] left, byte[] right) {
+        return sha512(new byte[]{0x01}, left, right);
+    }
+
+    private static byte[] sha512(byte[]... parts) {
+        MessageDigest messageDigest = MessageDigests.newSha512MessageDigest();
+        for (byte[] part : parts) {
+            messageDigest.update(part);
+        }
+        return messageDigest.digest();
+    }
+}
@@ -0,0 +1,30 @@
+package hu.upscale.akka.demo.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class RsaSignatureSchemeTest {
+
+    private final RsaSignatureScheme rsaSignatureScheme = new RsaSignatureScheme();
+
+    @Test
+    public void signingTheDigestEqualsSha512WithRsaOverTheData() {
+        for (int length : new int[]{0, 1, 1_000, 100_000}) {
+            byte[] data = new byte[length];
+            new Random(length).nextBytes(data);
+
+            byte[] digestSignature = rsaSignatureScheme.signDigest(MessageDigests.sha512(data));
+
+            assertEquals(rsaSignatureScheme.getSignatureAlgorithm(), rsaSignatureScheme.getDigestSignatureAlgorithm());
+            assertArrayEquals("length " + length, rsaSignatureScheme.sign(data), digestSignature);
+            assertTrue(rsaSignatureScheme.verify(data, digestSignature));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package hu.upscale.akka.demo.guice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import akka.actor.ActorRef;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.ProvisionException;
+import com.google.inject.name.Names;
+import hu.upscale.akka.demo.H2TestInjector;
+import hu.upscale.akka.demo.actor.AccountStatementGeneratorActor;
+import hu.upscale.akka.demo.actor.zip.ZipActor;
+import hu.upscale.akka.demo.archive.ArchiveReader;
+import hu.upscale.akka.demo.compression.CompressionDictionaryRegistry;
+import hu.upscale.akka.demo.repository.AccountStatementCheckpointRepository;
+import hu.upscale.akka.demo.repository.ArchiveRepository;
+import hu.upscale.akka.demo.repository.FinancialTransactionRepository;
+import hu.upscale.akka.demo.repository.R2dbcAccountStatementCheckpointRepository;
+import io.prometheus.client.CollectorRegistry;
+import java.util.Optional;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class GuiceInjectionModuleTest {
+
+    /**
+     * Creating the Hikari pool fails against this url, so any eager use of the data source fails the injection.
+     */
+    private static final String R2DBC_WITHOUT_JDBC_CONFIG = "microservice {\n"
+        + "  persistence { engine = R2DBC, r2dbc.schema = \"db/h2/schema.sql\" }\n"
+        + "  datasource { url = \"jdbc:h2:tcp://localhost:1/unavailable\", schema = \"\", initialization-fail-timeout = 1 }\n"
+        + "}";
+
+    private Injector injector;
+
+    @Before
+    public void setUp() {
+        injector = H2TestInjector.create(R2DBC_WITHOUT_JDBC_CONFIG);
+    }
+
+    @After
+    public void tearDown() {
+        H2TestInjector.shutdown(injector);
+    }
+
+    @Test
+    public void r2dbcEngineDoesNotCreateTheJdbcDataSource() {
+        injector.getInstance(FinancialTransactionRepository.class);
+        injector.getInstance(ArchiveRepository.class);
+        injector.getInstance(Key.get(ActorRef.class, Names.named(AccountStatementGeneratorActor.ACTOR_NAME)));
+        injector.getInstance(Key.get(ActorRef.class, Names.named(ZipActor.ACTOR_NAME)));
+        injector.getInstance(ArchiveReader.class);
+        injector.getInstance(CompressionDictionaryRegistry.class);
+
+        AccountStatementCheckpointRepository accountStatementCheckpointRepository = injector.getInstance(AccountStatementCheckpointRepository.class);
+        assertTrue(accountStatementCheckpointRepository instanceof R2dbcAccountStatementCheckpointRepository);
+        assertEquals(Optional.empty(),
+            accountStatementCheckpointRepository.findCheckpoint(UUID.randomUUID().toString()).toCompletableFuture().join());
+        injector.getInstance(CollectorRegistry.class);
+    }
+
+    @Test
+    public void jdbcDataSourceIsStillCreatedOnDemand() {
+        assertThrows(ProvisionException.class, () -> injector.getInstance(DataSource.class));
+    }
+}
@@ -0,0 +1,29 @@
+package hu.upscale.akka.demo.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class FlightRecorderServiceTest {
+
+    @Test
+    public void recordingsDoNotRecordTheEnvironmentOfTheJvm() {
+        for (String settings : new String[]{"default", "profile"}) {
+            Map<String, String> recordingSettings = FlightRecorderService.recordingSettings(settings);
+
+            assertEquals(settings, "false", recordingSettings.get("jdk.InitialEnvironmentVariable#enabled"));
+            assertEquals(settings, "false", recordingSettings.get("jdk.InitialSystemProperty#enabled"));
+        }
+    }
+
+    @Test
+    public void onlyTheJdkConfigurationsAreLoaded() {
+        assertThrows(IllegalArgumentException.class, () -> FlightRecorderService.recordingSettings("/tmp/custom.jfc"));
+        assertThrows(IllegalArgumentException.class, () -> FlightRecorderService.recordingSettings("custom"));
+    }
+}
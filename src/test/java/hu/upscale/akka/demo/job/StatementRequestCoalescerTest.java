@@ -0,0 +1,177 @@
+package hu.upscale.akka.demo.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import com.typesafe.config.ConfigFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class StatementRequestCoalescerTest {
+
+    private static final int CONCURRENT_REQUESTS = 16;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final UUID lastTransactionId = UUID.randomUUID();
+    private final AtomicInteger startedJobs = new AtomicInteger();
+    private final ExecutorService requestExecutor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+
+    @After
+    public void tearDown() {
+        requestExecutor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentRequestsOfTheSameChainShareOneJob() throws Exception {
+        StatementRequestCoalescer statementRequestCoalescer = statementRequestCoalescer("1 h", 100);
+        CountDownLatch start = new CountDownLatch(1);
+        Supplier<Optional<StatementJob>> slowStarter = () -> {
+            sleep(50);
+            return starter().get();
+        };
+
+        List<Future<Optional<CoalescedStatement>>> requests = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            requests.add(requestExecutor.submit(() -> {
+                start.await();
+                return statementRequestCoalescer.coalesce(lastTransactionId, slowStarter);
+            }));
+        }
+        start.countDown();
+
+        StatementJob statementJob = requests.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS).orElseThrow().getStatementJob();
+        for (Future<Optional<CoalescedStatement>> request : requests) {
+            assertSame(statementJob, request.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).orElseThrow().getStatementJob());
+        }
+        assertEquals(1, startedJobs.get());
+    }
+
+    @Test
+    public void createdStatementIsReplayedWithoutANewJob() {
+        StatementRequestCoalescer statementRequestCoalescer = statementRequestCoalescer("1 h", 100);
+        StatementJob statementJob = statementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow().getStatementJob();
+        UUID accountStatementId = UUID.randomUUID();
+        statementJob.started(accountStatementId);
+        statementJob.finished(null);
+
+        CoalescedStatement coalescedStatement = statementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow();
+
+        assertEquals(accountStatementId, coalescedStatement.getAccountStatementId());
+        assertNull(coalescedStatement.getStatementJob());
+        assertEquals(1, startedJobs.get());
+    }
+
+    @Test
+    public void failedJobIsForgotten() {
+        StatementRequestCoalescer statementRequestCoalescer = statementRequestCoalescer("1 h", 100);
+        StatementJob statementJob = statementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow().getStatementJob();
+        statementJob.finished(new IllegalStateException("generation failed"));
+
+        StatementJob retriedStatementJob = statementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow().getStatementJob();
+
+        assertNotSame(statementJob, retriedStatementJob);
+        assertEquals(2, startedJobs.get());
+    }
+
+    @Test
+    public void requestIsNotCoalescedWhenTheStarterDoesNotStartAJob() {
+        StatementRequestCoalescer statementRequestCoalescer = statementRequestCoalescer("1 h", 100);
+
+        assertEquals(Optional.empty(), statementRequestCoalescer.coalesce(lastTransactionId, Optional::empty));
+        statementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow();
+        assertEquals(1, startedJobs.get());
+    }
+
+    @Test
+    public void failingStarterLeavesTheChainFree() {
+        StatementRequestCoalescer statementRequestCoalescer = statementRequestCoalescer("1 h", 100);
+        Supplier<Optional<StatementJob>> failingStarter = () -> {
+            throw new IllegalStateException("admission failed");
+        };
+
+        assertThrows(IllegalStateException.class, () -> statementRequestCoalescer.coalesce(lastTransactionId, failingStarter));
+        statementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow();
+        assertEquals(1, startedJobs.get());
+    }
+
+    @Test
+    public void requestsWaitingOnARejectedStarterStartTheirOwnJob() throws Exception {
+        StatementRequestCoalescer statementRequestCoalescer = statementRequestCoalescer("1 h", 100);
+        CountDownLatch starting = new CountDownLatch(1);
+        Supplier<Optional<StatementJob>> rejectingStarter = () -> {
+            starting.countDown();
+            sleep(100);
+            return Optional.empty();
+        };
+
+        Future<Optional<CoalescedStatement>> rejectedRequest = requestExecutor.submit(() ->
+            statementRequestCoalescer.coalesce(lastTransactionId, rejectingStarter)
+        );
+        starting.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Optional<CoalescedStatement> waitingRequest = statementRequestCoalescer.coalesce(lastTransactionId, starter());
+
+        assertEquals(Optional.empty(), rejectedRequest.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNotNull(waitingRequest.orElseThrow().getStatementJob());
+        assertEquals(1, startedJobs.get());
+    }
+
+    @Test
+    public void createdStatementsAreForgottenAfterExpiryOrEviction() {
+        StatementRequestCoalescer expiringStatementRequestCoalescer = statementRequestCoalescer("50 ms", 100);
+        complete(expiringStatementRequestCoalescer, lastTransactionId);
+        sleep(100);
+        assertNull(expiringStatementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow().getAccountStatementId());
+
+        StatementRequestCoalescer evictingStatementRequestCoalescer = statementRequestCoalescer("1 h", 1);
+        complete(evictingStatementRequestCoalescer, lastTransactionId);
+        complete(evictingStatementRequestCoalescer, UUID.randomUUID());
+        assertNull(evictingStatementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow().getAccountStatementId());
+
+        assertEquals(5, startedJobs.get());
+    }
+
+    private void complete(StatementRequestCoalescer statementRequestCoalescer, UUID lastTransactionId) {
+        StatementJob statementJob = statementRequestCoalescer.coalesce(lastTransactionId, starter()).orElseThrow().getStatementJob();
+        statementJob.started(UUID.randomUUID());
+        statementJob.finished(null);
+    }
+
+    private Supplier<Optional<StatementJob>> starter() {
+        return () -> {
+            startedJobs.incrementAndGet();
+            return Optional.of(new StatementJob(UUID.randomUUID()));
+        };
+    }
+
+    private static StatementRequestCoalescer statementRequestCoalescer(String expireAfter, int maxEntries) {
+        return new StatementRequestCoalescer(ConfigFactory.parseString(
+            "microservice.account-statement.idempotency { expire-after = " + expireAfter + ", max-entries = " + maxEntries + " }"
+        ).withFallback(ConfigFactory.load()));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package hu.upscale.akka.demo.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.inject.Injector;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.H2TestInjector;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.entity.ArchivedChainSegment;
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import hu.upscale.akka.demo.exception.DbException;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Moves financial transactions that a concurrent or resumed run has already archived.
+ *
+ * @author László Zoltán
+ */
+public class JdbcArchiveRepositoryTest {
+
+    private static final int CHAIN_LENGTH = 4;
+    private static final String ACCOUNT_STATEMENT_ID = new UUID(0, 1).toString();
+
+    private Injector injector;
+    private ArchiveRepository archiveRepository;
+    private AccountStatementCheckpointRepository accountStatementCheckpointRepository;
+    private FinancialTransactionRepository financialTransactionRepository;
+    private List<FinancialTransaction> chain;
+
+    @Before
+    public void setUp() {
+        injector = H2TestInjector.create("");
+        DataSource dataSource = injector.getInstance(DataSource.class);
+        archiveRepository = new JdbcArchiveRepository(dataSource, ForkJoinPool.commonPool());
+        accountStatementCheckpointRepository = new JdbcAccountStatementCheckpointRepository(dataSource, ForkJoinPool.commonPool());
+        financialTransactionRepository = new JdbcFinancialTransactionRepository(dataSource, ForkJoinPool.commonPool(), SqlDialect.H2);
+
+        String lastTransactionId = new FinancialTransactionChainGenerator(dataSource)
+            .generate(ChainGeneratorSettings.fromConfig(injector.getInstance(Config.class)).withFixedShape(1, CHAIN_LENGTH, 256))
+            .get(0)
+            .toString();
+        chain = join(financialTransactionRepository.findFinancialTransactionChainPage(lastTransactionId, CHAIN_LENGTH));
+    }
+
+    @After
+    public void tearDown() {
+        H2TestInjector.shutdown(injector);
+    }
+
+    @Test
+    public void moveOfArchivedFinancialTransactionsIsRolledBack() {
+        join(archiveRepository.moveFinancialTransactionsToArchive(List.of(archiveFinancialTransaction(1))));
+
+        CompletionException failure = assertThrows(CompletionException.class,
+            () -> join(archiveRepository.moveFinancialTransactionsToArchive(List.of(archiveFinancialTransaction(2), archiveFinancialTransaction(1)))));
+
+        assertTrue(failure.getCause() instanceof DbException);
+        assertEquals(List.of(1), archivedTransactionNumbers());
+        // Transaction 2 is still in the chain
+        assertEquals(chain.subList(1, CHAIN_LENGTH), join(financialTransactionRepository.findFinancialTransactionChainPage(
+            chain.get(1).getTransactionId(), CHAIN_LENGTH)));
+    }
+
+    @Test
+    public void moveOfABlockWithArchivedFinancialTransactionsIsRolledBack() {
+        join(archiveRepository.moveFinancialTransactionsToArchive(List.of(archiveFinancialTransaction(2))));
+
+        CompletionException failure = assertThrows(CompletionException.class,
+            () -> join(archiveRepository.moveFinancialTransactionBlockToArchive(archiveFinancialTransactionBlock(1, 3), transactionIds(0, 3))));
+
+        assertTrue(failure.getCause() instanceof DbException);
+        assertEquals(List.of(2), archivedTransactionNumbers());
+        assertEquals(chain.subList(0, 1), join(financialTransactionRepository.findFinancialTransactionChainPage(chain.get(0).getTransactionId(), 1)));
+    }
+
+    @Test
+    public void movesFinancialTransactionsStillInTheChain() {
+        join(archiveRepository.moveFinancialTransactionsToArchive(List.of(archiveFinancialTransaction(1), archiveFinancialTransaction(2))));
+        join(archiveRepository.moveFinancialTransactionBlockToArchive(archiveFinancialTransactionBlock(3, 2), transactionIds(2, 4)));
+
+        assertEquals(List.of(1, 2, 3), archivedTransactionNumbers());
+    }
+
+    private ArchiveFinancialTransaction archiveFinancialTransaction(int transactionNumber) {
+        FinancialTransaction financialTransaction = chain.get(transactionNumber - 1);
+        return ArchiveFinancialTransaction.builder()
+            .accountStatementId(ACCOUNT_STATEMENT_ID)
+            .transactionId(financialTransaction.getTransactionId())
+            .transactionNumber(transactionNumber)
+            .previousTransactionId(financialTransaction.getPreviousTransactionId())
+            .compressedData(financialTransaction.getData())
+            .signature(new byte[]{(byte) transactionNumber})
+            .signatureAlgorithm(SignatureAlgorithm.SHA512_WITH_RSA)
+            .build();
+    }
+
+    private static ArchiveFinancialTransactionBlock archiveFinancialTransactionBlock(int firstTransactionNumber, int transactionCount) {
+        return ArchiveFinancialTransactionBlock.builder()
+            .accountStatementId(ACCOUNT_STATEMENT_ID)
+            .blockNumber(1)
+            .firstTransactionNumber(firstTransactionNumber)
+            .transactionCount(transactionCount)
+            .offsetIndex(new byte[0])
+            .compressedData(new byte[]{1, 2, 3})
+            .signature(new byte[]{4, 5, 6})
+            .signatureAlgorithm(SignatureAlgorithm.SHA512_WITH_RSA)
+            .build();
+    }
+
+    private List<String> transactionIds(int fromIndex, int toIndex) {
+        return chain.subList(fromIndex, toIndex).stream().map(FinancialTransaction::getTransactionId).collect(Collectors.toList());
+    }
+
+    private List<Integer> archivedTransactionNumbers() {
+        return join(accountStatementCheckpointRepository.findArchivedChainSegments(ACCOUNT_STATEMENT_ID, 0)).stream()
+            .map(ArchivedChainSegment::getFirstTransactionNumber)
+            .collect(Collectors.toList());
+    }
+
+    private static <T> T join(CompletionStage<T> completionStage) {
+        return completionStage.toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,184 @@
+package hu.upscale.akka.demo.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.inject.Injector;
+import com.typesafe.config.Config;
+import hu.upscale.akka.demo.H2TestInjector;
+import hu.upscale.akka.demo.crypto.SignatureAlgorithm;
+import hu.upscale.akka.demo.entity.AccountStatementCheckpoint;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransaction;
+import hu.upscale.akka.demo.entity.ArchiveFinancialTransactionBlock;
+import hu.upscale.akka.demo.entity.ArchivedChainSegment;
+import hu.upscale.akka.demo.entity.FinancialTransaction;
+import hu.upscale.akka.demo.generator.ChainGeneratorSettings;
+import hu.upscale.akka.demo.generator.FinancialTransactionChainGenerator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the R2DBC repositories against the in-process H2 database and reads their results back through the JDBC repositories.
+ *
+ * @author László Zoltán
+ */
+public class R2dbcRepositoryTest {
+
+    private static final int CHAIN_LENGTH = 5;
+    private static final String ACCOUNT_STATEMENT_ID = new UUID(0, 1).toString();
+
+    private Injector injector;
+    private String lastTransactionId;
+
+    private FinancialTransactionRepository r2dbcFinancialTransactionRepository;
+    private ArchiveRepository r2dbcArchiveRepository;
+    private AccountStatementCheckpointRepository r2dbcCheckpointRepository;
+
+    private FinancialTransactionRepository jdbcFinancialTransactionRepository;
+    private AccountStatementCheckpointRepository jdbcCheckpointRepository;
+
+    @Before
+    public void setUp() {
+        injector = H2TestInjector.create("microservice.persistence.engine = R2DBC");
+        // h2.conf creates the schema through JDBC, so the data source is started first
+        DataSource dataSource = injector.getInstance(DataSource.class);
+        Config config = injector.getInstance(Config.class);
+        lastTransactionId = new FinancialTransactionChainGenerator(dataSource)
+            .generate(ChainGeneratorSettings.fromConfig(config).withFixedShape(1, CHAIN_LENGTH, 256))
+            .get(0)
+            .toString();
+
+        r2dbcFinancialTransactionRepository = injector.getInstance(FinancialTransactionRepository.class);
+        r2dbcArchiveRepository = injector.getInstance(ArchiveRepository.class);
+        r2dbcCheckpointRepository = injector.getInstance(AccountStatementCheckpointRepository.class);
+        assertTrue(r2dbcFinancialTransactionRepository instanceof R2dbcFinancialTransactionRepository);
+        assertTrue(r2dbcArchiveRepository instanceof R2dbcArchiveRepository);
+        assertTrue(r2dbcCheckpointRepository instanceof R2dbcAccountStatementCheckpointRepository);
+
+        jdbcFinancialTransactionRepository = new JdbcFinancialTransactionRepository(dataSource, ForkJoinPool.commonPool(), SqlDialect.H2);
+        jdbcCheckpointRepository = new JdbcAccountStatementCheckpointRepository(dataSource, ForkJoinPool.commonPool());
+    }
+
+    @After
+    public void tearDown() {
+        H2TestInjector.shutdown(injector);
+    }
+
+    @Test
+    public void chainPagesMatchTheJdbcRepository() {
+        for (int pageSize : new int[]{1, 3, CHAIN_LENGTH + 1}) {
+            List<FinancialTransaction> chainPage = join(
+                r2dbcFinancialTransactionRepository.findFinancialTransactionChainPage(lastTransactionId, pageSize));
+
+            assertEquals("page size " + pageSize, Math.min(pageSize, CHAIN_LENGTH), chainPage.size());
+            assertEquals("page size " + pageSize,
+                join(jdbcFinancialTransactionRepository.findFinancialTransactionChainPage(lastTransactionId, pageSize)), chainPage);
+        }
+    }
+
+    @Test
+    public void missingFinancialTransactionFailsTheChainPage() {
+        assertThrows(CompletionException.class,
+            () -> join(r2dbcFinancialTransactionRepository.findFinancialTransactionChainPage(new UUID(0, 0).toString(), CHAIN_LENGTH)));
+    }
+
+    @Test
+    public void movesArchiveRowsAndBlocks() {
+        List<FinancialTransaction> chain = join(
+            r2dbcFinancialTransactionRepository.findFinancialTransactionChainPage(lastTransactionId, CHAIN_LENGTH));
+
+        join(r2dbcArchiveRepository.moveFinancialTransactionsToArchive(List.of(
+            archiveFinancialTransaction(chain.get(0), 1),
+            archiveFinancialTransaction(chain.get(1), 2)
+        )));
+        join(r2dbcArchiveRepository.moveFinancialTransactionBlockToArchive(ArchiveFinancialTransactionBlock.builder()
+                .accountStatementId(ACCOUNT_STATEMENT_ID)
+                .blockNumber(1)
+                .firstTransactionNumber(3)
+                .transactionCount(3)
+                .offsetIndex(new byte[0])
+                .compressedData(new byte[]{1, 2, 3})
+                .signature(new byte[]{4, 5, 6})
+                .signatureAlgorithm(SignatureAlgorithm.SHA512_WITH_RSA)
+                .build(),
+            chain.subList(2, CHAIN_LENGTH).stream().map(FinancialTransaction::getTransactionId).collect(Collectors.toList())
+        ));
+
+        assertThrows(CompletionException.class,
+            () -> join(jdbcFinancialTransactionRepository.findFinancialTransactionChainPage(lastTransactionId, 1)));
+        List<ArchivedChainSegment> archivedChainSegments = join(jdbcCheckpointRepository.findArchivedChainSegments(ACCOUNT_STATEMENT_ID, 0));
+        assertEquals(List.of(1, 2, 3),
+            archivedChainSegments.stream().map(ArchivedChainSegment::getFirstTransactionNumber).collect(Collectors.toList()));
+        assertEquals(chain.get(1).getPreviousTransactionId(), archivedChainSegments.get(1).getPreviousTransactionId());
+        assertEquals(archivedChainSegments, join(r2dbcCheckpointRepository.findArchivedChainSegments(ACCOUNT_STATEMENT_ID, 0)));
+        assertEquals(archivedChainSegments.subList(2, 3), join(r2dbcCheckpointRepository.findArchivedChainSegments(ACCOUNT_STATEMENT_ID, 2)));
+    }
+
+    @Test
+    public void moveOfArchivedFinancialTransactionsIsRolledBack() {
+        List<FinancialTransaction> chain = join(
+            r2dbcFinancialTransactionRepository.findFinancialTransactionChainPage(lastTransactionId, CHAIN_LENGTH));
+        join(r2dbcArchiveRepository.moveFinancialTransactionsToArchive(List.of(archiveFinancialTransaction(chain.get(0), 1))));
+
+        assertThrows(CompletionException.class, () -> join(r2dbcArchiveRepository.moveFinancialTransactionsToArchive(List.of(
+            archiveFinancialTransaction(chain.get(1), 2),
+            archiveFinancialTransaction(chain.get(0), 1)
+        ))));
+
+        assertEquals(1, join(jdbcCheckpointRepository.findArchivedChainSegments(ACCOUNT_STATEMENT_ID, 0)).size());
+        assertEquals(chain.subList(1, CHAIN_LENGTH), join(jdbcFinancialTransactionRepository.findFinancialTransactionChainPage(
+            chain.get(1).getTransactionId(), CHAIN_LENGTH)));
+    }
+
+    @Test
+    public void checkpointsMatchTheJdbcRepository() {
+        AccountStatementCheckpoint accountStatementCheckpoint = AccountStatementCheckpoint.builder()
+            .accountStatementId(ACCOUNT_STATEMENT_ID)
+            .lastTransactionId(lastTransactionId)
+            .lastArchivedTransactionNumber(0)
+            .nextTransactionId(lastTransactionId)
+            .nextBlockNumber(1)
+            .build();
+
+        join(r2dbcCheckpointRepository.insertCheckpoint(accountStatementCheckpoint));
+        assertEquals(Optional.of(accountStatementCheckpoint), join(jdbcCheckpointRepository.findCheckpoint(ACCOUNT_STATEMENT_ID)));
+
+        AccountStatementCheckpoint updatedCheckpoint = accountStatementCheckpoint.toBuilder()
+            .lastArchivedTransactionNumber(CHAIN_LENGTH)
+            .nextTransactionId(null)
+            .nextBlockNumber(2)
+            .build();
+        join(r2dbcCheckpointRepository.updateCheckpoint(updatedCheckpoint));
+        assertEquals(Optional.of(updatedCheckpoint), join(r2dbcCheckpointRepository.findCheckpoint(ACCOUNT_STATEMENT_ID)));
+        assertEquals(Optional.of(updatedCheckpoint), join(jdbcCheckpointRepository.findCheckpoint(ACCOUNT_STATEMENT_ID)));
+
+        join(r2dbcCheckpointRepository.deleteCheckpoint(ACCOUNT_STATEMENT_ID));
+        assertEquals(Optional.empty(), join(jdbcCheckpointRepository.findCheckpoint(ACCOUNT_STATEMENT_ID)));
+    }
+
+    private static ArchiveFinancialTransaction archiveFinancialTransaction(FinancialTransaction financialTransaction, int transactionNumber) {
+        return ArchiveFinancialTransaction.builder()
+            .accountStatementId(ACCOUNT_STATEMENT_ID)
+            .transactionId(financialTransaction.getTransactionId())
+            .transactionNumber(transactionNumber)
+            .previousTransactionId(financialTransaction.getPreviousTransactionId())
+            .compressedData(financialTransaction.getData())
+            .signature(new byte[]{(byte) transactionNumber})
+            .signatureAlgorithm(SignatureAlgorithm.SHA512_WITH_RSA)
+            .build();
+    }
+
+    private static <T> T join(CompletionStage<T> completionStage) {
+        return completionStage.toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,84 @@
+package hu.upscale.akka.demo.route;
+
+import static org.junit.Assert.assertEquals;
+
+import akka.actor.ActorSystem;
+import akka.http.javadsl.Http;
+import akka.http.javadsl.ServerBinding;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.StatusCode;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.model.headers.Authorization;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import hu.upscale.akka.demo.jfr.FlightRecorderService;
+import hu.upscale.akka.demo.util.ObjectMapperProvider;
+import java.util.concurrent.CompletionStage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Calls the admin endpoints through a management binding on an ephemeral loopback port.
+ *
+ * @author László Zoltán
+ */
+public class AdminRouteTest {
+
+    private static final String TOKEN = "management-token";
+
+    private ActorSystem actorSystem;
+    private Http http;
+    private String baseUri;
+
+    @Before
+    public void setUp() {
+        Config config = ConfigFactory.parseString("microservice { management.token = \"" + TOKEN + "\", jfr.recording.enabled = false }")
+            .withFallback(ConfigFactory.load());
+        actorSystem = ActorSystem.create("admin-route-test", config);
+        http = Http.get(actorSystem);
+
+        AdminRoute adminRoute = new AdminRoute(config, ObjectMapperProvider.getObjectMapper(), actorSystem,
+            new FlightRecorderService(config, actorSystem));
+        ServerBinding serverBinding = join(http.newServerAt("127.0.0.1", 0).bind(adminRoute.getAdminRoute()));
+        baseUri = "http://127.0.0.1:" + serverBinding.localAddress().getPort() + "/admin/jfr";
+    }
+
+    @After
+    public void tearDown() {
+        actorSystem.terminate();
+        actorSystem.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    @Test
+    public void requestsWithoutTheTokenAreRejected() {
+        assertEquals(StatusCodes.UNAUTHORIZED, status(HttpRequest.GET(baseUri)));
+        assertEquals(StatusCodes.UNAUTHORIZED, status(HttpRequest.POST(baseUri + "/start")
+            .addHeader(Authorization.oauth2("other-token"))));
+        assertEquals(StatusCodes.OK, status(authorized(HttpRequest.GET(baseUri))));
+    }
+
+    @Test
+    public void onlyTheJdkConfigurationsCanBeStarted() {
+        assertEquals(StatusCodes.BAD_REQUEST, status(authorized(HttpRequest.POST(baseUri + "/start?settings=/etc/passwd.jfc"))));
+        assertEquals(StatusCodes.BAD_REQUEST, status(authorized(HttpRequest.POST(baseUri + "/start?settings=custom"))));
+
+        assertEquals(StatusCodes.OK, status(authorized(HttpRequest.POST(baseUri + "/start?settings=profile"))));
+        assertEquals(StatusCodes.OK, status(authorized(HttpRequest.POST(baseUri + "/stop"))));
+    }
+
+    private static HttpRequest authorized(HttpRequest httpRequest) {
+        return httpRequest.addHeader(Authorization.oauth2(TOKEN));
+    }
+
+    private StatusCode status(HttpRequest httpRequest) {
+        return join(http.singleRequest(httpRequest).thenApply(httpResponse -> {
+            httpResponse.discardEntityBytes(actorSystem);
+            return httpResponse.status();
+        }));
+    }
+
+    private static <T> T join(CompletionStage<T> completionStage) {
+        return completionStage.toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,128 @@
+package hu.upscale.akka.demo.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.headers.RawHeader;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author László Zoltán
+ */
+public class PipelineTracingTest {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+    private static final String PARENT_SPAN_ID = "b7ad6b7169203331";
+
+    private final InMemorySpanExporter inMemorySpanExporter = InMemorySpanExporter.create();
+    private PipelineTracing pipelineTracing;
+
+    @Before
+    public void setUp() {
+        pipelineTracing = new PipelineTracing(OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(inMemorySpanExporter)).build())
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build());
+    }
+
+    @Test
+    public void serverSpanContinuesTheTraceOfTheRequest() {
+        HttpRequest httpRequest = HttpRequest.create("/").addHeader(RawHeader.create("traceparent", "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01"));
+
+        pipelineTracing.startServerSpan("POST /account-statement", pipelineTracing.extract(httpRequest)).end();
+
+        SpanData serverSpan = onlySpan();
+        assertEquals(SpanKind.SERVER, serverSpan.getKind());
+        assertEquals(TRACE_ID, serverSpan.getTraceId());
+        assertEquals(PARENT_SPAN_ID, serverSpan.getParentSpanId());
+    }
+
+    @Test
+    public void tracingExecutorRunsTracedTasksInAQueuedChildSpan() {
+        AtomicReference<SpanContext> taskSpanContext = new AtomicReference<>();
+        Executor tracingExecutor = pipelineTracing.tracingExecutor("JdbcExecutor.execute", Runnable::run);
+        Span parent = pipelineTracing.startSpan("FinancialTransactionRepository.findFinancialTransactionChainPage", Context.root());
+
+        PipelineTracing.callInScope(parent, () -> {
+            tracingExecutor.execute(() -> taskSpanContext.set(Span.current().getSpanContext()));
+            return null;
+        });
+        parent.end();
+
+        assertFalse("The scope is closed", Span.current().getSpanContext().isValid());
+        List<SpanData> spans = inMemorySpanExporter.getFinishedSpanItems();
+        assertEquals(2, spans.size());
+        SpanData taskSpan = spans.get(0);
+        assertEquals("JdbcExecutor.execute", taskSpan.getName());
+        assertEquals(parent.getSpanContext().getSpanId(), taskSpan.getParentSpanId());
+        assertEquals(taskSpan.getSpanId(), taskSpanContext.get().getSpanId());
+        assertNotNull(taskSpan.getAttributes().get(PipelineTracing.QUEUE_TIME_NANOS));
+        assertEquals(List.of("dequeued"), taskSpan.getEvents().stream().map(EventData::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void tracingExecutorRunsUntracedTasksAsTheyAre() {
+        AtomicReference<Span> taskSpan = new AtomicReference<>();
+
+        pipelineTracing.tracingExecutor("JdbcExecutor.execute", Runnable::run).execute(() -> taskSpan.set(Span.current()));
+
+        assertSame(Span.getInvalid(), taskSpan.get());
+        assertTrue(inMemorySpanExporter.getFinishedSpanItems().isEmpty());
+    }
+
+    @Test
+    public void linkedSpanLinksEveryTracedContext() {
+        Span first = pipelineTracing.startSpan("ArchiveWriteCombiner.move", Context.root());
+        Span second = pipelineTracing.startSpan("ArchiveWriteCombiner.move", Context.root());
+
+        Span commit = pipelineTracing.startLinkedSpan("ArchiveWriteCombiner.commit",
+            List.of(Context.root().with(first), Context.root(), Context.root().with(second)));
+        commit.end();
+
+        SpanData commitSpan = onlySpan();
+        assertFalse(commitSpan.getParentSpanContext().isValid());
+        assertEquals(List.of(first.getSpanContext(), second.getSpanContext()),
+            commitSpan.getLinks().stream().map(LinkData::getSpanContext).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void endOnCompletionMarksFailedStages() {
+        Span span = pipelineTracing.startSpan("ArchiveWriteCombiner.move", Context.root());
+
+        PipelineTracing.endOnCompletion(span, CompletableFuture.failedFuture(new IllegalStateException("rollback")));
+
+        SpanData failedSpan = onlySpan();
+        assertEquals(StatusCode.ERROR, failedSpan.getStatus().getStatusCode());
+        assertEquals(List.of("exception"), failedSpan.getEvents().stream().map(EventData::getName).collect(Collectors.toList()));
+    }
+
+    private SpanData onlySpan() {
+        List<SpanData> spans = inMemorySpanExporter.getFinishedSpanItems();
+        assertEquals(1, spans.size());
+        return spans.get(0);
+    }
+}